@@ -16,6 +16,12 @@ import org.springframework.orm.hibernate5.HibernateTransactionManager;
 import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.filter.RequestRateInterceptor;
+import com.stackroute.keepnote.service.RequestRateLimiter;
 
 /*This class will contain the application-context for the application. 
  * Define the following annotations:
@@ -34,7 +40,13 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 @EnableWebMvc
 @EnableTransactionManagement
 @EnableAspectJAutoProxy
-public class ApplicationContextConfig {
+public class ApplicationContextConfig implements WebMvcConfigurer {
+
+	/*
+	 * Number of statements Hibernate groups into one JDBC batch. DAOs writing many
+	 * rows at once flush and clear the session at the same interval.
+	 */
+	public static final int JDBC_BATCH_SIZE = 50;
 
 	/*
 	 * Define the bean for DataSource. In our application, we are using MySQL as the
@@ -62,7 +74,7 @@ public class ApplicationContextConfig {
 		 dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
 		 dataSource.setUrl("jdbc:mysql://" + System.getenv("MYSQL_HOST") + ":3306/" +
 		 System.getenv("MYSQL_DATABASE")
-		 + "?verifyServerCertificate=false&useSSL=false&requireSSL=false");
+		 + "?verifyServerCertificate=false&useSSL=false&requireSSL=false&useCursorFetch=true&rewriteBatchedStatements=true");
 		 dataSource.setUsername(System.getenv("MYSQL_USER"));
 		 dataSource.setPassword(System.getenv("MYSQL_PASSWORD"));
 
@@ -87,12 +99,33 @@ public class ApplicationContextConfig {
 		properties.put("hibernate.show_sql", "true");
 		properties.put("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
 		properties.put("hibernate.hbm2ddl.auto", "update");
+		properties.put("hibernate.jdbc.batch_size", String.valueOf(JDBC_BATCH_SIZE));
+		properties.put("hibernate.order_inserts", "true");
+		properties.put("hibernate.order_updates", "true");
+		properties.putAll(getSecondLevelCacheProperties());
 		factoryBean.setPackagesToScan("com.stackroute.keepnote.model");
 		factoryBean.setHibernateProperties(properties);
 		factoryBean.afterPropertiesSet();
 		return factoryBean;
 	}
 
+	/*
+	 * Second-level cache for the Category, Reminder and User entities. The regions
+	 * and their size and expiry settings are declared in ehcache.xml. Set
+	 * KEEPNOTE_SECOND_LEVEL_CACHE=false to run without it, e.g. to compare lookup
+	 * latency. Statistics are always collected, they back the /stats/cache counters.
+	 */
+	private Properties getSecondLevelCacheProperties() {
+		Properties properties = new Properties();
+		boolean enabled = !"false".equalsIgnoreCase(System.getenv("KEEPNOTE_SECOND_LEVEL_CACHE"));
+		properties.put("hibernate.cache.use_second_level_cache", String.valueOf(enabled));
+		properties.put("hibernate.cache.region.factory_class",
+				"org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+		properties.put("net.sf.ehcache.configurationResourceName", "/ehcache.xml");
+		properties.put("hibernate.generate_statistics", "true");
+		return properties;
+	}
+
 	/*
 	 * Define the bean for Transaction Manager. HibernateTransactionManager handles
 	 * transaction in Spring. The application that uses single hibernate session
@@ -109,4 +142,19 @@ public class ApplicationContextConfig {
 		return transaction;
 	}
 
+	@Autowired
+	private RequestRateLimiter requestRateLimiter;
+
+	/*
+	 * Every handler method which takes the logged in user as request attribute is
+	 * guarded by the AuthenticationInterceptor, before its request body is read.
+	 * The requests of the user it has authenticated are then limited by the
+	 * RequestRateInterceptor, so the order of the two matters.
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new AuthenticationInterceptor());
+		registry.addInterceptor(new RequestRateInterceptor(requestRateLimiter));
+	}
+
 }
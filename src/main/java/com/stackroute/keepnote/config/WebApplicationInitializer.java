@@ -1,5 +1,8 @@
 package com.stackroute.keepnote.config;
 
+import javax.servlet.Filter;
+
+import org.springframework.web.filter.DelegatingFilterProxy;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
 public class WebApplicationInitializer extends AbstractAnnotationConfigDispatcherServletInitializer {
@@ -22,4 +25,15 @@ public class WebApplicationInitializer extends AbstractAnnotationConfigDispatche
 		return new String[] { "/" };
 	}
 
+	/*
+	 * The token authentication filter is a bean of the root context, so that it can
+	 * use the TokenService; it passes every request through unless the stateless
+	 * mode is enabled.
+	 */
+	@Override
+	protected Filter[] getServletFilters() {
+
+		return new Filter[] { new DelegatingFilterProxy("tokenAuthenticationFilter") };
+	}
+
 }
@@ -1,19 +1,23 @@
 package com.stackroute.keepnote.controller;
 
 import java.util.List;
-
-import javax.servlet.http.HttpSession;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.service.CategoryService;
 
@@ -56,15 +60,14 @@ public class CategoryController {
 	 */
 
 	@RequestMapping(method = RequestMethod.POST, value = "/category")
-	public ResponseEntity<?> createCategory(@RequestBody Category category, HttpSession session) {
+	public ResponseEntity<?> createCategory(@RequestBody Category category,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
 		try {
-			if (null != session && null != session.getAttribute("loggedInUserId")) {
-				if (categoryService.createCategory(category)) {
-					return new ResponseEntity<Category>(category, HttpStatus.CREATED);
-				}
-				return new ResponseEntity<String>("Creation Category Failed", HttpStatus.CONFLICT);
+			category.setCategoryCreatedBy(userId);
+			if (categoryService.createCategory(category)) {
+				return new ResponseEntity<Category>(category, HttpStatus.CREATED);
 			}
-			return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			return new ResponseEntity<String>("Creation Category Failed", HttpStatus.CONFLICT);
 		} catch (Exception e) {
 			return new ResponseEntity<String>("Creation reminder Failed", HttpStatus.CONFLICT);
 		}
@@ -83,16 +86,12 @@ public class CategoryController {
 	 * method" where "id" should be replaced by a valid categoryId without {}
 	 */
 	@RequestMapping(method = RequestMethod.DELETE, value = "/category/{id}")
-	public ResponseEntity<?> deleteCategory(@PathVariable int id, HttpSession session) {
+	public ResponseEntity<?> deleteCategory(@PathVariable int id, @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
 		try {
-			if (null != session && null != session.getAttribute("loggedInUserId")) {
-				if (categoryService.deleteCategory(id)) {
-					return new ResponseEntity<String>("Category Deleted", HttpStatus.OK);
-				}
-				return new ResponseEntity<String>("Category Not Found", HttpStatus.NOT_FOUND);
-			} else {
-				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			if (categoryService.deleteCategory(id, userId)) {
+				return new ResponseEntity<String>("Category Deleted", HttpStatus.OK);
 			}
+			return new ResponseEntity<String>("Category Not Found", HttpStatus.NOT_FOUND);
 		} catch (Exception e) {
 			return new ResponseEntity<String>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
 		}
@@ -111,14 +110,21 @@ public class CategoryController {
 	 * 
 	 * This handler method should map to the URL "/category/{id}" using HTTP PUT
 	 * method.
+	 * 
+	 * The category updated is the one in the URL; a body naming another category
+	 * id is rejected with 400(BAD REQUEST). Only a category of the logged in user
+	 * is updated, the category of another user is not found.
 	 */
 	@RequestMapping(method = RequestMethod.PUT, value = "/category/{id}")
-	public ResponseEntity<?> updateCategory(@RequestBody Category category, HttpSession session) {
+	public ResponseEntity<?> updateCategory(@PathVariable int id, @RequestBody Category category,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		if (category.getCategoryId() != 0 && category.getCategoryId() != id) {
+			return new ResponseEntity<String>("Category Id Does Not Match", HttpStatus.BAD_REQUEST);
+		}
 		try {
-			if (null == session || null == session.getAttribute("loggedInUserId")) {
-				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
-			}
-			Category category2 = categoryService.updateCategory(category, category.getCategoryId());
+			category.setCategoryId(id);
+			category.setCategoryCreatedBy(userId);
+			Category category2 = categoryService.updateCategory(category, id);
 			if(category2 == null) {
 				return new ResponseEntity<String>("Category Not Found", HttpStatus.NOT_FOUND);
 			}
@@ -140,19 +146,49 @@ public class CategoryController {
 	 * 
 	 * 
 	 * This handler method should map to the URL "/category" using HTTP GET method
+	 * 
+	 * When the "fields" request parameter is present, e.g.
+	 * "fields=categoryId,categoryName", only those fields of every category are
+	 * read from the database and returned. 400(BAD REQUEST) - If a field is
+	 * unknown.
+	 * 
+	 * The response carries the collection version of the user as ETag. A request
+	 * whose If-None-Match still matches it is answered with 304(NOT MODIFIED)
+	 * before any category is read.
 	 */
 	@RequestMapping(method = RequestMethod.GET, path = "/category")
-	public ResponseEntity<?> getReminder(HttpSession session) {
+	public ResponseEntity<?> getReminder(@RequestParam(required = false) String fields,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId, WebRequest webRequest) {
 		try {
-			if (null != session && null != session.getAttribute("loggedInUserId")) {
-				List<Category> categoryList = categoryService
-						.getAllCategoryByUserId(session.getAttribute("loggedInUserId").toString());
-				return new ResponseEntity<List<Category>>(categoryList, HttpStatus.OK);
+			if (webRequest.checkNotModified(categoryService.getCollectionVersion(userId))) {
+				return null;
 			}
-			return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			if (null != fields) {
+				List<Map<String, Object>> categoryList = categoryService.getAllCategoryByUserId(userId, fields);
+				return new ResponseEntity<List<Map<String, Object>>>(categoryList, HttpStatus.OK);
+			}
+			List<Category> categoryList = categoryService.getAllCategoryByUserId(userId);
+			return new ResponseEntity<List<Category>>(categoryList, HttpStatus.OK);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
 		} catch (Exception e) {
 			return new ResponseEntity<String>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
 		}
 	}
 
-}
\ No newline at end of file
+	/*
+	 * Define a handler method which will stream the categorys of the logged in user
+	 * as newline delimited JSON, one category per line, when the client sends
+	 * "Accept: application/x-ndjson". 1. 200(OK) - The categorys are written while they
+	 * are read from the database. 2. 401(UNAUTHORIZED) - If the user trying to
+	 * perform the action has not logged in.
+	 * 
+	 * This handler method should map to the URL "/category" using HTTP GET method
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/category", produces = NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamCategory(
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		return NdjsonResponses.<Category>stream(consumer -> categoryService.streamCategoriesByUserId(userId, consumer));
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.stackroute.keepnote.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Helper for the listing handlers which answer "Accept: application/x-ndjson".
+ * Instead of serializing a complete List, every entity handed over by the service
+ * is written to the servlet output stream as one JSON document per line as soon
+ * as it has been read from the database.
+ */
+final class NdjsonResponses {
+
+	static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+	private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build()
+			.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+	private NdjsonResponses() {
+	}
+
+	/*
+	 * Build a 200(OK) response streaming everything the source pushes into the
+	 * consumer it is given. The source runs on the async request thread, after the
+	 * handler method has returned.
+	 */
+	static <T> ResponseEntity<StreamingResponseBody> stream(Consumer<Consumer<T>> source) {
+		StreamingResponseBody body = outputStream -> {
+			try {
+				source.accept(entity -> writeLine(outputStream, entity));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		};
+		return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+	}
+
+	private static void writeLine(OutputStream outputStream, Object entity) {
+		try {
+			OBJECT_MAPPER.writeValue(outputStream, entity);
+			outputStream.write('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
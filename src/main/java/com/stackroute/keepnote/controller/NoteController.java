@@ -1,19 +1,29 @@
 package com.stackroute.keepnote.controller;
 
 import java.util.List;
+import java.util.Map;
 
-import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteFieldsPage;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.search.InvertedIndex;
+import com.stackroute.keepnote.search.NoteSearchIndex;
 import com.stackroute.keepnote.service.NoteService;
 
 /*
@@ -33,6 +43,11 @@ public class NoteController {
 	 * keyword
 	 */
 
+	/*
+	 * Largest number of notes accepted by a single batch create request.
+	 */
+	public static final int MAX_BATCH_SIZE = 1000;
+
 	private NoteService noteService;
 
 	@Autowired
@@ -54,20 +69,50 @@ public class NoteController {
 	 * This handler method should map to the URL "/note" using HTTP POST method
 	 */
 	@RequestMapping(value = "/note", method = RequestMethod.POST)
-	public ResponseEntity<?> createNote(@RequestBody Note note, HttpSession session) {
+	public ResponseEntity<?> createNote(@RequestBody Note note, @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
 		try {
-			if (null != session && null != session.getAttribute("loggedInUserId")) {
-				if (noteService.createNote(note)) {
-					return new ResponseEntity<Note>(note, HttpStatus.CREATED);
-				}
-				return new ResponseEntity<String>("Creation Note Failed", HttpStatus.CONFLICT);
+			note.setCreatedBy(userId);
+			if (noteService.createNote(note)) {
+				return new ResponseEntity<Note>(note, HttpStatus.CREATED);
 			}
-			return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			return new ResponseEntity<String>("Creation Note Failed", HttpStatus.CONFLICT);
 		} catch (Exception e) {
 			return new ResponseEntity<String>("Creation Note Failed", HttpStatus.CONFLICT);
 		}
 	}
 
+	/*
+	 * Define a handler method which will create many notes at once by reading an
+	 * array of notes from the request body and saving them in one transaction.
+	 * The response lists the outcome of every note in request order. This handler
+	 * method should return any one of the status messages basis on different
+	 * situations: 1. 201(CREATED) - If all the notes were created. 2.
+	 * 207(MULTI_STATUS) - If some of the notes could not be created. 3. 400(BAD
+	 * REQUEST) - If the batch is empty or larger than MAX_BATCH_SIZE notes. 4.
+	 * 401(UNAUTHORIZED) - If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * This handler method should map to the URL "/note/batch" using HTTP POST
+	 * method
+	 */
+	@RequestMapping(value = "/note/batch", method = RequestMethod.POST)
+	public ResponseEntity<?> createNotes(@RequestBody List<Note> notes, @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		if (notes.isEmpty() || notes.size() > MAX_BATCH_SIZE) {
+			return new ResponseEntity<String>("Batch must hold 1 to " + MAX_BATCH_SIZE + " notes",
+					HttpStatus.BAD_REQUEST);
+		}
+		for (Note note : notes) {
+			note.setCreatedBy(userId);
+		}
+		List<NoteBatchResult> results = noteService.createNotes(notes);
+		for (NoteBatchResult result : results) {
+			if (!NoteBatchResult.CREATED.equals(result.getStatus())) {
+				return new ResponseEntity<List<NoteBatchResult>>(results, HttpStatus.MULTI_STATUS);
+			}
+		}
+		return new ResponseEntity<List<NoteBatchResult>>(results, HttpStatus.CREATED);
+	}
+
 	/*
 	 * Define a handler method which will delete a note from a database.
 	 * 
@@ -81,16 +126,12 @@ public class NoteController {
 	 * method" where "id" should be replaced by a valid noteId without {}
 	 */
 	@RequestMapping(method = RequestMethod.DELETE, value = "/note/{id}")
-	public ResponseEntity<?> deleteReminder(@PathVariable int id, HttpSession session) {
+	public ResponseEntity<?> deleteReminder(@PathVariable int id, @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
 		try {
-			if (null != session && null != session.getAttribute("loggedInUserId")) {
-				if (noteService.deleteNote(id)) {
-					return new ResponseEntity<String>("Note Deleted", HttpStatus.OK);
-				}
-				return new ResponseEntity<String>("Note Not Found", HttpStatus.NOT_FOUND);
-			} else {
-				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			if (noteService.deleteNote(id, userId)) {
+				return new ResponseEntity<String>("Note Deleted", HttpStatus.OK);
 			}
+			return new ResponseEntity<String>("Note Not Found", HttpStatus.NOT_FOUND);
 		} catch (Exception e) {
 			return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
 		}
@@ -108,14 +149,22 @@ public class NoteController {
 	 * in.
 	 * 
 	 * This handler method should map to the URL "/note/{id}" using HTTP PUT method.
+	 * 
+	 * The note updated is the one in the URL; a body naming another note id is
+	 * rejected with 400(BAD REQUEST). Only a note of the logged in user is updated,
+	 * the note of another user is not found.
 	 */
 
 	@RequestMapping(method = RequestMethod.PUT, value = "/note/{id}")
-	public ResponseEntity<?> updateReminder(@RequestBody Note note, HttpSession session) {
+	public ResponseEntity<?> updateReminder(@PathVariable int id, @RequestBody Note note,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		if (note.getNoteId() != 0 && note.getNoteId() != id) {
+			return new ResponseEntity<String>("Note Id Does Not Match", HttpStatus.BAD_REQUEST);
+		}
 		try {
-			if (null == session || null == session.getAttribute("loggedInUserId")) {
-				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
-			} else if (null != noteService.updateNote(note, note.getNoteId())) {
+			note.setNoteId(id);
+			note.setCreatedBy(userId);
+			if (null != noteService.updateNote(note, id)) {
 				return new ResponseEntity<Note>(note, HttpStatus.OK);
 			} else {
 				return new ResponseEntity<String>("Note Not Found", HttpStatus.NOT_FOUND);
@@ -134,19 +183,106 @@ public class NoteController {
 	 * 
 	 * 
 	 * This handler method should map to the URL "/note" using HTTP GET method
+	 * 
+	 * When the "limit" request parameter is present, only one page of notes is
+	 * returned as a NotePage, ordered by creation date and noteId. The nextCursor
+	 * of a page has to be passed back as the "after" parameter to get the next
+	 * one. 400(BAD REQUEST) - If the cursor is malformed.
+	 * 
+	 * When the "fields" request parameter is present, e.g.
+	 * "fields=noteId,noteTitle,noteCreatedAt", only those fields of every note are
+	 * read from the database and returned, with or without "limit". 400(BAD
+	 * REQUEST) - If a field is unknown.
+	 * 
+	 * The response carries the collection version of the user as ETag. A request
+	 * whose If-None-Match still matches it is answered with 304(NOT MODIFIED)
+	 * before any note is read.
 	 */
 	
 	@RequestMapping(method = RequestMethod.GET, value ="/note")
-    public ResponseEntity<?> getNote(HttpSession session){
+    public ResponseEntity<?> getNote(@RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after, @RequestParam(required = false) String fields,
+            @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId, WebRequest webRequest){
         try {
-            if(null != session && null != session.getAttribute("loggedInUserId")){
-                List<Note> noteList = noteService.getAllNotesByUserId(session.getAttribute("loggedInUserId").toString());
-                return new ResponseEntity<List<Note>>(noteList, HttpStatus.OK);
+            if (webRequest.checkNotModified(noteService.getCollectionVersion(userId))) {
+                return null;
+            }
+            if (null != fields) {
+                if (null != limit) {
+                    NoteFieldsPage notePage = noteService.getNotesByUserId(userId, after, limit, fields);
+                    return new ResponseEntity<NoteFieldsPage>(notePage, HttpStatus.OK);
+                }
+                List<Map<String, Object>> noteList = noteService.getAllNotesByUserId(userId, fields);
+                return new ResponseEntity<List<Map<String, Object>>>(noteList, HttpStatus.OK);
             }
-            return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+            if (null != limit) {
+                NotePage notePage = noteService.getNotesByUserId(userId, after, limit);
+                return new ResponseEntity<NotePage>(notePage, HttpStatus.OK);
+            }
+            List<Note> noteList = noteService.getAllNotesByUserId(userId);
+            return new ResponseEntity<List<Note>>(noteList, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
         catch (Exception e) {
             return new ResponseEntity<String>("Note Not Found", HttpStatus.NOT_FOUND);
         }
     }
+
+	/*
+	 * Define a handler method which will stream the notes of the logged in user
+	 * as newline delimited JSON, one note per line, when the client sends
+	 * "Accept: application/x-ndjson". 1. 200(OK) - The notes are written while they
+	 * are read from the database. 2. 401(UNAUTHORIZED) - If the user trying to
+	 * perform the action has not logged in.
+	 * 
+	 * This handler method should map to the URL "/note" using HTTP GET method
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/note", produces = NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamNote(@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		return NdjsonResponses.<Note>stream(consumer -> noteService.streamNotesByUserId(userId, consumer));
+	}
+
+	/*
+	 * Define a handler method which will search the titles and contents of the
+	 * notes of the logged in user for the words of the "q" request parameter.
+	 * Notes containing any of the words are returned, best match first, at most
+	 * "limit" of them (20 by default). Words of the notes within "maxEdits"
+	 * typing errors (2 by default, 0 for exact matches only) of a query word
+	 * match too, ranked below exact matches.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the matching notes, possibly none.
+	 * 2. 400(BAD REQUEST) - If the query contains no word or limit or maxEdits is
+	 * out of range. 3. 401(UNAUTHORIZED) - If the user trying to perform the action
+	 * has not logged in.
+	 * 
+	 * This handler method should map to the URL "/note/search" using HTTP GET
+	 * method
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/note/search")
+	public ResponseEntity<?> searchNote(@RequestParam("q") String query,
+			@RequestParam(value = "limit", defaultValue = "20") int limit,
+			@RequestParam(value = "maxEdits", defaultValue = "2") int maxEdits,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		try {
+			if (InvertedIndex.tokenize(query).isEmpty()) {
+				return new ResponseEntity<String>("Query Contains No Word", HttpStatus.BAD_REQUEST);
+			}
+			if (maxEdits < 0 || maxEdits > NoteSearchIndex.MAX_EDITS) {
+				return new ResponseEntity<String>("Max Edits Must Be Between 0 And " + NoteSearchIndex.MAX_EDITS,
+						HttpStatus.BAD_REQUEST);
+			}
+			List<Note> noteList = noteService.searchNotes(userId, query, limit, maxEdits);
+			return new ResponseEntity<List<Note>>(noteList, HttpStatus.OK);
+		}
+		catch (IllegalArgumentException e) {
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		}
+		catch (Exception e) {
+			return new ResponseEntity<String>("Note Not Found", HttpStatus.NOT_FOUND);
+		}
+	}
+
 }
@@ -1,18 +1,22 @@
 package com.stackroute.keepnote.controller;
 
 import java.util.List;
-
-import javax.servlet.http.HttpSession;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.service.ReminderService;
 
@@ -68,15 +72,14 @@ public class ReminderController {
 	 * method".
 	 */
 	@RequestMapping(method = RequestMethod.POST, path = "/reminder")
-	public ResponseEntity<?> createReminder(@RequestBody Reminder reminder, HttpSession session) {
+	public ResponseEntity<?> createReminder(@RequestBody Reminder reminder,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
 		try {
-			if (null != session && null != session.getAttribute("loggedInUserId")) {
-				if (reminderService.createReminder(reminder)) {
-					return new ResponseEntity<Reminder>(reminder, HttpStatus.CREATED);
-				}
-				return new ResponseEntity<String>("Creation reminder Failed", HttpStatus.CONFLICT);
+			reminder.setReminderCreatedBy(userId);
+			if (reminderService.createReminder(reminder)) {
+				return new ResponseEntity<Reminder>(reminder, HttpStatus.CREATED);
 			}
-			return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			return new ResponseEntity<String>("Creation reminder Failed", HttpStatus.CONFLICT);
 		} catch (Exception e) {
 			return new ResponseEntity<String>("Creation reminder Failed", HttpStatus.CONFLICT);
 		}
@@ -95,16 +98,12 @@ public class ReminderController {
 	 * method" where "id" should be replaced by a valid reminderId without {}
 	 */
 	@RequestMapping(method = RequestMethod.DELETE, path = "/reminder/{id}")
-	public ResponseEntity<?> deleteReminder(@PathVariable int id, HttpSession session) {
+	public ResponseEntity<?> deleteReminder(@PathVariable int id, @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
 		try {
-			if (null != session && null != session.getAttribute("loggedInUserId")) {
-				if (reminderService.deleteReminder(id)) {
-					return new ResponseEntity<String>("Reminder Deleted", HttpStatus.OK);
-				}
-				return new ResponseEntity<String>("Reminder Not Found", HttpStatus.NOT_FOUND);
-			} else {
-				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			if (reminderService.deleteReminder(id, userId)) {
+				return new ResponseEntity<String>("Reminder Deleted", HttpStatus.OK);
 			}
+			return new ResponseEntity<String>("Reminder Not Found", HttpStatus.NOT_FOUND);
 		} catch (Exception e) {
 			return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
 		}
@@ -123,13 +122,21 @@ public class ReminderController {
 	 * 
 	 * This handler method should map to the URL "/reminder/{id}" using HTTP PUT
 	 * method.
+	 * 
+	 * The reminder updated is the one in the URL; a body naming another reminder
+	 * id is rejected with 400(BAD REQUEST). Only a reminder of the logged in user
+	 * is updated, the reminder of another user is not found.
 	 */
 	@RequestMapping(method = RequestMethod.PUT, path = "/reminder/{id}")
-	public ResponseEntity<?> updateReminder(@RequestBody Reminder reminder, HttpSession session) {
+	public ResponseEntity<?> updateReminder(@PathVariable int id, @RequestBody Reminder reminder,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		if (reminder.getReminderId() != 0 && reminder.getReminderId() != id) {
+			return new ResponseEntity<String>("Reminder Id Does Not Match", HttpStatus.BAD_REQUEST);
+		}
 		try {
-			if (null == session || null == session.getAttribute("loggedInUserId")) {
-				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
-			} else if (null != reminderService.updateReminder(reminder, reminder.getReminderId())) {
+			reminder.setReminderId(id);
+			reminder.setReminderCreatedBy(userId);
+			if (null != reminderService.updateReminder(reminder, id)) {
 				return new ResponseEntity<Reminder>(reminder, HttpStatus.OK);
 			} else {
 				return new ResponseEntity<String>("Reminder Not Found", HttpStatus.NOT_FOUND);
@@ -149,16 +156,31 @@ public class ReminderController {
 	 * 
 	 * 
 	 * This handler method should map to the URL "/reminder" using HTTP GET method
+	 * 
+	 * When the "fields" request parameter is present, e.g.
+	 * "fields=reminderId,reminderName", only those fields of every reminder are
+	 * read from the database and returned. 400(BAD REQUEST) - If a field is
+	 * unknown.
+	 * 
+	 * The response carries the collection version of the user as ETag. A request
+	 * whose If-None-Match still matches it is answered with 304(NOT MODIFIED)
+	 * before any reminder is read.
 	 */
 	@RequestMapping(method = RequestMethod.GET, path = "/reminder")
-	public ResponseEntity<?> getReminder(HttpSession session) {
+	public ResponseEntity<?> getReminder(@RequestParam(required = false) String fields,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId, WebRequest webRequest) {
 		try {
-			if (null != session && null != session.getAttribute("loggedInUserId")) {
-				List<Reminder> reminderList = reminderService
-						.getAllReminderByUserId(session.getAttribute("loggedInUserId").toString());
-				return new ResponseEntity<List<Reminder>>(reminderList, HttpStatus.OK);
+			if (webRequest.checkNotModified(reminderService.getCollectionVersion(userId))) {
+				return null;
 			}
-			return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			if (null != fields) {
+				List<Map<String, Object>> reminderList = reminderService.getAllReminderByUserId(userId, fields);
+				return new ResponseEntity<List<Map<String, Object>>>(reminderList, HttpStatus.OK);
+			}
+			List<Reminder> reminderList = reminderService.getAllReminderByUserId(userId);
+			return new ResponseEntity<List<Reminder>>(reminderList, HttpStatus.OK);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
 		} catch (Exception e) {
 			return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
 		}
@@ -173,20 +195,36 @@ public class ReminderController {
 	 * with specified reminderId is not found. This handler method should map to the
 	 * URL "/reminder/{id}" using HTTP GET method where "id" should be replaced by a
 	 * valid reminderId without {}
+	 * 
+	 * Only a reminder of the logged in user is returned, the reminder of another
+	 * user is not found.
 	 */
 	@RequestMapping(method = RequestMethod.GET, path = "/reminder/{id}")
-	public ResponseEntity<?> getReminderById(@PathVariable int id, HttpSession session) {
+	public ResponseEntity<?> getReminderById(@PathVariable int id, @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
 		try {
-			if (null != session && null != session.getAttribute("loggedInUserId")) {
-				Reminder reminder = reminderService.getReminderById(id);
-				if (null != reminder) {
-					return new ResponseEntity<Reminder>(reminder, HttpStatus.OK);
-				}
-				return new ResponseEntity<String>("Reminder Not Found", HttpStatus.NOT_FOUND);
+			Reminder reminder = reminderService.getReminderById(id, userId);
+			if (null != reminder) {
+				return new ResponseEntity<Reminder>(reminder, HttpStatus.OK);
 			}
-			return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			return new ResponseEntity<String>("Reminder Not Found", HttpStatus.NOT_FOUND);
 		} catch (Exception e) {
-			return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
+			return new ResponseEntity<String>("Reminder Not Found", HttpStatus.NOT_FOUND);
 		}
 	}
-}
\ No newline at end of file
+
+	/*
+	 * Define a handler method which will stream the reminders of the logged in user
+	 * as newline delimited JSON, one reminder per line, when the client sends
+	 * "Accept: application/x-ndjson". 1. 200(OK) - The reminders are written while they
+	 * are read from the database. 2. 401(UNAUTHORIZED) - If the user trying to
+	 * perform the action has not logged in.
+	 * 
+	 * This handler method should map to the URL "/reminder" using HTTP GET method
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/reminder", produces = NdjsonResponses.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamReminder(
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		return NdjsonResponses.<Reminder>stream(consumer -> reminderService.streamRemindersByUserId(userId, consumer));
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.stackroute.keepnote.controller;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.service.StatisticsService;
+
+/*
+ * Exposes the runtime counters of the application caches and of the rate
+ * limiters so that their effectiveness can be observed in production.
+ *
+ * The counters are global to the server instance: they reveal the activity of
+ * all users and which accounts are being rate limited. They are therefore only
+ * answered to operators, the user ids listed comma-separated in
+ * KEEPNOTE_OPERATORS; any other logged in user gets 403(FORBIDDEN). Without
+ * that setting nobody can read them.
+ */
+@RestController
+public class StatisticsController {
+
+	private StatisticsService statisticsService;
+
+	private Set<String> operators;
+
+	@Autowired
+	public StatisticsController(StatisticsService statisticsService) {
+		this(statisticsService, operatorsFromEnvironment());
+	}
+
+	public StatisticsController(StatisticsService statisticsService, Set<String> operators) {
+		this.statisticsService = statisticsService;
+		this.operators = operators;
+	}
+
+	/*
+	 * Define a handler method which will return the counters of every second-level
+	 * cache region and of the note list cache. This handler method should return any one of the status
+	 * messages basis on different situations: 1. 200(OK) - with the counters. 2.
+	 * 401(UNAUTHORIZED) - If the user trying to perform the action has not logged
+	 * in. 3. 403(FORBIDDEN) - If the user is not an operator.
+	 * 
+	 * This handler method should map to the URL "/stats/cache" using HTTP GET
+	 * method
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/stats/cache")
+	public ResponseEntity<?> getCacheStatistics(@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		if (!operators.contains(userId)) {
+			return forbidden();
+		}
+		Map<String, Map<String, Long>> statistics = statisticsService.getCacheStatistics();
+		return new ResponseEntity<Map<String, Map<String, Long>>>(statistics, HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will return the counters of admitted and
+	 * rejected login attempts. This handler method should return any one of the
+	 * status messages basis on different situations: 1. 200(OK) - with the
+	 * counters. 2. 401(UNAUTHORIZED) - If the user trying to perform the action has
+	 * not logged in. 3. 403(FORBIDDEN) - If the user is not an operator.
+	 * 
+	 * This handler method should map to the URL "/stats/login" using HTTP GET
+	 * method
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/stats/login")
+	public ResponseEntity<?> getLoginStatistics(@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		if (!operators.contains(userId)) {
+			return forbidden();
+		}
+		return new ResponseEntity<Map<String, Long>>(statisticsService.getLoginStatistics(), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will return the counters of admitted and
+	 * rejected requests of logged in users. This handler method should return any
+	 * one of the status messages basis on different situations: 1. 200(OK) - with
+	 * the counters. 2. 401(UNAUTHORIZED) - If the user trying to perform the action
+	 * has not logged in. 3. 403(FORBIDDEN) - If the user is not an operator.
+	 * 
+	 * This handler method should map to the URL "/stats/requests" using HTTP GET
+	 * method
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/stats/requests")
+	public ResponseEntity<?> getRequestStatistics(@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		if (!operators.contains(userId)) {
+			return forbidden();
+		}
+		return new ResponseEntity<Map<String, Long>>(statisticsService.getRequestStatistics(), HttpStatus.OK);
+	}
+
+	private static ResponseEntity<String> forbidden() {
+		return new ResponseEntity<String>("Operators Only", HttpStatus.FORBIDDEN);
+	}
+
+	private static Set<String> operatorsFromEnvironment() {
+		String value = System.getenv("KEEPNOTE_OPERATORS");
+		if (value == null || value.trim().isEmpty()) {
+			return Collections.emptySet();
+		}
+		Set<String> operators = new HashSet<String>();
+		for (String userId : value.split(",")) {
+			if (!userId.trim().isEmpty()) {
+				operators.add(userId.trim());
+			}
+		}
+		return operators;
+	}
+
+}
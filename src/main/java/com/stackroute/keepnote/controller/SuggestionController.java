@@ -0,0 +1,55 @@
+package com.stackroute.keepnote.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.model.Suggestion;
+import com.stackroute.keepnote.service.SuggestionService;
+
+/*
+ * Completes note titles and category names as the user types, for quick
+ * switchers and search boxes which ask on every keystroke.
+ */
+@RestController
+public class SuggestionController {
+
+	private SuggestionService suggestionService;
+
+	@Autowired
+	public SuggestionController(SuggestionService suggestionService) {
+		this.suggestionService = suggestionService;
+	}
+
+	/*
+	 * Define a handler method which will return the note titles and category
+	 * names of the logged in user which have a word starting with the "q" request
+	 * parameter, most recently changed first, at most "limit" of them (10 by
+	 * default). This handler method should return any one of the status messages
+	 * basis on different situations: 1. 200(OK) - With the suggestions, possibly
+	 * none. 2. 400(BAD REQUEST) - If nothing has been typed. 3. 401(UNAUTHORIZED)
+	 * - If the user trying to perform the action has not logged in.
+	 * 
+	 * This handler method should map to the URL "/suggestion" using HTTP GET
+	 * method
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/suggestion")
+	public ResponseEntity<?> getSuggestions(@RequestParam("q") String prefix,
+			@RequestParam(value = "limit", defaultValue = "10") int limit,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		if (prefix.trim().isEmpty()) {
+			return new ResponseEntity<String>("Nothing To Complete", HttpStatus.BAD_REQUEST);
+		}
+		List<Suggestion> suggestions = suggestionService.getSuggestions(userId, prefix, limit);
+		return new ResponseEntity<List<Suggestion>>(suggestions, HttpStatus.OK);
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.stackroute.keepnote.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.model.SyncChanges;
+import com.stackroute.keepnote.service.SyncService;
+
+/*
+ * Lets clients keep a local copy of their notes, categories and reminders up to
+ * date without downloading all of them on every poll.
+ */
+@RestController
+public class SyncController {
+
+	private SyncService syncService;
+
+	@Autowired
+	public SyncController(SyncService syncService) {
+		this.syncService = syncService;
+	}
+
+	/*
+	 * Define a handler method which will return what changed for the logged in
+	 * user since the "since" token, or everything when no token is passed. The
+	 * response carries the token to pass on the next call. This handler method
+	 * should return any one of the status messages basis on different situations:
+	 * 1. 200(OK) - with the changes. 2. 400(BAD REQUEST) - If the token is
+	 * malformed. 3. 401(UNAUTHORIZED) - If the user trying to perform the action
+	 * has not logged in.
+	 * 
+	 * This handler method should map to the URL "/sync" using HTTP GET method
+	 */
+	@RequestMapping(method = RequestMethod.GET, value = "/sync")
+	public ResponseEntity<?> getChanges(@RequestParam(required = false) String since,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		try {
+			SyncChanges changes = syncService.getChangesSince(userId, since);
+			return new ResponseEntity<SyncChanges>(changes, HttpStatus.OK);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		}
+	}
+
+}
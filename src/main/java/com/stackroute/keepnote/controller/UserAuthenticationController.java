@@ -1,8 +1,10 @@
 package com.stackroute.keepnote.controller;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -10,7 +12,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.stackroute.keepnote.filter.TokenAuthenticationFilter;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.service.LoginRateLimiter;
+import com.stackroute.keepnote.service.TokenService;
 import com.stackroute.keepnote.service.UserService;
 
 /*
@@ -32,9 +37,22 @@ public class UserAuthenticationController {
 	 */
 	private UserService userService;
 
+	/*
+	 * Issues the login tokens when the stateless mode is enabled.
+	 */
+	private TokenService tokenService;
+
+	/*
+	 * Limits the login attempts per user and per client address.
+	 */
+	private LoginRateLimiter loginRateLimiter;
+
 	@Autowired
-	public UserAuthenticationController(UserService userService) {
+	public UserAuthenticationController(UserService userService, TokenService tokenService,
+			LoginRateLimiter loginRateLimiter) {
 		this.userService = userService;
+		this.tokenService = tokenService;
+		this.loginRateLimiter = loginRateLimiter;
 	}
 
 	/*
@@ -45,14 +63,31 @@ public class UserAuthenticationController {
 	 * other services handle UserNotFoundException as well. This handler method
 	 * should return any one of the status messages basis on different situations:
 	 * 1. 200(OK) - If login is successful. 2. 401(UNAUTHORIZED) - If login is not
-	 * successful
+	 * successful 3. 429(TOO MANY REQUESTS) - If too many attempts were made for the
+	 * user or from the client address, with a Retry-After header. Such attempts are
+	 * rejected before the user is looked up.
+	 * 
+	 * When the stateless mode is enabled (KEEPNOTE_AUTH_MODE=token) nothing is
+	 * stored in the session; instead a signed token is returned in the
+	 * "X-Auth-Token" response header, which the client sends back as
+	 * "Authorization: Bearer <token>".
 	 * 
 	 * This handler method should map to the URL "/login" using HTTP POST method
 	 */
 	@RequestMapping(method = RequestMethod.POST, value = "/login")
-	public ResponseEntity<String> loginUser(@RequestBody User user, HttpSession session) {
+	public ResponseEntity<String> loginUser(@RequestBody User user, HttpSession session, HttpServletRequest request) {
+		long retryAfter = loginRateLimiter.admit(user.getUserId(), request.getRemoteAddr());
+		if (retryAfter > 0) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter)).body("Too Many Login Attempts");
+		}
 		try {
 			if (userService.validateUser(user.getUserId(), user.getUserPassword())) {
+				if (tokenService.isEnabled()) {
+					return ResponseEntity.ok()
+							.header(TokenAuthenticationFilter.TOKEN_HEADER, tokenService.issueToken(user.getUserId()))
+							.body("Logged In");
+				}
 				session.setAttribute("loggedInUserId", user.getUserId());
 				return new ResponseEntity<String>("Logged In", HttpStatus.OK);
 			} else {
@@ -65,7 +100,8 @@ public class UserAuthenticationController {
 
 	/*
 	 * Define a handler method which will perform logout. Post logout, the user
-	 * session is to be destroyed. This handler method should return any one of the
+	 * session is to be destroyed. In the stateless mode the token of the request is
+	 * revoked instead. This handler method should return any one of the
 	 * status messages basis on different situations: 1. 200(OK) - If logout is
 	 * successful 2. 400(BAD REQUEST) - If logout has failed
 	 * 
@@ -6,12 +6,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.UserService;
 
@@ -59,9 +62,9 @@ public class UserController {
 	public ResponseEntity<?> registerUser(@RequestBody User user, HttpSession session) {
 		try {
 			userService.registerUser(user);
-			return new ResponseEntity<User>(user, HttpStatus.CREATED);
+			return new ResponseEntity<User>(withoutPassword(user), HttpStatus.CREATED);
 		} catch (UserAlreadyExistException e) {
-			return new ResponseEntity<User>(user, HttpStatus.CONFLICT);
+			return new ResponseEntity<User>(withoutPassword(user), HttpStatus.CONFLICT);
 		}
 	}
 
@@ -78,17 +81,15 @@ public class UserController {
 	 */
 
 	@RequestMapping(method = RequestMethod.PUT, value = "/user/{id}")
-	public ResponseEntity<?> updateUser(@RequestBody User user, HttpSession session) {
+	public ResponseEntity<?> updateUser(@RequestBody User user, @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
 		try {
-			if (!session.getAttribute("loggedInUserId").equals(user.getUserId())) {
+			if (!userId.equals(user.getUserId())) {
 				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
 			} else if (null != userService.updateUser(user, user.getUserId())) {
-				return new ResponseEntity<User>(user, HttpStatus.OK);
+				return new ResponseEntity<User>(withoutPassword(user), HttpStatus.OK);
 			} else {
 				return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
 			}
-		} catch (NullPointerException npe) {
-			return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
 		} catch (Exception e) {
 			return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
 		}
@@ -102,21 +103,26 @@ public class UserController {
 	 * 3. 401(UNAUTHORIZED) - If the user trying to perform the action has not
 	 * logged in.
 	 * 
+	 * With "?cascade=true" all notes, categories and reminders of the user are
+	 * deleted as well. A user can only delete itself, the account of another user
+	 * is answered with 401(UNAUTHORIZED).
+	 * 
 	 * This handler method should map to the URL "/user/{id}" using HTTP Delete
 	 * method" where "id" should be replaced by a valid userId without {}
 	 */
 
 	@RequestMapping(method = RequestMethod.DELETE, value = "/user/{id}")
-	public ResponseEntity<?> deleteUser(@PathVariable String id, HttpSession session) {
+	public ResponseEntity<?> deleteUser(@PathVariable String id,
+			@RequestParam(value = "cascade", defaultValue = "false") boolean cascade,
+			@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+		if (!id.equals(userId)) {
+			return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+		}
 		try {
-			if (null != session.getAttribute("loggedInUserId")) {
-				if (userService.deleteUser(id)) {
-					return new ResponseEntity<String>("User Deleted", HttpStatus.OK);
-				}
-				return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
-			} else {
-				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			if (cascade ? userService.deleteUserAndData(id) : userService.deleteUser(id)) {
+				return new ResponseEntity<String>("User Deleted", HttpStatus.OK);
 			}
+			return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
 		} catch (Exception e) {
 			return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
 		}
@@ -133,20 +139,24 @@ public class UserController {
 	 * {}
 	 */
 	@RequestMapping(method = RequestMethod.GET, value = "/user/{id}")
-	public ResponseEntity<?> findUser(@PathVariable String id, HttpSession session) {
+	public ResponseEntity<?> findUser(@PathVariable String id, @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
 		try {
-			if (null != session.getAttribute("loggedInUserId")) {
-				User user = new User();
-				if (null != userService.getUserById(id)) {
-					return new ResponseEntity<User>(user, HttpStatus.OK);
-				}
-				return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
-			} else {
-				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			User user = new User();
+			if (null != userService.getUserById(id)) {
+				return new ResponseEntity<User>(user, HttpStatus.OK);
 			}
+			return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
 		} catch (Exception e) {
 			return new ResponseEntity<String>("User Not Found", HttpStatus.NOT_FOUND);
 		}
 	}
 
+	/*
+	 * The user as sent back to the client. The service stores the password hash on
+	 * the User it is given, which must not leave the server.
+	 */
+	private static User withoutPassword(User user) {
+		return new User(user.getUserId(), user.getUserName(), null, user.getUserMobile(), user.getUserAddedDate());
+	}
+
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.stackroute.keepnote.dao;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
@@ -16,9 +18,25 @@ public interface CategoryDAO {
 
 	public boolean deleteCategory(int noteId);
 
+	public boolean deleteCategory(int categoryId, String userId);
+
 	public boolean updateCategory(Category category);
 
 	public Category getCategoryById(int categoryId) throws CategoryNotFoundException;
 
 	public List<Category> getAllCategoryByUserId(String userId);
+
+	/*
+	 * Hands every category of the user to the consumer one at a time, without building
+	 * the complete result list in memory.
+	 */
+	public void streamCategoriesByUserId(String userId, Consumer<Category> consumer);
+
+	/*
+	 * Sparse fieldsets: only the given fields of the categorys are selected, one map
+	 * per category. A field which is not a category column is rejected with an
+	 * IllegalArgumentException.
+	 */
+	public List<Map<String, Object>> getCategoryFieldsByUserId(String userId, List<String> fields);
+
 }
@@ -1,18 +1,26 @@
 package com.stackroute.keepnote.dao;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import javax.transaction.Transactional;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Tombstone;
+import com.stackroute.keepnote.search.SuggestionIndex;
 
 /*
  * This class is implementing the UserDAO interface. This class has to be annotated with 
@@ -31,18 +39,35 @@ public class CategoryDAOImpl implements CategoryDAO {
 	 * Autowiring should be implemented for the SessionFactory.(Use
 	 * constructor-based autowiring.
 	 */
+	/*
+	 * Number of rows fetched per round trip while streaming a listing.
+	 */
+	private static final int STREAM_FETCH_SIZE = 500;
+
 	@Autowired
 	private SessionFactory sessionFactory;
 
-	public CategoryDAOImpl(SessionFactory sessionFactory) {
+	/*
+	 * Told about every category written once its transaction has committed.
+	 */
+	private SuggestionIndex suggestionIndex;
+
+	public CategoryDAOImpl(SessionFactory sessionFactory, SuggestionIndex suggestionIndex) {
 		this.sessionFactory = sessionFactory;
+		this.suggestionIndex = suggestionIndex;
 	}
 
 	/*
 	 * Create a new category
 	 */
 	public boolean createCategory(Category category) {
-		return sessionFactory.getCurrentSession().save(category) != null;
+		Session session = sessionFactory.getCurrentSession();
+		category.setChangeVersion(ChangeVersions.next(session, category.getCategoryCreatedBy()));
+		if (session.save(category) == null) {
+			return false;
+		}
+		TransactionHooks.afterCommit(session, indexCategory(category));
+		return true;
 	}
 
 	/*
@@ -50,19 +75,55 @@ public class CategoryDAOImpl implements CategoryDAO {
 	 */
 	public boolean deleteCategory(int categoryId) {
 		try {
-			sessionFactory.getCurrentSession().delete(getCategoryById(categoryId));
+			Session session = sessionFactory.getCurrentSession();
+			Category category = getCategoryById(categoryId);
+			session.delete(category);
+			String userId = category.getCategoryCreatedBy();
+			long version = ChangeVersions.tombstone(session, Tombstone.CATEGORY, categoryId, userId);
+			TransactionHooks.afterCommit(session, () -> suggestionIndex.categoryDeleted(userId, categoryId, version));
 			return true;
 		} catch (CategoryNotFoundException e) {
 			e.printStackTrace();
 		}
 		return false;
 	}
+
 	/*
-	 * Update an existing category
+	 * Remove an existing category of the user with a single DELETE, without
+	 * loading it, after its links to notes. A category which does not exist or
+	 * belongs to another user is not found.
+	 */
+	public boolean deleteCategory(int categoryId, String userId) {
+		Session session = sessionFactory.getCurrentSession();
+		String owned = "(select category_id from CATEGORY where category_id = :categoryId and category_creator = :userId)";
+		DirectDeletes.deleteNoteLinks(session, Category.class, true, owned, "categoryId", categoryId, "userId", userId);
+		if (!DirectDeletes.deleteOwned(session, Category.class, "categoryCreatedBy", categoryId, userId)) {
+			return false;
+		}
+		long version = ChangeVersions.tombstone(session, Tombstone.CATEGORY, categoryId, userId);
+		TransactionHooks.afterCommit(session, () -> suggestionIndex.categoryDeleted(userId, categoryId, version));
+		return true;
+	}
+	/*
+	 * Update an existing category of the user named by categoryCreatedBy. A
+	 * category which does not exist or belongs to another user is not found.
 	 */
 
 	public boolean updateCategory(Category category) {
-		sessionFactory.getCurrentSession().update(category);
+		Session session = sessionFactory.getCurrentSession();
+		category.setChangeVersion(ChangeVersions.next(session, category.getCategoryCreatedBy()));
+		int updated = session.createQuery("update Category set categoryName = :categoryName, "
+				+ "categoryDescription = :categoryDescription, changeVersion = :changeVersion "
+				+ "where categoryId = :categoryId and categoryCreatedBy = :categoryCreatedBy")
+				.setParameter("categoryName", category.getCategoryName())
+				.setParameter("categoryDescription", category.getCategoryDescription())
+				.setParameter("changeVersion", category.getChangeVersion())
+				.setParameter("categoryId", category.getCategoryId())
+				.setParameter("categoryCreatedBy", category.getCategoryCreatedBy()).executeUpdate();
+		if (updated == 0) {
+			return false;
+		}
+		TransactionHooks.afterCommit(session, indexCategory(category));
 		return true;
 	}
 	/*
@@ -82,11 +143,61 @@ public class CategoryDAOImpl implements CategoryDAO {
 	 */
 	public List<Category> getAllCategoryByUserId(String userId) {
 		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Category> root = criteriaQuery.from(Category.class);
+		criteriaQuery = ListProjections.selectCategories(criteriaQuery, root)
+				.where(criteriaBuilder.equal(root.get("categoryCreatedBy"), userId));
+		return ListProjections.toCategories(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList());
+
+	}
+
+	/*
+	 * Stream all categories of a user through a forward-only cursor, evicting each category
+	 * from the session after the consumer has handled it.
+	 */
+	public void streamCategoriesByUserId(String userId, Consumer<Category> consumer) {
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
 		CriteriaQuery<Category> criteriaQuery = criteriaBuilder.createQuery(Category.class);
 		Root<Category> root = criteriaQuery.from(Category.class);
 		criteriaQuery = criteriaQuery.select(root).where(criteriaBuilder.equal(root.get("categoryCreatedBy"), userId));
-		return sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList();
+		ScrollableResults results = session.createQuery(criteriaQuery).setFetchSize(STREAM_FETCH_SIZE)
+				.setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				Category category = (Category) results.get(0);
+				consumer.accept(category);
+				session.evict(category);
+			}
+		} finally {
+			results.close();
+		}
+	}
+
+	/*
+	 * The suggestion index update for the category as it is now, the category
+	 * itself may still change before the transaction commits.
+	 */
+	private Runnable indexCategory(Category category) {
+		String userId = category.getCategoryCreatedBy();
+		int categoryId = category.getCategoryId();
+		long version = category.getChangeVersion();
+		String name = category.getCategoryName();
+		return () -> suggestionIndex.categorySaved(userId, categoryId, version, name);
+	}
+
+	/*
+	 * Retrieve only the requested fields of all categorys of a user
+	 */
 
+	public List<Map<String, Object>> getCategoryFieldsByUserId(String userId, List<String> fields) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Category> root = criteriaQuery.from(Category.class);
+		criteriaQuery = ListProjections.selectFields(criteriaQuery, root, fields, ListProjections.CATEGORY_FIELDS)
+				.where(criteriaBuilder.equal(root.get("categoryCreatedBy"), userId));
+		return ListProjections.toFieldMaps(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList(),
+				fields);
 	}
 
 }
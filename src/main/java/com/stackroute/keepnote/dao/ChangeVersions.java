@@ -0,0 +1,73 @@
+package com.stackroute.keepnote.dao;
+
+import org.hibernate.LockMode;
+import org.hibernate.Session;
+
+import com.stackroute.keepnote.model.SyncState;
+import com.stackroute.keepnote.model.Tombstone;
+
+/*
+ * Hands out the change versions stored by the DAOs on every write, see SyncState.
+ * The SyncState row of the user is read with a write lock, so concurrent writes
+ * of the same user wait for each other and their versions follow commit order;
+ * writes of different users do not contend. The lock is held until the
+ * surrounding transaction ends.
+ *
+ * The row is created when the user registers. Users registered before that get
+ * it on their first write, inserted only if absent so that concurrent first
+ * writes do not fail on the primary key.
+ */
+final class ChangeVersions {
+
+	private ChangeVersions() {
+	}
+
+	/*
+	 * The next change version of the user. Rows without an owner are not synced
+	 * and get version 0.
+	 */
+	static long next(Session session, String userId) {
+		if (userId == null) {
+			return 0;
+		}
+		SyncState syncState = session.get(SyncState.class, userId, LockMode.PESSIMISTIC_WRITE);
+		if (syncState == null) {
+			create(session, userId);
+			syncState = session.get(SyncState.class, userId, LockMode.PESSIMISTIC_WRITE);
+		}
+		syncState.setChangeVersion(syncState.getChangeVersion() + 1);
+		return syncState.getChangeVersion();
+	}
+
+	/*
+	 * Insert the SyncState row of the user at version 0 unless it exists. The row
+	 * of a deleted user is kept, so the versions of a user id never go backwards.
+	 */
+	static void create(Session session, String userId) {
+		session.createNativeQuery("insert ignore into SYNC_STATE (user_id, change_version) values (:userId, 0)")
+				.setParameter("userId", userId).addSynchronizedEntityClass(SyncState.class).executeUpdate();
+	}
+
+	/*
+	 * Take the write lock of the user without handing out a version, so that
+	 * writes of the user in progress finish first and new ones wait until the
+	 * surrounding transaction ends.
+	 */
+	static void lock(Session session, String userId) {
+		session.get(SyncState.class, userId, LockMode.PESSIMISTIC_WRITE);
+	}
+
+	/*
+	 * Record the deletion of an entity of the user under the next change version,
+	 * which is returned; 0 for rows without an owner.
+	 */
+	static long tombstone(Session session, String entityType, int entityId, String userId) {
+		if (userId == null) {
+			return 0;
+		}
+		long version = next(session, userId);
+		session.save(new Tombstone(entityType, entityId, userId, version));
+		return version;
+	}
+
+}
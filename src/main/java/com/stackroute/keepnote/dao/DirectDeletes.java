@@ -0,0 +1,93 @@
+package com.stackroute.keepnote.dao;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+import org.hibernate.Session;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.query.NativeQuery;
+
+/*
+ * Deletes which go straight to the tables instead of loading the entities and
+ * removing them through the session.
+ */
+final class DirectDeletes {
+
+	private DirectDeletes() {
+	}
+
+	/*
+	 * Delete the row of the entity with the given id if it is owned by the user,
+	 * with a single DELETE and without reading the row first. Returns whether a
+	 * row was deleted; an id that does not exist or belongs to someone else
+	 * deletes nothing.
+	 *
+	 * The statement is run on the JDBC connection of the session rather than as a
+	 * bulk query, since Hibernate clears the entire second-level cache region of
+	 * the entity after a bulk query. Only this entity is evicted instead, once the
+	 * transaction has completed.
+	 */
+	static boolean deleteOwned(Session session, Class<?> entityClass, String ownerProperty, int id, String userId) {
+		SessionImplementor sessionImplementor = (SessionImplementor) session;
+		AbstractEntityPersister persister = (AbstractEntityPersister) sessionImplementor.getFactory().getMetamodel()
+				.entityPersister(entityClass);
+		String sql = "delete from " + persister.getTableName() + " where " + persister.getIdentifierColumnNames()[0]
+				+ " = ? and " + persister.getPropertyColumnNames(ownerProperty)[0] + " = ?";
+		Object loaded = sessionImplementor.getPersistenceContext()
+				.getEntity(sessionImplementor.generateEntityKey(id, persister));
+		if (loaded != null) {
+			session.evict(loaded);
+		}
+		JdbcCoordinator jdbcCoordinator = sessionImplementor.getJdbcCoordinator();
+		PreparedStatement statement = jdbcCoordinator.getStatementPreparer().prepareStatement(sql);
+		int deleted;
+		try {
+			statement.setInt(1, id);
+			statement.setString(2, userId);
+			deleted = jdbcCoordinator.getResultSetReturn().executeUpdate(statement);
+		} catch (SQLException e) {
+			throw sessionImplementor.getJdbcServices().getSqlExceptionHelper().convert(e,
+					"could not delete " + entityClass.getSimpleName() + " " + id, sql);
+		} finally {
+			jdbcCoordinator.getLogicalConnection().getResourceRegistry().release(statement);
+			jdbcCoordinator.afterStatementExecution();
+		}
+		if (deleted > 0 && persister.hasCache()) {
+			Serializable key = id;
+			sessionImplementor.getActionQueue().registerProcess((success, completed) -> completed.getFactory()
+					.getCache().evictEntity(entityClass, key));
+		}
+		return deleted > 0;
+	}
+
+	/*
+	 * Remove rows of the notes collection table of Category or Reminder, by owner
+	 * or by note, whose id is in the given SQL list or subquery. The parameters of
+	 * the SQL are passed as name and value pairs. The collections have no inverse
+	 * side in Note, so the table and its columns are named by Hibernate and looked
+	 * up here.
+	 */
+	static int deleteNoteLinks(Session session, Class<?> owner, boolean byOwner, String ids, Object... parameters) {
+		AbstractCollectionPersister persister = (AbstractCollectionPersister) ((SessionImplementor) session)
+				.getFactory().getMetamodel().collectionPersister(owner.getName() + ".notes");
+		String column = byOwner ? persister.getKeyColumnNames()[0] : persister.getElementColumnNames()[0];
+		NativeQuery<?> query = session
+				.createNativeQuery("delete from " + persister.getTableName() + " where " + column + " in " + ids)
+				.addSynchronizedQuerySpace(persister.getTableName());
+		for (int i = 0; i < parameters.length; i += 2) {
+			String name = (String) parameters[i];
+			if (parameters[i + 1] instanceof Collection) {
+				query.setParameterList(name, (Collection<?>) parameters[i + 1]);
+			} else {
+				query.setParameter(name, parameters[i + 1]);
+			}
+		}
+		return query.executeUpdate();
+	}
+
+}
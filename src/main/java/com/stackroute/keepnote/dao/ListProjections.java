@@ -0,0 +1,188 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Selection;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * Read path of the list endpoints. Instead of loading managed entities, the list
+ * queries select only the columns the JSON response shows, as a tuple per row,
+ * and copy them into plain Note, Category and Reminder objects. Nothing is added
+ * to the persistence context, so no entity is snapshotted for dirty checking and
+ * the rows are garbage as soon as the response has been written. Single-entity
+ * reads and all writes keep using managed entities.
+ */
+final class ListProjections {
+
+	private static final String CATEGORY_PREFIX = "category_";
+
+	private static final String REMINDER_PREFIX = "reminder_";
+
+	/*
+	 * The fields a client may ask for with "fields=". Each is a basic attribute of
+	 * the entity, mapped to a column of its own table.
+	 */
+	static final List<String> NOTE_FIELDS = Arrays.asList("noteId", "noteTitle", "noteContent", "noteStatus",
+			"noteCreatedAt", "createdBy");
+
+	static final List<String> CATEGORY_FIELDS = Arrays.asList("categoryId", "categoryName", "categoryDescription",
+			"categoryCreationDate", "categoryCreatedBy");
+
+	static final List<String> REMINDER_FIELDS = Arrays.asList("reminderId", "reminderName", "reminderDescription",
+			"reminderType", "reminderCreationDate", "reminderCreatedBy", "reminderDueDate");
+
+	private ListProjections() {
+	}
+
+	/*
+	 * Select the columns of the notes of the given root together with those of
+	 * their category and reminder, which are left joined.
+	 */
+	static CriteriaQuery<Tuple> selectNotes(CriteriaQuery<Tuple> criteriaQuery, From<?, Note> note) {
+		List<Selection<?>> selections = new ArrayList<Selection<?>>();
+		selections.add(note.get("noteId").alias("noteId"));
+		selections.add(note.get("noteTitle").alias("noteTitle"));
+		selections.add(note.get("noteContent").alias("noteContent"));
+		selections.add(note.get("noteStatus").alias("noteStatus"));
+		selections.add(note.get("noteCreatedAt").alias("noteCreatedAt"));
+		selections.add(note.get("createdBy").alias("createdBy"));
+		Join<Note, Category> category = note.join("category", JoinType.LEFT);
+		Join<Note, Reminder> reminder = note.join("reminder", JoinType.LEFT);
+		addCategoryColumns(selections, category, CATEGORY_PREFIX);
+		addReminderColumns(selections, reminder, REMINDER_PREFIX);
+		return criteriaQuery.multiselect(selections);
+	}
+
+	static CriteriaQuery<Tuple> selectCategories(CriteriaQuery<Tuple> criteriaQuery, From<?, Category> category) {
+		List<Selection<?>> selections = new ArrayList<Selection<?>>();
+		addCategoryColumns(selections, category, "");
+		return criteriaQuery.multiselect(selections);
+	}
+
+	static CriteriaQuery<Tuple> selectReminders(CriteriaQuery<Tuple> criteriaQuery, From<?, Reminder> reminder) {
+		List<Selection<?>> selections = new ArrayList<Selection<?>>();
+		addReminderColumns(selections, reminder, "");
+		return criteriaQuery.multiselect(selections);
+	}
+
+	static List<Note> toNotes(List<Tuple> tuples) {
+		List<Note> notes = new ArrayList<Note>(tuples.size());
+		for (Tuple tuple : tuples) {
+			notes.add(new Note(tuple.get("noteId", Integer.class), tuple.get("noteTitle", String.class),
+					tuple.get("noteContent", String.class), tuple.get("noteStatus", String.class),
+					tuple.get("noteCreatedAt", Date.class), toCategory(tuple, CATEGORY_PREFIX),
+					toReminder(tuple, REMINDER_PREFIX), tuple.get("createdBy", String.class)));
+		}
+		return notes;
+	}
+
+	static List<Category> toCategories(List<Tuple> tuples) {
+		List<Category> categories = new ArrayList<Category>(tuples.size());
+		for (Tuple tuple : tuples) {
+			categories.add(toCategory(tuple, ""));
+		}
+		return categories;
+	}
+
+	static List<Reminder> toReminders(List<Tuple> tuples) {
+		List<Reminder> reminders = new ArrayList<Reminder>(tuples.size());
+		for (Tuple tuple : tuples) {
+			reminders.add(toReminder(tuple, ""));
+		}
+		return reminders;
+	}
+
+	private static void addCategoryColumns(List<Selection<?>> selections, From<?, Category> category,
+			String prefix) {
+		selections.add(category.get("categoryId").alias(prefix + "categoryId"));
+		selections.add(category.get("categoryName").alias(prefix + "categoryName"));
+		selections.add(category.get("categoryDescription").alias(prefix + "categoryDescription"));
+		selections.add(category.get("categoryCreationDate").alias(prefix + "categoryCreationDate"));
+		selections.add(category.get("categoryCreatedBy").alias(prefix + "categoryCreatedBy"));
+	}
+
+	private static void addReminderColumns(List<Selection<?>> selections, From<?, Reminder> reminder,
+			String prefix) {
+		selections.add(reminder.get("reminderId").alias(prefix + "reminderId"));
+		selections.add(reminder.get("reminderName").alias(prefix + "reminderName"));
+		selections.add(reminder.get("reminderDescription").alias(prefix + "reminderDescription"));
+		selections.add(reminder.get("reminderType").alias(prefix + "reminderType"));
+		selections.add(reminder.get("reminderCreationDate").alias(prefix + "reminderCreationDate"));
+		selections.add(reminder.get("reminderCreatedBy").alias(prefix + "reminderCreatedBy"));
+		selections.add(reminder.get("reminderDueDate").alias(prefix + "reminderDueDate"));
+	}
+
+	/*
+	 * A note without a category has nulls in all category columns.
+	 */
+	private static Category toCategory(Tuple tuple, String prefix) {
+		Integer categoryId = tuple.get(prefix + "categoryId", Integer.class);
+		if (categoryId == null) {
+			return null;
+		}
+		return new Category(categoryId, tuple.get(prefix + "categoryName", String.class),
+				tuple.get(prefix + "categoryDescription", String.class),
+				tuple.get(prefix + "categoryCreationDate", Date.class),
+				tuple.get(prefix + "categoryCreatedBy", String.class), null);
+	}
+
+	private static Reminder toReminder(Tuple tuple, String prefix) {
+		Integer reminderId = tuple.get(prefix + "reminderId", Integer.class);
+		if (reminderId == null) {
+			return null;
+		}
+		Reminder reminder = new Reminder(reminderId, tuple.get(prefix + "reminderName", String.class),
+				tuple.get(prefix + "reminderDescription", String.class),
+				tuple.get(prefix + "reminderType", String.class),
+				tuple.get(prefix + "reminderCreatedBy", String.class), null,
+				tuple.get(prefix + "reminderCreationDate", Date.class));
+		reminder.setReminderDueDate(tuple.get(prefix + "reminderDueDate", Date.class));
+		return reminder;
+	}
+
+	/*
+	 * Select only the requested fields of the given root. Every field has to be one
+	 * of the allowed ones; anything else is rejected before a query is built.
+	 */
+	static CriteriaQuery<Tuple> selectFields(CriteriaQuery<Tuple> criteriaQuery, From<?, ?> root,
+			List<String> fields, List<String> allowedFields) {
+		List<Selection<?>> selections = new ArrayList<Selection<?>>(fields.size());
+		for (String field : fields) {
+			if (!allowedFields.contains(field)) {
+				throw new IllegalArgumentException("Unknown field --> " + field);
+			}
+			selections.add(root.get(field).alias(field));
+		}
+		return criteriaQuery.multiselect(selections);
+	}
+
+	/*
+	 * One map per row, holding the selected fields in the requested order.
+	 */
+	static List<Map<String, Object>> toFieldMaps(List<Tuple> tuples, List<String> fields) {
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>(tuples.size());
+		for (Tuple tuple : tuples) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			for (String field : fields) {
+				row.put(field, tuple.get(field));
+			}
+			rows.add(row);
+		}
+		return rows;
+	}
+
+}
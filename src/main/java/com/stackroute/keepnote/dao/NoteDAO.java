@@ -1,6 +1,10 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.model.Note;
@@ -16,10 +20,50 @@ public interface NoteDAO {
 
 	public boolean deleteNote(int noteId);
 
+	public boolean deleteNote(int noteId, String userId);
+
 	public List<Note> getAllNotesByUserId(String userId);
 
 	public Note getNoteById(int noteId) throws NoteNotFoundException;
 
+	/*
+	 * The notes of the user with the given ids, with their category and reminder,
+	 * in no particular order. Ids of missing notes or of notes of other users are
+	 * skipped.
+	 */
+	public List<Note> getNotesByIds(String userId, Collection<Integer> noteIds);
+
 	public boolean UpdateNote(Note note);
 
+	/*
+	 * Keyset pagination: returns at most "limit" notes of the user ordered by
+	 * (noteCreatedAt, noteId) which come strictly after the given position. Notes
+	 * without a creation date come first. A null afterNoteId starts from the first
+	 * note; a null afterCreatedAt with an afterNoteId is a position among the notes
+	 * without a creation date.
+	 */
+	public List<Note> getNotesByUserId(String userId, Date afterCreatedAt, Integer afterNoteId, int limit);
+
+	/*
+	 * Hands every note of the user to the consumer one at a time, without building
+	 * the complete result list in memory.
+	 */
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer);
+
+	/*
+	 * Save all the notes in a single transaction, sending the inserts to the
+	 * database in JDBC batches.
+	 */
+	public boolean createNotes(List<Note> notes);
+
+	/*
+	 * Sparse fieldsets: only the given fields of the notes are selected, one map
+	 * per note. A field which is not a note column is rejected with an
+	 * IllegalArgumentException.
+	 */
+	public List<Map<String, Object>> getNoteFieldsByUserId(String userId, List<String> fields);
+
+	public List<Map<String, Object>> getNoteFieldsByUserId(String userId, List<String> fields, Date afterCreatedAt,
+			Integer afterNoteId, int limit);
+
 }
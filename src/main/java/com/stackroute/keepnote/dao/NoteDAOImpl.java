@@ -1,18 +1,34 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.transaction.Transactional;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Tombstone;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
 
 /*
  * This class is implementing the UserDAO interface. This class has to be annotated with 
@@ -31,11 +47,26 @@ public class NoteDAOImpl implements NoteDAO {
 	 * Autowiring should be implemented for the SessionFactory.(Use
 	 * constructor-based autowiring.
 	 */
+	/*
+	 * Number of rows fetched per round trip while streaming a listing.
+	 */
+	private static final int STREAM_FETCH_SIZE = 500;
+
 	@Autowired
 	private SessionFactory sessionFactory;
 
-	public NoteDAOImpl(SessionFactory sessionFactory) {
+	/*
+	 * Told about every note written once its transaction has committed.
+	 */
+	private NoteSearchIndex noteSearchIndex;
+
+	private SuggestionIndex suggestionIndex;
+
+	public NoteDAOImpl(SessionFactory sessionFactory, NoteSearchIndex noteSearchIndex,
+			SuggestionIndex suggestionIndex) {
 		this.sessionFactory = sessionFactory;
+		this.noteSearchIndex = noteSearchIndex;
+		this.suggestionIndex = suggestionIndex;
 	}
 
 	/*
@@ -43,18 +74,54 @@ public class NoteDAOImpl implements NoteDAO {
 	 */
 
 	public boolean createNote(Note note) {
-		sessionFactory.getCurrentSession().save(note);
+		Session session = sessionFactory.getCurrentSession();
+		note.setChangeVersion(ChangeVersions.next(session, note.getCreatedBy()));
+		session.save(note);
+		TransactionHooks.afterCommit(session, indexNote(note));
 		return true;
 
 	}
 
+	/*
+	 * Create many notes at once. The session is flushed and cleared after every
+	 * JDBC batch so that the persistence context does not grow with the number of
+	 * notes. All notes of one user in the batch share a single change version.
+	 */
+
+	public boolean createNotes(List<Note> notes) {
+		Session session = sessionFactory.getCurrentSession();
+		Map<String, Long> changeVersions = new HashMap<String, Long>();
+		for (Note note : notes) {
+			if (!changeVersions.containsKey(note.getCreatedBy())) {
+				changeVersions.put(note.getCreatedBy(), ChangeVersions.next(session, note.getCreatedBy()));
+			}
+			note.setChangeVersion(changeVersions.get(note.getCreatedBy()));
+		}
+		List<Runnable> indexUpdates = new ArrayList<Runnable>(notes.size());
+		for (int i = 0; i < notes.size(); i++) {
+			session.save(notes.get(i));
+			indexUpdates.add(indexNote(notes.get(i)));
+			if ((i + 1) % ApplicationContextConfig.JDBC_BATCH_SIZE == 0) {
+				session.flush();
+				session.clear();
+			}
+		}
+		TransactionHooks.afterCommit(session, () -> indexUpdates.forEach(Runnable::run));
+		return true;
+	}
+
 	/*
 	 * Remove an existing note
 	 */
 
 	public boolean deleteNote(int noteId) {
 		try {
-			sessionFactory.getCurrentSession().delete(getNoteById(noteId));
+			Session session = sessionFactory.getCurrentSession();
+			Note note = getNoteById(noteId);
+			session.delete(note);
+			long version = ChangeVersions.tombstone(session, Tombstone.NOTE, noteId, note.getCreatedBy());
+			String userId = note.getCreatedBy();
+			TransactionHooks.afterCommit(session, unindexNote(userId, noteId, version));
 			return true;
 		} catch (NoteNotFoundException e) {
 			e.printStackTrace();
@@ -62,17 +129,48 @@ public class NoteDAOImpl implements NoteDAO {
 		return false;
 	}
 
+	/*
+	 * Remove an existing note of the user with a single DELETE, without loading it.
+	 * A note which does not exist or belongs to another user is not found.
+	 */
+	public boolean deleteNote(int noteId, String userId) {
+		Session session = sessionFactory.getCurrentSession();
+		if (!DirectDeletes.deleteOwned(session, Note.class, "createdBy", noteId, userId)) {
+			return false;
+		}
+		long version = ChangeVersions.tombstone(session, Tombstone.NOTE, noteId, userId);
+		TransactionHooks.afterCommit(session, unindexNote(userId, noteId, version));
+		return true;
+	}
+
 	/*
 	 * Retrieve details of all notes by userId
 	 */
 
 	public List<Note> getAllNotesByUserId(String userId) {
 		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
-		CriteriaQuery<Note> criteriaQuery = criteriaBuilder.createQuery(Note.class);
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
 		Root<Note> root = criteriaQuery.from(Note.class);
-		criteriaQuery = criteriaQuery.select(root).where(criteriaBuilder.equal(root.get("createdBy"), userId));
-		return sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList();
+		criteriaQuery = ListProjections.selectNotes(criteriaQuery, root)
+				.where(criteriaBuilder.equal(root.get("createdBy"), userId));
+		return ListProjections.toNotes(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList());
+
+	}
 
+	/*
+	 * Retrieve the given notes of a user in one query, e.g. the hits of a search.
+	 */
+
+	public List<Note> getNotesByIds(String userId, Collection<Integer> noteIds) {
+		if (noteIds.isEmpty()) {
+			return new ArrayList<Note>();
+		}
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Note> root = criteriaQuery.from(Note.class);
+		criteriaQuery = ListProjections.selectNotes(criteriaQuery, root).where(
+				criteriaBuilder.equal(root.get("createdBy"), userId), root.get("noteId").in(noteIds));
+		return ListProjections.toNotes(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList());
 	}
 
 	/*
@@ -80,21 +178,182 @@ public class NoteDAOImpl implements NoteDAO {
 	 */
 
 	public Note getNoteById(int noteId) throws NoteNotFoundException {
-		Note note = sessionFactory.getCurrentSession().find(Note.class, noteId);
-		if (note == null) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Note> criteriaQuery = criteriaBuilder.createQuery(Note.class);
+		Root<Note> root = fetchReferences(criteriaQuery.from(Note.class));
+		criteriaQuery = criteriaQuery.select(root).where(criteriaBuilder.equal(root.get("noteId"), noteId));
+		List<Note> notes = sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList();
+		if (notes.isEmpty()) {
 			throw new NoteNotFoundException("Given note Id is not found --> " + noteId);
 		}
-		return note;
+		return notes.get(0);
 
 	}
 
 	/*
-	 * Update an existing note
+	 * Update an existing note of its createdBy user, with a single UPDATE filtered
+	 * on id and owner. Returns false when the user has no such note, so the note
+	 * of another user is neither overwritten nor taken over. The creation date is
+	 * kept.
 	 */
 
 	public boolean UpdateNote(Note note) {
-		sessionFactory.getCurrentSession().update(note);
+		Session session = sessionFactory.getCurrentSession();
+		note.setChangeVersion(ChangeVersions.next(session, note.getCreatedBy()));
+		int updated = session.createQuery("update Note set noteTitle = :noteTitle, noteContent = :noteContent, "
+				+ "noteStatus = :noteStatus, category = :category, reminder = :reminder, "
+				+ "changeVersion = :changeVersion where noteId = :noteId and createdBy = :createdBy")
+				.setParameter("noteTitle", note.getNoteTitle()).setParameter("noteContent", note.getNoteContent())
+				.setParameter("noteStatus", note.getNoteStatus()).setParameter("category", note.getCategory())
+				.setParameter("reminder", note.getReminder()).setParameter("changeVersion", note.getChangeVersion())
+				.setParameter("noteId", note.getNoteId()).setParameter("createdBy", note.getCreatedBy())
+				.executeUpdate();
+		if (updated == 0) {
+			return false;
+		}
+		TransactionHooks.afterCommit(session, indexNote(note));
 		return true;
 	}
 
+	/*
+	 * Retrieve one page of notes of a user, seeking past the given
+	 * (noteCreatedAt, noteId) position instead of using an offset so that the cost
+	 * of a page does not depend on how deep into the listing it is.
+	 */
+
+	public List<Note> getNotesByUserId(String userId, Date afterCreatedAt, Integer afterNoteId, int limit) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Note> root = criteriaQuery.from(Note.class);
+		criteriaQuery = ListProjections.selectNotes(criteriaQuery, root)
+				.where(afterPosition(criteriaBuilder, root, userId, afterCreatedAt, afterNoteId)).orderBy(
+						criteriaBuilder.asc(root.get("createdBy")), criteriaBuilder.asc(root.get("noteCreatedAt")),
+						criteriaBuilder.asc(root.get("noteId")));
+		return ListProjections.toNotes(
+				sessionFactory.getCurrentSession().createQuery(criteriaQuery).setMaxResults(limit).getResultList());
+	}
+
+	/*
+	 * Retrieve only the requested fields of all notes of a user. The other columns,
+	 * noteContent in particular, are not read from the database at all.
+	 */
+
+	public List<Map<String, Object>> getNoteFieldsByUserId(String userId, List<String> fields) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Note> root = criteriaQuery.from(Note.class);
+		criteriaQuery = ListProjections.selectFields(criteriaQuery, root, fields, ListProjections.NOTE_FIELDS)
+				.where(criteriaBuilder.equal(root.get("createdBy"), userId));
+		return ListProjections.toFieldMaps(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList(),
+				fields);
+	}
+
+	/*
+	 * Retrieve only the requested fields of one page of notes of a user, with the
+	 * same keyset seek as getNotesByUserId.
+	 */
+
+	public List<Map<String, Object>> getNoteFieldsByUserId(String userId, List<String> fields, Date afterCreatedAt,
+			Integer afterNoteId, int limit) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Note> root = criteriaQuery.from(Note.class);
+		criteriaQuery = ListProjections.selectFields(criteriaQuery, root, fields, ListProjections.NOTE_FIELDS)
+				.where(afterPosition(criteriaBuilder, root, userId, afterCreatedAt, afterNoteId)).orderBy(
+						criteriaBuilder.asc(root.get("createdBy")), criteriaBuilder.asc(root.get("noteCreatedAt")),
+						criteriaBuilder.asc(root.get("noteId")));
+		return ListProjections.toFieldMaps(
+				sessionFactory.getCurrentSession().createQuery(criteriaQuery).setMaxResults(limit).getResultList(),
+				fields);
+	}
+
+	/*
+	 * The notes of the user which come strictly after the given (noteCreatedAt,
+	 * noteId) position, or all of them when afterNoteId is null. Ascending order
+	 * puts the notes without a creation date first, both in MySQL and in the
+	 * (creator, creation date, id) index, so after a position among them come the
+	 * rest of them and every note with a creation date.
+	 *
+	 * The redundant lower bound on the creation date is what lets the database seek
+	 * to the position in that index; the disjunction alone is evaluated row by row
+	 * from the first note of the user on. The pages are ordered by creator too,
+	 * constant as it is, so that databases which only read an index in order from
+	 * its first column on, H2 among them, need not sort the rest of the notes.
+	 */
+	private Predicate afterPosition(CriteriaBuilder criteriaBuilder, Root<Note> root, String userId,
+			Date afterCreatedAt, Integer afterNoteId) {
+		Predicate predicate = criteriaBuilder.equal(root.get("createdBy"), userId);
+		if (afterNoteId == null) {
+			return predicate;
+		}
+		if (afterCreatedAt == null) {
+			return criteriaBuilder.and(predicate,
+					criteriaBuilder.or(criteriaBuilder.isNotNull(root.get("noteCreatedAt")),
+							criteriaBuilder.greaterThan(root.<Integer>get("noteId"), afterNoteId)));
+		}
+		return criteriaBuilder.and(predicate,
+				criteriaBuilder.greaterThanOrEqualTo(root.<Date>get("noteCreatedAt"), afterCreatedAt),
+				criteriaBuilder.or(criteriaBuilder.greaterThan(root.<Date>get("noteCreatedAt"), afterCreatedAt),
+						criteriaBuilder.and(criteriaBuilder.equal(root.get("noteCreatedAt"), afterCreatedAt),
+								criteriaBuilder.greaterThan(root.<Integer>get("noteId"), afterNoteId))));
+	}
+
+	/*
+	 * Stream all notes of a user. Rows are read through a forward-only cursor and
+	 * every note is evicted from the session once the consumer is done with it, so
+	 * memory use stays flat regardless of the number of rows.
+	 */
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer) {
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
+		CriteriaQuery<Note> criteriaQuery = criteriaBuilder.createQuery(Note.class);
+		Root<Note> root = fetchReferences(criteriaQuery.from(Note.class));
+		criteriaQuery = criteriaQuery.select(root).where(criteriaBuilder.equal(root.get("createdBy"), userId));
+		ScrollableResults results = session.createQuery(criteriaQuery).setFetchSize(STREAM_FETCH_SIZE)
+				.setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				Note note = (Note) results.get(0);
+				consumer.accept(note);
+				session.evict(note);
+			}
+		} finally {
+			results.close();
+		}
+	}
+
+	/*
+	 * The search and suggestion index updates for the note as it is now, the note
+	 * itself may still change or be detached before the transaction commits.
+	 */
+	private Runnable indexNote(Note note) {
+		String userId = note.getCreatedBy();
+		int noteId = note.getNoteId();
+		long version = note.getChangeVersion();
+		String title = note.getNoteTitle();
+		String content = note.getNoteContent();
+		return () -> {
+			noteSearchIndex.noteSaved(userId, noteId, version, title, content);
+			suggestionIndex.noteSaved(userId, noteId, version, title);
+		};
+	}
+
+	private Runnable unindexNote(String userId, int noteId, long version) {
+		return () -> {
+			noteSearchIndex.noteDeleted(userId, noteId, version);
+			suggestionIndex.noteDeleted(userId, noteId, version);
+		};
+	}
+
+	/*
+	 * Join fetch the lazy reminder and category of the notes selected from the
+	 * given root, so that the notes are returned ready to be serialized without a
+	 * further select per distinct reminder or category.
+	 */
+	private Root<Note> fetchReferences(Root<Note> root) {
+		root.fetch("reminder", JoinType.LEFT);
+		root.fetch("category", JoinType.LEFT);
+		return root;
+	}
+
 }
@@ -1,6 +1,9 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
@@ -17,7 +20,41 @@ public interface ReminderDAO {
 
 	public boolean deleteReminder(int reminderId);
 
+	public boolean deleteReminder(int reminderId, String userId);
+
 	public Reminder getReminderById(int reminderId) throws ReminderNotFoundException;
 
 	public List<Reminder> getAllReminderByUserId(String userId);
+
+	/*
+	 * Hands every reminder of the user to the consumer one at a time, without building
+	 * the complete result list in memory.
+	 */
+	public void streamRemindersByUserId(String userId, Consumer<Reminder> consumer);
+
+	/*
+	 * Hands every reminder due after the given date to the consumer one at a time,
+	 * with only its id and due date filled in.
+	 */
+	public void streamRemindersDueAfter(Date after, Consumer<Reminder> consumer);
+
+	/*
+	 * Mark the reminder fired for the given due date. Returns false when it has
+	 * been fired for that date already, e.g. by another application instance, or
+	 * is no longer due then, having been rescheduled or deleted.
+	 */
+	public boolean claimReminder(int reminderId, Date dueDate);
+
+	/*
+	 * The ids of all reminders of the user.
+	 */
+	public List<Integer> getReminderIdsByUserId(String userId);
+
+	/*
+	 * Sparse fieldsets: only the given fields of the reminders are selected, one map
+	 * per reminder. A field which is not a reminder column is rejected with an
+	 * IllegalArgumentException.
+	 */
+	public List<Map<String, Object>> getReminderFieldsByUserId(String userId, List<String> fields);
+
 }
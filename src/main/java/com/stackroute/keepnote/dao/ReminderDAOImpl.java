@@ -1,18 +1,26 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import javax.transaction.Transactional;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.Tombstone;
 
 /*
  * This class is implementing the UserDAO interface. This class has to be annotated with 
@@ -31,6 +39,11 @@ public class ReminderDAOImpl implements ReminderDAO {
 	 * Autowiring should be implemented for the SessionFactory.(Use
 	 * constructor-based autowiring.
 	 */
+	/*
+	 * Number of rows fetched per round trip while streaming a listing.
+	 */
+	private static final int STREAM_FETCH_SIZE = 500;
+
 	@Autowired
 	private SessionFactory sessionFactory;
 
@@ -43,17 +56,32 @@ public class ReminderDAOImpl implements ReminderDAO {
 	 */
 
 	public boolean createReminder(Reminder reminder) {
-		return sessionFactory.getCurrentSession().save(reminder) != null;
+		Session session = sessionFactory.getCurrentSession();
+		reminder.setChangeVersion(ChangeVersions.next(session, reminder.getReminderCreatedBy()));
+		return session.save(reminder) != null;
 
 	}
 
 	/*
-	 * Update an existing reminder
+	 * Update an existing reminder of the user named by reminderCreatedBy. A
+	 * reminder which does not exist or belongs to another user is not found.
 	 */
 
 	public boolean updateReminder(Reminder reminder) {
-		sessionFactory.getCurrentSession().update(reminder);
-		return true;
+		Session session = sessionFactory.getCurrentSession();
+		reminder.setChangeVersion(ChangeVersions.next(session, reminder.getReminderCreatedBy()));
+		int updated = session.createQuery("update Reminder set reminderName = :reminderName, "
+				+ "reminderDescription = :reminderDescription, reminderType = :reminderType, "
+				+ "reminderDueDate = :reminderDueDate, changeVersion = :changeVersion "
+				+ "where reminderId = :reminderId and reminderCreatedBy = :reminderCreatedBy")
+				.setParameter("reminderName", reminder.getReminderName())
+				.setParameter("reminderDescription", reminder.getReminderDescription())
+				.setParameter("reminderType", reminder.getReminderType())
+				.setParameter("reminderDueDate", reminder.getReminderDueDate())
+				.setParameter("changeVersion", reminder.getChangeVersion())
+				.setParameter("reminderId", reminder.getReminderId())
+				.setParameter("reminderCreatedBy", reminder.getReminderCreatedBy()).executeUpdate();
+		return updated > 0;
 
 	}
 
@@ -63,7 +91,10 @@ public class ReminderDAOImpl implements ReminderDAO {
 
 	public boolean deleteReminder(int reminderId) {
 		try {
-			sessionFactory.getCurrentSession().delete(getReminderById(reminderId));
+			Session session = sessionFactory.getCurrentSession();
+			Reminder reminder = getReminderById(reminderId);
+			session.delete(reminder);
+			ChangeVersions.tombstone(session, Tombstone.REMINDER, reminderId, reminder.getReminderCreatedBy());
 			return true;
 		} catch (ReminderNotFoundException e) {
 			e.printStackTrace();
@@ -72,6 +103,22 @@ public class ReminderDAOImpl implements ReminderDAO {
 
 	}
 
+	/*
+	 * Remove an existing reminder of the user with a single DELETE, without
+	 * loading it, after its links to notes. A reminder which does not exist or
+	 * belongs to another user is not found.
+	 */
+	public boolean deleteReminder(int reminderId, String userId) {
+		Session session = sessionFactory.getCurrentSession();
+		String owned = "(select reminder_id from REMINDER where reminder_id = :reminderId and reminder_creator = :userId)";
+		DirectDeletes.deleteNoteLinks(session, Reminder.class, true, owned, "reminderId", reminderId, "userId", userId);
+		if (!DirectDeletes.deleteOwned(session, Reminder.class, "reminderCreatedBy", reminderId, userId)) {
+			return false;
+		}
+		ChangeVersions.tombstone(session, Tombstone.REMINDER, reminderId, userId);
+		return true;
+	}
+
 	/*
 	 * Retrieve details of a specific reminder
 	 */
@@ -91,10 +138,99 @@ public class ReminderDAOImpl implements ReminderDAO {
 
 	public List<Reminder> getAllReminderByUserId(String userId) {
 		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Reminder> root = criteriaQuery.from(Reminder.class);
+		criteriaQuery = ListProjections.selectReminders(criteriaQuery, root)
+				.where(criteriaBuilder.equal(root.get("reminderCreatedBy"), userId));
+		return ListProjections.toReminders(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList());
+	}
+
+	/*
+	 * Stream all reminders of a user through a forward-only cursor, evicting each reminder
+	 * from the session after the consumer has handled it.
+	 */
+	public void streamRemindersByUserId(String userId, Consumer<Reminder> consumer) {
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
 		CriteriaQuery<Reminder> criteriaQuery = criteriaBuilder.createQuery(Reminder.class);
 		Root<Reminder> root = criteriaQuery.from(Reminder.class);
 		criteriaQuery = criteriaQuery.select(root).where(criteriaBuilder.equal(root.get("reminderCreatedBy"), userId));
-		return sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList();
+		ScrollableResults results = session.createQuery(criteriaQuery).setFetchSize(STREAM_FETCH_SIZE)
+				.setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				Reminder reminder = (Reminder) results.get(0);
+				consumer.accept(reminder);
+				session.evict(reminder);
+			}
+		} finally {
+			results.close();
+		}
+	}
+
+	/*
+	 * Stream the id and due date of all reminders due after the given date through
+	 * a forward-only cursor, without loading the reminders into the session.
+	 */
+	public void streamRemindersDueAfter(Date after, Consumer<Reminder> consumer) {
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
+		CriteriaQuery<Object[]> criteriaQuery = criteriaBuilder.createQuery(Object[].class);
+		Root<Reminder> root = criteriaQuery.from(Reminder.class);
+		criteriaQuery = criteriaQuery.multiselect(root.get("reminderId"), root.get("reminderDueDate"))
+				.where(criteriaBuilder.greaterThan(root.<Date>get("reminderDueDate"), after));
+		ScrollableResults results = session.createQuery(criteriaQuery).setFetchSize(STREAM_FETCH_SIZE)
+				.setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				/* the selected values come as one array */
+				Object[] row = (Object[]) results.get(0);
+				Reminder reminder = new Reminder();
+				reminder.setReminderId((Integer) row[0]);
+				reminder.setReminderDueDate((Date) row[1]);
+				consumer.accept(reminder);
+			}
+		} finally {
+			results.close();
+		}
+	}
+
+	/*
+	 * Claim the firing of a reminder with a single conditional UPDATE: of the
+	 * instances racing for it, only the one whose update changes the row fires it.
+	 * The due date is compared to the second, as DATETIME columns round it.
+	 */
+	public boolean claimReminder(int reminderId, Date dueDate) {
+		long dueSecond = Math.floorDiv(dueDate.getTime(), 1000L) * 1000L;
+		return sessionFactory.getCurrentSession()
+				.createQuery("update Reminder r set r.reminderFiredDueDate = :dueSecond where r.reminderId = :reminderId"
+						+ " and r.reminderDueDate >= :dueSecond and r.reminderDueDate <= :nextSecond"
+						+ " and (r.reminderFiredDueDate is null or r.reminderFiredDueDate <> :dueSecond)")
+				.setParameter("dueSecond", new Date(dueSecond)).setParameter("nextSecond", new Date(dueSecond + 1000))
+				.setParameter("reminderId", reminderId).executeUpdate() == 1;
+	}
+
+	/*
+	 * Retrieve the ids of all reminders of a user
+	 */
+	public List<Integer> getReminderIdsByUserId(String userId) {
+		return sessionFactory.getCurrentSession()
+				.createQuery("select r.reminderId from Reminder r where r.reminderCreatedBy = :userId", Integer.class)
+				.setParameter("userId", userId).getResultList();
+	}
+
+	/*
+	 * Retrieve only the requested fields of all reminders of a user
+	 */
+
+	public List<Map<String, Object>> getReminderFieldsByUserId(String userId, List<String> fields) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Reminder> root = criteriaQuery.from(Reminder.class);
+		criteriaQuery = ListProjections.selectFields(criteriaQuery, root, fields, ListProjections.REMINDER_FIELDS)
+				.where(criteriaBuilder.equal(root.get("reminderCreatedBy"), userId));
+		return ListProjections.toFieldMaps(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList(),
+				fields);
 	}
 
 }
@@ -0,0 +1,31 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.List;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.Tombstone;
+
+public interface SyncDAO {
+
+	/*
+	 * The last change version handed out to the user, 0 if the user never wrote
+	 * anything.
+	 */
+	public long getChangeVersion(String userId);
+
+	/*
+	 * The rows of the user whose change version is greater than afterVersion and
+	 * not greater than upToVersion. Each query is a range scan of the (creator,
+	 * change version) index, so its cost depends on the number of changes only.
+	 */
+	public List<Note> getNotesChangedBetween(String userId, long afterVersion, long upToVersion);
+
+	public List<Category> getCategoriesChangedBetween(String userId, long afterVersion, long upToVersion);
+
+	public List<Reminder> getRemindersChangedBetween(String userId, long afterVersion, long upToVersion);
+
+	public List<Tombstone> getTombstonesBetween(String userId, long afterVersion, long upToVersion);
+
+}
@@ -0,0 +1,88 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.List;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.transaction.Transactional;
+
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.SyncState;
+import com.stackroute.keepnote.model.Tombstone;
+
+/*
+ * Read side of the delta sync. The change versions are written by the note,
+ * category and reminder DAOs through ChangeVersions; this DAO only looks them up.
+ * Changed rows are read through the same projections as the list endpoints.
+ */
+@Repository
+@Transactional
+public class SyncDAOImpl implements SyncDAO {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+
+	public SyncDAOImpl(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+
+	public long getChangeVersion(String userId) {
+		SyncState syncState = sessionFactory.getCurrentSession().get(SyncState.class, userId);
+		return syncState == null ? 0 : syncState.getChangeVersion();
+	}
+
+	public List<Note> getNotesChangedBetween(String userId, long afterVersion, long upToVersion) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Note> root = criteriaQuery.from(Note.class);
+		criteriaQuery = ListProjections.selectNotes(criteriaQuery, root)
+				.where(changedBetween(criteriaBuilder, root, "createdBy", userId, afterVersion, upToVersion));
+		return ListProjections.toNotes(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList());
+	}
+
+	public List<Category> getCategoriesChangedBetween(String userId, long afterVersion, long upToVersion) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Category> root = criteriaQuery.from(Category.class);
+		criteriaQuery = ListProjections.selectCategories(criteriaQuery, root).where(
+				changedBetween(criteriaBuilder, root, "categoryCreatedBy", userId, afterVersion, upToVersion));
+		return ListProjections
+				.toCategories(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList());
+	}
+
+	public List<Reminder> getRemindersChangedBetween(String userId, long afterVersion, long upToVersion) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+		Root<Reminder> root = criteriaQuery.from(Reminder.class);
+		criteriaQuery = ListProjections.selectReminders(criteriaQuery, root).where(
+				changedBetween(criteriaBuilder, root, "reminderCreatedBy", userId, afterVersion, upToVersion));
+		return ListProjections
+				.toReminders(sessionFactory.getCurrentSession().createQuery(criteriaQuery).getResultList());
+	}
+
+	public List<Tombstone> getTombstonesBetween(String userId, long afterVersion, long upToVersion) {
+		CriteriaBuilder criteriaBuilder = sessionFactory.getCurrentSession().getCriteriaBuilder();
+		CriteriaQuery<Tombstone> criteriaQuery = criteriaBuilder.createQuery(Tombstone.class);
+		Root<Tombstone> root = criteriaQuery.from(Tombstone.class);
+		criteriaQuery = criteriaQuery.select(root)
+				.where(changedBetween(criteriaBuilder, root, "userId", userId, afterVersion, upToVersion));
+		return sessionFactory.getCurrentSession().createQuery(criteriaQuery).setReadOnly(true).getResultList();
+	}
+
+	private Predicate changedBetween(CriteriaBuilder criteriaBuilder, Root<?> root, String ownerField,
+			String userId, long afterVersion, long upToVersion) {
+		return criteriaBuilder.and(criteriaBuilder.equal(root.get(ownerField), userId),
+				criteriaBuilder.greaterThan(root.<Long>get("changeVersion"), afterVersion),
+				criteriaBuilder.lessThanOrEqualTo(root.<Long>get("changeVersion"), upToVersion));
+	}
+
+}
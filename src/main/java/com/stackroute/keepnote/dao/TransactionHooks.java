@@ -0,0 +1,26 @@
+package com.stackroute.keepnote.dao;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+
+/*
+ * Work tied to the outcome of the transaction of a session.
+ */
+final class TransactionHooks {
+
+	private TransactionHooks() {
+	}
+
+	/*
+	 * Run the task once the current transaction has committed; nothing is done
+	 * when it rolls back.
+	 */
+	static void afterCommit(Session session, Runnable task) {
+		((SessionImplementor) session).getActionQueue().registerProcess((success, completed) -> {
+			if (success) {
+				task.run();
+			}
+		});
+	}
+
+}
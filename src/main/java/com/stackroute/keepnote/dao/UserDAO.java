@@ -19,4 +19,8 @@ public interface UserDAO {
 	public boolean validateUser(String userName, String password) throws UserNotFoundException;
 
 	public boolean deleteUser(String UserId);
+
+	public boolean deleteUserAndData(String userId);
+
+	public int deleteUserDataChunk(String userId, int chunkSize);
 }
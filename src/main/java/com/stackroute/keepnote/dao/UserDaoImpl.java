@@ -1,17 +1,20 @@
 package com.stackroute.keepnote.dao;
 
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
+import java.util.Collection;
+import java.util.List;
+
 import javax.transaction.Transactional;
 
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import com.stackroute.keepnote.exception.UserNotFoundException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.model.User;
 
 /*
@@ -43,7 +46,9 @@ public class UserDaoImpl implements UserDAO {
 	 */
 
 	public boolean registerUser(User user) {
-		sessionFactory.getCurrentSession().save(user);
+		Session session = sessionFactory.getCurrentSession();
+		session.save(user);
+		ChangeVersions.create(session, user.getUserId());
 		return true;
 	}
 
@@ -65,18 +70,14 @@ public class UserDaoImpl implements UserDAO {
 	}
 
 	/*
-	 * validate an user
+	 * validate an user, comparing the given value with the stored password as it
+	 * is. Logins go through UserService, which verifies the password against its
+	 * hash itself.
 	 */
 
 	public boolean validateUser(String userId, String password) throws UserNotFoundException {
-		Session session = sessionFactory.getCurrentSession();
-		CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
-		CriteriaQuery<User> criteriaQuery = criteriaBuilder.createQuery(User.class);
-		Root<User> root = criteriaQuery.from(User.class);
-		criteriaQuery = criteriaQuery.select(root).where(criteriaBuilder.equal(root.get("userId"), userId),
-				criteriaBuilder.equal(root.get("userPassword"), password));
-		User user = session.createQuery(criteriaQuery).uniqueResult();
-		if (user == null) {
+		User user = getUserById(userId);
+		if (user == null || password == null || !password.equals(user.getUserPassword())) {
 			throw new UserNotFoundException("UserNotFoundException");
 		}
 		return true;
@@ -96,4 +97,86 @@ public class UserDaoImpl implements UserDAO {
 
 	}
 
+	/*
+	 * Remove a user together with all notes, categories, reminders and tombstones
+	 * of the user. Every table is cleared with one set-based statement, no entity
+	 * is loaded, and all of it happens in one transaction. Notes of other users
+	 * which refer to a removed category or reminder lose that reference. The
+	 * SyncState row is kept, so a user registering the same id later continues
+	 * its change versions and never repeats an ETag of the deleted data.
+	 */
+	public boolean deleteUserAndData(String userId) {
+		Session session = sessionFactory.getCurrentSession();
+		ChangeVersions.lock(session, userId);
+		String noteIds = "(select note_id from NOTE where note_creator = :userId)";
+		DirectDeletes.deleteNoteLinks(session, Category.class, false, noteIds, "userId", userId);
+		DirectDeletes.deleteNoteLinks(session, Reminder.class, false, noteIds, "userId", userId);
+		DirectDeletes.deleteNoteLinks(session, Category.class, true,
+				"(select category_id from CATEGORY where category_creator = :userId)", "userId", userId);
+		DirectDeletes.deleteNoteLinks(session, Reminder.class, true,
+				"(select reminder_id from REMINDER where reminder_creator = :userId)", "userId", userId);
+		execute(session, "delete from Note n where n.createdBy = :userId", "userId", userId);
+		execute(session, "update Note n set n.category = null where n.category.categoryId in "
+				+ "(select c.categoryId from Category c where c.categoryCreatedBy = :userId)", "userId", userId);
+		execute(session, "update Note n set n.reminder = null where n.reminder.reminderId in "
+				+ "(select r.reminderId from Reminder r where r.reminderCreatedBy = :userId)", "userId", userId);
+		execute(session, "delete from Category c where c.categoryCreatedBy = :userId", "userId", userId);
+		execute(session, "delete from Reminder r where r.reminderCreatedBy = :userId", "userId", userId);
+		execute(session, "delete from Tombstone t where t.userId = :userId", "userId", userId);
+		return execute(session, "delete from User u where u.userId = :userId", "userId", userId) > 0;
+	}
+
+	/*
+	 * Remove up to chunkSize rows of the data of a user in a transaction of its
+	 * own: notes first, then categories, reminders and tombstones. Returns the
+	 * number of rows removed, 0 once nothing is left but the user, which is then
+	 * removed by deleteUserAndData. Calling this until it returns 0 keeps every
+	 * transaction, and the locks it holds, short for users with a lot of data.
+	 */
+	public int deleteUserDataChunk(String userId, int chunkSize) {
+		Session session = sessionFactory.getCurrentSession();
+		ChangeVersions.lock(session, userId);
+		List<Integer> ids = ownedIds(session, "select n.noteId from Note n where n.createdBy = :userId", userId,
+				chunkSize);
+		if (!ids.isEmpty()) {
+			DirectDeletes.deleteNoteLinks(session, Category.class, false, "(:ids)", "ids", ids);
+			DirectDeletes.deleteNoteLinks(session, Reminder.class, false, "(:ids)", "ids", ids);
+			return execute(session, "delete from Note n where n.noteId in (:ids)", "ids", ids);
+		}
+		ids = ownedIds(session, "select c.categoryId from Category c where c.categoryCreatedBy = :userId", userId,
+				chunkSize);
+		if (!ids.isEmpty()) {
+			DirectDeletes.deleteNoteLinks(session, Category.class, true, "(:ids)", "ids", ids);
+			execute(session, "update Note n set n.category = null where n.category.categoryId in (:ids)", "ids", ids);
+			return execute(session, "delete from Category c where c.categoryId in (:ids)", "ids", ids);
+		}
+		ids = ownedIds(session, "select r.reminderId from Reminder r where r.reminderCreatedBy = :userId", userId,
+				chunkSize);
+		if (!ids.isEmpty()) {
+			DirectDeletes.deleteNoteLinks(session, Reminder.class, true, "(:ids)", "ids", ids);
+			execute(session, "update Note n set n.reminder = null where n.reminder.reminderId in (:ids)", "ids", ids);
+			return execute(session, "delete from Reminder r where r.reminderId in (:ids)", "ids", ids);
+		}
+		ids = ownedIds(session, "select t.tombstoneId from Tombstone t where t.userId = :userId", userId, chunkSize);
+		if (!ids.isEmpty()) {
+			return execute(session, "delete from Tombstone t where t.tombstoneId in (:ids)", "ids", ids);
+		}
+		return 0;
+	}
+
+	private static List<Integer> ownedIds(Session session, String query, String userId, int chunkSize) {
+		return session.createQuery(query, Integer.class).setParameter("userId", userId).setMaxResults(chunkSize)
+				.getResultList();
+	}
+
+	private static int execute(Session session, String statement, String name, Object value) {
+		Query<?> query = session.createQuery(statement);
+		if (value instanceof Collection) {
+			query.setParameterList(name, (Collection<?>) value);
+		} else {
+			query.setParameter(name, value);
+		}
+		return query.executeUpdate();
+	}
+
 }
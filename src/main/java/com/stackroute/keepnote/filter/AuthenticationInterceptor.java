@@ -0,0 +1,67 @@
+package com.stackroute.keepnote.filter;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/*
+ * Single authentication check of the application. It runs once the handler has
+ * been chosen but before any of its arguments is resolved, so the request body of
+ * an unauthenticated request is never read or converted.
+ *
+ * A handler method asks for authentication by declaring the logged in user as
+ * parameter:
+ *
+ *   @RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId
+ *
+ * For such handlers the user is taken from the session, which in token mode is
+ * the view set up by TokenAuthenticationFilter, and bound to the request under
+ * that name. Without a logged in user the request is answered with
+ * 401(UNAUTHORIZED) right here. All other handlers, e.g. login and register, pass
+ * through untouched.
+ */
+public class AuthenticationInterceptor implements HandlerInterceptor {
+
+	public static final String PRINCIPAL = "keepnote.principal";
+
+	private static final byte[] UNAUTHORIZED_BODY = "UnAuthorized User".getBytes(StandardCharsets.UTF_8);
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception {
+		if (!(handler instanceof HandlerMethod) || !requiresPrincipal((HandlerMethod) handler)) {
+			return true;
+		}
+		HttpSession session = request.getSession(false);
+		Object userId = null == session ? null : session.getAttribute("loggedInUserId");
+		if (null == userId) {
+			response.setStatus(HttpStatus.UNAUTHORIZED.value());
+			response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+			response.setContentLength(UNAUTHORIZED_BODY.length);
+			response.getOutputStream().write(UNAUTHORIZED_BODY);
+			return false;
+		}
+		request.setAttribute(PRINCIPAL, userId.toString());
+		return true;
+	}
+
+	private static boolean requiresPrincipal(HandlerMethod handler) {
+		for (MethodParameter parameter : handler.getMethodParameters()) {
+			RequestAttribute attribute = parameter.getParameterAnnotation(RequestAttribute.class);
+			if (null != attribute && (PRINCIPAL.equals(attribute.value()) || PRINCIPAL.equals(attribute.name()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
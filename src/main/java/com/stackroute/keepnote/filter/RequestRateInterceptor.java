@@ -0,0 +1,76 @@
+package com.stackroute.keepnote.filter;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import com.stackroute.keepnote.service.RequestRateLimiter;
+
+/*
+ * Applies the RequestRateLimiter to every request of a logged in user. It has to
+ * be registered after the AuthenticationInterceptor, whose principal it limits;
+ * requests of handlers that do not require a user pass through.
+ *
+ * A rejected request is answered with 429(TOO MANY REQUESTS) and a Retry-After
+ * header before any body is read. Reads cost one token and writes WRITE_COST. An
+ * admitted request keeps its slot until it has completed, which for streamed
+ * responses is the end of the async dispatch, not the return of the handler.
+ */
+public class RequestRateInterceptor implements AsyncHandlerInterceptor {
+
+	public static final int WRITE_COST = 2;
+
+	private static final String ADMITTED = RequestRateInterceptor.class.getName() + ".admitted";
+
+	private static final byte[] TOO_MANY_REQUESTS_BODY = "Too Many Requests".getBytes(StandardCharsets.UTF_8);
+
+	private final RequestRateLimiter requestRateLimiter;
+
+	public RequestRateInterceptor(RequestRateLimiter requestRateLimiter) {
+		this.requestRateLimiter = requestRateLimiter;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception {
+		Object userId = request.getAttribute(AuthenticationInterceptor.PRINCIPAL);
+		if (null == userId || request.getDispatcherType() == DispatcherType.ASYNC) {
+			return true;
+		}
+		long retryAfter = requestRateLimiter.acquire(userId.toString(), cost(request));
+		if (retryAfter > 0) {
+			response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+			response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+			response.setContentLength(TOO_MANY_REQUESTS_BODY.length);
+			response.getOutputStream().write(TOO_MANY_REQUESTS_BODY);
+			return false;
+		}
+		request.setAttribute(ADMITTED, userId.toString());
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) throws Exception {
+		Object userId = request.getAttribute(ADMITTED);
+		if (null != userId) {
+			request.removeAttribute(ADMITTED);
+			requestRateLimiter.release(userId.toString());
+		}
+	}
+
+	private static int cost(HttpServletRequest request) {
+		HttpMethod method = HttpMethod.resolve(request.getMethod());
+		return method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS ? 1 : WRITE_COST;
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.stackroute.keepnote.filter;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.stackroute.keepnote.service.TokenService;
+
+/*
+ * Authenticates every request of the stateless mode (KEEPNOTE_AUTH_MODE=token)
+ * from its "Authorization: Bearer <token>" header. The token is checked against
+ * its signature and the local deny-list only, see TokenService.
+ *
+ * The AuthenticationInterceptor keeps reading the logged in user from the
+ * HttpSession. In token mode the request is wrapped so that getSession() returns
+ * a view which lives for the request only and holds "loggedInUserId" when the
+ * token is valid; no servlet session is ever created. In session mode this filter
+ * does nothing.
+ */
+@Component
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+	public static final String TOKEN_HEADER = "X-Auth-Token";
+
+	private static final String BEARER_PREFIX = "Bearer ";
+
+	private TokenService tokenService;
+
+	@Autowired
+	public TokenAuthenticationFilter(TokenService tokenService) {
+		this.tokenService = tokenService;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		if (!tokenService.isEnabled()) {
+			chain.doFilter(request, response);
+			return;
+		}
+		String token = null;
+		String authorization = request.getHeader("Authorization");
+		if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+			token = authorization.substring(BEARER_PREFIX.length()).trim();
+		}
+		String userId = tokenService.getUserId(token);
+		TokenSession session = new TokenSession(request.getServletContext(), tokenService,
+				userId == null ? null : token);
+		if (userId != null) {
+			session.setAttribute("loggedInUserId", userId);
+		}
+		chain.doFilter(new TokenSessionRequest(request, session), response);
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.stackroute.keepnote.filter;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+
+import com.stackroute.keepnote.service.TokenService;
+
+/*
+ * Session view of one token authenticated request. Attributes set on it are
+ * dropped with the request. Invalidating it, as the logout handler does, revokes
+ * the token the request was authenticated with.
+ */
+@SuppressWarnings("deprecation")
+class TokenSession implements HttpSession {
+
+	private final ServletContext servletContext;
+
+	private final TokenService tokenService;
+
+	private final String token;
+
+	private final long creationTime = System.currentTimeMillis();
+
+	private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+	TokenSession(ServletContext servletContext, TokenService tokenService, String token) {
+		this.servletContext = servletContext;
+		this.tokenService = tokenService;
+		this.token = token;
+	}
+
+	@Override
+	public long getCreationTime() {
+		return creationTime;
+	}
+
+	@Override
+	public String getId() {
+		return "";
+	}
+
+	@Override
+	public long getLastAccessedTime() {
+		return creationTime;
+	}
+
+	@Override
+	public ServletContext getServletContext() {
+		return servletContext;
+	}
+
+	@Override
+	public void setMaxInactiveInterval(int interval) {
+	}
+
+	@Override
+	public int getMaxInactiveInterval() {
+		return 0;
+	}
+
+	@Override
+	public javax.servlet.http.HttpSessionContext getSessionContext() {
+		return null;
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	@Override
+	public Object getValue(String name) {
+		return getAttribute(name);
+	}
+
+	@Override
+	public Enumeration<String> getAttributeNames() {
+		return Collections.enumeration(attributes.keySet());
+	}
+
+	@Override
+	public String[] getValueNames() {
+		return attributes.keySet().toArray(new String[attributes.size()]);
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		if (value == null) {
+			attributes.remove(name);
+		} else {
+			attributes.put(name, value);
+		}
+	}
+
+	@Override
+	public void putValue(String name, Object value) {
+		setAttribute(name, value);
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		attributes.remove(name);
+	}
+
+	@Override
+	public void removeValue(String name) {
+		removeAttribute(name);
+	}
+
+	@Override
+	public void invalidate() {
+		tokenService.revokeToken(token);
+		attributes.clear();
+	}
+
+	@Override
+	public boolean isNew() {
+		return token == null;
+	}
+
+}
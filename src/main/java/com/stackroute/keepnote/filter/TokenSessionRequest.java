@@ -0,0 +1,40 @@
+package com.stackroute.keepnote.filter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpSession;
+
+/*
+ * Request of the token mode, whose session is the per-request TokenSession
+ * instead of a servlet session.
+ */
+class TokenSessionRequest extends HttpServletRequestWrapper {
+
+	private final TokenSession session;
+
+	TokenSessionRequest(HttpServletRequest request, TokenSession session) {
+		super(request);
+		this.session = session;
+	}
+
+	@Override
+	public HttpSession getSession(boolean create) {
+		return session;
+	}
+
+	@Override
+	public HttpSession getSession() {
+		return session;
+	}
+
+	@Override
+	public String changeSessionId() {
+		return session.getId();
+	}
+
+	@Override
+	public boolean isRequestedSessionIdValid() {
+		return false;
+	}
+
+}
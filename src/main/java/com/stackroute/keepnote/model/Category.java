@@ -3,15 +3,22 @@ package com.stackroute.keepnote.model;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 /*
  * The class "Category" will be acting as the data model for the Category Table in the database. 
@@ -21,7 +28,11 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * Java object to recreate it as a table in your database.
  */
 @Entity
-@Table(name="CATEGORY")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "keepnote.category")
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+@Table(name = "CATEGORY", indexes = {
+		@Index(name = "idx_category_creator_version", columnList = "category_creator, category_change_version") })
 public class Category {
 	/*
 	 * This class should have six fields
@@ -36,7 +47,9 @@ public class Category {
 	 */
 
 	@Id
-//	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "category_id_generator")
+	@TableGenerator(name = "category_id_generator", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+			pkColumnValue = "category", initialValue = IdGenerators.INITIAL_VALUE, allocationSize = IdGenerators.ALLOCATION_SIZE)
 	@Column(name = "category_id")
 	private int categoryId;
 	@Column(name = "category_name")
@@ -50,6 +63,9 @@ public class Category {
 	@OneToMany
 	@JsonIgnore
 	private List<Note> notes;
+	@Column(name = "category_change_version")
+	@JsonIgnore
+	private long changeVersion;
 
 	public Category(int categoryId, String categoryName, String categoryDescription, Date categoryCreationDate,
 			String categoryCreatedBy, List<Note> notes) {
@@ -112,6 +128,14 @@ public class Category {
 		this.notes = notes;
 	}
 
+	public long getChangeVersion() {
+		return changeVersion;
+	}
+
+	public void setChangeVersion(long changeVersion) {
+		this.changeVersion = changeVersion;
+	}
+
 	@Override
 	public String toString() {
 		return "Category [categoryId=" + categoryId + ", categoryName=" + categoryName + ", categoryDescription="
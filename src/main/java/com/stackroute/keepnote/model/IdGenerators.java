@@ -0,0 +1,30 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * Settings shared by the table-based identifier generators of Note, Category and
+ * Reminder. Every entity has its own row in the ID_GENERATOR table. Hibernate
+ * reserves ALLOCATION_SIZE ids per round trip to that table and hands them out
+ * from memory (pooled optimizer), so inserts need no round trip per id and can
+ * still be sent as JDBC batches, unlike with IDENTITY columns. The ids are
+ * reserved in a transaction of their own, on a second connection next to the
+ * one of the writing transaction, so the connection pool needs room for it.
+ *
+ * Generated ids start at INITIAL_VALUE to stay clear of the ids clients used to
+ * pick themselves before ids were generated.
+ */
+public final class IdGenerators {
+
+	public static final String TABLE = "ID_GENERATOR";
+
+	public static final String NAME_COLUMN = "sequence_name";
+
+	public static final String VALUE_COLUMN = "next_value";
+
+	public static final int INITIAL_VALUE = 1000000;
+
+	public static final int ALLOCATION_SIZE = 50;
+
+	private IdGenerators() {
+	}
+
+}
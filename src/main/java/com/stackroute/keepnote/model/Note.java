@@ -4,11 +4,16 @@ import java.util.Date;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /*
  * The class "Note" will be acting as the data model for the Note Table in the database. 
@@ -16,9 +21,15 @@ import javax.persistence.Table;
  * Hibernate will scan all package for any Java objects annotated with the @Entity annotation. 
  * If it finds any, then it will begin the process of looking through that particular 
  * Java object to recreate it as a table in your database.
+ *
+ * The composite index on (creator, creation date, id) backs the keyset pagination
+ * of a user's notes, see NoteDAO.getNotesByUserId. The one on (creator, change
+ * version) backs the delta sync, see SyncDAO.
  */
 @Entity
-@Table(name = "NOTE")
+@Table(name = "NOTE", indexes = {
+		@Index(name = "idx_note_creator_created", columnList = "note_creator, note_creation_date, note_id"),
+		@Index(name = "idx_note_creator_version", columnList = "note_creator, note_change_version") })
 public class Note {
 	/*
 	 * This class should have eight fields
@@ -29,10 +40,15 @@ public class Note {
 	 * constructor and toString method. The value of createdAt should not be
 	 * accepted from the user but should be always initialized with the system date.
 	 * annotate category and reminder field with @ManyToOne.
+	 *
+	 * Both associations are lazy; the NoteDAO queries join fetch them so that a
+	 * listing is read with a single select.
 	 */
 
 	@Id
-//	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "note_id_generator")
+	@TableGenerator(name = "note_id_generator", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+			pkColumnValue = "note", initialValue = IdGenerators.INITIAL_VALUE, allocationSize = IdGenerators.ALLOCATION_SIZE)
 	@Column(name = "note_id")
 	private int noteId;
 	@Column(name = "note_title")
@@ -45,10 +61,13 @@ public class Note {
 	private Date noteCreatedAt;
 	@Column(name = "note_creator")
 	private String createdBy;
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	private Reminder reminder;
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	private Category category;
+	@Column(name = "note_change_version")
+	@JsonIgnore
+	private long changeVersion;
 
 	public Note() {
 
@@ -131,4 +150,12 @@ public class Note {
 		this.category = category;
 	}
 
+	public long getChangeVersion() {
+		return changeVersion;
+	}
+
+	public void setChangeVersion(long changeVersion) {
+		this.changeVersion = changeVersion;
+	}
+
 }
@@ -0,0 +1,61 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * The class "NoteBatchResult" reports what happened to one note of a batch
+ * create request. The index is the position of the note in the request body.
+ */
+public class NoteBatchResult {
+
+	public static final String CREATED = "CREATED";
+	public static final String REFERENCE_NOT_FOUND = "REFERENCE_NOT_FOUND";
+	public static final String FAILED = "FAILED";
+
+	private int index;
+	private int noteId;
+	private String status;
+	private String message;
+
+	public NoteBatchResult() {
+
+	}
+
+	public NoteBatchResult(int index, int noteId, String status, String message) {
+		this.index = index;
+		this.noteId = noteId;
+		this.status = status;
+		this.message = message;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+}
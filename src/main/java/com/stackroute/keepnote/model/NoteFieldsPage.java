@@ -0,0 +1,42 @@
+package com.stackroute.keepnote.model;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The class "NoteFieldsPage" is the response body of a paginated note listing
+ * restricted with the "fields" parameter. It is the NotePage counterpart holding
+ * only the requested fields of every note, in the same order and with the same
+ * kind of cursor.
+ */
+public class NoteFieldsPage {
+
+	private List<Map<String, Object>> notes;
+	private String nextCursor;
+
+	public NoteFieldsPage() {
+
+	}
+
+	public NoteFieldsPage(List<Map<String, Object>> notes, String nextCursor) {
+		this.notes = notes;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<Map<String, Object>> getNotes() {
+		return notes;
+	}
+
+	public void setNotes(List<Map<String, Object>> notes) {
+		this.notes = notes;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.stackroute.keepnote.model;
+
+import java.util.List;
+
+/*
+ * The class "NotePage" is the response body of a paginated note listing. It holds
+ * one page of notes ordered by (noteCreatedAt, noteId) and the opaque cursor that
+ * has to be passed as the "after" parameter to fetch the next page. The cursor is
+ * null once the last page has been reached.
+ */
+public class NotePage {
+
+	private List<Note> notes;
+	private String nextCursor;
+
+	public NotePage() {
+
+	}
+
+	public NotePage(List<Note> notes, String nextCursor) {
+		this.notes = notes;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<Note> getNotes() {
+		return notes;
+	}
+
+	public void setNotes(List<Note> notes) {
+		this.notes = notes;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+}
@@ -4,16 +4,23 @@ import java.util.Date;
 import java.util.List;
 
 import javax.persistence.CascadeType;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 /*
  * The class "Reminder" will be acting as the data model for the Reminder Table in the database. 
@@ -23,7 +30,12 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * Java object to recreate it as a table in your database.
  */
 @Entity
-@Table(name = "REMINDER")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "keepnote.reminder")
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+@Table(name = "REMINDER", indexes = {
+		@Index(name = "idx_reminder_creator_version", columnList = "reminder_creator, reminder_change_version"),
+		@Index(name = "idx_reminder_due_date", columnList = "reminder_due_date") })
 public class Reminder {
 	/*
 	 * This class should have seven fields
@@ -38,7 +50,9 @@ public class Reminder {
 	 */
 
 	@Id
-//	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "reminder_id_generator")
+	@TableGenerator(name = "reminder_id_generator", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+			pkColumnValue = "reminder", initialValue = IdGenerators.INITIAL_VALUE, allocationSize = IdGenerators.ALLOCATION_SIZE)
 	@Column(name = "reminder_id")
 	private int reminderId;
 	@Column(name = "reminder_name")
@@ -51,9 +65,19 @@ public class Reminder {
 	private Date reminderCreationDate;
 	@Column(name = "reminder_creator")
 	private String reminderCreatedBy;
+	/* when the reminder fires, see ReminderScheduler; null for none */
+	@Column(name = "reminder_due_date")
+	private Date reminderDueDate;
 	@OneToMany
 	@JsonIgnore
 	private List<Note> notes;
+	@Column(name = "reminder_change_version")
+	@JsonIgnore
+	private long changeVersion;
+	/* the due date the reminder was last fired for, see ReminderDAO.claimReminder */
+	@Column(name = "reminder_fired_due_date")
+	@JsonIgnore
+	private Date reminderFiredDueDate;
 
 	public Reminder() {
 
@@ -119,6 +143,14 @@ public class Reminder {
 		this.reminderCreatedBy = reminderCreatedBy;
 	}
 
+	public Date getReminderDueDate() {
+		return reminderDueDate;
+	}
+
+	public void setReminderDueDate(Date reminderDueDate) {
+		this.reminderDueDate = reminderDueDate;
+	}
+
 	public List<Note> getNotes() {
 		return notes;
 	}
@@ -127,4 +159,20 @@ public class Reminder {
 		this.notes = notes;
 	}
 
+	public long getChangeVersion() {
+		return changeVersion;
+	}
+
+	public void setChangeVersion(long changeVersion) {
+		this.changeVersion = changeVersion;
+	}
+
+	public Date getReminderFiredDueDate() {
+		return reminderFiredDueDate;
+	}
+
+	public void setReminderFiredDueDate(Date reminderFiredDueDate) {
+		this.reminderFiredDueDate = reminderFiredDueDate;
+	}
+
 }
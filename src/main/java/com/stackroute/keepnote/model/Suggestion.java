@@ -0,0 +1,50 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * The class "Suggestion" is one completion of what a user has typed so far: the
+ * title of a note or the name of a category, with the id to open it by.
+ */
+public class Suggestion {
+
+	public static final String NOTE = "note";
+	public static final String CATEGORY = "category";
+
+	private String type;
+	private int id;
+	private String text;
+
+	public Suggestion() {
+
+	}
+
+	public Suggestion(String type, int id, String text) {
+		this.type = type;
+		this.id = id;
+		this.text = text;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public void setText(String text) {
+		this.text = text;
+	}
+
+}
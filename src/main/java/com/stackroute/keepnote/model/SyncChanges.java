@@ -0,0 +1,72 @@
+package com.stackroute.keepnote.model;
+
+import java.util.List;
+
+/*
+ * The class "SyncChanges" is the response body of the delta sync. It holds the
+ * notes, categories and reminders of a user which were created or updated since
+ * the version the client passed, the deletions since then, and the opaque token
+ * the client has to pass as "since" on its next sync.
+ */
+public class SyncChanges {
+
+	private List<Note> notes;
+	private List<Category> categories;
+	private List<Reminder> reminders;
+	private List<Tombstone> deleted;
+	private String token;
+
+	public SyncChanges() {
+
+	}
+
+	public SyncChanges(List<Note> notes, List<Category> categories, List<Reminder> reminders,
+			List<Tombstone> deleted, String token) {
+		this.notes = notes;
+		this.categories = categories;
+		this.reminders = reminders;
+		this.deleted = deleted;
+		this.token = token;
+	}
+
+	public List<Note> getNotes() {
+		return notes;
+	}
+
+	public void setNotes(List<Note> notes) {
+		this.notes = notes;
+	}
+
+	public List<Category> getCategories() {
+		return categories;
+	}
+
+	public void setCategories(List<Category> categories) {
+		this.categories = categories;
+	}
+
+	public List<Reminder> getReminders() {
+		return reminders;
+	}
+
+	public void setReminders(List<Reminder> reminders) {
+		this.reminders = reminders;
+	}
+
+	public List<Tombstone> getDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(List<Tombstone> deleted) {
+		this.deleted = deleted;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.stackroute.keepnote.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/*
+ * The class "SyncState" holds the change version counter of one user. Every write
+ * to a note, category or reminder of the user takes the next value of the counter
+ * and stores it on the changed row (or on its tombstone), so the rows changed
+ * after a given version can be found through the (creator, change version)
+ * indexes. The row is locked while it is incremented, which keeps the versions of
+ * a user in commit order.
+ */
+@Entity
+@Table(name = "SYNC_STATE")
+public class SyncState {
+
+	@Id
+	@Column(name = "user_id")
+	private String userId;
+	@Column(name = "change_version")
+	private long changeVersion;
+
+	public SyncState() {
+
+	}
+
+	public SyncState(String userId, long changeVersion) {
+		this.userId = userId;
+		this.changeVersion = changeVersion;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public long getChangeVersion() {
+		return changeVersion;
+	}
+
+	public void setChangeVersion(long changeVersion) {
+		this.changeVersion = changeVersion;
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.stackroute.keepnote.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/*
+ * The class "Tombstone" records the deletion of a note, category or reminder so
+ * that the delta sync can tell clients which of their copies to drop. Only the
+ * entity type and id are sent to clients.
+ */
+@Entity
+@Table(name = "TOMBSTONE", indexes = {
+		@Index(name = "idx_tombstone_user_version", columnList = "tombstone_user, tombstone_change_version") })
+public class Tombstone {
+
+	public static final String NOTE = "note";
+	public static final String CATEGORY = "category";
+	public static final String REMINDER = "reminder";
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "tombstone_id_generator")
+	@TableGenerator(name = "tombstone_id_generator", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+			pkColumnValue = "tombstone", initialValue = IdGenerators.INITIAL_VALUE, allocationSize = IdGenerators.ALLOCATION_SIZE)
+	@Column(name = "tombstone_id")
+	@JsonIgnore
+	private int tombstoneId;
+	@Column(name = "tombstone_entity_type")
+	private String entityType;
+	@Column(name = "tombstone_entity_id")
+	private int entityId;
+	@Column(name = "tombstone_user")
+	@JsonIgnore
+	private String userId;
+	@Column(name = "tombstone_change_version")
+	@JsonIgnore
+	private long changeVersion;
+
+	public Tombstone() {
+
+	}
+
+	public Tombstone(String entityType, int entityId, String userId, long changeVersion) {
+		this.entityType = entityType;
+		this.entityId = entityId;
+		this.userId = userId;
+		this.changeVersion = changeVersion;
+	}
+
+	public int getTombstoneId() {
+		return tombstoneId;
+	}
+
+	public void setTombstoneId(int tombstoneId) {
+		this.tombstoneId = tombstoneId;
+	}
+
+	public String getEntityType() {
+		return entityType;
+	}
+
+	public void setEntityType(String entityType) {
+		this.entityType = entityType;
+	}
+
+	public int getEntityId() {
+		return entityId;
+	}
+
+	public void setEntityId(int entityId) {
+		this.entityId = entityId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public long getChangeVersion() {
+		return changeVersion;
+	}
+
+	public void setChangeVersion(long changeVersion) {
+		this.changeVersion = changeVersion;
+	}
+
+}
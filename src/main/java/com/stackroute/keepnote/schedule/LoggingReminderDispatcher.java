@@ -0,0 +1,19 @@
+package com.stackroute.keepnote.schedule;
+
+import java.util.Date;
+
+import org.springframework.stereotype.Component;
+
+/*
+ * The default ReminderDispatcher, which only writes the reminders which have
+ * come due to the standard output.
+ */
+@Component
+public class LoggingReminderDispatcher implements ReminderDispatcher {
+
+	@Override
+	public void dispatch(int reminderId, long dueMillis) {
+		System.out.println("Reminder due --> " + reminderId + " at " + new Date(dueMillis));
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.stackroute.keepnote.schedule;
+
+/*
+ * Receiver of the reminders which have come due, e.g. to send a mail or a push
+ * notification. Replace the default LoggingReminderDispatcher by declaring a
+ * @Primary bean of this type.
+ *
+ * Reminders are dispatched one after the other on the thread of the
+ * ReminderScheduler, so a dispatcher doing slow work should hand it off. The
+ * reminder may have been deleted since it was scheduled, e.g. together with its
+ * user, so it has to be looked up before it is acted upon.
+ */
+public interface ReminderDispatcher {
+
+	void dispatch(int reminderId, long dueMillis);
+
+}
@@ -0,0 +1,174 @@
+package com.stackroute.keepnote.schedule;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.keepnote.dao.ReminderDAO;
+
+/*
+ * Fires reminders at their due date. The pending reminders are held in a
+ * TimingWheel, loaded when the ReminderService starts and kept in sync by its
+ * writes, and a daemon thread advances the wheel every tick, handing the
+ * reminders which have come due to the ReminderDispatcher. A reminder fires at
+ * most one tick, KEEPNOTE_REMINDER_TICK_MILLIS or one second by default, after
+ * it is due.
+ *
+ * Only reminders due after the start are loaded; those which came due while the
+ * application was down are not fired.
+ *
+ * Every instance of the application loads the pending reminders, so a reminder
+ * which has come due is claimed in the database first, see
+ * ReminderDAO.claimReminder, and only dispatched by the instance whose claim
+ * succeeds. A claim also fails for a reminder deleted or rescheduled by another
+ * instance since it was scheduled here.
+ */
+@Component
+public class ReminderScheduler implements DisposableBean {
+
+	public static final long DEFAULT_TICK_MILLIS = 1000;
+
+	private final ReminderDispatcher reminderDispatcher;
+
+	private final Claim claim;
+
+	private final long tickMillis;
+
+	private final TimingWheel wheel;
+
+	/* started with the first reminder scheduled */
+	private Thread ticker;
+
+	private boolean stopped;
+
+	@Autowired
+	public ReminderScheduler(ReminderDispatcher reminderDispatcher, ReminderDAO reminderDAO) {
+		this(reminderDispatcher, tickSetting(),
+				(reminderId, dueMillis) -> reminderDAO.claimReminder(reminderId, new Date(dueMillis)));
+	}
+
+	/*
+	 * A scheduler firing every reminder which comes due, for a single instance.
+	 */
+	public ReminderScheduler(ReminderDispatcher reminderDispatcher, long tickMillis) {
+		this(reminderDispatcher, tickMillis, (reminderId, dueMillis) -> true);
+	}
+
+	public ReminderScheduler(ReminderDispatcher reminderDispatcher, long tickMillis, Claim claim) {
+		this.reminderDispatcher = reminderDispatcher;
+		this.claim = claim;
+		this.tickMillis = tickMillis;
+		this.wheel = new TimingWheel(tickMillis, System.currentTimeMillis());
+	}
+
+	private static long tickSetting() {
+		String value = System.getenv("KEEPNOTE_REMINDER_TICK_MILLIS");
+		return value == null || value.isEmpty() ? DEFAULT_TICK_MILLIS : Long.parseLong(value);
+	}
+
+	/*
+	 * Fire the reminder at the due date, instead of the one it had; a reminder
+	 * without due date is cancelled.
+	 */
+	public synchronized void schedule(int reminderId, Date dueDate) {
+		if (dueDate == null) {
+			wheel.cancel(reminderId);
+			return;
+		}
+		wheel.schedule(reminderId, dueDate.getTime());
+		if (ticker == null && !stopped) {
+			ticker = new Thread(this::tick, "reminder-scheduler");
+			ticker.setDaemon(true);
+			ticker.start();
+		}
+	}
+
+	/*
+	 * Cancel the reminder, returns false when it was not pending.
+	 */
+	public synchronized boolean cancel(int reminderId) {
+		return wheel.cancel(reminderId);
+	}
+
+	/*
+	 * The number of reminders waiting to fire.
+	 */
+	public synchronized int pending() {
+		return wheel.size();
+	}
+
+	/*
+	 * Stop firing reminders when the context shuts down.
+	 */
+	@Override
+	public synchronized void destroy() {
+		stopped = true;
+		if (ticker != null) {
+			ticker.interrupt();
+		}
+	}
+
+	private void tick() {
+		Expired expired = new Expired();
+		while (true) {
+			try {
+				Thread.sleep(tickMillis - System.currentTimeMillis() % tickMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+			expired.count = 0;
+			synchronized (this) {
+				if (stopped) {
+					return;
+				}
+				wheel.advance(System.currentTimeMillis(), expired);
+			}
+			/* outside the lock, so that dispatchers may schedule reminders */
+			for (int i = 0; i < expired.count; i++) {
+				try {
+					if (claim.claim(expired.ids[i], expired.dueMillis[i])) {
+						reminderDispatcher.dispatch(expired.ids[i], expired.dueMillis[i]);
+					}
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/*
+	 * Decides whether this instance fires a reminder which has come due.
+	 */
+	public interface Claim {
+
+		boolean claim(int reminderId, long dueMillis);
+
+	}
+
+	/*
+	 * The reminders expired in one tick.
+	 */
+	private static final class Expired implements TimingWheel.Expiry {
+
+		private int[] ids = new int[16];
+
+		private long[] dueMillis = new long[16];
+
+		private int count;
+
+		@Override
+		public void expired(int id, long due) {
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, count * 2);
+				dueMillis = Arrays.copyOf(dueMillis, count * 2);
+			}
+			ids[count] = id;
+			dueMillis[count++] = due;
+		}
+
+	}
+
+}
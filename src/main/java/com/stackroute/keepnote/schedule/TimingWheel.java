@@ -0,0 +1,326 @@
+package com.stackroute.keepnote.schedule;
+
+import java.util.Arrays;
+
+/*
+ * Hierarchical timing wheel of timers identified by an int id, each due at a
+ * time in milliseconds.
+ *
+ * Time advances in ticks of tickMillis. The wheel has LEVELS levels of SLOTS
+ * slots; a slot of level 0 spans one tick and a slot of level n spans SLOTS^n
+ * ticks, so five levels of 64 slots cover 2^30 ticks, 34 years at one tick per
+ * second. A timer is put into the slot of the lowest level that reaches its due
+ * tick. When time enters the span of a slot of a higher level, its timers are
+ * spread over the levels below, and the timers in the slot of level 0 for the
+ * current tick expire. Timers due even further ahead wait in the last slot of
+ * the top level and are placed again whenever it is spread.
+ *
+ * The timers of a slot form a doubly-linked list, and a timer is found by its id
+ * through an open-addressing table, so scheduling and cancelling take constant
+ * time. Timers are held in parallel primitive arrays, about 40 bytes per timer,
+ * and the slots of freed timers are reused.
+ *
+ * A timer never expires before it is due, and at most one tick after, provided
+ * that advance is called at every tick.
+ *
+ * Not thread-safe.
+ */
+public final class TimingWheel {
+
+	private static final int SLOT_BITS = 6;
+
+	private static final int SLOTS = 1 << SLOT_BITS;
+
+	private static final int LEVELS = 5;
+
+	private static final int NONE = -1;
+
+	/*
+	 * Receiver of the timers which have expired.
+	 */
+	public interface Expiry {
+
+		void expired(int id, long dueMillis);
+
+	}
+
+	private final long tickMillis;
+
+	/* every tick up to and including this one has been processed */
+	private long currentTick;
+
+	/* the first timer of every slot, level by level */
+	private final int[] heads = new int[LEVELS * SLOTS];
+
+	private final int[] levelSizes = new int[LEVELS];
+
+	private int[] ids = new int[16];
+
+	private long[] dueMillis = new long[16];
+
+	private int[] next = new int[16];
+
+	private int[] previous = new int[16];
+
+	/* the slot of every timer, NONE once it is freed */
+	private int[] slots = new int[16];
+
+	/* freed timers, linked through next */
+	private int free = NONE;
+
+	private int allocated;
+
+	private int size;
+
+	/* the timer of each id, NONE for an empty entry */
+	private int[] table = new int[32];
+
+	public TimingWheel(long tickMillis, long nowMillis) {
+		if (tickMillis < 1) {
+			throw new IllegalArgumentException("Tick must be at least one millisecond --> " + tickMillis);
+		}
+		this.tickMillis = tickMillis;
+		this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+		Arrays.fill(heads, NONE);
+		Arrays.fill(table, NONE);
+	}
+
+	/*
+	 * Schedule the timer of the id, replacing the one it had. A timer already due
+	 * expires at the next tick.
+	 */
+	public void schedule(int id, long due) {
+		cancel(id);
+		if (2 * (size + 1) > table.length) {
+			resizeTable(table.length * 2);
+		}
+		int timer = allocate();
+		ids[timer] = id;
+		dueMillis[timer] = due;
+		int position = find(id);
+		table[-position - 1] = timer;
+		size++;
+		place(timer, currentTick + 1);
+	}
+
+	/*
+	 * Cancel the timer of the id, returns false when there is none.
+	 */
+	public boolean cancel(int id) {
+		int position = find(id);
+		if (position < 0) {
+			return false;
+		}
+		int timer = table[position];
+		removeFromTable(position);
+		unlink(timer);
+		release(timer);
+		size--;
+		return true;
+	}
+
+	/*
+	 * The due time of the timer of the id, or -1 when there is none.
+	 */
+	public long dueMillis(int id) {
+		int position = find(id);
+		return position < 0 ? -1 : dueMillis[table[position]];
+	}
+
+	/*
+	 * The number of timers scheduled.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * A rough estimate of the heap held by the wheel, in bytes.
+	 */
+	public long memoryBytes() {
+		return 24L * ids.length + 4L * table.length + 4L * heads.length;
+	}
+
+	/*
+	 * Process every tick up to the given time, handing the timers which expire to
+	 * the receiver in the order of their ticks. Ticks in which no timer can expire
+	 * are skipped. The receiver must not change the wheel.
+	 */
+	public void advance(long nowMillis, Expiry expiry) {
+		long nowTick = Math.floorDiv(nowMillis, tickMillis);
+		while (currentTick < nowTick) {
+			int lowestLevel = 0;
+			while (lowestLevel < LEVELS && levelSizes[lowestLevel] == 0) {
+				lowestLevel++;
+			}
+			if (lowestLevel == LEVELS) {
+				currentTick = nowTick;
+				return;
+			}
+			if (lowestLevel > 0) {
+				/* nothing happens before the next slot boundary of the lowest level in use */
+				long span = 1L << (SLOT_BITS * lowestLevel);
+				long boundary = (Math.floorDiv(currentTick, span) + 1) * span;
+				if (boundary > nowTick) {
+					currentTick = nowTick;
+					return;
+				}
+				currentTick = boundary - 1;
+			}
+			long tick = ++currentTick;
+			for (int level = LEVELS - 1; level > 0; level--) {
+				if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+					spread(level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1)));
+				}
+			}
+			expire((int) (tick & (SLOTS - 1)), expiry);
+		}
+	}
+
+	/*
+	 * Put the timer into the slot for its due tick, or for the given earliest
+	 * tick if it is due before.
+	 */
+	private void place(int timer, long earliestTick) {
+		long dueTick = Math.max(earliestTick, Math.floorDiv(dueMillis[timer] - 1, tickMillis) + 1);
+		long delta = dueTick - currentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+			level++;
+		}
+		if (delta >= 1L << (SLOT_BITS * LEVELS)) {
+			/* beyond the top level, waits in its last slot */
+			dueTick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+		}
+		int slot = level * SLOTS + (int) ((dueTick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+		slots[timer] = slot;
+		previous[timer] = NONE;
+		next[timer] = heads[slot];
+		if (heads[slot] != NONE) {
+			previous[heads[slot]] = timer;
+		}
+		heads[slot] = timer;
+		levelSizes[level]++;
+	}
+
+	private void unlink(int timer) {
+		int slot = slots[timer];
+		if (previous[timer] == NONE) {
+			heads[slot] = next[timer];
+		} else {
+			next[previous[timer]] = next[timer];
+		}
+		if (next[timer] != NONE) {
+			previous[next[timer]] = previous[timer];
+		}
+		levelSizes[slot / SLOTS]--;
+	}
+
+	/*
+	 * Move the timers of a slot of a higher level to the levels below.
+	 */
+	private void spread(int slot) {
+		int timer = heads[slot];
+		heads[slot] = NONE;
+		while (timer != NONE) {
+			int following = next[timer];
+			levelSizes[slot / SLOTS]--;
+			place(timer, currentTick);
+			timer = following;
+		}
+	}
+
+	private void expire(int slot, Expiry expiry) {
+		int timer = heads[slot];
+		heads[slot] = NONE;
+		while (timer != NONE) {
+			int following = next[timer];
+			int id = ids[timer];
+			long due = dueMillis[timer];
+			levelSizes[0]--;
+			removeFromTable(find(id));
+			release(timer);
+			size--;
+			expiry.expired(id, due);
+			timer = following;
+		}
+	}
+
+	private int allocate() {
+		if (free != NONE) {
+			int timer = free;
+			free = next[timer];
+			return timer;
+		}
+		if (allocated == ids.length) {
+			int capacity = ids.length * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			dueMillis = Arrays.copyOf(dueMillis, capacity);
+			next = Arrays.copyOf(next, capacity);
+			previous = Arrays.copyOf(previous, capacity);
+			slots = Arrays.copyOf(slots, capacity);
+		}
+		return allocated++;
+	}
+
+	private void release(int timer) {
+		slots[timer] = NONE;
+		next[timer] = free;
+		free = timer;
+	}
+
+	/*
+	 * The position of the id in the table, or -(position to insert it at + 1).
+	 */
+	private int find(int id) {
+		int mask = table.length - 1;
+		int position = hash(id) & mask;
+		while (table[position] != NONE) {
+			if (ids[table[position]] == id) {
+				return position;
+			}
+			position = (position + 1) & mask;
+		}
+		return -position - 1;
+	}
+
+	/*
+	 * Empty the position, moving back the entries after it which would no longer
+	 * be found.
+	 */
+	private void removeFromTable(int position) {
+		int mask = table.length - 1;
+		int empty = position;
+		int current = position;
+		while (true) {
+			current = (current + 1) & mask;
+			if (table[current] == NONE) {
+				break;
+			}
+			int home = hash(ids[table[current]]) & mask;
+			boolean reachable = empty <= current ? empty < home && home <= current : empty < home || home <= current;
+			if (!reachable) {
+				table[empty] = table[current];
+				empty = current;
+			}
+		}
+		table[empty] = NONE;
+	}
+
+	private void resizeTable(int capacity) {
+		int[] old = table;
+		table = new int[capacity];
+		Arrays.fill(table, NONE);
+		for (int timer : old) {
+			if (timer != NONE) {
+				table[-find(ids[timer]) - 1] = timer;
+			}
+		}
+	}
+
+	private static int hash(int id) {
+		int hash = id * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.stackroute.keepnote.search;
+
+/*
+ * The BM25 ranking function shared by the in-memory and the on-disk indexes, so
+ * that a document scores the same wherever it is held.
+ */
+final class Bm25 {
+
+	private static final double K1 = 1.2;
+
+	private static final double B = 0.75;
+
+	private Bm25() {
+	}
+
+	/*
+	 * Inverse document frequency of a term found in frequency of the documents.
+	 */
+	static double idf(int documents, int frequency) {
+		return Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+	}
+
+	static double averageLength(int documents, long totalLength) {
+		return documents == 0 ? 1.0 : Math.max(1.0, (double) totalLength / documents);
+	}
+
+	/*
+	 * Weight of a term occurring the given number of times in a document of the
+	 * given length, to be multiplied with its idf.
+	 */
+	static double weight(int occurrences, int length, double averageLength) {
+		return occurrences * (K1 + 1) / (occurrences + K1 * (1 - B + B * length / averageLength));
+	}
+
+}
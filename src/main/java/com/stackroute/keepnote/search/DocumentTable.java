@@ -0,0 +1,86 @@
+package com.stackroute.keepnote.search;
+
+import java.util.Arrays;
+
+/*
+ * Open addressing table from document id to the version of the document last
+ * applied and where that version is held, e.g. its slot. Entries are never
+ * removed, a removed document keeps its version so that older changes to it can
+ * be told apart.
+ */
+final class DocumentTable {
+
+	static final int EMPTY = Integer.MIN_VALUE;
+
+	/* the arrays are read directly by iterating callers, EMPTY ids are free */
+	int[] ids = emptyIds(16);
+
+	long[] locations = new long[16];
+
+	long[] versions = new long[16];
+
+	private int size;
+
+	/*
+	 * The position of the document in the arrays, -1 when it is not known.
+	 */
+	int find(int id) {
+		int mask = ids.length - 1;
+		for (int index = mix(id) & mask;; index = (index + 1) & mask) {
+			if (ids[index] == id) {
+				return index;
+			}
+			if (ids[index] == EMPTY) {
+				return -1;
+			}
+		}
+	}
+
+	void put(int id, long location, long version) {
+		if (2 * (size + 1) > ids.length) {
+			grow();
+		}
+		int mask = ids.length - 1;
+		int index = mix(id) & mask;
+		while (ids[index] != id && ids[index] != EMPTY) {
+			index = (index + 1) & mask;
+		}
+		if (ids[index] == EMPTY) {
+			ids[index] = id;
+			size++;
+		}
+		locations[index] = location;
+		versions[index] = version;
+	}
+
+	int size() {
+		return size;
+	}
+
+	static int mix(int id) {
+		int hash = id * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private void grow() {
+		int[] oldIds = ids;
+		long[] oldLocations = locations;
+		long[] oldVersions = versions;
+		ids = emptyIds(oldIds.length * 2);
+		locations = new long[oldIds.length * 2];
+		versions = new long[oldIds.length * 2];
+		size = 0;
+		for (int i = 0; i < oldIds.length; i++) {
+			if (oldIds[i] != EMPTY) {
+				put(oldIds[i], oldLocations[i], oldVersions[i]);
+			}
+		}
+	}
+
+	private static int[] emptyIds(int capacity) {
+		int[] ids = new int[capacity];
+		Arrays.fill(ids, EMPTY);
+		return ids;
+	}
+
+}
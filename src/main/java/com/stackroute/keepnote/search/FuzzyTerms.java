@@ -0,0 +1,118 @@
+package com.stackroute.keepnote.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Typo-tolerant matching of query terms: the terms of the indexes within a
+ * Levenshtein distance of a query term, found by walking the sorted term
+ * dictionaries with one row of the distance matrix per character. Terms sharing
+ * a prefix share its rows, and as soon as every entry of a row is beyond the
+ * allowed distance the whole range of terms starting with that prefix is
+ * skipped, so the cost grows with the number of prefixes close to the query
+ * term rather than with the size of the vocabulary.
+ *
+ * The allowed distance grows with the length of the query term, as short terms
+ * have too many neighbours: none up to 2 characters, 1 up to 5 and 2 beyond.
+ * The variants of a query term are scored with the idf of the most frequent of
+ * them, so a rare misspelling in the notes does not outrank the word searched
+ * for, and every edit halves the weight of a variant.
+ */
+final class FuzzyTerms {
+
+	/* variants of one query term beyond these, the most distant ones, are dropped */
+	private static final int MAX_VARIANTS = 50;
+
+	private static final double EDIT_PENALTY = 0.5;
+
+	private FuzzyTerms() {
+	}
+
+	/*
+	 * The terms of the dictionaries within the allowed distance of the term, with
+	 * their distance, closest first. The term itself is always included, at
+	 * distance 0, whether the dictionaries hold it or not.
+	 */
+	static Map<String, Integer> variants(String term, int maxEdits, List<TermDictionary> dictionaries) {
+		int allowed = Math.min(maxEdits, term.length() <= 2 ? 0 : term.length() <= 5 ? 1 : 2);
+		Map<String, Integer> found = new HashMap<String, Integer>();
+		if (allowed > 0) {
+			for (TermDictionary dictionary : dictionaries) {
+				walk(term, allowed, dictionary, found);
+			}
+		}
+		found.put(term, 0);
+		List<Map.Entry<String, Integer>> closest = new ArrayList<Map.Entry<String, Integer>>(found.entrySet());
+		closest.sort(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+		Map<String, Integer> variants = new LinkedHashMap<String, Integer>();
+		for (Map.Entry<String, Integer> variant : closest.subList(0, Math.min(MAX_VARIANTS, closest.size()))) {
+			variants.put(variant.getKey(), variant.getValue());
+		}
+		return variants;
+	}
+
+	/*
+	 * The factor applied to the score of a variant at the given distance.
+	 */
+	static double boost(int distance) {
+		return Math.pow(EDIT_PENALTY, distance);
+	}
+
+	private static void walk(String term, int allowed, TermDictionary dictionary, Map<String, Integer> found) {
+		int columns = term.length() + 1;
+		/* no prefix longer than this can be within the allowed distance */
+		int[][] rows = new int[columns + allowed + 1][columns];
+		for (int column = 0; column < columns; column++) {
+			rows[0][column] = column;
+		}
+		String previous = "";
+		int computed = 0;
+		String candidate = dictionary.higher("");
+		while (candidate != null) {
+			int depth = Math.min(computed, commonPrefixLength(previous, candidate));
+			boolean pruned = false;
+			while (depth < candidate.length() && !pruned) {
+				int[] above = rows[depth];
+				int[] row = rows[depth + 1];
+				char c = candidate.charAt(depth);
+				row[0] = depth + 1;
+				int minimum = row[0];
+				for (int column = 1; column < columns; column++) {
+					int substitution = above[column - 1] + (term.charAt(column - 1) == c ? 0 : 1);
+					row[column] = Math.min(substitution, Math.min(above[column], row[column - 1]) + 1);
+					minimum = Math.min(minimum, row[column]);
+				}
+				depth++;
+				pruned = minimum > allowed;
+			}
+			previous = candidate;
+			computed = depth;
+			if (pruned) {
+				candidate = dictionary.afterPrefix(candidate.substring(0, depth));
+			} else {
+				int distance = rows[depth][columns - 1];
+				if (distance <= allowed) {
+					Integer known = found.get(candidate);
+					if (known == null || known > distance) {
+						found.put(candidate, distance);
+					}
+				}
+				candidate = dictionary.higher(candidate);
+			}
+		}
+	}
+
+	private static int commonPrefixLength(String a, String b) {
+		int length = Math.min(a.length(), b.length());
+		for (int i = 0; i < length; i++) {
+			if (a.charAt(i) != b.charAt(i)) {
+				return i;
+			}
+		}
+		return length;
+	}
+
+}
@@ -0,0 +1,444 @@
+package com.stackroute.keepnote.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*
+ * In-memory inverted index over the text of a set of documents, ranked with
+ * BM25.
+ *
+ * Every document added gets the next slot. The postings of a term list the slots
+ * of the documents containing it, in ascending order, each with the number of
+ * occurrences; both are stored as variable-length integers, the slot as the gap
+ * to the previous one, in a byte array which only grows at its end. Replacing or
+ * removing a document marks its slot dead instead of rewriting postings. Dead
+ * slots are skipped while scoring and dropped by a compaction once they
+ * outnumber the live ones. Terms are kept sorted so that they can be walked for
+ * fuzzy matches, see FuzzyTerms.
+ *
+ * Documents carry a version. A change which is not newer than the one already
+ * applied to the document, e.g. delivered late by a concurrent transaction, is
+ * ignored; removed documents keep their version for that purpose.
+ *
+ * Not thread-safe.
+ */
+public class InvertedIndex {
+
+	/* longer tokens are cut, they are hardly ever searched for in full */
+	private static final int MAX_TOKEN_LENGTH = 64;
+
+	private static final int MIN_COMPACTION_SLOTS = 64;
+
+	private static final int[] NONE = new int[0];
+
+	private final TreeMap<String, Postings> postings = new TreeMap<String, Postings>();
+
+	/* the location of a document is its slot, -1 once removed */
+	private final DocumentTable documents = new DocumentTable();
+
+	/* document id and number of tokens per slot, the length is -1 once dead */
+	private int[] slotDocuments = new int[16];
+
+	private int[] slotLengths = new int[16];
+
+	private int slots;
+
+	private int liveSlots;
+
+	private long liveLength;
+
+	/*
+	 * Index the given texts as the document, replacing an older version of it.
+	 * Returns false when the index already holds this or a newer version.
+	 */
+	public boolean add(int documentId, long version, String... texts) {
+		int entry = documents.find(documentId);
+		if (entry >= 0) {
+			if (documents.versions[entry] >= version) {
+				return false;
+			}
+			kill((int) documents.locations[entry]);
+		}
+		Map<String, int[]> counts = new HashMap<String, int[]>();
+		int length = 0;
+		for (String text : texts) {
+			for (String token : tokenize(text)) {
+				int[] count = counts.get(token);
+				if (count == null) {
+					counts.put(token, new int[] { 1 });
+				} else {
+					count[0]++;
+				}
+				length++;
+			}
+		}
+		int slot = newSlot(documentId, length);
+		for (Map.Entry<String, int[]> count : counts.entrySet()) {
+			Postings termPostings = postings.get(count.getKey());
+			if (termPostings == null) {
+				termPostings = new Postings();
+				postings.put(count.getKey(), termPostings);
+			}
+			termPostings.append(slot, count.getValue()[0]);
+		}
+		documents.put(documentId, slot, version);
+		compactIfSparse();
+		return true;
+	}
+
+	/*
+	 * Remove the document as of the given version. Returns false when it is not
+	 * indexed or the index already holds a newer version of it.
+	 */
+	public boolean remove(int documentId, long version) {
+		int entry = documents.find(documentId);
+		if (entry >= 0 && documents.versions[entry] >= version) {
+			return false;
+		}
+		boolean removed = entry >= 0 && documents.locations[entry] >= 0;
+		if (removed) {
+			kill((int) documents.locations[entry]);
+		}
+		documents.put(documentId, -1, version);
+		compactIfSparse();
+		return removed;
+	}
+
+	/*
+	 * The ids of at most limit documents containing any of the terms of the query,
+	 * best match first. Documents with the same score are returned newest id first.
+	 */
+	public int[] search(String query, int limit) {
+		return search(query, limit, 0);
+	}
+
+	/*
+	 * As search(query, limit), with every term of the query also matching the
+	 * terms of the index within maxEdits edits of it, see FuzzyTerms.
+	 */
+	public int[] search(String query, int limit, int maxEdits) {
+		Set<String> terms = queryTerms(query);
+		if (terms.isEmpty() || liveSlots == 0 || limit < 1) {
+			return NONE;
+		}
+		double averageLength = Bm25.averageLength(liveSlots, liveLength);
+		ScoreTable scores = new ScoreTable();
+		List<TermDictionary> dictionaries = Collections.singletonList(dictionary());
+		for (String term : terms) {
+			Map<String, Integer> variants = FuzzyTerms.variants(term, maxEdits, dictionaries);
+			int frequency = 0;
+			for (String variant : variants.keySet()) {
+				frequency = Math.max(frequency, frequency(variant));
+			}
+			if (frequency == 0) {
+				continue;
+			}
+			double idf = Bm25.idf(liveSlots, frequency);
+			for (Map.Entry<String, Integer> variant : variants.entrySet()) {
+				score(variant.getKey(), idf * FuzzyTerms.boost(variant.getValue()), averageLength, scores);
+			}
+		}
+		return scores.top(limit);
+	}
+
+	/*
+	 * The number of documents indexed.
+	 */
+	public int size() {
+		return liveSlots;
+	}
+
+	/*
+	 * The number of distinct terms held, including terms only found in dead slots
+	 * which have not been compacted yet.
+	 */
+	public int terms() {
+		return postings.size();
+	}
+
+	/*
+	 * A rough estimate of the heap held by the index, in bytes.
+	 */
+	public long memoryBytes() {
+		long bytes = 8L * slotDocuments.length + 20L * documents.ids.length;
+		for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+			/* map entry, string and postings headers */
+			bytes += 120 + 2L * entry.getKey().length() + entry.getValue().bytes.length;
+		}
+		return bytes;
+	}
+
+	/*
+	 * Split the text into lower case runs of letters and digits.
+	 */
+	public static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<String>();
+		if (text == null) {
+			return tokens;
+		}
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (wordCharacter && start < 0) {
+				start = i;
+			} else if (!wordCharacter && start >= 0) {
+				tokens.add(text.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH)).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	/*
+	 * The distinct terms of a query, in the order they appear.
+	 */
+	static Set<String> queryTerms(String query) {
+		return new LinkedHashSet<String>(tokenize(query));
+	}
+
+	/*
+	 * The total number of tokens of the documents indexed.
+	 */
+	long length() {
+		return liveLength;
+	}
+
+	/*
+	 * The number of documents indexed which contain the term.
+	 */
+	int frequency(String term) {
+		Postings termPostings = postings.get(term);
+		return termPostings == null ? 0 : termPostings.frequency(slotLengths);
+	}
+
+	/*
+	 * The terms held, in the order of String.compareTo.
+	 */
+	TermDictionary dictionary() {
+		return new TermDictionary() {
+
+			@Override
+			public String higher(String term) {
+				return postings.higherKey(term);
+			}
+
+			@Override
+			public String afterPrefix(String prefix) {
+				int last = prefix.length() - 1;
+				return postings.ceilingKey(prefix.substring(0, last) + (char) (prefix.charAt(last) + 1));
+			}
+
+		};
+	}
+
+	/*
+	 * Add the BM25 score of the term to every document indexed which contains it,
+	 * with the idf and average length taken over all documents searched.
+	 */
+	void score(String term, double idf, double averageLength, ScoreTable scores) {
+		Postings termPostings = postings.get(term);
+		if (termPostings != null) {
+			termPostings.score(slotDocuments, slotLengths, idf, averageLength, scores);
+		}
+	}
+
+	/*
+	 * Hand the documents and postings indexed to the writer of a segment, along
+	 * with the removed documents whose version older segments need to know.
+	 */
+	void writeTo(SegmentWriter writer) {
+		int[] documentIndexes = new int[slots];
+		for (int slot = 0; slot < slots; slot++) {
+			if (slotLengths[slot] >= 0) {
+				int entry = documents.find(slotDocuments[slot]);
+				documentIndexes[slot] = writer.addDocument(slotDocuments[slot], documents.versions[entry],
+						slotLengths[slot]);
+			}
+		}
+		for (int entry = 0; entry < documents.ids.length; entry++) {
+			if (documents.ids[entry] != DocumentTable.EMPTY && documents.locations[entry] < 0) {
+				writer.addDocument(documents.ids[entry], documents.versions[entry], -1);
+			}
+		}
+		for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+			entry.getValue().writeTo(entry.getKey(), slotLengths, documentIndexes, writer);
+		}
+	}
+
+	private int newSlot(int documentId, int length) {
+		if (slots == slotDocuments.length) {
+			slotDocuments = Arrays.copyOf(slotDocuments, slots * 2);
+			slotLengths = Arrays.copyOf(slotLengths, slots * 2);
+		}
+		slotDocuments[slots] = documentId;
+		slotLengths[slots] = length;
+		liveSlots++;
+		liveLength += length;
+		return slots++;
+	}
+
+	private void kill(int slot) {
+		if (slot >= 0 && slotLengths[slot] >= 0) {
+			liveLength -= slotLengths[slot];
+			liveSlots--;
+			slotLengths[slot] = -1;
+		}
+	}
+
+	/*
+	 * Renumber the live slots from 0, keeping their order, and drop the dead ones
+	 * from every postings list.
+	 */
+	private void compactIfSparse() {
+		if (slots < MIN_COMPACTION_SLOTS || slots - liveSlots <= liveSlots) {
+			return;
+		}
+		int[] renumbered = new int[slots];
+		int next = 0;
+		for (int slot = 0; slot < slots; slot++) {
+			if (slotLengths[slot] >= 0) {
+				renumbered[slot] = next;
+				slotDocuments[next] = slotDocuments[slot];
+				slotLengths[next] = slotLengths[slot];
+				documents.locations[documents.find(slotDocuments[next])] = next;
+				next++;
+			} else {
+				renumbered[slot] = -1;
+			}
+		}
+		slots = next;
+		Iterator<Postings> iterator = postings.values().iterator();
+		while (iterator.hasNext()) {
+			if (!iterator.next().renumber(renumbered)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/*
+	 * The (slot, occurrences) pairs of one term.
+	 */
+	private static final class Postings {
+
+		private byte[] bytes = new byte[4];
+
+		private int size;
+
+		private int lastSlot = -1;
+
+		void append(int slot, int occurrences) {
+			if (bytes.length - size < 10) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 10));
+			}
+			writeVariableInt(slot - lastSlot);
+			writeVariableInt(occurrences);
+			lastSlot = slot;
+		}
+
+		int frequency(int[] slotLengths) {
+			int frequency = 0;
+			int[] position = new int[1];
+			int slot = -1;
+			while (position[0] < size) {
+				slot += readVariableInt(bytes, position);
+				readVariableInt(bytes, position);
+				if (slotLengths[slot] >= 0) {
+					frequency++;
+				}
+			}
+			return frequency;
+		}
+
+		void score(int[] slotDocuments, int[] slotLengths, double idf, double averageLength, ScoreTable scores) {
+			int[] position = new int[1];
+			int slot = -1;
+			while (position[0] < size) {
+				slot += readVariableInt(bytes, position);
+				int occurrences = readVariableInt(bytes, position);
+				if (slotLengths[slot] >= 0) {
+					scores.add(slotDocuments[slot],
+							idf * Bm25.weight(occurrences, slotLengths[slot], averageLength));
+				}
+			}
+		}
+
+		void writeTo(String term, int[] slotLengths, int[] documentIndexes, SegmentWriter writer) {
+			int[] indexes = new int[8];
+			int[] frequencies = new int[8];
+			int count = 0;
+			int[] position = new int[1];
+			int slot = -1;
+			while (position[0] < size) {
+				slot += readVariableInt(bytes, position);
+				int occurrences = readVariableInt(bytes, position);
+				if (slotLengths[slot] >= 0) {
+					if (count == indexes.length) {
+						indexes = Arrays.copyOf(indexes, count * 2);
+						frequencies = Arrays.copyOf(frequencies, count * 2);
+					}
+					indexes[count] = documentIndexes[slot];
+					frequencies[count++] = occurrences;
+				}
+			}
+			if (count > 0) {
+				writer.addPostings(term, indexes, frequencies, count);
+			}
+		}
+
+		/*
+		 * Rewrite the postings with the new slot numbers, -1 for dropped slots.
+		 * Returns false when no slot is left.
+		 */
+		boolean renumber(int[] renumbered) {
+			byte[] old = bytes;
+			int oldSize = size;
+			bytes = new byte[Math.max(4, oldSize)];
+			size = 0;
+			lastSlot = -1;
+			int[] position = new int[1];
+			int slot = -1;
+			while (position[0] < oldSize) {
+				slot += readVariableInt(old, position);
+				int occurrences = readVariableInt(old, position);
+				if (renumbered[slot] >= 0) {
+					append(renumbered[slot], occurrences);
+				}
+			}
+			if (size < bytes.length / 2) {
+				bytes = Arrays.copyOf(bytes, Math.max(4, size));
+			}
+			return size > 0;
+		}
+
+		private void writeVariableInt(int value) {
+			while ((value & ~0x7F) != 0) {
+				bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[size++] = (byte) value;
+		}
+
+		private static int readVariableInt(byte[] bytes, int[] position) {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = bytes[position[0]++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+	}
+
+}
@@ -0,0 +1,13 @@
+package com.stackroute.keepnote.search;
+
+/*
+ * Receiver of the committed changes to the notes of one user, each carrying the
+ * change version it was written with.
+ */
+public interface NoteChanges {
+
+	void saved(int noteId, long version, String title, String content);
+
+	void deleted(int noteId, long version);
+
+}
@@ -0,0 +1,417 @@
+package com.stackroute.keepnote.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * Full-text index of the titles and contents of the notes, one index per user.
+ * The index of a user is built from the database on the first search and kept
+ * up to date by the NoteDAO write paths once their transaction has committed.
+ * Every search also compares the change version the index has caught up with to
+ * the one of the database, and first replays the notes changed in between, e.g.
+ * by another application instance or while the index was closed. An index whose
+ * version is unknown or ahead of the database is built again.
+ * Indexes of users who have not searched for a while are dropped, as are the
+ * least recently used ones beyond MAX_USERS.
+ *
+ * By default an index is an InvertedIndex on the heap, and writes of users
+ * without an index are ignored. When KEEPNOTE_SEARCH_DIRECTORY is set, every
+ * index is written there once built, see SegmentedIndex, and opened from disk
+ * instead of being rebuilt after a restart or after it was dropped; writes of a
+ * user with an index on disk open it so that it stays current.
+ *
+ * Changes committed while an index is being built are queued and applied on top
+ * of it, and the versions carried by the changes make applying one twice or out
+ * of order harmless.
+ */
+@Component
+public class NoteSearchIndex implements DisposableBean {
+
+	/*
+	 * Changes held in memory before they are written to disk as a new segment.
+	 */
+	public static final int DEFAULT_FLUSH_CHANGES = 1000;
+
+	/*
+	 * The largest edit distance a search term may be matched with.
+	 */
+	public static final int MAX_EDITS = 2;
+
+	private static final long MAX_USERS = 10000;
+
+	private static final long IDLE_MINUTES = 30;
+
+	/* null when the indexes are held on the heap only */
+	private final Path directory;
+
+	private final int flushChanges;
+
+	/* flushes and merges of the indexes on disk */
+	private final Executor background;
+
+	private final Cache<String, UserIndex> indexes;
+
+	public NoteSearchIndex() {
+		this(directorySetting(), DEFAULT_FLUSH_CHANGES, Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "note-search-index");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	public NoteSearchIndex(Path directory, int flushChanges, Executor background) {
+		this.directory = directory;
+		this.flushChanges = flushChanges;
+		this.background = background;
+		this.indexes = Caffeine.newBuilder().expireAfterAccess(IDLE_MINUTES, TimeUnit.MINUTES).maximumSize(MAX_USERS)
+				.executor(Runnable::run).<String, UserIndex>removalListener((userId, index, cause) -> index.close())
+				.build();
+	}
+
+	private static Path directorySetting() {
+		String value = System.getenv("KEEPNOTE_SEARCH_DIRECTORY");
+		return value == null || value.isEmpty() ? null : Paths.get(value);
+	}
+
+	/*
+	 * The ids of at most limit notes of the user matching the query, best match
+	 * first. The index of the user is built from the source or caught up with it
+	 * first; without a source the index is searched as it is.
+	 */
+	public int[] search(String userId, String query, int limit, NoteSource source) {
+		return search(userId, query, limit, 0, source);
+	}
+
+	/*
+	 * As search(userId, query, limit, source), with every term of the query also
+	 * matching the words of the notes within maxEdits edits of it, at most
+	 * MAX_EDITS. Exact matches rank above fuzzy ones.
+	 */
+	public int[] search(String userId, String query, int limit, int maxEdits, NoteSource source) {
+		UserIndex userIndex = indexes.get(userId, UserIndex::new);
+		userIndex.load(source);
+		if (source != null && !userIndex.catchUp(source)) {
+			invalidate(userId);
+			userIndex = indexes.get(userId, UserIndex::new);
+			userIndex.load(source);
+		}
+		return userIndex.search(query, limit, Math.max(0, Math.min(maxEdits, MAX_EDITS)));
+	}
+
+	/*
+	 * A note of the user was created or updated with the given change version.
+	 */
+	public void noteSaved(String userId, int noteId, long version, String title, String content) {
+		apply(userId, changes -> changes.saved(noteId, version, title, content));
+	}
+
+	/*
+	 * A note of the user was deleted with the given change version.
+	 */
+	public void noteDeleted(String userId, int noteId, long version) {
+		apply(userId, changes -> changes.deleted(noteId, version));
+	}
+
+	/*
+	 * Drop the index of the user, e.g. after its notes have been removed in bulk,
+	 * on disk as well. It is built again on the next search.
+	 */
+	public void invalidate(String userId) {
+		indexes.invalidate(userId);
+		if (directory != null) {
+			try {
+				delete(directoryOf(userId));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/*
+	 * Close all indexes when the context shuts down; the changes not yet written
+	 * to a segment are replayed from their logs on the next start.
+	 */
+	@Override
+	public void destroy() {
+		indexes.invalidateAll();
+		if (background instanceof ExecutorService) {
+			((ExecutorService) background).shutdown();
+		}
+	}
+
+	private void apply(String userId, Consumer<NoteChanges> change) {
+		if (userId == null) {
+			return;
+		}
+		while (true) {
+			UserIndex userIndex = indexes.getIfPresent(userId);
+			if (userIndex == null && isOnDisk(userId)) {
+				userIndex = indexes.get(userId, UserIndex::new);
+				userIndex.load(null);
+			}
+			if (userIndex == null || userIndex.apply(change)) {
+				return;
+			}
+		}
+	}
+
+	private boolean isOnDisk(String userId) {
+		try {
+			return directory != null && SegmentedIndex.exists(directoryOf(userId));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/*
+	 * The directory of the index of the user, named after the hex encoded user id
+	 * so that any id is a valid file name.
+	 */
+	private Path directoryOf(String userId) {
+		StringBuilder name = new StringBuilder();
+		for (byte b : userId.getBytes(StandardCharsets.UTF_8)) {
+			name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return directory.resolve(name.toString());
+	}
+
+	private static void delete(Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path visited, IOException e) throws IOException {
+				Files.delete(visited);
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+	/*
+	 * The index of one user, on the heap or on disk once loaded.
+	 */
+	private final class UserIndex {
+
+		private final String userId;
+
+		private final Object loadLock = new Object();
+
+		private InvertedIndex heapIndex;
+
+		private SegmentedIndex diskIndex;
+
+		/* the change version of the database the index has caught up with */
+		private long syncedVersion = -1;
+
+		/* changes committed while the index is loaded, null once it is */
+		private List<Consumer<NoteChanges>> pending = new ArrayList<Consumer<NoteChanges>>();
+
+		private boolean closed;
+
+		UserIndex(String userId) {
+			this.userId = userId;
+		}
+
+		/*
+		 * Load the index unless it has been loaded already: open it from disk, or
+		 * build it from the source. Without a source only an index on disk is
+		 * loaded. Concurrent loads wait for the one in progress.
+		 */
+		void load(NoteSource source) {
+			synchronized (loadLock) {
+				synchronized (this) {
+					if (pending == null) {
+						return;
+					}
+				}
+				Path userDirectory = directory == null ? null : directoryOf(userId);
+				SegmentedIndex opened = null;
+				if (isOnDisk(userId)) {
+					try {
+						opened = SegmentedIndex.open(userDirectory, flushChanges, background);
+					} catch (IOException | RuntimeException e) {
+						/* unreadable, rebuilt from the database below */
+						e.printStackTrace();
+						try {
+							delete(userDirectory);
+						} catch (IOException deleteFailure) {
+							throw new UncheckedIOException(deleteFailure);
+						}
+					}
+				}
+				InvertedIndex built = null;
+				long version;
+				if (opened != null) {
+					version = opened.syncedVersion();
+				} else {
+					if (source == null) {
+						return;
+					}
+					/* read first, so that the notes hold at least this version */
+					version = source.changeVersion();
+					InvertedIndex index = new InvertedIndex();
+					source.notes(note -> index.add(note.getNoteId(), note.getChangeVersion(), note.getNoteTitle(),
+							note.getNoteContent()));
+					built = index;
+				}
+				synchronized (this) {
+					if (opened != null) {
+						for (Consumer<NoteChanges> change : pending) {
+							opened.apply(change);
+						}
+					} else {
+						NoteChanges changes = new HeapChanges(built);
+						for (Consumer<NoteChanges> change : pending) {
+							change.accept(changes);
+						}
+						opened = userDirectory == null ? null : createOnDisk(userDirectory, built, version);
+					}
+					if (closed && opened != null) {
+						opened.close();
+					}
+					diskIndex = opened;
+					heapIndex = opened == null ? built : null;
+					syncedVersion = version;
+					pending = null;
+				}
+			}
+		}
+
+		private SegmentedIndex createOnDisk(Path userDirectory, InvertedIndex built, long version) {
+			try {
+				return SegmentedIndex.create(userDirectory, built, version, flushChanges, background);
+			} catch (IOException e) {
+				/* searched on the heap until it is dropped */
+				e.printStackTrace();
+				return null;
+			}
+		}
+
+		/*
+		 * Replay the notes changed since the version the loaded index has caught up
+		 * with. Returns false when the index has to be built again: its version is
+		 * not known or ahead of the database, which was e.g. restored from a backup.
+		 * Writes applied meanwhile do not move the version, as the writes of other
+		 * instances may be missing in between.
+		 */
+		boolean catchUp(NoteSource source) {
+			synchronized (loadLock) {
+				long synced;
+				synchronized (this) {
+					if (closed || pending != null) {
+						return true;
+					}
+					synced = syncedVersion;
+				}
+				long current = source.changeVersion();
+				if (current == synced) {
+					return true;
+				}
+				if (synced < 0 || current < synced) {
+					return false;
+				}
+				source.changes(synced, current, new NoteChanges() {
+
+					@Override
+					public void saved(int noteId, long version, String title, String content) {
+						apply(changes -> changes.saved(noteId, version, title, content));
+					}
+
+					@Override
+					public void deleted(int noteId, long version) {
+						apply(changes -> changes.deleted(noteId, version));
+					}
+
+				});
+				synchronized (this) {
+					syncedVersion = current;
+					if (diskIndex != null) {
+						diskIndex.synced(current);
+					}
+				}
+				return true;
+			}
+		}
+
+		/*
+		 * Apply a change, returns false when the index has been closed.
+		 */
+		synchronized boolean apply(Consumer<NoteChanges> change) {
+			if (closed) {
+				return false;
+			}
+			if (pending != null) {
+				pending.add(change);
+			} else if (diskIndex != null) {
+				return diskIndex.apply(change);
+			} else {
+				change.accept(new HeapChanges(heapIndex));
+			}
+			return true;
+		}
+
+		synchronized int[] search(String query, int limit, int maxEdits) {
+			return diskIndex != null ? diskIndex.search(query, limit, maxEdits)
+					: heapIndex.search(query, limit, maxEdits);
+		}
+
+		synchronized void close() {
+			closed = true;
+			if (diskIndex != null) {
+				diskIndex.close();
+			}
+		}
+
+	}
+
+	private static final class HeapChanges implements NoteChanges {
+
+		private final InvertedIndex index;
+
+		HeapChanges(InvertedIndex index) {
+			this.index = index;
+		}
+
+		@Override
+		public void saved(int noteId, long version, String title, String content) {
+			index.add(noteId, version, title, content);
+		}
+
+		@Override
+		public void deleted(int noteId, long version) {
+			index.remove(noteId, version);
+		}
+
+	}
+
+}
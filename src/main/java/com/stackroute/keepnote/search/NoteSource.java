@@ -0,0 +1,30 @@
+package com.stackroute.keepnote.search;
+
+import java.util.function.Consumer;
+
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * The notes of one user as stored in the database, which an index is built from
+ * and compared with. Versions are the change versions of the user, see
+ * SyncDAO.getChangeVersion.
+ */
+public interface NoteSource {
+
+	/*
+	 * The last change version handed out to the user.
+	 */
+	long changeVersion();
+
+	/*
+	 * Hand every note of the user to the consumer.
+	 */
+	void notes(Consumer<Note> consumer);
+
+	/*
+	 * Hand the notes saved and deleted with a version greater than afterVersion and
+	 * not greater than upToVersion to the receiver.
+	 */
+	void changes(long afterVersion, long upToVersion, NoteChanges changes);
+
+}
@@ -0,0 +1,305 @@
+package com.stackroute.keepnote.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Radix trie of keys, each node holding the best entries of its subtree, at most
+ * capacity of them, so that the best completions of a prefix are read off the
+ * node the prefix ends in without visiting the subtree. Entries are ranked by
+ * version, the most recently changed first, then by id.
+ *
+ * Edges are labelled with character arrays and children are kept in arrays
+ * sorted by their first character. A node left without entries and children is
+ * removed, and one left with a single child is merged into it, so the trie stays
+ * as small as the set of keys.
+ *
+ * Not thread-safe.
+ */
+final class PrefixTrie {
+
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+
+	private final int capacity;
+
+	private final Node root = new Node(new char[0]);
+
+	PrefixTrie(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/*
+	 * Something to complete to. An entry added under several keys is returned
+	 * once.
+	 */
+	static final class Entry {
+
+		final boolean category;
+
+		final int id;
+
+		final String text;
+
+		final long version;
+
+		Entry(boolean category, int id, String text, long version) {
+			this.category = category;
+			this.id = id;
+			this.text = text;
+			this.version = version;
+		}
+
+		boolean isBetterThan(Entry other) {
+			if (version != other.version) {
+				return version > other.version;
+			}
+			if (id != other.id) {
+				return id > other.id;
+			}
+			return category && !other.category;
+		}
+
+	}
+
+	private static final class Node {
+
+		private char[] label;
+
+		private Node[] children = NO_CHILDREN;
+
+		/* entries whose key ends here */
+		private Entry[] entries = NO_ENTRIES;
+
+		/* the best entries of the subtree, best first */
+		private Entry[] top = NO_ENTRIES;
+
+		Node(char[] label) {
+			this.label = label;
+		}
+
+	}
+
+	void add(String key, Entry entry) {
+		List<Node> path = new ArrayList<Node>();
+		Node node = root;
+		path.add(node);
+		int position = 0;
+		while (position < key.length()) {
+			int index = childIndex(node, key.charAt(position));
+			if (index < 0) {
+				Node leaf = new Node(key.substring(position).toCharArray());
+				insertChild(node, -index - 1, leaf);
+				node = leaf;
+				path.add(node);
+				break;
+			}
+			Node child = node.children[index];
+			int common = 1;
+			while (common < child.label.length && position + common < key.length()
+					&& child.label[common] == key.charAt(position + common)) {
+				common++;
+			}
+			if (common < child.label.length) {
+				child = split(node, index, common);
+			}
+			node = child;
+			path.add(node);
+			position += common;
+		}
+		node.entries = Arrays.copyOf(node.entries, node.entries.length + 1);
+		node.entries[node.entries.length - 1] = entry;
+		for (Node onPath : path) {
+			onPath.top = offer(onPath.top, entry);
+		}
+	}
+
+	void remove(String key, Entry entry) {
+		List<Node> path = new ArrayList<Node>();
+		List<Integer> indexes = new ArrayList<Integer>();
+		Node node = root;
+		path.add(node);
+		int position = 0;
+		while (position < key.length()) {
+			int index = childIndex(node, key.charAt(position));
+			if (index < 0) {
+				return;
+			}
+			node = node.children[index];
+			if (!matches(node.label, key, position) || position + node.label.length > key.length()) {
+				return;
+			}
+			path.add(node);
+			indexes.add(index);
+			position += node.label.length;
+		}
+		node.entries = without(node.entries, entry);
+		for (int i = path.size() - 1; i >= 0; i--) {
+			Node onPath = path.get(i);
+			if (contains(onPath.top, entry)) {
+				onPath.top = best(onPath);
+			}
+			if (i > 0) {
+				compact(path.get(i - 1), indexes.get(i - 1));
+			}
+		}
+	}
+
+	/*
+	 * The best entries whose key starts with the prefix, at most limit.
+	 */
+	List<Entry> top(String prefix, int limit) {
+		Node node = root;
+		int position = 0;
+		while (position < prefix.length()) {
+			int index = childIndex(node, prefix.charAt(position));
+			if (index < 0) {
+				return new ArrayList<Entry>();
+			}
+			node = node.children[index];
+			if (!matches(node.label, prefix, position)) {
+				return new ArrayList<Entry>();
+			}
+			position += node.label.length;
+		}
+		return new ArrayList<Entry>(Arrays.asList(node.top).subList(0, Math.min(limit, node.top.length)));
+	}
+
+	/*
+	 * Whether the label agrees with the key from the position on, for as long as
+	 * both go.
+	 */
+	private static boolean matches(char[] label, String key, int position) {
+		for (int i = 0; i < label.length && position + i < key.length(); i++) {
+			if (label[i] != key.charAt(position + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * The index of the child whose label starts with the character, or -(insertion
+	 * point + 1).
+	 */
+	private static int childIndex(Node node, char first) {
+		int low = 0;
+		int high = node.children.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char label = node.children[middle].label[0];
+			if (label < first) {
+				low = middle + 1;
+			} else if (label > first) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	private static void insertChild(Node parent, int index, Node child) {
+		Node[] children = new Node[parent.children.length + 1];
+		System.arraycopy(parent.children, 0, children, 0, index);
+		children[index] = child;
+		System.arraycopy(parent.children, index, children, index + 1, parent.children.length - index);
+		parent.children = children;
+	}
+
+	/*
+	 * Split the edge to the child after common characters, returning the node
+	 * inserted in between.
+	 */
+	private static Node split(Node parent, int index, int common) {
+		Node child = parent.children[index];
+		Node middle = new Node(Arrays.copyOf(child.label, common));
+		child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+		middle.children = new Node[] { child };
+		middle.top = child.top;
+		parent.children[index] = middle;
+		return middle;
+	}
+
+	/*
+	 * Remove the child of the parent if it became empty, or merge it with its only
+	 * child.
+	 */
+	private static void compact(Node parent, int index) {
+		Node child = parent.children[index];
+		if (child.entries.length > 0) {
+			return;
+		}
+		if (child.children.length == 0) {
+			Node[] children = new Node[parent.children.length - 1];
+			System.arraycopy(parent.children, 0, children, 0, index);
+			System.arraycopy(parent.children, index + 1, children, index, children.length - index);
+			parent.children = children;
+		} else if (child.children.length == 1) {
+			Node grandchild = child.children[0];
+			char[] label = Arrays.copyOf(child.label, child.label.length + grandchild.label.length);
+			System.arraycopy(grandchild.label, 0, label, child.label.length, grandchild.label.length);
+			grandchild.label = label;
+			parent.children[index] = grandchild;
+		}
+	}
+
+	/*
+	 * The best entries of the node and the tops of its children.
+	 */
+	private Entry[] best(Node node) {
+		Entry[] top = NO_ENTRIES;
+		for (Entry entry : node.entries) {
+			top = offer(top, entry);
+		}
+		for (Node child : node.children) {
+			for (Entry entry : child.top) {
+				top = offer(top, entry);
+			}
+		}
+		return top;
+	}
+
+	/*
+	 * The top with the entry ranked in, unless it is already there or is not good
+	 * enough.
+	 */
+	private Entry[] offer(Entry[] top, Entry entry) {
+		if (contains(top, entry) || (top.length == capacity && !entry.isBetterThan(top[top.length - 1]))) {
+			return top;
+		}
+		int position = 0;
+		while (position < top.length && top[position].isBetterThan(entry)) {
+			position++;
+		}
+		Entry[] offered = new Entry[Math.min(capacity, top.length + 1)];
+		System.arraycopy(top, 0, offered, 0, position);
+		offered[position] = entry;
+		System.arraycopy(top, position, offered, position + 1, offered.length - position - 1);
+		return offered;
+	}
+
+	private static boolean contains(Entry[] entries, Entry entry) {
+		for (Entry candidate : entries) {
+			if (candidate == entry) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Entry[] without(Entry[] entries, Entry entry) {
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i] == entry) {
+				Entry[] remaining = new Entry[entries.length - 1];
+				System.arraycopy(entries, 0, remaining, 0, i);
+				System.arraycopy(entries, i + 1, remaining, i, remaining.length - i);
+				return remaining;
+			}
+		}
+		return entries;
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.stackroute.keepnote.search;
+
+import java.util.Arrays;
+
+/*
+ * Scores accumulated per document id while a query is evaluated, in an open
+ * addressing table of primitives, and the selection of the best of them.
+ */
+final class ScoreTable {
+
+	private static final int EMPTY = Integer.MIN_VALUE;
+
+	private int[] ids = emptyIds(16);
+
+	private double[] scores = new double[16];
+
+	private int size;
+
+	void add(int id, double score) {
+		if (2 * (size + 1) > ids.length) {
+			grow();
+		}
+		int mask = ids.length - 1;
+		int index = DocumentTable.mix(id) & mask;
+		while (ids[index] != id && ids[index] != EMPTY) {
+			index = (index + 1) & mask;
+		}
+		if (ids[index] == EMPTY) {
+			ids[index] = id;
+			size++;
+		}
+		scores[index] += score;
+	}
+
+	/*
+	 * The ids of at most limit documents with a positive score, best first and
+	 * newest id first among equal scores, selected with a min-heap of table
+	 * positions.
+	 */
+	int[] top(int limit) {
+		int[] heap = new int[Math.max(0, Math.min(limit, size))];
+		int count = 0;
+		for (int index = 0; index < ids.length && heap.length > 0; index++) {
+			if (ids[index] == EMPTY || scores[index] <= 0) {
+				continue;
+			}
+			if (count < heap.length) {
+				heap[count] = index;
+				siftUp(heap, count++);
+			} else if (better(index, heap[0])) {
+				heap[0] = index;
+				siftDown(heap, count);
+			}
+		}
+		int[] ranked = new int[count];
+		for (int i = count - 1; i >= 0; i--) {
+			ranked[i] = ids[heap[0]];
+			heap[0] = heap[i];
+			siftDown(heap, i);
+		}
+		return ranked;
+	}
+
+	private boolean better(int index, int other) {
+		return scores[index] != scores[other] ? scores[index] > scores[other] : ids[index] > ids[other];
+	}
+
+	private void siftUp(int[] heap, int position) {
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (!better(heap[parent], heap[position])) {
+				return;
+			}
+			swap(heap, parent, position);
+			position = parent;
+		}
+	}
+
+	private void siftDown(int[] heap, int count) {
+		int position = 0;
+		while (true) {
+			int worst = position;
+			for (int child = 2 * position + 1; child <= 2 * position + 2 && child < count; child++) {
+				if (better(heap[worst], heap[child])) {
+					worst = child;
+				}
+			}
+			if (worst == position) {
+				return;
+			}
+			swap(heap, worst, position);
+			position = worst;
+		}
+	}
+
+	private static void swap(int[] heap, int i, int j) {
+		int index = heap[i];
+		heap[i] = heap[j];
+		heap[j] = index;
+	}
+
+	private void grow() {
+		int[] oldIds = ids;
+		double[] oldScores = scores;
+		ids = emptyIds(oldIds.length * 2);
+		scores = new double[oldIds.length * 2];
+		size = 0;
+		for (int i = 0; i < oldIds.length; i++) {
+			if (oldIds[i] != EMPTY) {
+				add(oldIds[i], oldScores[i]);
+			}
+		}
+	}
+
+	private static int[] emptyIds(int capacity) {
+		int[] ids = new int[capacity];
+		Arrays.fill(ids, EMPTY);
+		return ids;
+	}
+
+}
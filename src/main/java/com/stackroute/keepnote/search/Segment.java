@@ -0,0 +1,330 @@
+package com.stackroute.keepnote.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * An immutable segment file written by SegmentWriter, memory-mapped and searched
+ * in place: terms are looked up by a binary search over the mapped term table
+ * and postings are decoded straight from the mapping, nothing of the file is
+ * copied to the heap. Only the set of dead documents, those removed or replaced
+ * by a newer version elsewhere, is held in memory.
+ *
+ * The term table doubles as the dictionary walked for fuzzy matches, in the
+ * order of the unsigned UTF-8 bytes of the terms.
+ *
+ * Reads of the mapping are thread-safe; the dead set has to be guarded by the
+ * owner of the segment.
+ */
+final class Segment implements TermDictionary {
+
+	private final long generation;
+
+	private final Path file;
+
+	private final ByteBuffer buffer;
+
+	private final int documents;
+
+	private final int terms;
+
+	private final int termsStart;
+
+	private final int termBytesStart;
+
+	private final int postingsStart;
+
+	private final BitSet dead = new BitSet();
+
+	private int liveDocuments;
+
+	private long liveLength;
+
+	private Segment(long generation, Path file, ByteBuffer buffer) throws IOException {
+		this.generation = generation;
+		this.file = file;
+		this.buffer = buffer;
+		if (buffer.capacity() < SegmentWriter.HEADER_BYTES || buffer.getInt(0) != SegmentWriter.MAGIC) {
+			throw new IOException("Not a search segment --> " + file);
+		}
+		documents = buffer.getInt(4);
+		terms = buffer.getInt(8);
+		termsStart = SegmentWriter.HEADER_BYTES + SegmentWriter.DOCUMENT_BYTES * documents;
+		termBytesStart = termsStart + SegmentWriter.TERM_BYTES * terms;
+		postingsStart = termBytesStart + buffer.getInt(12);
+		if (documents < 0 || terms < 0 || (long) postingsStart + buffer.getInt(16) != buffer.capacity()) {
+			throw new IOException("Truncated search segment --> " + file);
+		}
+		for (int i = 0; i < documents; i++) {
+			if (length(i) < 0) {
+				dead.set(i);
+			} else {
+				liveDocuments++;
+				liveLength += length(i);
+			}
+		}
+	}
+
+	static Segment open(Path file, long generation) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Search segment too large --> " + file);
+			}
+			return new Segment(generation, file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	long generation() {
+		return generation;
+	}
+
+	Path file() {
+		return file;
+	}
+
+	int documents() {
+		return documents;
+	}
+
+	int documentId(int index) {
+		return buffer.getInt(SegmentWriter.HEADER_BYTES + SegmentWriter.DOCUMENT_BYTES * index);
+	}
+
+	int length(int index) {
+		return buffer.getInt(SegmentWriter.HEADER_BYTES + SegmentWriter.DOCUMENT_BYTES * index + 4);
+	}
+
+	long version(int index) {
+		return buffer.getLong(SegmentWriter.HEADER_BYTES + SegmentWriter.DOCUMENT_BYTES * index + 8);
+	}
+
+	int liveDocuments() {
+		return liveDocuments;
+	}
+
+	long liveLength() {
+		return liveLength;
+	}
+
+	/*
+	 * Mark the document dead, it has been removed or replaced.
+	 */
+	void kill(int index) {
+		if (!dead.get(index)) {
+			dead.set(index);
+			liveDocuments--;
+			liveLength -= length(index);
+		}
+	}
+
+	BitSet deadSnapshot() {
+		return (BitSet) dead.clone();
+	}
+
+	/*
+	 * The number of live documents containing the term.
+	 */
+	int frequency(byte[] term) {
+		int entry = find(term);
+		if (entry < 0) {
+			return 0;
+		}
+		int[] position = { postingsStart + postingsOffset(entry) };
+		int end = position[0] + postingsLength(entry);
+		int frequency = 0;
+		int index = -1;
+		while (position[0] < end) {
+			index += readVariableInt(position);
+			readVariableInt(position);
+			if (!dead.get(index)) {
+				frequency++;
+			}
+		}
+		return frequency;
+	}
+
+	/*
+	 * Add the BM25 score of the term to every live document containing it.
+	 */
+	void score(byte[] term, double idf, double averageLength, ScoreTable scores) {
+		int entry = find(term);
+		if (entry < 0) {
+			return;
+		}
+		int[] position = { postingsStart + postingsOffset(entry) };
+		int end = position[0] + postingsLength(entry);
+		int index = -1;
+		while (position[0] < end) {
+			index += readVariableInt(position);
+			int occurrences = readVariableInt(position);
+			if (!dead.get(index)) {
+				scores.add(documentId(index), idf * Bm25.weight(occurrences, length(index), averageLength));
+			}
+		}
+	}
+
+	@Override
+	public String higher(String term) {
+		byte[] termBytes = term.getBytes(StandardCharsets.UTF_8);
+		int entry = lowerBound(termBytes);
+		if (entry < terms && compareTerm(entry, termBytes) == 0) {
+			entry++;
+		}
+		return entry < terms ? term(entry) : null;
+	}
+
+	@Override
+	public String afterPrefix(String prefix) {
+		/* the last byte of UTF-8 is never 0xFF, so this is the next prefix in order */
+		byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+		prefixBytes[prefixBytes.length - 1]++;
+		int entry = lowerBound(prefixBytes);
+		return entry < terms ? term(entry) : null;
+	}
+
+	/*
+	 * Write the documents of the sources which are not in their dead snapshot into
+	 * one segment. Removed documents are carried over as well unless keepRemoved
+	 * is false, which is only safe when no older segment is left that they hide.
+	 */
+	static void merge(List<Segment> sources, List<BitSet> deadSnapshots, boolean keepRemoved, SegmentWriter writer) {
+		int[][] renumbered = new int[sources.size()][];
+		Set<String> allTerms = new HashSet<String>();
+		for (int s = 0; s < sources.size(); s++) {
+			Segment source = sources.get(s);
+			renumbered[s] = new int[source.documents];
+			for (int i = 0; i < source.documents; i++) {
+				renumbered[s][i] = -1;
+				if (!deadSnapshots.get(s).get(i)) {
+					renumbered[s][i] = writer.addDocument(source.documentId(i), source.version(i), source.length(i));
+				} else if (keepRemoved && source.length(i) < 0) {
+					writer.addDocument(source.documentId(i), source.version(i), -1);
+				}
+			}
+			for (int entry = 0; entry < source.terms; entry++) {
+				allTerms.add(source.term(entry));
+			}
+		}
+		int[] indexes = new int[16];
+		int[] occurrences = new int[16];
+		for (String term : allTerms) {
+			byte[] termBytes = term.getBytes(StandardCharsets.UTF_8);
+			int count = 0;
+			for (int s = 0; s < sources.size(); s++) {
+				Segment source = sources.get(s);
+				int entry = source.find(termBytes);
+				if (entry < 0) {
+					continue;
+				}
+				int[] position = { source.postingsStart + source.postingsOffset(entry) };
+				int end = position[0] + source.postingsLength(entry);
+				int index = -1;
+				while (position[0] < end) {
+					index += source.readVariableInt(position);
+					int occurring = source.readVariableInt(position);
+					if (renumbered[s][index] >= 0) {
+						if (count == indexes.length) {
+							indexes = Arrays.copyOf(indexes, count * 2);
+							occurrences = Arrays.copyOf(occurrences, count * 2);
+						}
+						indexes[count] = renumbered[s][index];
+						occurrences[count++] = occurring;
+					}
+				}
+			}
+			if (count > 0) {
+				writer.addPostings(term, indexes, occurrences, count);
+			}
+		}
+	}
+
+	/*
+	 * The entry of the term in the term table, found by a binary search over the
+	 * mapped term bytes, or -1.
+	 */
+	private int find(byte[] term) {
+		int low = 0;
+		int high = terms - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compareTerm(middle, term);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * The first entry of the term table not below the term, or the number of
+	 * terms.
+	 */
+	private int lowerBound(byte[] term) {
+		int low = 0;
+		int high = terms;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareTerm(middle, term) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int compareTerm(int entry, byte[] term) {
+		int start = termBytesStart + buffer.getInt(termsStart + SegmentWriter.TERM_BYTES * entry);
+		int length = buffer.getInt(termsStart + SegmentWriter.TERM_BYTES * entry + 4);
+		for (int i = 0; i < Math.min(length, term.length); i++) {
+			int difference = (buffer.get(start + i) & 0xFF) - (term[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - term.length;
+	}
+
+	private String term(int entry) {
+		int start = termBytesStart + buffer.getInt(termsStart + SegmentWriter.TERM_BYTES * entry);
+		byte[] bytes = new byte[buffer.getInt(termsStart + SegmentWriter.TERM_BYTES * entry + 4)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private int postingsOffset(int entry) {
+		return buffer.getInt(termsStart + SegmentWriter.TERM_BYTES * entry + 8);
+	}
+
+	private int postingsLength(int entry) {
+		return buffer.getInt(termsStart + SegmentWriter.TERM_BYTES * entry + 12);
+	}
+
+	private int readVariableInt(int[] position) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get(position[0]++);
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.stackroute.keepnote.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Collects the documents and postings of a new segment and writes them in the
+ * format read by Segment:
+ *
+ * header      magic, document count, term count, term bytes length, postings
+ *             length, all ints
+ * documents   per document its id, length in tokens (-1 for a removed
+ *             document) and version, 16 bytes each
+ * terms       per term the offset and length of its UTF-8 bytes and of its
+ *             postings, 16 bytes each, ordered by the unsigned term bytes
+ * term bytes  the UTF-8 bytes of all terms
+ * postings    per term the (document index gap, occurrences) pairs as
+ *             variable-length integers
+ *
+ * The file is written under a temporary name, forced to disk and then renamed,
+ * so a segment file is either complete or absent.
+ */
+final class SegmentWriter {
+
+	static final int MAGIC = 0x4B4E5331;
+
+	static final int HEADER_BYTES = 20;
+
+	static final int DOCUMENT_BYTES = 16;
+
+	static final int TERM_BYTES = 16;
+
+	private int[] documentIds = new int[16];
+
+	private int[] lengths = new int[16];
+
+	private long[] versions = new long[16];
+
+	private int documents;
+
+	private final List<byte[]> terms = new ArrayList<byte[]>();
+
+	private final List<byte[]> postings = new ArrayList<byte[]>();
+
+	/*
+	 * Add a document, returning its index in the segment.
+	 */
+	int addDocument(int documentId, long version, int length) {
+		if (documents == documentIds.length) {
+			documentIds = Arrays.copyOf(documentIds, documents * 2);
+			lengths = Arrays.copyOf(lengths, documents * 2);
+			versions = Arrays.copyOf(versions, documents * 2);
+		}
+		documentIds[documents] = documentId;
+		lengths[documents] = length;
+		versions[documents] = version;
+		return documents++;
+	}
+
+	/*
+	 * Add the postings of a term, the first count document indexes in ascending
+	 * order with the occurrences of the term. Terms may be added in any order.
+	 */
+	void addPostings(String term, int[] documentIndexes, int[] occurrences, int count) {
+		byte[] bytes = new byte[10 * count];
+		int size = 0;
+		int last = -1;
+		for (int i = 0; i < count; i++) {
+			size = writeVariableInt(bytes, size, documentIndexes[i] - last);
+			size = writeVariableInt(bytes, size, occurrences[i]);
+			last = documentIndexes[i];
+		}
+		terms.add(term.getBytes(StandardCharsets.UTF_8));
+		postings.add(Arrays.copyOf(bytes, size));
+	}
+
+	int documents() {
+		return documents;
+	}
+
+	void write(Path file) throws IOException {
+		Integer[] order = new Integer[terms.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> compare(terms.get(a), terms.get(b)));
+		long termBytesLength = 0;
+		long postingsLength = 0;
+		for (int i = 0; i < order.length; i++) {
+			termBytesLength += terms.get(i).length;
+			postingsLength += postings.get(i).length;
+		}
+		long total = HEADER_BYTES + (long) DOCUMENT_BYTES * documents + (long) TERM_BYTES * order.length
+				+ termBytesLength + postingsLength;
+		if (total > Integer.MAX_VALUE) {
+			throw new IOException("Search segment too large --> " + total + " bytes");
+		}
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+			output.writeInt(MAGIC);
+			output.writeInt(documents);
+			output.writeInt(order.length);
+			output.writeInt((int) termBytesLength);
+			output.writeInt((int) postingsLength);
+			for (int i = 0; i < documents; i++) {
+				output.writeInt(documentIds[i]);
+				output.writeInt(lengths[i]);
+				output.writeLong(versions[i]);
+			}
+			int termOffset = 0;
+			int postingsOffset = 0;
+			for (int i : order) {
+				output.writeInt(termOffset);
+				output.writeInt(terms.get(i).length);
+				output.writeInt(postingsOffset);
+				output.writeInt(postings.get(i).length);
+				termOffset += terms.get(i).length;
+				postingsOffset += postings.get(i).length;
+			}
+			for (int i : order) {
+				output.write(terms.get(i));
+			}
+			for (int i : order) {
+				output.write(postings.get(i));
+			}
+			output.flush();
+			stream.getChannel().force(true);
+		}
+		Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/*
+	 * Order of the unsigned bytes, which for UTF-8 is the order of the code points.
+	 */
+	static int compare(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++) {
+			int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	private static int writeVariableInt(byte[] bytes, int size, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[size++] = (byte) value;
+		return size;
+	}
+
+}
@@ -0,0 +1,531 @@
+package com.stackroute.keepnote.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/*
+ * The persistent search index of the notes of one user, kept in a directory of
+ * its own:
+ *
+ * segment-<generation>.idx  immutable, memory-mapped segments, see Segment
+ * log-<generation>.wal      the changes since the last flush, see WriteAheadLog
+ *
+ * Changes are logged and applied to an in-memory InvertedIndex, which a
+ * background thread writes out as a new segment once it holds flushChanges
+ * changes. Whenever MERGE_FACTOR segments of the same size tier, by powers of
+ * MERGE_FACTOR documents, have piled up, the background thread merges them into
+ * one, dropping replaced and removed documents. Searches see the segments and
+ * the in-memory changes alike and score them with the same statistics.
+ *
+ * The newest version of every note decides which copy is live, wherever it is
+ * held, so a segment left behind by a crash between writing a flush or merge
+ * and removing its inputs, or a log replayed twice, changes nothing.
+ *
+ * The change version of the database the index has caught up with is logged as
+ * well, and again at the start of every new log, so it survives flushes and
+ * restarts like the changes do. An index written before it was logged has no
+ * synced version, -1.
+ */
+final class SegmentedIndex {
+
+	private static final String SEGMENT_PREFIX = "segment-";
+
+	private static final String SEGMENT_SUFFIX = ".idx";
+
+	private static final String LOG_PREFIX = "log-";
+
+	private static final String LOG_SUFFIX = ".wal";
+
+	private static final int MERGE_FACTOR = 4;
+
+	/* the location of a version held in memory, or of a removal */
+	private static final long IN_MEMORY = -1;
+
+	private static final int[] NONE = new int[0];
+
+	private final Path directory;
+
+	private final int flushChanges;
+
+	private final Executor background;
+
+	/* version and location, the segment generation and document index, per note */
+	private final DocumentTable latest = new DocumentTable();
+
+	private final List<Segment> segments = new ArrayList<Segment>();
+
+	private InvertedIndex memory = new InvertedIndex();
+
+	private int memoryChanges;
+
+	private WriteAheadLog log;
+
+	/* logs of an earlier run, replayed into memory and deleted by the next flush */
+	private final List<Path> replayedLogs = new ArrayList<Path>();
+
+	private long nextGeneration = 1;
+
+	private long syncedVersion = -1;
+
+	private boolean flushScheduled;
+
+	private boolean merging;
+
+	private boolean closed;
+
+	/* the changes as they come in, logged before they are applied */
+	private final NoteChanges logged = new NoteChanges() {
+
+		@Override
+		public void saved(int noteId, long version, String title, String content) {
+			if (isNewer(noteId, version)) {
+				try {
+					log.saved(noteId, version, title, content);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				applySaved(noteId, version, title, content);
+			}
+		}
+
+		@Override
+		public void deleted(int noteId, long version) {
+			if (isNewer(noteId, version)) {
+				try {
+					log.deleted(noteId, version);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				applyDeleted(noteId, version);
+			}
+		}
+
+	};
+
+	/* the changes of a log being replayed */
+	private final NoteChanges replayed = new NoteChanges() {
+
+		@Override
+		public void saved(int noteId, long version, String title, String content) {
+			if (isNewer(noteId, version)) {
+				applySaved(noteId, version, title, content);
+			}
+		}
+
+		@Override
+		public void deleted(int noteId, long version) {
+			if (isNewer(noteId, version)) {
+				applyDeleted(noteId, version);
+			}
+		}
+
+	};
+
+	private SegmentedIndex(Path directory, int flushChanges, Executor background) {
+		this.directory = directory;
+		this.flushChanges = flushChanges;
+		this.background = background;
+	}
+
+	/*
+	 * Whether the directory holds an index, i.e. at least one segment.
+	 */
+	static boolean exists(Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return false;
+		}
+		return !files(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX).isEmpty();
+	}
+
+	/*
+	 * Write the index built in memory, holding the notes up to the given change
+	 * version, as the first segment of a new directory.
+	 */
+	static SegmentedIndex create(Path directory, InvertedIndex built, long syncedVersion, int flushChanges,
+			Executor background) throws IOException {
+		Files.createDirectories(directory);
+		SegmentedIndex index = new SegmentedIndex(directory, flushChanges, background);
+		SegmentWriter writer = new SegmentWriter();
+		built.writeTo(writer);
+		long generation = index.nextGeneration++;
+		writer.write(index.file(SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+		index.addSegment(Segment.open(index.file(SEGMENT_PREFIX, generation, SEGMENT_SUFFIX), generation));
+		index.log = new WriteAheadLog(index.file(LOG_PREFIX, index.nextGeneration++, LOG_SUFFIX));
+		index.syncedVersion = syncedVersion;
+		index.logSyncedVersion();
+		return index;
+	}
+
+	/*
+	 * Open the index of the directory, replaying the logs left by the last run.
+	 */
+	static SegmentedIndex open(Path directory, int flushChanges, Executor background) throws IOException {
+		SegmentedIndex index = new SegmentedIndex(directory, flushChanges, background);
+		try (DirectoryStream<Path> temporaries = Files.newDirectoryStream(directory, "*.tmp")) {
+			for (Path temporary : temporaries) {
+				Files.delete(temporary);
+			}
+		}
+		TreeMap<Long, Path> segmentFiles = files(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+		TreeMap<Long, Path> logFiles = files(directory, LOG_PREFIX, LOG_SUFFIX);
+		for (Long generation : segmentFiles.keySet()) {
+			index.addSegment(Segment.open(segmentFiles.get(generation), generation));
+		}
+		for (Path logFile : logFiles.values()) {
+			WriteAheadLog.replay(logFile, index.replayed, version -> index.syncedVersion = version);
+			index.replayedLogs.add(logFile);
+		}
+		index.nextGeneration = 1 + Math.max(segmentFiles.isEmpty() ? 0 : segmentFiles.lastKey(),
+				logFiles.isEmpty() ? 0 : logFiles.lastKey());
+		index.log = new WriteAheadLog(index.file(LOG_PREFIX, index.nextGeneration++, LOG_SUFFIX));
+		index.logSyncedVersion();
+		synchronized (index) {
+			if (!index.replayedLogs.isEmpty()) {
+				index.scheduleFlush();
+			}
+			index.scheduleMerge();
+		}
+		return index;
+	}
+
+	/*
+	 * Apply a change, unless the index has been closed in the meantime.
+	 */
+	synchronized boolean apply(Consumer<NoteChanges> change) {
+		if (closed) {
+			return false;
+		}
+		change.accept(logged);
+		if (memoryChanges >= flushChanges) {
+			scheduleFlush();
+		}
+		return true;
+	}
+
+	/*
+	 * The change version of the database the index has caught up with, -1 if not
+	 * known.
+	 */
+	synchronized long syncedVersion() {
+		return syncedVersion;
+	}
+
+	/*
+	 * The index has caught up with the given change version of the database.
+	 */
+	synchronized void synced(long version) {
+		if (closed) {
+			return;
+		}
+		syncedVersion = version;
+		logSyncedVersion();
+	}
+
+	/*
+	 * The ids of at most limit notes matching the query, best match first, with
+	 * every term of the query also matching the terms within maxEdits edits of
+	 * it, see FuzzyTerms.
+	 */
+	synchronized int[] search(String query, int limit, int maxEdits) {
+		Set<String> terms = InvertedIndex.queryTerms(query);
+		int documents = memory.size();
+		long length = memory.length();
+		for (Segment segment : segments) {
+			documents += segment.liveDocuments();
+			length += segment.liveLength();
+		}
+		if (terms.isEmpty() || documents == 0 || limit < 1) {
+			return NONE;
+		}
+		double averageLength = Bm25.averageLength(documents, length);
+		ScoreTable scores = new ScoreTable();
+		List<TermDictionary> dictionaries = new ArrayList<TermDictionary>(segments);
+		dictionaries.add(memory.dictionary());
+		for (String term : terms) {
+			Map<String, Integer> variants = FuzzyTerms.variants(term, maxEdits, dictionaries);
+			Map<String, byte[]> variantBytes = new HashMap<String, byte[]>();
+			int frequency = 0;
+			for (String variant : variants.keySet()) {
+				byte[] termBytes = variant.getBytes(StandardCharsets.UTF_8);
+				variantBytes.put(variant, termBytes);
+				int variantFrequency = memory.frequency(variant);
+				for (Segment segment : segments) {
+					variantFrequency += segment.frequency(termBytes);
+				}
+				frequency = Math.max(frequency, variantFrequency);
+			}
+			if (frequency == 0) {
+				continue;
+			}
+			double idf = Bm25.idf(documents, frequency);
+			for (Map.Entry<String, Integer> variant : variants.entrySet()) {
+				double boosted = idf * FuzzyTerms.boost(variant.getValue());
+				memory.score(variant.getKey(), boosted, averageLength, scores);
+				for (Segment segment : segments) {
+					segment.score(variantBytes.get(variant.getKey()), boosted, averageLength, scores);
+				}
+			}
+		}
+		return scores.top(limit);
+	}
+
+	/*
+	 * Close the log. Pending background work is dropped, the changes in memory are
+	 * replayed from the log when the index is opened again.
+	 */
+	synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			log.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void logSyncedVersion() {
+		if (syncedVersion < 0) {
+			return;
+		}
+		try {
+			log.synced(syncedVersion);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private boolean isNewer(int noteId, long version) {
+		int entry = latest.find(noteId);
+		return entry < 0 || latest.versions[entry] < version;
+	}
+
+	private void applySaved(int noteId, long version, String title, String content) {
+		replaced(noteId);
+		memory.add(noteId, version, title, content);
+		latest.put(noteId, IN_MEMORY, version);
+		memoryChanges++;
+	}
+
+	private void applyDeleted(int noteId, long version) {
+		replaced(noteId);
+		memory.remove(noteId, version);
+		latest.put(noteId, IN_MEMORY, version);
+		memoryChanges++;
+	}
+
+	/*
+	 * Mark the copy of the note held by a segment dead, a newer version is coming.
+	 */
+	private void replaced(int noteId) {
+		int entry = latest.find(noteId);
+		if (entry >= 0 && latest.locations[entry] != IN_MEMORY) {
+			segment(latest.locations[entry] >>> 32).kill((int) latest.locations[entry]);
+		}
+	}
+
+	/*
+	 * Register a segment found when opening the directory. A note found in
+	 * several segments is live in the one with its newest version.
+	 */
+	private void addSegment(Segment segment) {
+		for (int i = 0; i < segment.documents(); i++) {
+			int noteId = segment.documentId(i);
+			if (!isNewer(noteId, segment.version(i))) {
+				segment.kill(i);
+				continue;
+			}
+			replaced(noteId);
+			latest.put(noteId, segment.length(i) < 0 ? IN_MEMORY : location(segment, i), segment.version(i));
+		}
+		segments.add(segment);
+	}
+
+	/*
+	 * Point the notes of a segment just written at it, and mark those replaced
+	 * while it was written dead.
+	 */
+	private void relocate(Segment segment) {
+		for (int i = 0; i < segment.documents(); i++) {
+			int entry = latest.find(segment.documentId(i));
+			if (segment.length(i) >= 0 && entry >= 0 && latest.versions[entry] == segment.version(i)) {
+				latest.locations[entry] = location(segment, i);
+			} else {
+				segment.kill(i);
+			}
+		}
+	}
+
+	private static long location(Segment segment, int index) {
+		return segment.generation() << 32 | index;
+	}
+
+	private Segment segment(long generation) {
+		for (Segment segment : segments) {
+			if (segment.generation() == generation) {
+				return segment;
+			}
+		}
+		throw new IllegalStateException("No search segment " + generation + " in " + directory);
+	}
+
+	private void scheduleFlush() {
+		if (!flushScheduled && !closed) {
+			flushScheduled = true;
+			background.execute(this::flush);
+		}
+	}
+
+	/*
+	 * Write the changes held in memory as a new segment and start a new log.
+	 */
+	private synchronized void flush() {
+		flushScheduled = false;
+		if (closed) {
+			return;
+		}
+		try {
+			List<Path> flushedLogs = new ArrayList<Path>(replayedLogs);
+			flushedLogs.add(log.file());
+			if (memoryChanges > 0) {
+				long generation = nextGeneration++;
+				SegmentWriter writer = new SegmentWriter();
+				memory.writeTo(writer);
+				Path file = file(SEGMENT_PREFIX, generation, SEGMENT_SUFFIX);
+				writer.write(file);
+				Segment segment = Segment.open(file, generation);
+				relocate(segment);
+				segments.add(segment);
+				memory = new InvertedIndex();
+				memoryChanges = 0;
+			}
+			log.close();
+			log = new WriteAheadLog(file(LOG_PREFIX, nextGeneration++, LOG_SUFFIX));
+			logSyncedVersion();
+			replayedLogs.clear();
+			for (Path flushedLog : flushedLogs) {
+				Files.deleteIfExists(flushedLog);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		scheduleMerge();
+	}
+
+	private void scheduleMerge() {
+		if (!merging && !closed && mergeSources() != null) {
+			merging = true;
+			background.execute(this::merge);
+		}
+	}
+
+	/*
+	 * The oldest MERGE_FACTOR segments of the first size tier holding that many,
+	 * or null.
+	 */
+	private List<Segment> mergeSources() {
+		TreeMap<Integer, List<Segment>> tiers = new TreeMap<Integer, List<Segment>>();
+		for (Segment segment : segments) {
+			int tier = (31 - Integer.numberOfLeadingZeros(Math.max(1, segment.documents()))) / 2;
+			List<Segment> tierSegments = tiers.get(tier);
+			if (tierSegments == null) {
+				tierSegments = new ArrayList<Segment>();
+				tiers.put(tier, tierSegments);
+			}
+			tierSegments.add(segment);
+			if (tierSegments.size() == MERGE_FACTOR) {
+				return tierSegments;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Merge one group of segments, reading them without holding the lock; writes
+	 * arriving meanwhile only mark documents of the inputs dead, which the merged
+	 * segment catches up with when it is swapped in.
+	 */
+	private void merge() {
+		List<Segment> sources;
+		List<BitSet> deadSnapshots = new ArrayList<BitSet>();
+		boolean keepRemoved;
+		long generation;
+		synchronized (this) {
+			sources = closed ? null : mergeSources();
+			if (sources == null) {
+				merging = false;
+				return;
+			}
+			for (Segment source : sources) {
+				deadSnapshots.add(source.deadSnapshot());
+			}
+			keepRemoved = sources.size() < segments.size();
+			generation = nextGeneration++;
+		}
+		Path file = file(SEGMENT_PREFIX, generation, SEGMENT_SUFFIX);
+		try {
+			SegmentWriter writer = new SegmentWriter();
+			Segment.merge(sources, deadSnapshots, keepRemoved, writer);
+			writer.write(file);
+			Segment merged = Segment.open(file, generation);
+			synchronized (this) {
+				if (closed) {
+					Files.deleteIfExists(file);
+					return;
+				}
+				relocate(merged);
+				segments.removeAll(sources);
+				segments.add(merged);
+			}
+			for (Segment source : sources) {
+				Files.deleteIfExists(source.file());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			synchronized (this) {
+				merging = false;
+				scheduleMerge();
+			}
+		}
+	}
+
+	private Path file(String prefix, long generation, String suffix) {
+		return directory.resolve(prefix + generation + suffix);
+	}
+
+	/*
+	 * The files of the directory named prefix, generation, suffix by generation.
+	 */
+	private static TreeMap<Long, Path> files(Path directory, String prefix, String suffix) throws IOException {
+		TreeMap<Long, Path> files = new TreeMap<Long, Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				if (name.startsWith(prefix) && name.endsWith(suffix)) {
+					try {
+						files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())),
+								file);
+					} catch (NumberFormatException e) {
+						/* not ours */
+					}
+				}
+			}
+		}
+		return files;
+	}
+
+}
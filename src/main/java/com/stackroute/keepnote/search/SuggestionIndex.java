@@ -0,0 +1,260 @@
+package com.stackroute.keepnote.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Suggestion;
+
+/*
+ * Prefix completion of the note titles and category names of a user, the most
+ * recently changed first. A title or name completes from the start of any of
+ * its words, case-insensitively and with runs of whitespace taken as one space,
+ * so "boot" and "spring b" both complete to "Spring Boot".
+ *
+ * One PrefixTrie is held per user, built from the database on the first request
+ * and kept up to date by the NoteDAO and CategoryDAO write paths once their
+ * transaction has committed. The change versions of the notes and categories
+ * rank the suggestions, as they grow with every change of the user, and make
+ * applying a change twice or out of order harmless. Tries of users who have not
+ * asked for suggestions for a while are dropped, as are the least recently used
+ * ones beyond MAX_USERS.
+ */
+@Component
+public class SuggestionIndex {
+
+	public static final int MAX_SUGGESTIONS = 20;
+
+	/*
+	 * Keys are cut after this many characters so that long titles do not blow up
+	 * the trie; longer prefixes are matched against the texts instead.
+	 */
+	private static final int MAX_KEY_LENGTH = 64;
+
+	private static final long MAX_USERS = 10000;
+
+	private static final long IDLE_MINUTES = 30;
+
+	private final Cache<String, UserSuggestions> suggestions = Caffeine.newBuilder()
+			.expireAfterAccess(IDLE_MINUTES, TimeUnit.MINUTES).maximumSize(MAX_USERS).build();
+
+	/*
+	 * At most limit notes and categories of the user completing the prefix, most
+	 * recently changed first. The sources stream all notes and categories of the
+	 * user, they are only called when the trie of the user has to be built.
+	 */
+	public List<Suggestion> suggest(String userId, String prefix, int limit, Consumer<Consumer<Note>> notes,
+			Consumer<Consumer<Category>> categories) {
+		String key = normalize(prefix);
+		if (key.isEmpty() || limit <= 0) {
+			return new ArrayList<Suggestion>();
+		}
+		if (Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+			/* "spring " completes to "spring boot" but not to "springfield" */
+			key += " ";
+		}
+		UserSuggestions userSuggestions = suggestions.get(userId, id -> new UserSuggestions());
+		userSuggestions.load(notes, categories);
+		List<PrefixTrie.Entry> entries = userSuggestions.top(key.substring(0, Math.min(key.length(), MAX_KEY_LENGTH)),
+				key.length() > MAX_KEY_LENGTH ? MAX_SUGGESTIONS : limit);
+		List<Suggestion> result = new ArrayList<Suggestion>();
+		for (PrefixTrie.Entry entry : entries) {
+			if (result.size() == limit) {
+				break;
+			}
+			if (key.length() <= MAX_KEY_LENGTH || completes(entry.text, key)) {
+				result.add(new Suggestion(entry.category ? Suggestion.CATEGORY : Suggestion.NOTE, entry.id, entry.text));
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * A note of the user was created or updated with the given change version.
+	 */
+	public void noteSaved(String userId, int noteId, long version, String title) {
+		apply(userId, table -> table.save(false, noteId, version, title));
+	}
+
+	/*
+	 * A note of the user was deleted with the given change version.
+	 */
+	public void noteDeleted(String userId, int noteId, long version) {
+		apply(userId, table -> table.delete(false, noteId, version));
+	}
+
+	/*
+	 * A category of the user was created or updated with the given change version.
+	 */
+	public void categorySaved(String userId, int categoryId, long version, String name) {
+		apply(userId, table -> table.save(true, categoryId, version, name));
+	}
+
+	/*
+	 * A category of the user was deleted with the given change version.
+	 */
+	public void categoryDeleted(String userId, int categoryId, long version) {
+		apply(userId, table -> table.delete(true, categoryId, version));
+	}
+
+	/*
+	 * Drop the trie of the user, e.g. after its notes and categories have been
+	 * removed in bulk. It is built again on the next request.
+	 */
+	public void invalidate(String userId) {
+		suggestions.invalidate(userId);
+	}
+
+	private void apply(String userId, Consumer<Table> change) {
+		if (userId == null) {
+			return;
+		}
+		UserSuggestions userSuggestions = suggestions.getIfPresent(userId);
+		if (userSuggestions != null) {
+			userSuggestions.apply(change);
+		}
+	}
+
+	private static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		return String.join(" ", text.trim().toLowerCase(Locale.ROOT).split("\\s+"));
+	}
+
+	/*
+	 * The keys a text is completed from: the normalized text from the start of
+	 * each of its words.
+	 */
+	private static Set<String> keys(String text) {
+		String normalized = normalize(text);
+		Set<String> keys = new LinkedHashSet<String>();
+		for (int i = 0; i < normalized.length(); i++) {
+			if (i == 0 || normalized.charAt(i - 1) == ' ') {
+				keys.add(normalized.substring(i, Math.min(normalized.length(), i + MAX_KEY_LENGTH)));
+			}
+		}
+		return keys;
+	}
+
+	private static boolean completes(String text, String key) {
+		String normalized = normalize(text);
+		return normalized.startsWith(key) || normalized.contains(" " + key);
+	}
+
+	/*
+	 * The trie of one user with the latest version seen of each note and category,
+	 * deleted ones included. Not thread-safe.
+	 */
+	private static final class Table {
+
+		private final PrefixTrie trie = new PrefixTrie(MAX_SUGGESTIONS);
+
+		private final Map<Long, Long> versions = new HashMap<Long, Long>();
+
+		private final Map<Long, PrefixTrie.Entry> entries = new HashMap<Long, PrefixTrie.Entry>();
+
+		void save(boolean category, int id, long version, String text) {
+			if (replace(category, id, version)) {
+				PrefixTrie.Entry entry = new PrefixTrie.Entry(category, id, text, version);
+				for (String key : keys(text)) {
+					trie.add(key, entry);
+				}
+				entries.put(key(category, id), entry);
+			}
+		}
+
+		void delete(boolean category, int id, long version) {
+			replace(category, id, version);
+		}
+
+		/*
+		 * Remove the current entry if the version is newer than the one seen last,
+		 * returns whether it is.
+		 */
+		private boolean replace(boolean category, int id, long version) {
+			Long key = key(category, id);
+			Long seen = versions.get(key);
+			if (seen != null && seen >= version) {
+				return false;
+			}
+			versions.put(key, version);
+			PrefixTrie.Entry current = entries.remove(key);
+			if (current != null) {
+				for (String trieKey : keys(current.text)) {
+					trie.remove(trieKey, current);
+				}
+			}
+			return true;
+		}
+
+		private static Long key(boolean category, int id) {
+			return ((long) id << 1) | (category ? 1 : 0);
+		}
+
+	}
+
+	/*
+	 * The suggestions of one user, usable once loaded.
+	 */
+	private static final class UserSuggestions {
+
+		private final Object loadLock = new Object();
+
+		private Table table;
+
+		/* changes committed while the trie is built, null once it is */
+		private List<Consumer<Table>> pending = new ArrayList<Consumer<Table>>();
+
+		/*
+		 * Build the trie unless it has been built already. Concurrent loads wait for
+		 * the one in progress.
+		 */
+		void load(Consumer<Consumer<Note>> notes, Consumer<Consumer<Category>> categories) {
+			synchronized (loadLock) {
+				synchronized (this) {
+					if (pending == null) {
+						return;
+					}
+				}
+				Table built = new Table();
+				notes.accept(note -> built.save(false, note.getNoteId(), note.getChangeVersion(), note.getNoteTitle()));
+				categories.accept(category -> built.save(true, category.getCategoryId(), category.getChangeVersion(),
+						category.getCategoryName()));
+				synchronized (this) {
+					for (Consumer<Table> change : pending) {
+						change.accept(built);
+					}
+					table = built;
+					pending = null;
+				}
+			}
+		}
+
+		synchronized void apply(Consumer<Table> change) {
+			if (pending != null) {
+				pending.add(change);
+			} else {
+				change.accept(table);
+			}
+		}
+
+		synchronized List<PrefixTrie.Entry> top(String key, int limit) {
+			return table.trie.top(key, limit);
+		}
+
+	}
+
+}
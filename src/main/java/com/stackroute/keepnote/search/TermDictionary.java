@@ -0,0 +1,19 @@
+package com.stackroute.keepnote.search;
+
+/*
+ * The terms of an index in a sorted order in which all terms starting with the
+ * same prefix are adjacent, walked by FuzzyTerms.
+ */
+interface TermDictionary {
+
+	/*
+	 * The first term after the given one, or null.
+	 */
+	String higher(String term);
+
+	/*
+	 * The first term after all terms starting with the prefix, or null.
+	 */
+	String afterPrefix(String prefix);
+
+}
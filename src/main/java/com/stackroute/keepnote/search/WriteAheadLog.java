@@ -0,0 +1,151 @@
+package com.stackroute.keepnote.search;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only log of the note changes not yet written to a segment. Every record
+ * is its length, a CRC32 of its content and the content: the kind of change, the
+ * note id, the version and for saved notes title and content. A synced record
+ * holds the change version of the database the index has caught up with, and
+ * note id 0. A record torn by a crash fails its length or checksum and ends the
+ * replay; the log is cut there so that new records are not appended behind it.
+ *
+ * Records are handed to the operating system but not forced to disk, so the log
+ * survives a crash of the application but not of the machine.
+ */
+final class WriteAheadLog implements Closeable {
+
+	private static final byte SAVED = 1;
+
+	private static final byte DELETED = 2;
+
+	private static final byte SYNCED = 3;
+
+	private final Path file;
+
+	private final FileChannel channel;
+
+	WriteAheadLog(Path file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+	}
+
+	Path file() {
+		return file;
+	}
+
+	void saved(int noteId, long version, String title, String content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(bytes);
+		record.writeByte(SAVED);
+		record.writeInt(noteId);
+		record.writeLong(version);
+		writeString(record, title);
+		writeString(record, content);
+		append(bytes.toByteArray());
+	}
+
+	void deleted(int noteId, long version) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(bytes);
+		record.writeByte(DELETED);
+		record.writeInt(noteId);
+		record.writeLong(version);
+		append(bytes.toByteArray());
+	}
+
+	void synced(long version) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(bytes);
+		record.writeByte(SYNCED);
+		record.writeInt(0);
+		record.writeLong(version);
+		append(bytes.toByteArray());
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	 * Apply the complete records of the log to the target, in the order they were
+	 * written, handing the versions of the synced records to synced.
+	 */
+	static void replay(Path file, NoteChanges target, LongConsumer synced) throws IOException {
+		ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(file));
+		while (log.remaining() >= 8) {
+			int start = log.position();
+			int length = log.getInt();
+			int checksum = log.getInt();
+			if (length < 13 || length > log.remaining() || checksum != checksum(log.array(), log.position(), length)) {
+				log.position(start);
+				break;
+			}
+			ByteBuffer record = ByteBuffer.wrap(log.array(), log.position(), length);
+			log.position(log.position() + length);
+			byte kind = record.get();
+			int noteId = record.getInt();
+			long version = record.getLong();
+			if (kind == SAVED) {
+				target.saved(noteId, version, readString(record), readString(record));
+			} else if (kind == DELETED) {
+				target.deleted(noteId, version);
+			} else {
+				synced.accept(version);
+			}
+		}
+		if (log.position() < log.capacity()) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(log.position());
+			}
+		}
+	}
+
+	private void append(byte[] content) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(8 + content.length);
+		record.putInt(content.length).putInt(checksum(content, 0, content.length)).put(content).flip();
+		while (record.hasRemaining()) {
+			channel.write(record);
+		}
+	}
+
+	private static int checksum(byte[] bytes, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+
+	private static void writeString(DataOutputStream record, String value) throws IOException {
+		if (value == null) {
+			record.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			record.writeInt(bytes.length);
+			record.write(bytes);
+		}
+	}
+
+	private static String readString(ByteBuffer record) {
+		int length = record.getInt();
+		if (length < 0) {
+			return null;
+		}
+		String value = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+		record.position(record.position() + length);
+		return value;
+	}
+
+}
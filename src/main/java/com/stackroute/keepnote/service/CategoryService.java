@@ -1,6 +1,8 @@
 package com.stackroute.keepnote.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
@@ -15,10 +17,18 @@ public interface CategoryService {
 
 	public boolean deleteCategory(int noteId);
 
+	public boolean deleteCategory(int categoryId, String userId);
+
 	public Category updateCategory(Category category, int id) throws CategoryNotFoundException;
 
 	public Category getCategoryById(int categoryId) throws CategoryNotFoundException;
 
 	public List<Category> getAllCategoryByUserId(String userId);
 
+	public void streamCategoriesByUserId(String userId, Consumer<Category> consumer);
+
+	public List<Map<String, Object>> getAllCategoryByUserId(String userId, String fields);
+
+	public String getCollectionVersion(String userId);
+
 }
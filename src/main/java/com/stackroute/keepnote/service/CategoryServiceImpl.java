@@ -1,6 +1,8 @@
 package com.stackroute.keepnote.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -26,9 +28,39 @@ public class CategoryServiceImpl implements CategoryService {
 	 * keyword.
 	 */
 
-	@Autowired
 	private CategoryDAO categoryDAO;
 
+	/*
+	 * Version of the collections of a user, see CollectionVersions.
+	 */
+	private CollectionVersions collectionVersions;
+
+	/*
+	 * The notes of a user embed their category, so their cached list is dropped
+	 * after every update or delete of a category.
+	 */
+	private NoteListCache noteListCache;
+
+	/*
+	 * Coalesces concurrent listing reads of the same user, see SingleFlight.
+	 */
+	private SingleFlight singleFlight;
+
+	/*
+	 * Categories verified for note writes, dropped after every update or delete.
+	 */
+	private ReferenceCache referenceCache;
+
+	@Autowired
+	public CategoryServiceImpl(CategoryDAO categoryDAO, CollectionVersions collectionVersions,
+			NoteListCache noteListCache, SingleFlight singleFlight, ReferenceCache referenceCache) {
+		this.categoryDAO = categoryDAO;
+		this.collectionVersions = collectionVersions;
+		this.noteListCache = noteListCache;
+		this.singleFlight = singleFlight;
+		this.referenceCache = referenceCache;
+	}
+
 	/*
 	 * This method should be used to save a new category.
 	 */
@@ -39,8 +71,27 @@ public class CategoryServiceImpl implements CategoryService {
 
 	/* This method should be used to delete an existing category. */
 	public boolean deleteCategory(int categoryId) {
-		return categoryDAO.deleteCategory(categoryId);
+		boolean deleted = categoryDAO.deleteCategory(categoryId);
+		if (deleted) {
+			referenceCache.invalidateCategory(categoryId);
+			noteListCache.invalidateAll();
+		}
+		return deleted;
+
+	}
 
+	/*
+	 * This method should be used to delete an existing category of the given
+	 * user, whose collection version is bumped. The category is deleted by id and
+	 * owner without being loaded, so a category of another user is not found.
+	 */
+	public boolean deleteCategory(int categoryId, String userId) {
+		boolean deleted = categoryDAO.deleteCategory(categoryId, userId);
+		if (deleted) {
+			referenceCache.invalidateCategory(categoryId);
+			noteListCache.invalidate(userId);
+		}
+		return deleted;
 	}
 
 	/*
@@ -49,7 +100,11 @@ public class CategoryServiceImpl implements CategoryService {
 
 	public Category updateCategory(Category category, int id) throws CategoryNotFoundException {
 
-		categoryDAO.updateCategory(category);
+		if (!categoryDAO.updateCategory(category)) {
+			throw new CategoryNotFoundException("Given category id is not found --> " + id);
+		}
+		referenceCache.invalidateCategory(category.getCategoryId());
+		noteListCache.invalidate(category.getCategoryCreatedBy());
 
 		return getCategoryById(id);
 
@@ -71,8 +126,35 @@ public class CategoryServiceImpl implements CategoryService {
 	 */
 
 	public List<Category> getAllCategoryByUserId(String userId) {
-		return categoryDAO.getAllCategoryByUserId(userId);
+		String key = "categories:" + userId + ":" + collectionVersions.getVersion(userId);
+		return singleFlight.execute(key, () -> categoryDAO.getAllCategoryByUserId(userId));
+
+	}
+
+	/*
+	 * This method should be used to stream the categorys of a user one by one.
+	 */
+
+	public void streamCategoriesByUserId(String userId, Consumer<Category> consumer) {
+		categoryDAO.streamCategoriesByUserId(userId, consumer);
+	}
+
+	/*
+	 * This method should be used to get only the requested fields of all categorys of
+	 * a user. "fields" is a comma separated list of category field names.
+	 */
+
+	public List<Map<String, Object>> getAllCategoryByUserId(String userId, String fields) {
+		return categoryDAO.getCategoryFieldsByUserId(userId, SparseFields.parse(fields));
+	}
+
+	/*
+	 * This method should be used to get the ETag of the category listing of a
+	 * user.
+	 */
 
+	public String getCollectionVersion(String userId) {
+		return collectionVersions.getVersion(userId);
 	}
 
 }
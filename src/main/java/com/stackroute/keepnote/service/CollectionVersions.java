@@ -0,0 +1,33 @@
+package com.stackroute.keepnote.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.keepnote.dao.SyncDAO;
+
+/*
+ * Version of the notes, categories and reminders of every user, used as the ETag
+ * of the list endpoints. It is the change version the DAOs store in SYNC_STATE
+ * with every write, read with one primary-key lookup, so every server instance
+ * hands out the same ETag for the same data. The version is read before the
+ * listing query, so it never claims more than the query saw: a write committed
+ * in between costs one full response but can never produce a wrong 304.
+ */
+@Component
+public class CollectionVersions {
+
+	private SyncDAO syncDAO;
+
+	@Autowired
+	public CollectionVersions(SyncDAO syncDAO) {
+		this.syncDAO = syncDAO;
+	}
+
+	/*
+	 * The current version of the collections of the user, as an ETag value.
+	 */
+	public String getVersion(String userId) {
+		return Long.toString(syncDAO.getChangeVersion(userId), Character.MAX_RADIX);
+	}
+
+}
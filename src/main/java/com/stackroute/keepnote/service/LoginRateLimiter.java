@@ -0,0 +1,95 @@
+package com.stackroute.keepnote.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.stereotype.Component;
+
+/*
+ * Admission control of /login, applied before the user is looked up. Every client
+ * address and every user id has a token bucket; an attempt takes one token from
+ * the bucket of its address and one from the bucket of its user, and is rejected
+ * as soon as either is empty. Taking a token needs no lock and the number of
+ * buckets is bounded, see TokenBuckets.
+ *
+ * Rates are attempts per minute with a burst allowance, read from
+ * KEEPNOTE_LOGIN_USER_RATE, KEEPNOTE_LOGIN_USER_BURST, KEEPNOTE_LOGIN_ADDRESS_RATE
+ * and KEEPNOTE_LOGIN_ADDRESS_BURST. The limits are local to one server instance.
+ */
+@Component
+public class LoginRateLimiter {
+
+	public static final long DEFAULT_USER_RATE = 10;
+
+	public static final long DEFAULT_USER_BURST = 5;
+
+	public static final long DEFAULT_ADDRESS_RATE = 60;
+
+	public static final long DEFAULT_ADDRESS_BURST = 20;
+
+	private static final long MAX_BUCKETS = 200000;
+
+	private final TokenBuckets userBuckets;
+
+	private final TokenBuckets addressBuckets;
+
+	private final LongAdder admitted = new LongAdder();
+
+	private final LongAdder rejectedByUser = new LongAdder();
+
+	private final LongAdder rejectedByAddress = new LongAdder();
+
+	public LoginRateLimiter() {
+		this(setting("KEEPNOTE_LOGIN_USER_RATE", DEFAULT_USER_RATE),
+				setting("KEEPNOTE_LOGIN_USER_BURST", DEFAULT_USER_BURST),
+				setting("KEEPNOTE_LOGIN_ADDRESS_RATE", DEFAULT_ADDRESS_RATE),
+				setting("KEEPNOTE_LOGIN_ADDRESS_BURST", DEFAULT_ADDRESS_BURST), System::nanoTime);
+	}
+
+	public LoginRateLimiter(long userRate, long userBurst, long addressRate, long addressBurst,
+			LongSupplier nanoClock) {
+		this.userBuckets = new TokenBuckets(userRate, userBurst, MAX_BUCKETS, nanoClock);
+		this.addressBuckets = new TokenBuckets(addressRate, addressBurst, MAX_BUCKETS, nanoClock);
+	}
+
+	private static long setting(String name, long defaultValue) {
+		String value = System.getenv(name);
+		return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value);
+	}
+
+	/*
+	 * Take a token for a login attempt of the user from the address. Returns 0 when
+	 * the attempt is admitted, otherwise the number of seconds after which it may
+	 * be retried. A null user id or address is not limited on that key.
+	 */
+	public long admit(String userId, String address) {
+		long wait = addressBuckets.take(address, 1);
+		if (wait > 0) {
+			rejectedByAddress.increment();
+			return TokenBuckets.toRetryAfterSeconds(wait);
+		}
+		wait = userBuckets.take(userId, 1);
+		if (wait > 0) {
+			rejectedByUser.increment();
+			return TokenBuckets.toRetryAfterSeconds(wait);
+		}
+		admitted.increment();
+		return 0;
+	}
+
+	/*
+	 * Admitted and rejected attempts since startup and the number of buckets held.
+	 */
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> counters = new LinkedHashMap<String, Long>();
+		counters.put("admitted", admitted.sum());
+		counters.put("rejectedByUser", rejectedByUser.sum());
+		counters.put("rejectedByAddress", rejectedByAddress.sum());
+		counters.put("userBuckets", userBuckets.size());
+		counters.put("addressBuckets", addressBuckets.size());
+		return counters;
+	}
+
+}
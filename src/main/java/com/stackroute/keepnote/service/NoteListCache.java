@@ -0,0 +1,183 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * The complete note list of recently active users, as returned by
+ * NoteService.getAllNotesByUserId. Every list is stored with the collection
+ * version of its user it was loaded under, see CollectionVersions, and is only
+ * handed out for that same version. That version is stored with every write on
+ * any server instance, including writes to the categories and reminders
+ * embedded in the notes, so a list is never served after a write has committed
+ * anywhere. The services still drop the entry of a user after their own writes,
+ * which frees it right away, and entries expire a while after they were loaded.
+ *
+ * The version is read before the list is loaded, so a list may hold a write
+ * newer than its version but never misses one; such a list is reloaded once the
+ * newer version is read.
+ *
+ * Callers get their own copies of the notes and of the categories and reminders
+ * embedded in them, in a read-only list, so the cached notes cannot be changed
+ * through a list that was handed out.
+ *
+ * Eviction is Caffeine's W-TinyLFU, bounded by weight: every entry weighs one
+ * plus its number of notes, so the bound limits both the number of users and the
+ * number of notes held. Set KEEPNOTE_NOTE_LIST_CACHE=false to run without it.
+ */
+@Component
+public class NoteListCache {
+
+	public static final String NAME = "keepnote.noteLists";
+
+	private static final long MAX_WEIGHT = 200000;
+
+	private static final long EXPIRE_AFTER_WRITE_MINUTES = 10;
+
+	private final Cache<String, VersionedNotes> noteLists;
+
+	/*
+	 * Lookups which found a list of an older version. Caffeine counts them as
+	 * hits, the statistics report them as misses.
+	 */
+	private final LongAdder staleHits = new LongAdder();
+
+	private final LongAdder loads = new LongAdder();
+
+	public NoteListCache() {
+		this(!"false".equalsIgnoreCase(System.getenv("KEEPNOTE_NOTE_LIST_CACHE")), MAX_WEIGHT);
+	}
+
+	public NoteListCache(boolean enabled, long maxWeight) {
+		if (enabled) {
+			noteLists = Caffeine.newBuilder().maximumWeight(maxWeight)
+					.weigher((String userId, VersionedNotes entry) -> entry.notes.size() + 1)
+					.expireAfterWrite(EXPIRE_AFTER_WRITE_MINUTES, TimeUnit.MINUTES).recordStats().build();
+		} else {
+			noteLists = null;
+		}
+	}
+
+	/*
+	 * The note list of the user at the given collection version, loaded with the
+	 * given loader unless a list of that version is cached. The list is read-only
+	 * and its notes are copies.
+	 */
+	public List<Note> get(String userId, String version, Function<String, List<Note>> loader) {
+		if (noteLists == null || userId == null) {
+			return loader.apply(userId);
+		}
+		VersionedNotes cached = noteLists.getIfPresent(userId);
+		if (cached != null && !cached.version.equals(version)) {
+			staleHits.increment();
+			cached = null;
+		}
+		if (cached == null) {
+			cached = new VersionedNotes(version, loader.apply(userId));
+			loads.increment();
+			noteLists.put(userId, cached);
+		}
+		return copy(cached.notes);
+	}
+
+	/*
+	 * Drop the note list of the user. Called after a write has been committed.
+	 */
+	public void invalidate(String userId) {
+		if (noteLists != null && userId != null) {
+			noteLists.invalidate(userId);
+		}
+	}
+
+	/*
+	 * Drop every note list, for writes whose owner is not known.
+	 */
+	public void invalidateAll() {
+		if (noteLists != null) {
+			noteLists.invalidateAll();
+		}
+	}
+
+	/*
+	 * Hit, miss, put and eviction counters and the current number of users, in the
+	 * shape of the second-level cache counters. Empty when the cache is switched
+	 * off.
+	 */
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> counters = new LinkedHashMap<String, Long>();
+		if (noteLists == null) {
+			return counters;
+		}
+		CacheStats stats = noteLists.stats();
+		counters.put("hits", stats.hitCount() - staleHits.sum());
+		counters.put("misses", stats.missCount() + staleHits.sum());
+		counters.put("puts", loads.sum());
+		counters.put("evictions", stats.evictionCount());
+		counters.put("size", noteLists.estimatedSize());
+		return counters;
+	}
+
+	private static List<Note> copy(List<Note> notes) {
+		List<Note> copies = new ArrayList<Note>(notes.size());
+		for (Note note : notes) {
+			Note copy = new Note(note.getNoteId(), note.getNoteTitle(), note.getNoteContent(), note.getNoteStatus(),
+					note.getNoteCreatedAt(), copy(note.getCategory()), copy(note.getReminder()), note.getCreatedBy());
+			copy.setChangeVersion(note.getChangeVersion());
+			copies.add(copy);
+		}
+		return Collections.unmodifiableList(copies);
+	}
+
+	private static Category copy(Category category) {
+		if (category == null) {
+			return null;
+		}
+		Category copy = new Category(category.getCategoryId(), category.getCategoryName(),
+				category.getCategoryDescription(), category.getCategoryCreationDate(), category.getCategoryCreatedBy(),
+				null);
+		copy.setChangeVersion(category.getChangeVersion());
+		return copy;
+	}
+
+	private static Reminder copy(Reminder reminder) {
+		if (reminder == null) {
+			return null;
+		}
+		Reminder copy = new Reminder(reminder.getReminderId(), reminder.getReminderName(),
+				reminder.getReminderDescription(), reminder.getReminderType(), reminder.getReminderCreatedBy(), null,
+				reminder.getReminderCreationDate());
+		copy.setReminderDueDate(reminder.getReminderDueDate());
+		copy.setChangeVersion(reminder.getChangeVersion());
+		return copy;
+	}
+
+	private static final class VersionedNotes {
+
+		private final String version;
+
+		private final List<Note> notes;
+
+		private VersionedNotes(String version, List<Note> notes) {
+			this.version = version;
+			this.notes = notes;
+		}
+
+	}
+
+}
@@ -1,11 +1,16 @@
 package com.stackroute.keepnote.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteFieldsPage;
+import com.stackroute.keepnote.model.NotePage;
 
 public interface NoteService {
 	/*
@@ -16,10 +21,26 @@ public interface NoteService {
 
 	public boolean deleteNote(int noteId);
 
+	public boolean deleteNote(int noteId, String userId);
+
 	public List<Note> getAllNotesByUserId(String userId);
 
 	public Note getNoteById(int noteId) throws NoteNotFoundException;
 
 	public Note updateNote(Note note, int id)
 			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException;
+
+	public NotePage getNotesByUserId(String userId, String after, int limit);
+
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer);
+
+	public List<NoteBatchResult> createNotes(List<Note> notes);
+
+	public List<Map<String, Object>> getAllNotesByUserId(String userId, String fields);
+
+	public NoteFieldsPage getNotesByUserId(String userId, String after, int limit, String fields);
+
+	public String getCollectionVersion(String userId);
+
+	public List<Note> searchNotes(String userId, String query, int limit, int maxEdits);
 }
@@ -1,6 +1,14 @@
 package com.stackroute.keepnote.service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -8,12 +16,20 @@ import org.springframework.stereotype.Service;
 import com.stackroute.keepnote.dao.CategoryDAO;
 import com.stackroute.keepnote.dao.NoteDAO;
 import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.dao.SyncDAO;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteFieldsPage;
+import com.stackroute.keepnote.model.NotePage;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.Tombstone;
+import com.stackroute.keepnote.search.NoteChanges;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.NoteSource;
 
 /*
 * Service classes are used here to implement additional business logic/validation 
@@ -27,49 +43,162 @@ import com.stackroute.keepnote.model.Reminder;
 @Service
 public class NoteServiceImpl implements NoteService {
 
+	/*
+	 * Upper bound for the page size of a paginated note listing, whatever limit
+	 * the client asks for.
+	 */
+	public static final int MAX_PAGE_SIZE = 500;
+
 	/*
 	 * Autowiring should be implemented for the NoteDAO,CategoryDAO,ReminderDAO.
 	 * (Use Constructor-based autowiring) Please note that we should not create any
 	 * object using the new keyword.
 	 */
-	@Autowired
 	private NoteDAO noteDAO;
 
-	@Autowired
 	private CategoryDAO caegoryDao;
 
-	@Autowired
 	private ReminderDAO reminderDAO;
 
+	/*
+	 * Change versions and changed notes the search index catches up with.
+	 */
+	private SyncDAO syncDAO;
+
+	/*
+	 * Version of the collections of a user, see CollectionVersions.
+	 */
+	private CollectionVersions collectionVersions;
+
+	/*
+	 * Note lists of recently active users, invalidated after every write.
+	 */
+	private NoteListCache noteListCache;
+
+	/*
+	 * Coalesces concurrent listing reads of the same user, see SingleFlight.
+	 */
+	private SingleFlight singleFlight;
+
+	/*
+	 * Full-text index of the notes, see NoteSearchIndex.
+	 */
+	private NoteSearchIndex noteSearchIndex;
+
+	/*
+	 * Categories and reminders recently verified to exist, see ReferenceCache.
+	 */
+	private ReferenceCache referenceCache;
+
+	@Autowired
+	public NoteServiceImpl(NoteDAO noteDAO, CategoryDAO caegoryDao, ReminderDAO reminderDAO, SyncDAO syncDAO,
+			CollectionVersions collectionVersions, NoteListCache noteListCache, SingleFlight singleFlight,
+			NoteSearchIndex noteSearchIndex, ReferenceCache referenceCache) {
+		this.noteDAO = noteDAO;
+		this.caegoryDao = caegoryDao;
+		this.reminderDAO = reminderDAO;
+		this.syncDAO = syncDAO;
+		this.collectionVersions = collectionVersions;
+		this.noteListCache = noteListCache;
+		this.singleFlight = singleFlight;
+		this.noteSearchIndex = noteSearchIndex;
+		this.referenceCache = referenceCache;
+	}
+
 	/*
 	 * This method should be used to save a new note.
 	 */
 
 	public boolean createNote(Note note) throws ReminderNotFoundException, CategoryNotFoundException {
-		Reminder reminder = note.getReminder();
-		Category category = note.getCategory();
-		if (note.getReminder() != null) {
-			note.setReminder(reminderDAO.getReminderById(reminder.getReminderId()));
+		resolveReferences(note);
+		if (note.getNoteCreatedAt() == null) {
+			note.setNoteCreatedAt(new Date());
 		}
-		if (note.getCategory() != null) {
-			note.setCategory(caegoryDao.getCategoryById(category.getCategoryId()));
+		boolean created = noteDAO.createNote(note);
+		if (created) {
+			noteListCache.invalidate(note.getCreatedBy());
 		}
-		return noteDAO.createNote(note);
+		return created;
 
 	}
 
+	/*
+	 * This method should be used to save many notes at once, e.g. when a client
+	 * syncs offline edits. Notes whose category or reminder does not exist are
+	 * reported and skipped; all the others are saved together in one transaction.
+	 * If that transaction fails, every one of them is reported as failed.
+	 */
+
+	public List<NoteBatchResult> createNotes(List<Note> notes) {
+		List<NoteBatchResult> results = new ArrayList<NoteBatchResult>(notes.size());
+		List<Note> accepted = new ArrayList<Note>(notes.size());
+		List<NoteBatchResult> acceptedResults = new ArrayList<NoteBatchResult>(notes.size());
+		for (int index = 0; index < notes.size(); index++) {
+			Note note = notes.get(index);
+			try {
+				resolveReferences(note);
+			} catch (ReminderNotFoundException | CategoryNotFoundException e) {
+				results.add(new NoteBatchResult(index, note.getNoteId(), NoteBatchResult.REFERENCE_NOT_FOUND,
+						e.getMessage()));
+				continue;
+			}
+			if (note.getNoteCreatedAt() == null) {
+				note.setNoteCreatedAt(new Date());
+			}
+			NoteBatchResult result = new NoteBatchResult(index, note.getNoteId(), NoteBatchResult.CREATED, null);
+			accepted.add(note);
+			acceptedResults.add(result);
+			results.add(result);
+		}
+		if (!accepted.isEmpty()) {
+			try {
+				noteDAO.createNotes(accepted);
+				for (int i = 0; i < accepted.size(); i++) {
+					acceptedResults.get(i).setNoteId(accepted.get(i).getNoteId());
+					noteListCache.invalidate(accepted.get(i).getCreatedBy());
+				}
+			} catch (RuntimeException e) {
+				for (NoteBatchResult result : acceptedResults) {
+					result.setStatus(NoteBatchResult.FAILED);
+					result.setMessage("Batch could not be saved");
+				}
+			}
+		}
+		return results;
+	}
+
 	/* This method should be used to delete an existing note. */
 
 	public boolean deleteNote(int noteId) {
-		return noteDAO.deleteNote(noteId);
+		boolean deleted = noteDAO.deleteNote(noteId);
+		if (deleted) {
+			noteListCache.invalidateAll();
+		}
+		return deleted;
+
+	}
 
+	/*
+	 * This method should be used to delete an existing note of the given user,
+	 * whose collection version is bumped. The note is deleted by id and owner
+	 * without being loaded, so a note of another user is not found.
+	 */
+
+	public boolean deleteNote(int noteId, String userId) {
+		boolean deleted = noteDAO.deleteNote(noteId, userId);
+		if (deleted) {
+			noteListCache.invalidate(userId);
+		}
+		return deleted;
 	}
 	/*
 	 * This method should be used to get a note by userId.
 	 */
 
 	public List<Note> getAllNotesByUserId(String userId) {
-		return noteDAO.getAllNotesByUserId(userId);
+		String version = collectionVersions.getVersion(userId);
+		return noteListCache.get(userId, version,
+				id -> singleFlight.execute("notes:" + id + ":" + version, () -> noteDAO.getAllNotesByUserId(id)));
 
 	}
 
@@ -87,23 +216,245 @@ public class NoteServiceImpl implements NoteService {
 
 	public Note updateNote(Note note, int id)
 			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
-		Note note2 = getNoteById(id);
-		if (note2 != null) {
-			noteDAO.UpdateNote(note);
-		} else {
+		resolveReferences(note);
+		if (!noteDAO.UpdateNote(note)) {
 			throw new NoteNotFoundException("Note id and note is not matched");
 		}
-		Reminder reminder = note.getReminder();
-		Category category = note.getCategory();
+		noteListCache.invalidate(note.getCreatedBy());
+		return note;
+
+	}
+
+	/*
+	 * Replace the category and reminder sent by the client with the stored ones,
+	 * throwing the not-found exceptions when they do not exist or belong to another
+	 * user than the note. Only references not verified within the last few seconds
+	 * cost a lookup, see ReferenceCache.
+	 */
+	private void resolveReferences(Note note) throws ReminderNotFoundException, CategoryNotFoundException {
 		if (note.getReminder() != null) {
-			note.setReminder(reminderDAO.getReminderById(reminder.getReminderId()));
+			int reminderId = note.getReminder().getReminderId();
+			Reminder reminder = referenceCache.getReminder(reminderId);
+			if (reminder == null) {
+				reminder = reminderDAO.getReminderById(reminderId);
+				if (reminder != null) {
+					referenceCache.putReminder(reminder);
+				}
+			}
+			if (reminder != null && !Objects.equals(reminder.getReminderCreatedBy(), note.getCreatedBy())) {
+				throw new ReminderNotFoundException("Given reminder id data not found  --> " + reminderId);
+			}
+			note.setReminder(reminder);
 		}
 		if (note.getCategory() != null) {
-			note.setCategory(caegoryDao.getCategoryById(category.getCategoryId()));
+			int categoryId = note.getCategory().getCategoryId();
+			Category category = referenceCache.getCategory(categoryId);
+			if (category == null) {
+				category = caegoryDao.getCategoryById(categoryId);
+				if (category != null) {
+					referenceCache.putCategory(category);
+				}
+			}
+			if (category != null && !Objects.equals(category.getCategoryCreatedBy(), note.getCreatedBy())) {
+				throw new CategoryNotFoundException("Given category id is not found --> " + categoryId);
+			}
+			note.setCategory(category);
 		}
+	}
 
-		return note;
+	/*
+	 * This method should be used to get one page of the notes of a user. The
+	 * "after" cursor is the opaque value returned as nextCursor of the previous
+	 * page, null for the first page.
+	 */
+
+	public NotePage getNotesByUserId(String userId, String after, int limit) {
+		int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		Date afterCreatedAt = null;
+		Integer afterNoteId = null;
+		if (after != null && !after.isEmpty()) {
+			afterCreatedAt = cursorCreatedAt(after);
+			afterNoteId = cursorNoteId(after);
+		}
+		List<Note> notes = noteDAO.getNotesByUserId(userId, afterCreatedAt, afterNoteId, pageSize);
+		String nextCursor = null;
+		if (notes.size() == pageSize) {
+			Note last = notes.get(notes.size() - 1);
+			nextCursor = encodeCursor(last.getNoteCreatedAt(), last.getNoteId());
+		}
+		return new NotePage(notes, nextCursor);
+	}
+
+	/*
+	 * The cursor is the (noteCreatedAt, noteId) position of the last note of a page,
+	 * url-safe base64 encoded so that clients treat it as an opaque token. A note
+	 * without a creation date leaves the first part empty.
+	 */
+	private static String encodeCursor(Date createdAt, int noteId) {
+		String position = (createdAt == null ? "" : Long.toString(createdAt.getTime())) + ":" + noteId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Date cursorCreatedAt(String cursor) {
+		String createdAt = decodeCursor(cursor)[0];
+		if (createdAt.isEmpty()) {
+			return null;
+		}
+		try {
+			return new Date(Long.parseLong(createdAt));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed cursor --> " + cursor, e);
+		}
+	}
+
+	private static int cursorNoteId(String cursor) {
+		try {
+			return Integer.parseInt(decodeCursor(cursor)[1]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed cursor --> " + cursor, e);
+		}
+	}
+
+	private static String[] decodeCursor(String cursor) {
+		String[] position;
+		try {
+			position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", -1);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Malformed cursor --> " + cursor, e);
+		}
+		if (position.length != 2) {
+			throw new IllegalArgumentException("Malformed cursor --> " + cursor);
+		}
+		return position;
+	}
+
+	/*
+	 * This method should be used to stream the notes of a user one by one.
+	 */
+
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer) {
+		noteDAO.streamNotesByUserId(userId, consumer);
+	}
+
+	/*
+	 * This method should be used to get only the requested fields of all notes of
+	 * a user. "fields" is a comma separated list of note field names.
+	 */
+
+	public List<Map<String, Object>> getAllNotesByUserId(String userId, String fields) {
+		return noteDAO.getNoteFieldsByUserId(userId, SparseFields.parse(fields));
+	}
+
+	/*
+	 * This method should be used to get only the requested fields of one page of
+	 * the notes of a user. The position of the last note is always read so that the
+	 * next cursor can be built, but it is only returned when it was asked for.
+	 */
+
+	public NoteFieldsPage getNotesByUserId(String userId, String after, int limit, String fields) {
+		int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		List<String> requested = SparseFields.parse(fields);
+		List<String> selected = new ArrayList<String>(requested);
+		if (!selected.contains("noteCreatedAt")) {
+			selected.add("noteCreatedAt");
+		}
+		if (!selected.contains("noteId")) {
+			selected.add("noteId");
+		}
+		Date afterCreatedAt = null;
+		Integer afterNoteId = null;
+		if (after != null && !after.isEmpty()) {
+			afterCreatedAt = cursorCreatedAt(after);
+			afterNoteId = cursorNoteId(after);
+		}
+		List<Map<String, Object>> notes = noteDAO.getNoteFieldsByUserId(userId, selected, afterCreatedAt,
+				afterNoteId, pageSize);
+		String nextCursor = null;
+		if (notes.size() == pageSize) {
+			Map<String, Object> last = notes.get(notes.size() - 1);
+			nextCursor = encodeCursor((Date) last.get("noteCreatedAt"), (Integer) last.get("noteId"));
+		}
+		if (selected.size() > requested.size()) {
+			for (Map<String, Object> note : notes) {
+				note.keySet().retainAll(requested);
+			}
+		}
+		return new NoteFieldsPage(notes, nextCursor);
+	}
+
+	/*
+	 * This method should be used to get the ETag of the note listings of a user.
+	 */
+
+	public String getCollectionVersion(String userId) {
+		return collectionVersions.getVersion(userId);
+	}
+
+	/*
+	 * This method should be used to search the titles and contents of the notes of
+	 * a user. At most limit notes are returned, best match first; only the
+	 * matching notes are read from the database. Words misspelt by up to maxEdits
+	 * edits are matched as well, see NoteSearchIndex.MAX_EDITS. A limit below 1 or
+	 * above MAX_PAGE_SIZE is rejected with an IllegalArgumentException.
+	 */
+
+	public List<Note> searchNotes(String userId, String query, int limit, int maxEdits) {
+		if (limit < 1 || limit > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("Limit Must Be Between 1 And " + MAX_PAGE_SIZE);
+		}
+		int[] noteIds = noteSearchIndex.search(userId, query, limit, maxEdits, notesOf(userId));
+		List<Note> notes = new ArrayList<Note>(noteIds.length);
+		if (noteIds.length == 0) {
+			return notes;
+		}
+		List<Integer> ids = new ArrayList<Integer>(noteIds.length);
+		for (int noteId : noteIds) {
+			ids.add(noteId);
+		}
+		Map<Integer, Note> notesById = new HashMap<Integer, Note>();
+		for (Note note : noteDAO.getNotesByIds(userId, ids)) {
+			notesById.put(note.getNoteId(), note);
+		}
+		/* The query returns the notes in no particular order, keep the ranking. */
+		for (int noteId : noteIds) {
+			Note note = notesById.get(noteId);
+			if (note != null) {
+				notes.add(note);
+			}
+		}
+		return notes;
+	}
+
+	/*
+	 * The notes of the user in the database, as the search index reads them.
+	 */
+	private NoteSource notesOf(String userId) {
+		return new NoteSource() {
+
+			@Override
+			public long changeVersion() {
+				return syncDAO.getChangeVersion(userId);
+			}
+
+			@Override
+			public void notes(Consumer<Note> consumer) {
+				noteDAO.streamNotesByUserId(userId, consumer);
+			}
+
+			@Override
+			public void changes(long afterVersion, long upToVersion, NoteChanges changes) {
+				for (Note note : syncDAO.getNotesChangedBetween(userId, afterVersion, upToVersion)) {
+					changes.saved(note.getNoteId(), note.getChangeVersion(), note.getNoteTitle(),
+							note.getNoteContent());
+				}
+				for (Tombstone tombstone : syncDAO.getTombstonesBetween(userId, afterVersion, upToVersion)) {
+					if (Tombstone.NOTE.equals(tombstone.getEntityType())) {
+						changes.deleted(tombstone.getEntityId(), tombstone.getChangeVersion());
+					}
+				}
+			}
 
+		};
 	}
 
 }
@@ -0,0 +1,114 @@
+package com.stackroute.keepnote.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.springframework.stereotype.Component;
+
+/*
+ * Salted PBKDF2-HMAC-SHA256 hashing of user passwords. A hash is stored as
+ *
+ *   pbkdf2-sha256$<iterations>$<base64 salt>$<base64 hash>
+ *
+ * so that every hash carries its own cost. The cost of new hashes is read from
+ * KEEPNOTE_PASSWORD_ITERATIONS; hashes of another cost keep verifying and are
+ * reported by needsRehash so that they can be upgraded on the next login.
+ * Passwords stored before hashing was introduced are recognised by the missing
+ * prefix, verified as they are and upgraded the same way.
+ */
+@Component
+public class PasswordHasher {
+
+	public static final int DEFAULT_ITERATIONS = 310000;
+
+	private static final String PREFIX = "pbkdf2-sha256$";
+
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+	private static final int SALT_BYTES = 16;
+
+	private static final int HASH_BITS = 256;
+
+	private final int iterations;
+
+	private final SecureRandom random = new SecureRandom();
+
+	public PasswordHasher() {
+		this(iterationsFromEnvironment());
+	}
+
+	public PasswordHasher(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("Iterations must be positive --> " + iterations);
+		}
+		this.iterations = iterations;
+	}
+
+	private static int iterationsFromEnvironment() {
+		String iterations = System.getenv("KEEPNOTE_PASSWORD_ITERATIONS");
+		return iterations == null || iterations.isEmpty() ? DEFAULT_ITERATIONS : Integer.parseInt(iterations);
+	}
+
+	/*
+	 * A new salted hash of the password, at the configured cost.
+	 */
+	public String hash(String password) {
+		byte[] salt = new byte[SALT_BYTES];
+		random.nextBytes(salt);
+		Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+				+ encoder.encodeToString(pbkdf2(password, salt, iterations));
+	}
+
+	/*
+	 * Whether the password matches the stored hash, or the stored plain text
+	 * password of a user who has not logged in since hashing was introduced.
+	 */
+	public boolean verify(String password, String stored) {
+		if (password == null || stored == null) {
+			return false;
+		}
+		if (!stored.startsWith(PREFIX)) {
+			return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+					stored.getBytes(StandardCharsets.UTF_8));
+		}
+		String[] parts = stored.substring(PREFIX.length()).split("\\$");
+		if (parts.length != 3) {
+			return false;
+		}
+		try {
+			Base64.Decoder decoder = Base64.getDecoder();
+			byte[] expected = decoder.decode(parts[2]);
+			byte[] actual = pbkdf2(password, decoder.decode(parts[1]), Integer.parseInt(parts[0]));
+			return MessageDigest.isEqual(expected, actual);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Whether the stored password should be hashed again, because it is plain
+	 * text or was hashed at another cost.
+	 */
+	public boolean needsRehash(String stored) {
+		return stored == null || !stored.startsWith(PREFIX + iterations + "$");
+	}
+
+	private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.stackroute.keepnote.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * Categories and reminders a note refers to, recently verified to exist, keyed
+ * by id. A hit lets a note write skip the existence lookup; the owner of the
+ * entry is still checked against the owner of the note. Entries are detached
+ * entities and expire quickly. The category and reminder services drop an entry
+ * as soon as they delete or update it, so only a delete on another node is
+ * trusted for a few seconds; the foreign key on NOTE still rejects such a write.
+ */
+@Component
+public class ReferenceCache {
+
+	private static final long TTL_SECONDS = 10;
+
+	private static final long MAX_ENTRIES = 10000;
+
+	private final Cache<Integer, Category> categories = Caffeine.newBuilder()
+			.expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS).maximumSize(MAX_ENTRIES).build();
+
+	private final Cache<Integer, Reminder> reminders = Caffeine.newBuilder()
+			.expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS).maximumSize(MAX_ENTRIES).build();
+
+	/*
+	 * The verified category, or null when it has to be looked up.
+	 */
+	public Category getCategory(int categoryId) {
+		return categories.getIfPresent(categoryId);
+	}
+
+	public void putCategory(Category category) {
+		categories.put(category.getCategoryId(), category);
+	}
+
+	public void invalidateCategory(int categoryId) {
+		categories.invalidate(categoryId);
+	}
+
+	/*
+	 * The verified reminder, or null when it has to be looked up.
+	 */
+	public Reminder getReminder(int reminderId) {
+		return reminders.getIfPresent(reminderId);
+	}
+
+	public void putReminder(Reminder reminder) {
+		reminders.put(reminder.getReminderId(), reminder);
+	}
+
+	public void invalidateReminder(int reminderId) {
+		reminders.invalidate(reminderId);
+	}
+
+	/*
+	 * Drop every category and reminder of the user, after the user's data has been
+	 * deleted.
+	 */
+	public void invalidateUser(String userId) {
+		categories.asMap().values().removeIf(category -> userId.equals(category.getCategoryCreatedBy()));
+		reminders.asMap().values().removeIf(reminder -> userId.equals(reminder.getReminderCreatedBy()));
+	}
+
+}
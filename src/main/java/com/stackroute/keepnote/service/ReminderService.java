@@ -1,6 +1,8 @@
 package com.stackroute.keepnote.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
@@ -16,7 +18,18 @@ public interface ReminderService {
 
 	public boolean deleteReminder(int reminderId);
 
+	public boolean deleteReminder(int reminderId, String userId);
+
 	public Reminder getReminderById(int reminderId) throws ReminderNotFoundException;
 
+	public Reminder getReminderById(int reminderId, String userId) throws ReminderNotFoundException;
+
 	public List<Reminder> getAllReminderByUserId(String userId);
+
+	public void streamRemindersByUserId(String userId, Consumer<Reminder> consumer);
+
+	public List<Map<String, Object>> getAllReminderByUserId(String userId, String fields);
+
+	public String getCollectionVersion(String userId);
+
 }
@@ -1,13 +1,18 @@
 package com.stackroute.keepnote.service;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.stackroute.keepnote.dao.ReminderDAO;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.schedule.ReminderScheduler;
 
 /*
 * Service classes are used here to implement additional business logic/validation 
@@ -19,38 +24,117 @@ import com.stackroute.keepnote.model.Reminder;
 * future.
 * */
 @Service
-public class ReminderServiceImpl implements ReminderService {
+public class ReminderServiceImpl implements ReminderService, InitializingBean {
 
 	/*
 	 * Autowiring should be implemented for the ReminderDAO. (Use Constructor-based
 	 * autowiring) Please note that we should not create any object using the new
 	 * keyword.
 	 */
-	@Autowired
 	private ReminderDAO reminderDAO;
 
+	/*
+	 * Version of the collections of a user, see CollectionVersions.
+	 */
+	private CollectionVersions collectionVersions;
+
+	/*
+	 * The notes of a user embed their reminder, so their cached list is dropped
+	 * after every update or delete of a reminder.
+	 */
+	private NoteListCache noteListCache;
+
+	/*
+	 * Coalesces concurrent listing reads of the same user, see SingleFlight.
+	 */
+	private SingleFlight singleFlight;
+
+	/*
+	 * Fires the reminders at their due date; told about every reminder written.
+	 */
+	private ReminderScheduler reminderScheduler;
+
+	/*
+	 * Reminders verified for note writes, dropped after every update or delete.
+	 */
+	private ReferenceCache referenceCache;
+
+	@Autowired
+	public ReminderServiceImpl(ReminderDAO reminderDAO, CollectionVersions collectionVersions,
+			NoteListCache noteListCache, SingleFlight singleFlight, ReminderScheduler reminderScheduler,
+			ReferenceCache referenceCache) {
+		this.reminderDAO = reminderDAO;
+		this.collectionVersions = collectionVersions;
+		this.noteListCache = noteListCache;
+		this.singleFlight = singleFlight;
+		this.reminderScheduler = reminderScheduler;
+		this.referenceCache = referenceCache;
+	}
+
+	/*
+	 * Load the reminders still to come into the scheduler once the service is
+	 * wired.
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		reminderDAO.streamRemindersDueAfter(new Date(),
+				reminder -> reminderScheduler.schedule(reminder.getReminderId(), reminder.getReminderDueDate()));
+	}
+
 	/*
 	 * This method should be used to save a new reminder.
 	 */
 
 	public boolean createReminder(Reminder reminder) {
-		return reminderDAO.createReminder(reminder);
+		boolean created = reminderDAO.createReminder(reminder);
+		if (created) {
+			reminderScheduler.schedule(reminder.getReminderId(), reminder.getReminderDueDate());
+		}
+		return created;
 
 	}
 
 	/*
-	 * This method should be used to update a existing reminder.
+	 * This method should be used to update a existing reminder. The reminder is
+	 * rescheduled with the due date it has been stored with.
 	 */
 
 	public Reminder updateReminder(Reminder reminder, int id) throws ReminderNotFoundException {
-		reminderDAO.updateReminder(reminder);
-		return getReminderById(id);
+		if (!reminderDAO.updateReminder(reminder)) {
+			throw new ReminderNotFoundException("Given reminder id data not found  --> " + id);
+		}
+		referenceCache.invalidateReminder(reminder.getReminderId());
+		noteListCache.invalidate(reminder.getReminderCreatedBy());
+		Reminder updated = getReminderById(id);
+		reminderScheduler.schedule(updated.getReminderId(), updated.getReminderDueDate());
+		return updated;
 	}
 
 	/* This method should be used to delete an existing reminder. */
 
 	public boolean deleteReminder(int reminderId) {
-		return reminderDAO.deleteReminder(reminderId);
+		boolean deleted = reminderDAO.deleteReminder(reminderId);
+		if (deleted) {
+			referenceCache.invalidateReminder(reminderId);
+			noteListCache.invalidateAll();
+			reminderScheduler.cancel(reminderId);
+		}
+		return deleted;
+	}
+
+	/*
+	 * This method should be used to delete an existing reminder of the given
+	 * user, whose collection version is bumped. The reminder is deleted by id and
+	 * owner without being loaded, so a reminder of another user is not found.
+	 */
+	public boolean deleteReminder(int reminderId, String userId) {
+		boolean deleted = reminderDAO.deleteReminder(reminderId, userId);
+		if (deleted) {
+			referenceCache.invalidateReminder(reminderId);
+			noteListCache.invalidate(userId);
+			reminderScheduler.cancel(reminderId);
+		}
+		return deleted;
 	}
 
 	/*
@@ -62,12 +146,54 @@ public class ReminderServiceImpl implements ReminderService {
 
 	}
 
+	/*
+	 * This method should be used to get a reminder of the given user by
+	 * reminderId. A reminder of another user is not found.
+	 */
+
+	public Reminder getReminderById(int reminderId, String userId) throws ReminderNotFoundException {
+		Reminder reminder = reminderDAO.getReminderById(reminderId);
+		if (reminder == null || !userId.equals(reminder.getReminderCreatedBy())) {
+			throw new ReminderNotFoundException("Given reminder id data not found  --> " + reminderId);
+		}
+		return reminder;
+
+	}
+
 	/*
 	 * This method should be used to get a reminder by userId.
 	 */
 
 	public List<Reminder> getAllReminderByUserId(String userId) {
-		return reminderDAO.getAllReminderByUserId(userId);
+		String key = "reminders:" + userId + ":" + collectionVersions.getVersion(userId);
+		return singleFlight.execute(key, () -> reminderDAO.getAllReminderByUserId(userId));
+
+	}
+
+	/*
+	 * This method should be used to stream the reminders of a user one by one.
+	 */
+
+	public void streamRemindersByUserId(String userId, Consumer<Reminder> consumer) {
+		reminderDAO.streamRemindersByUserId(userId, consumer);
+	}
+
+	/*
+	 * This method should be used to get only the requested fields of all reminders of
+	 * a user. "fields" is a comma separated list of reminder field names.
+	 */
 
+	public List<Map<String, Object>> getAllReminderByUserId(String userId, String fields) {
+		return reminderDAO.getReminderFieldsByUserId(userId, SparseFields.parse(fields));
 	}
+
+	/*
+	 * This method should be used to get the ETag of the reminder listing of a
+	 * user.
+	 */
+
+	public String getCollectionVersion(String userId) {
+		return collectionVersions.getVersion(userId);
+	}
+
 }
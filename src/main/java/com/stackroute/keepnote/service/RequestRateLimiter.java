@@ -0,0 +1,112 @@
+package com.stackroute.keepnote.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.stereotype.Component;
+
+/*
+ * Fair share of the request threads per logged in user. A user may have at most
+ * a bounded number of requests in progress, and every request is paid for from
+ * the token bucket of the user, with a cost that reflects its weight. A request
+ * beyond either limit is rejected instead of waiting for a thread, so one busy
+ * client cannot starve the others.
+ *
+ * Only users with requests in progress have an entry in the in progress counts,
+ * and the buckets are bounded, see TokenBuckets, so memory does not grow with the
+ * number of users. The budget is read from KEEPNOTE_REQUEST_RATE (tokens per
+ * minute), KEEPNOTE_REQUEST_BURST and KEEPNOTE_REQUEST_CONCURRENCY.
+ */
+@Component
+public class RequestRateLimiter {
+
+	public static final long DEFAULT_RATE = 600;
+
+	public static final long DEFAULT_BURST = 120;
+
+	public static final int DEFAULT_CONCURRENCY = 8;
+
+	private static final long MAX_BUCKETS = 1000000;
+
+	private final TokenBuckets buckets;
+
+	private final int concurrency;
+
+	private final ConcurrentMap<String, Integer> inProgress = new ConcurrentHashMap<String, Integer>();
+
+	private final LongAdder admitted = new LongAdder();
+
+	private final LongAdder rejectedByRate = new LongAdder();
+
+	private final LongAdder rejectedByConcurrency = new LongAdder();
+
+	public RequestRateLimiter() {
+		this(setting("KEEPNOTE_REQUEST_RATE", DEFAULT_RATE), setting("KEEPNOTE_REQUEST_BURST", DEFAULT_BURST),
+				(int) setting("KEEPNOTE_REQUEST_CONCURRENCY", DEFAULT_CONCURRENCY), System::nanoTime);
+	}
+
+	public RequestRateLimiter(long rate, long burst, int concurrency, LongSupplier nanoClock) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be positive --> " + concurrency);
+		}
+		this.buckets = new TokenBuckets(rate, burst, MAX_BUCKETS, nanoClock);
+		this.concurrency = concurrency;
+	}
+
+	private static long setting(String name, long defaultValue) {
+		String value = System.getenv(name);
+		return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value);
+	}
+
+	/*
+	 * Admit a request of the user costing the given number of tokens. Returns 0
+	 * when it is admitted, in which case release must be called once it has
+	 * completed, otherwise the number of seconds after which it may be retried.
+	 */
+	public long acquire(String userId, int cost) {
+		boolean[] slot = new boolean[1];
+		inProgress.compute(userId, (id, count) -> {
+			int current = count == null ? 0 : count;
+			slot[0] = current < concurrency;
+			return slot[0] ? current + 1 : count;
+		});
+		if (!slot[0]) {
+			rejectedByConcurrency.increment();
+			return 1;
+		}
+		long wait = buckets.take(userId, cost);
+		if (wait > 0) {
+			release(userId);
+			rejectedByRate.increment();
+			return TokenBuckets.toRetryAfterSeconds(wait);
+		}
+		admitted.increment();
+		return 0;
+	}
+
+	/*
+	 * Give back the slot of an admitted request.
+	 */
+	public void release(String userId) {
+		inProgress.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+	}
+
+	/*
+	 * Admitted and rejected requests since startup, the number of users with
+	 * requests in progress and the number of buckets held.
+	 */
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> counters = new LinkedHashMap<String, Long>();
+		counters.put("admitted", admitted.sum());
+		counters.put("rejectedByRate", rejectedByRate.sum());
+		counters.put("rejectedByConcurrency", rejectedByConcurrency.sum());
+		counters.put("activeUsers", (long) inProgress.size());
+		counters.put("buckets", buckets.size());
+		return counters;
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.stackroute.keepnote.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/*
+ * Coalesces identical reads that run at the same time. The first caller for a key
+ * runs the read, every caller arriving while it is in flight waits for and shares
+ * its result, or its exception. Once the read has finished the key is forgotten,
+ * so nothing is cached beyond the duration of one read.
+ *
+ * The services include the collection version of the user in the key. Every
+ * committed write bumps that version, so a read issued after a write never joins
+ * a read that started before it. Writes themselves are never coalesced.
+ */
+@Component
+public class SingleFlight {
+
+	private final ConcurrentMap<String, CompletableFuture<Object>> inFlight =
+			new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
+	/*
+	 * Run the read, or wait for the one already running under the same key.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(String key, Supplier<T> read) {
+		CompletableFuture<Object> flight = new CompletableFuture<Object>();
+		CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+		if (leader != null) {
+			try {
+				return (T) leader.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw e;
+			}
+		}
+		try {
+			T result = read.get();
+			flight.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+}
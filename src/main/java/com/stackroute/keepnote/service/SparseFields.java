@@ -0,0 +1,30 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Parses the "fields" request parameter of the list endpoints, a comma separated
+ * list of field names such as "noteId,noteTitle,noteCreatedAt". Whether a name is
+ * an actual field is checked by the DAO, which owns the column mapping.
+ */
+final class SparseFields {
+
+	private SparseFields() {
+	}
+
+	static List<String> parse(String fields) {
+		List<String> names = new ArrayList<String>();
+		for (String name : fields.split(",")) {
+			name = name.trim();
+			if (!name.isEmpty() && !names.contains(name)) {
+				names.add(name);
+			}
+		}
+		if (names.isEmpty()) {
+			throw new IllegalArgumentException("No fields requested --> " + fields);
+		}
+		return names;
+	}
+
+}
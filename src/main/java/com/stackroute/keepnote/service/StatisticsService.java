@@ -0,0 +1,26 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Map;
+
+public interface StatisticsService {
+
+	/*
+	 * Hit, miss, put and eviction counters and the current size of every
+	 * second-level cache region and of the note list cache, keyed by region
+	 * name.
+	 */
+	public Map<String, Map<String, Long>> getCacheStatistics();
+
+	/*
+	 * Admitted and rejected login attempts and the number of rate limiting buckets
+	 * held.
+	 */
+	public Map<String, Long> getLoginStatistics();
+
+	/*
+	 * Admitted and rejected requests of logged in users, the number of users with
+	 * requests in progress and the number of rate limiting buckets held.
+	 */
+	public Map<String, Long> getRequestStatistics();
+
+}
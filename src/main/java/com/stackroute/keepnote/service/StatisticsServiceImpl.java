@@ -0,0 +1,76 @@
+package com.stackroute.keepnote.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+
+/*
+ * Collects the runtime counters of the caches used by the application. Hits,
+ * misses and puts come from the Hibernate statistics, evictions from the Ehcache
+ * region backing the second-level cache since Hibernate does not count them. The
+ * note list cache reports its own counters, under the name NoteListCache.NAME.
+ * The login and request counters are those of the LoginRateLimiter and the
+ * RequestRateLimiter.
+ */
+@Service
+public class StatisticsServiceImpl implements StatisticsService {
+
+	private SessionFactory sessionFactory;
+
+	private NoteListCache noteListCache;
+
+	private LoginRateLimiter loginRateLimiter;
+
+	private RequestRateLimiter requestRateLimiter;
+
+	@Autowired
+	public StatisticsServiceImpl(SessionFactory sessionFactory, NoteListCache noteListCache,
+			LoginRateLimiter loginRateLimiter, RequestRateLimiter requestRateLimiter) {
+		this.sessionFactory = sessionFactory;
+		this.noteListCache = noteListCache;
+		this.loginRateLimiter = loginRateLimiter;
+		this.requestRateLimiter = requestRateLimiter;
+	}
+
+	public Map<String, Map<String, Long>> getCacheStatistics() {
+		Statistics statistics = sessionFactory.getStatistics();
+		Map<String, Map<String, Long>> regions = new LinkedHashMap<String, Map<String, Long>>();
+		for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+			SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(regionName);
+			Map<String, Long> counters = new LinkedHashMap<String, Long>();
+			counters.put("hits", regionStatistics.getHitCount());
+			counters.put("misses", regionStatistics.getMissCount());
+			counters.put("puts", regionStatistics.getPutCount());
+			counters.put("evictions", getEvictionCount(regionName));
+			counters.put("size", regionStatistics.getElementCountInMemory());
+			regions.put(regionName, counters);
+		}
+		Map<String, Long> noteListCounters = noteListCache.getStatistics();
+		if (!noteListCounters.isEmpty()) {
+			regions.put(NoteListCache.NAME, noteListCounters);
+		}
+		return regions;
+	}
+
+	public Map<String, Long> getLoginStatistics() {
+		return loginRateLimiter.getStatistics();
+	}
+
+	public Map<String, Long> getRequestStatistics() {
+		return requestRateLimiter.getStatistics();
+	}
+
+	private long getEvictionCount(String regionName) {
+		Ehcache cache = CacheManager.getInstance().getEhcache(regionName);
+		return cache == null ? 0 : cache.getStatistics().cacheEvictedCount();
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.model.Suggestion;
+
+public interface SuggestionService {
+
+	/*
+	 * At most limit note titles and category names of the user completing the
+	 * prefix, most recently changed first.
+	 */
+	public List<Suggestion> getSuggestions(String userId, String prefix, int limit);
+
+}
@@ -0,0 +1,40 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.model.Suggestion;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Autocomplete of note titles and category names as the user types, answered
+ * from the in-memory SuggestionIndex. The database is only read to build the
+ * index of a user, on the first request after it was dropped.
+ */
+@Service
+public class SuggestionServiceImpl implements SuggestionService {
+
+	@Autowired
+	private NoteDAO noteDAO;
+
+	@Autowired
+	private CategoryDAO categoryDAO;
+
+	@Autowired
+	private SuggestionIndex suggestionIndex;
+
+	/*
+	 * This method should be used to get the suggestions for what the user has
+	 * typed so far. The limit is capped at SuggestionIndex.MAX_SUGGESTIONS.
+	 */
+	public List<Suggestion> getSuggestions(String userId, String prefix, int limit) {
+		return suggestionIndex.suggest(userId, prefix, Math.max(1, Math.min(limit, SuggestionIndex.MAX_SUGGESTIONS)),
+				consumer -> noteDAO.streamNotesByUserId(userId, consumer),
+				consumer -> categoryDAO.streamCategoriesByUserId(userId, consumer));
+	}
+
+}
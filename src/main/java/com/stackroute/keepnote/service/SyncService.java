@@ -0,0 +1,13 @@
+package com.stackroute.keepnote.service;
+
+import com.stackroute.keepnote.model.SyncChanges;
+
+public interface SyncService {
+
+	/*
+	 * Everything of the user which changed since the given token, null for a full
+	 * sync. A malformed token is rejected with an IllegalArgumentException.
+	 */
+	public SyncChanges getChangesSince(String userId, String since);
+
+}
@@ -0,0 +1,69 @@
+package com.stackroute.keepnote.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.dao.SyncDAO;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.SyncChanges;
+import com.stackroute.keepnote.model.Tombstone;
+
+/*
+ * Delta sync of the notes, categories and reminders of a user. The sync token is
+ * the change version of the user at the time of the previous sync. Only the rows
+ * with a version above it and up to the current one are returned, so a client
+ * that polls without anything having changed costs a single primary key lookup.
+ */
+@Service
+public class SyncServiceImpl implements SyncService {
+
+	@Autowired
+	private SyncDAO syncDAO;
+
+	/*
+	 * This method should be used to get the changes of a user since the given
+	 * token. A token newer than the current version of the user cannot come from
+	 * this server's history, so the client gets a full sync instead.
+	 */
+	public SyncChanges getChangesSince(String userId, String since) {
+		long afterVersion = since == null || since.isEmpty() ? 0 : decodeToken(since);
+		long currentVersion = syncDAO.getChangeVersion(userId);
+		if (afterVersion > currentVersion) {
+			afterVersion = 0;
+		}
+		String token = encodeToken(currentVersion);
+		if (afterVersion == currentVersion) {
+			return new SyncChanges(Collections.<Note>emptyList(), Collections.<Category>emptyList(),
+					Collections.<Reminder>emptyList(), Collections.<Tombstone>emptyList(), token);
+		}
+		return new SyncChanges(syncDAO.getNotesChangedBetween(userId, afterVersion, currentVersion),
+				syncDAO.getCategoriesChangedBetween(userId, afterVersion, currentVersion),
+				syncDAO.getRemindersChangedBetween(userId, afterVersion, currentVersion),
+				syncDAO.getTombstonesBetween(userId, afterVersion, currentVersion), token);
+	}
+
+	private static String encodeToken(long version) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(Long.toString(version).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static long decodeToken(String token) {
+		long version;
+		try {
+			version = Long.parseLong(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Malformed sync token --> " + token, e);
+		}
+		if (version < 0) {
+			throw new IllegalArgumentException("Malformed sync token --> " + token);
+		}
+		return version;
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.stackroute.keepnote.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * A token bucket per key, refilled at a rate of tokens per minute up to a burst.
+ *
+ * A bucket is a single AtomicLong holding the time at which it will be full again
+ * (the generic cell rate algorithm, which behaves like a token bucket), so taking
+ * tokens is one compare-and-set and needs no lock. Buckets idle long enough to
+ * have refilled are indistinguishable from new ones and expire; beyond maxKeys
+ * the least recently used are dropped, which only ever lets a client start over
+ * with a full bucket.
+ */
+public class TokenBuckets {
+
+	private final long interval;
+
+	private final long tolerance;
+
+	private final LongSupplier nanoClock;
+
+	private final Cache<String, AtomicLong> arrivals;
+
+	public TokenBuckets(long ratePerMinute, long burst, long maxKeys, LongSupplier nanoClock) {
+		if (ratePerMinute < 1 || burst < 1) {
+			throw new IllegalArgumentException("Rate and burst must be positive");
+		}
+		this.interval = TimeUnit.MINUTES.toNanos(1) / ratePerMinute;
+		this.tolerance = interval * (burst - 1);
+		this.nanoClock = nanoClock;
+		this.arrivals = Caffeine.newBuilder().expireAfterAccess(tolerance + interval, TimeUnit.NANOSECONDS)
+				.maximumSize(maxKeys).build();
+	}
+
+	/*
+	 * Take cost tokens from the bucket of the key. Returns 0 when they were taken,
+	 * otherwise the nanoseconds until enough are available; nothing is taken then.
+	 * A null key is not limited.
+	 */
+	public long take(String key, int cost) {
+		if (key == null) {
+			return 0;
+		}
+		long charge = interval * cost;
+		AtomicLong arrival = arrivals.get(key, k -> new AtomicLong(nanoClock.getAsLong()));
+		while (true) {
+			long current = arrival.get();
+			long now = nanoClock.getAsLong();
+			long next = current - now < 0 ? now : current;
+			long wait = next + charge - interval - now - tolerance;
+			if (wait > 0) {
+				return wait;
+			}
+			if (arrival.compareAndSet(current, next + charge)) {
+				return 0;
+			}
+		}
+	}
+
+	public long size() {
+		return arrivals.estimatedSize();
+	}
+
+	/*
+	 * Nanoseconds rounded up to whole seconds, at least 1, as sent in Retry-After.
+	 */
+	public static long toRetryAfterSeconds(long nanos) {
+		return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + TimeUnit.SECONDS.toNanos(1) - 1));
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.stackroute.keepnote.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * Issues and checks the signed login tokens of the stateless authentication mode,
+ * enabled with KEEPNOTE_AUTH_MODE=token. A token reads
+ *
+ *   base64url(userId) "." expiry in epoch seconds "." base64url(HMAC-SHA256)
+ *
+ * so it can be checked with the secret alone, without any database or session
+ * lookup. The secret is read from KEEPNOTE_TOKEN_SECRET and has to be the same on
+ * every node; without it a random secret is drawn at startup, which only suits a
+ * single node and invalidates all tokens on restart.
+ *
+ * Logged out tokens are kept in a local deny-list, keyed by their re-encoded
+ * signature, until they would have expired anyway. The deny-list is not shared
+ * between nodes, so a revoked token stays usable on the other nodes until it
+ * expires.
+ */
+@Component
+public class TokenService {
+
+	public static final String MODE_TOKEN = "token";
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	private static final long TOKEN_TTL_SECONDS = TimeUnit.HOURS.toSeconds(1);
+
+	private static final long MAX_REVOKED_TOKENS = 1000000;
+
+	private final boolean enabled;
+
+	private final SecretKeySpec secret;
+
+	private final long ttlSeconds;
+
+	private final Cache<String, Boolean> revokedSignatures;
+
+	private final ThreadLocal<Mac> macs;
+
+	public TokenService() {
+		this(MODE_TOKEN.equalsIgnoreCase(System.getenv("KEEPNOTE_AUTH_MODE")),
+				System.getenv("KEEPNOTE_TOKEN_SECRET"), TOKEN_TTL_SECONDS);
+	}
+
+	public TokenService(boolean enabled, String secret, long ttlSeconds) {
+		this.enabled = enabled;
+		this.ttlSeconds = ttlSeconds;
+		byte[] key;
+		if (secret == null || secret.isEmpty()) {
+			key = new byte[32];
+			new SecureRandom().nextBytes(key);
+		} else {
+			key = secret.getBytes(StandardCharsets.UTF_8);
+		}
+		this.secret = new SecretKeySpec(key, ALGORITHM);
+		this.revokedSignatures = Caffeine.newBuilder().expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.maximumSize(MAX_REVOKED_TOKENS).build();
+		this.macs = ThreadLocal.withInitial(this::newMac);
+	}
+
+	/*
+	 * Whether requests are authenticated by token instead of by HttpSession.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/*
+	 * A new token for the user, valid for the configured time from now.
+	 */
+	public String issueToken(String userId) {
+		long expiresAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + ttlSeconds;
+		String payload = encode(userId.getBytes(StandardCharsets.UTF_8)) + "." + expiresAt;
+		return payload + "." + encode(sign(payload));
+	}
+
+	/*
+	 * The user a token was issued for, or null when the token is malformed,
+	 * tampered with, expired or revoked.
+	 */
+	public String getUserId(String token) {
+		if (token == null) {
+			return null;
+		}
+		int userEnd = token.indexOf('.');
+		int expiryEnd = token.indexOf('.', userEnd + 1);
+		if (userEnd <= 0 || expiryEnd < 0 || token.indexOf('.', expiryEnd + 1) >= 0) {
+			return null;
+		}
+		try {
+			String payload = token.substring(0, expiryEnd);
+			byte[] signature = Base64.getUrlDecoder().decode(token.substring(expiryEnd + 1));
+			if (!MessageDigest.isEqual(sign(payload), signature)) {
+				return null;
+			}
+			long expiresAt = Long.parseLong(token.substring(userEnd + 1, expiryEnd));
+			if (expiresAt <= TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())) {
+				return null;
+			}
+			if (revokedSignatures.getIfPresent(encode(signature)) != null) {
+				return null;
+			}
+			return new String(Base64.getUrlDecoder().decode(token.substring(0, userEnd)), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * Reject the token from now on, e.g. on logout.
+	 */
+	public void revokeToken(String token) {
+		if (token == null) {
+			return;
+		}
+		try {
+			byte[] signature = Base64.getUrlDecoder().decode(token.substring(token.lastIndexOf('.') + 1));
+			revokedSignatures.put(encode(signature), Boolean.TRUE);
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+	}
+
+	private byte[] sign(String payload) {
+		return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Mac newMac() {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(secret);
+			return mac;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available", e);
+		}
+	}
+
+	private static String encode(byte[] bytes) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+}
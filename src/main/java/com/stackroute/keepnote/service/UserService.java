@@ -15,6 +15,8 @@ public interface UserService {
 
 	public boolean deleteUser(String UserId);
 
+	public boolean deleteUserAndData(String userId);
+
 	public boolean validateUser(String userName, String password) throws UserNotFoundException;
 
 	public User getUserById(String userId) throws UserNotFoundException;
@@ -1,12 +1,25 @@
 package com.stackroute.keepnote.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import com.stackroute.keepnote.dao.ReminderDAO;
 import com.stackroute.keepnote.dao.UserDAO;
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.schedule.ReminderScheduler;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
 
 /*
 * Service classes are used here to implement additional business logic/validation 
@@ -25,8 +38,73 @@ public class UserServiceImpl implements UserService {
 	 * autowiring) Please note that we should not create any object using the new
 	 * keyword.
 	 */
-	@Autowired
 	private UserDAO userDAO;
+
+	private static final long VERIFIED_TTL_SECONDS = 60;
+
+	private static final long MAX_VERIFIED_USERS = 100000;
+
+	/*
+	 * Rows removed per transaction when a user is deleted with all data, read from
+	 * KEEPNOTE_DELETE_CHUNK_SIZE. 0 removes everything in one transaction.
+	 */
+	private static final int DELETE_CHUNK_SIZE = deleteChunkSizeFromEnvironment();
+
+	/*
+	 * Hashes and verifies the passwords.
+	 */
+	private PasswordHasher passwordHasher;
+
+	/*
+	 * Dropped when a user is deleted with all data, see NoteListCache,
+	 * NoteSearchIndex, SuggestionIndex and ReferenceCache.
+	 */
+	private NoteListCache noteListCache;
+
+	private NoteSearchIndex noteSearchIndex;
+
+	private SuggestionIndex suggestionIndex;
+
+	private ReferenceCache referenceCache;
+
+	/*
+	 * The reminders of a user deleted with all data are no longer fired, see
+	 * ReminderScheduler.
+	 */
+	private ReminderDAO reminderDAO;
+
+	private ReminderScheduler reminderScheduler;
+
+	/*
+	 * Users whose password has been verified within the last minute, with a
+	 * SHA-256 digest of their stored hash and the password they logged in with.
+	 * A login repeating that password, e.g. after a reconnect, is accepted on the
+	 * digest instead of paying the full hash cost again. The digest covers the
+	 * stored hash, so it stops matching as soon as the password is changed.
+	 */
+	private final Cache<String, byte[]> verifiedCredentials = Caffeine.newBuilder()
+			.expireAfterWrite(VERIFIED_TTL_SECONDS, TimeUnit.SECONDS).maximumSize(MAX_VERIFIED_USERS).build();
+
+	/*
+	 * Hash verified when the user does not exist, so that an unknown user costs as
+	 * much time as a wrong password.
+	 */
+	private volatile String unknownUserHash;
+
+	@Autowired
+	public UserServiceImpl(UserDAO userDAO, PasswordHasher passwordHasher, NoteListCache noteListCache,
+			NoteSearchIndex noteSearchIndex, SuggestionIndex suggestionIndex, ReferenceCache referenceCache,
+			ReminderDAO reminderDAO, ReminderScheduler reminderScheduler) {
+		this.userDAO = userDAO;
+		this.passwordHasher = passwordHasher;
+		this.noteListCache = noteListCache;
+		this.noteSearchIndex = noteSearchIndex;
+		this.suggestionIndex = suggestionIndex;
+		this.referenceCache = referenceCache;
+		this.reminderDAO = reminderDAO;
+		this.reminderScheduler = reminderScheduler;
+	}
+
 	/*
 	 * This method should be used to save a new user.
 	 */
@@ -40,6 +118,7 @@ public class UserServiceImpl implements UserService {
 				throw new UserNotFoundException("");
 			}
 		} catch (UserNotFoundException e) {
+			user.setUserPassword(passwordHasher.hash(user.getUserPassword()));
 			return userDAO.registerUser(user);
 		}
 	}
@@ -49,6 +128,9 @@ public class UserServiceImpl implements UserService {
 	 */
 
 	public User updateUser(User user, String userId) throws Exception {
+		if (user.getUserPassword() != null) {
+			user.setUserPassword(passwordHasher.hash(user.getUserPassword()));
+		}
 		userDAO.updateUser(user);
 		return getUserById(userId);
 	}
@@ -67,16 +149,52 @@ public class UserServiceImpl implements UserService {
 	}
 
 	/*
-	 * This method should be used to validate a user using userId and password.
+	 * This method should be used to validate a user using userId and password. The
+	 * user is read by primary key and the password verified here against the
+	 * stored hash. A plain text or outdated hash is replaced after a successful
+	 * login.
 	 */
 
 	public boolean validateUser(String userId, String password) throws UserNotFoundException {
-		if (userDAO.validateUser(userId, password)) {
+		User user = userId == null ? null : userDAO.getUserById(userId);
+		if (user == null) {
+			passwordHasher.verify(String.valueOf(password), getUnknownUserHash());
+			throw new UserNotFoundException("User not found throwing from service class");
+		}
+		String stored = user.getUserPassword();
+		byte[] credential = credentialDigest(stored, password);
+		byte[] verified = verifiedCredentials.getIfPresent(userId);
+		if (verified != null && MessageDigest.isEqual(verified, credential)) {
 			return true;
-		} else {
+		}
+		if (!passwordHasher.verify(password, stored)) {
 			throw new UserNotFoundException("User not found throwing from service class");
 		}
+		if (passwordHasher.needsRehash(stored)) {
+			user.setUserPassword(passwordHasher.hash(password));
+			userDAO.updateUser(user);
+			credential = credentialDigest(user.getUserPassword(), password);
+		}
+		verifiedCredentials.put(userId, credential);
+		return true;
+	}
 
+	private String getUnknownUserHash() {
+		if (unknownUserHash == null) {
+			unknownUserHash = passwordHasher.hash("");
+		}
+		return unknownUserHash;
+	}
+
+	private static byte[] credentialDigest(String stored, String password) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(String.valueOf(stored).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			return digest.digest(String.valueOf(password).getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
 	}
 
 	/* This method should be used to delete an existing user. */
@@ -85,4 +203,50 @@ public class UserServiceImpl implements UserService {
 
 	}
 
+	/*
+	 * This method should be used to delete an existing user together with all
+	 * notes, categories and reminders of the user, in chunks of the configured
+	 * size.
+	 */
+	public boolean deleteUserAndData(String userId) {
+		return deleteUserAndData(userId, DELETE_CHUNK_SIZE);
+	}
+
+	/*
+	 * Delete the user with all data, chunkSize rows per transaction before the
+	 * user itself is removed, or everything in one transaction when chunkSize is
+	 * 0. An interrupted chunked delete leaves the user in place and can be
+	 * repeated.
+	 */
+	public boolean deleteUserAndData(String userId, int chunkSize) {
+		List<Integer> reminderIds = reminderDAO.getReminderIdsByUserId(userId);
+		try {
+			if (chunkSize > 0) {
+				while (userDAO.deleteUserDataChunk(userId, chunkSize) > 0) {
+					noteListCache.invalidate(userId);
+					noteSearchIndex.invalidate(userId);
+					suggestionIndex.invalidate(userId);
+				}
+			}
+			boolean deleted = userDAO.deleteUserAndData(userId);
+			if (deleted) {
+				for (int reminderId : reminderIds) {
+					reminderScheduler.cancel(reminderId);
+				}
+			}
+			return deleted;
+		} finally {
+			verifiedCredentials.invalidate(userId);
+			noteListCache.invalidate(userId);
+			noteSearchIndex.invalidate(userId);
+			suggestionIndex.invalidate(userId);
+			referenceCache.invalidateUser(userId);
+		}
+	}
+
+	private static int deleteChunkSizeFromEnvironment() {
+		String chunkSize = System.getenv("KEEPNOTE_DELETE_CHUNK_SIZE");
+		return chunkSize == null || chunkSize.isEmpty() ? 0 : Integer.parseInt(chunkSize);
+	}
+
 }
@@ -0,0 +1,162 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.method.HandlerMethod;
+
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.filter.TokenAuthenticationFilter;
+import com.stackroute.keepnote.service.TokenService;
+
+/*
+ * Authentication cost per request of a user among the given number of active
+ * users, and the heap those users take, in the token mode and the session mode.
+ * Every request passes the TokenAuthenticationFilter and the
+ * AuthenticationInterceptor of a handler requiring the logged in user. In token
+ * mode it carries a bearer token, checked against its signature; in session mode
+ * the filter passes it through and its session is looked up by id, as the
+ * servlet container does with the session cookie, among one session per user.
+ *
+ * The setup prints the heap retained per user: the sessions with their
+ * attributes in session mode, the deny-list after one in a hundred users logged
+ * out in token mode. MockHttpSession is leaner than the session of a servlet
+ * container, so the session figure is a lower bound.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class AuthenticationBenchmark {
+
+	private static final int REQUESTS = 1 << 16;
+
+	@Param({ "token", "session" })
+	public String mode;
+
+	@Param("100000")
+	public int users;
+
+	private TokenAuthenticationFilter filter;
+
+	private AuthenticationInterceptor interceptor;
+
+	private HandlerMethod handler;
+
+	private String[] tokens;
+
+	private Map<String, MockHttpSession> sessions;
+
+	private String[] sessionIds;
+
+	private int[] requestUsers;
+
+	private int next;
+
+	@Setup
+	public void setUp() throws NoSuchMethodException {
+		boolean token = TokenService.MODE_TOKEN.equals(mode);
+		TokenService tokenService = new TokenService(token, "benchmark-secret", TimeUnit.HOURS.toSeconds(1));
+		filter = new TokenAuthenticationFilter(tokenService);
+		interceptor = new AuthenticationInterceptor();
+		handler = new HandlerMethod(new Handler(), Handler.class.getMethod("list", String.class));
+		long before = usedHeap();
+		if (token) {
+			tokens = new String[users];
+			for (int i = 0; i < users; i++) {
+				tokens[i] = tokenService.issueToken("user" + i);
+			}
+			before = usedHeap();
+			for (int i = 0; i < users; i += 100) {
+				tokenService.revokeToken(tokens[i]);
+			}
+		} else {
+			sessions = new ConcurrentHashMap<String, MockHttpSession>();
+			sessionIds = new String[users];
+			for (int i = 0; i < users; i++) {
+				MockHttpSession session = new MockHttpSession();
+				session.setAttribute("loggedInUserId", "user" + i);
+				sessionIds[i] = session.getId();
+				sessions.put(session.getId(), session);
+			}
+		}
+		long bytes = usedHeap() - before;
+		System.out.printf("%n%s mode: %d KB for %d users, %d bytes per user%n", mode, bytes >> 10, users,
+				bytes / users);
+		requestUsers = new int[REQUESTS];
+		Random random = new Random(1);
+		for (int i = 0; i < REQUESTS; i++) {
+			requestUsers[i] = random.nextInt(users);
+		}
+	}
+
+	@Benchmark
+	public Object authenticate() throws Exception {
+		int user = requestUsers[next++ & (REQUESTS - 1)];
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/note");
+		if (tokens != null) {
+			if (user % 100 == 0) {
+				user++;
+			}
+			request.addHeader("Authorization", "Bearer " + tokens[user]);
+		} else {
+			request.setSession(sessions.get(sessionIds[user]));
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain chain = (filtered, filteredResponse) -> {
+			try {
+				interceptor.preHandle((HttpServletRequest) filtered, response, handler);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		};
+		filter.doFilter(request, response, chain);
+		Object principal = request.getAttribute(AuthenticationInterceptor.PRINCIPAL);
+		if (principal == null) {
+			throw new IllegalStateException("Request of user" + user + " was not authenticated");
+		}
+		return principal;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/*
+	 * A handler asking for the logged in user, as those of the controllers do.
+	 */
+	public static class Handler {
+
+		public String list(@RequestAttribute(AuthenticationInterceptor.PRINCIPAL) String userId) {
+			return userId;
+		}
+
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Properties;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.hibernate5.HibernateTransactionManager;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+
+/*
+ * An in-memory H2 database in MySQL mode with a SessionFactory over the entities
+ * of the model package, set up as ApplicationContextConfig sets up the one over
+ * MySQL, for the benchmarks of the DAOs. Transactions are run through Spring as
+ * in the application, so that the DAOs find the current session. Statements to
+ * H2 in the same JVM cost no network round trip, which flatters the variants
+ * sending more of them; against MySQL every one of them adds one.
+ *
+ * The benchmarks using it are forked with QUIET_LOGGING, as logback.xml would
+ * log every statement at debug level.
+ */
+final class BenchmarkDatabase {
+
+	static final String QUIET_LOGGING = "-Dlogback.configurationFile=src/test/resources/logback-quiet.xml";
+
+	private final BasicDataSource dataSource;
+
+	private final SessionFactory sessionFactory;
+
+	private final TransactionTemplate transactions;
+
+	BenchmarkDatabase(String name, boolean secondLevelCache, Class<?>... entities) {
+		dataSource = new BasicDataSource();
+		dataSource.setDriverClassName("org.h2.Driver");
+		dataSource.setUrl("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+		dataSource.setUsername("sa");
+		dataSource.setPassword("");
+		Properties properties = new Properties();
+		properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+		properties.put("hibernate.hbm2ddl.auto", "create");
+		properties.put("hibernate.jdbc.batch_size", String.valueOf(ApplicationContextConfig.JDBC_BATCH_SIZE));
+		properties.put("hibernate.order_inserts", "true");
+		properties.put("hibernate.order_updates", "true");
+		properties.put("hibernate.cache.use_second_level_cache", String.valueOf(secondLevelCache));
+		properties.put("hibernate.cache.region.factory_class",
+				"org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+		properties.put("net.sf.ehcache.configurationResourceName", "/ehcache.xml");
+		properties.put("hibernate.generate_statistics", "true");
+		LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
+		builder.scanPackages("com.stackroute.keepnote.model");
+		builder.addAnnotatedClasses(entities);
+		builder.addProperties(properties);
+		sessionFactory = builder.buildSessionFactory();
+		transactions = new TransactionTemplate(new HibernateTransactionManager(sessionFactory));
+	}
+
+	SessionFactory sessionFactory() {
+		return sessionFactory;
+	}
+
+	TransactionTemplate transactions() {
+		return transactions;
+	}
+
+	JdbcTemplate jdbc() {
+		return new JdbcTemplate(dataSource);
+	}
+
+	/*
+	 * Inserts notes with the ids from firstId on, created by userId, in a single
+	 * statement rather than through Hibernate, to set up large tables quickly.
+	 */
+	void insertNotes(String userId, int firstId, int notes) {
+		jdbc().update("insert into NOTE (note_id, note_title, note_content, note_status, note_creation_date, "
+				+ "note_creator, note_change_version) select x, concat('Note ', x), "
+				+ "concat('Content of note ', x), 'Active', dateadd('SECOND', x, timestamp '2020-01-01 00:00:00'), ?, x "
+				+ "from system_range(?, ?)", userId, firstId, firstId + notes - 1);
+	}
+
+	void close() throws Exception {
+		sessionFactory.close();
+		jdbc().execute("shutdown");
+		dataSource.close();
+	}
+
+}
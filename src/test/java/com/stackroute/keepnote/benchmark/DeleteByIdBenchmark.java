@@ -0,0 +1,128 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.CategoryDAOImpl;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.dao.ReminderDAOImpl;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Deletes per second of notes, categories and reminders, one transaction per
+ * delete as a DELETE request makes it. "load" is the delete by id alone, e.g.
+ * NoteDAO.deleteNote(int), which reads the entity before deleting it; "direct"
+ * is the delete by id and owner, e.g. NoteDAO.deleteNote(int, String), a single
+ * DELETE whose row count tells whether it was found. Every invocation deletes
+ * the ROWS rows inserted before it. The teardown prints the JDBC statements
+ * prepared per delete, the tombstone each delete records included.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OperationsPerInvocation(DeleteByIdBenchmark.ROWS)
+public class DeleteByIdBenchmark {
+
+	static final int ROWS = 1000;
+
+	private static final String USER = "Jhon123";
+
+	@Param({ "note", "category", "reminder" })
+	public String entity;
+
+	@Param({ "load", "direct" })
+	public String path;
+
+	private BenchmarkDatabase database;
+
+	private NoteDAO noteDAO;
+
+	private long deletes;
+
+	private CategoryDAO categoryDAO;
+
+	private ReminderDAO reminderDAO;
+
+	@Setup
+	public void setUp() {
+		database = new BenchmarkDatabase("deletes", false);
+		SuggestionIndex suggestionIndex = new SuggestionIndex();
+		noteDAO = new NoteDAOImpl(database.sessionFactory(),
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), suggestionIndex);
+		categoryDAO = new CategoryDAOImpl(database.sessionFactory(), suggestionIndex);
+		reminderDAO = new ReminderDAOImpl(database.sessionFactory());
+		database.sessionFactory().getStatistics().clear();
+	}
+
+	@Setup(Level.Invocation)
+	public void insertRows() {
+		database.jdbc().update("delete from TOMBSTONE");
+		switch (entity) {
+		case "note":
+			database.insertNotes(USER, 1, ROWS);
+			break;
+		case "category":
+			database.jdbc().update("insert into CATEGORY (category_id, category_name, category_desc, "
+					+ "category_creation_date, category_creator, category_change_version) select x, "
+					+ "concat('Category ', x), 'Deleted again', current_timestamp, ?, x from system_range(1, ?)",
+					USER, ROWS);
+			break;
+		default:
+			database.jdbc().update("insert into REMINDER (reminder_id, reminder_name, reminder_desc, reminder_type, "
+					+ "reminder_creation_date, reminder_creator, reminder_change_version) select x, "
+					+ "concat('Reminder ', x), 'Deleted again', 'Email', current_timestamp, ?, x "
+					+ "from system_range(1, ?)", USER, ROWS);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		System.out.printf("%n%s %s: %.1f statements prepared per delete%n", path, entity,
+				(double) database.sessionFactory().getStatistics().getPrepareStatementCount() / deletes);
+		database.close();
+	}
+
+	@Benchmark
+	public void delete() {
+		boolean direct = "direct".equals(path);
+		for (int i = 1; i <= ROWS; i++) {
+			int id = i;
+			boolean deleted = database.transactions().execute(status -> {
+				switch (entity) {
+				case "note":
+					return direct ? noteDAO.deleteNote(id, USER) : noteDAO.deleteNote(id);
+				case "category":
+					return direct ? categoryDAO.deleteCategory(id, USER) : categoryDAO.deleteCategory(id);
+				default:
+					return direct ? reminderDAO.deleteReminder(id, USER) : reminderDAO.deleteReminder(id);
+				}
+			});
+			if (!deleted) {
+				throw new IllegalStateException(entity + " " + id + " was not deleted");
+			}
+		}
+		deletes += ROWS;
+	}
+
+}
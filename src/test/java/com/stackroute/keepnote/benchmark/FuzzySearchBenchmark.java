@@ -0,0 +1,78 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.search.InvertedIndex;
+
+/*
+ * Latency percentiles of typo-tolerant search as the vocabulary of the index
+ * grows, which is what the expansion of every query term into its fuzzy
+ * candidates walks. Every word of the vocabulary is indexed, in notes of a
+ * dozen words each. With maxEdits 0 the queries are spelled correctly, as the
+ * baseline of an exact search; otherwise one character of every query word is
+ * replaced.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class FuzzySearchBenchmark {
+
+	private static final int QUERIES = 1024;
+
+	private static final int WORDS_PER_NOTE = 12;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int vocabulary;
+
+	@Param({ "0", "1", "2" })
+	public int maxEdits;
+
+	private InvertedIndex index;
+
+	private String[] queries;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		NoteCorpus corpus = new NoteCorpus(vocabulary, 1);
+		String[] words = corpus.vocabulary();
+		index = new InvertedIndex();
+		StringBuilder text = new StringBuilder();
+		int noteId = 0;
+		for (int i = 0; i < words.length; i++) {
+			text.append(words[i]).append(' ');
+			if ((i + 1) % WORDS_PER_NOTE == 0 || i == words.length - 1) {
+				index.add(++noteId, 1, text.toString());
+				text.setLength(0);
+			}
+		}
+		queries = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			String word = corpus.word();
+			queries[i] = maxEdits == 0 ? word : corpus.misspell(word);
+		}
+		System.out.printf("%nindex of %d notes, %d terms%n", index.size(), index.terms());
+	}
+
+	@Benchmark
+	public int[] search() {
+		return index.search(queries[next++ & (QUERIES - 1)], 10, maxEdits);
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Inserts per second of notes created in transactions of the given number of
+ * notes, with JDBC batching on as in ApplicationContextConfig. "table" persists
+ * Note, whose ids come from the pooled table generator of IdGenerators, so the
+ * inserts go out as batches; "identity" persists IdentityNote, with the same
+ * columns and an IDENTITY id, which Hibernate has to insert one by one as it
+ * persists them to learn their ids. The teardown prints the JDBC statements
+ * prepared per note: one per note with IDENTITY, one per transaction with the
+ * table generator. As H2 runs in the same JVM the round trips saved by batching
+ * do not show in the throughput here, see BenchmarkDatabase.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OperationsPerInvocation(IdGeneratorBenchmark.NOTES)
+public class IdGeneratorBenchmark {
+
+	static final int NOTES = 1000;
+
+	@Param({ "table", "identity" })
+	public String generator;
+
+	private BenchmarkDatabase database;
+
+	private long notes;
+
+	@Setup
+	public void setUp() {
+		database = new BenchmarkDatabase("ids", false, IdentityNote.class);
+		database.sessionFactory().getStatistics().clear();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		System.out.printf("%n%s: %.3f statements prepared per note%n", generator,
+				(double) database.sessionFactory().getStatistics().getPrepareStatementCount() / notes);
+		database.close();
+	}
+
+	@Benchmark
+	public void insert() {
+		boolean table = "table".equals(generator);
+		database.transactions().execute(status -> {
+			Session session = database.sessionFactory().getCurrentSession();
+			Date now = new Date();
+			for (int i = 0; i < NOTES; i++) {
+				if (table) {
+					session.persist(new Note(0, "Title " + i, "Content " + i, "Active", now, null, null, "Jhon123"));
+				} else {
+					session.persist(new IdentityNote("Title " + i, "Content " + i, "Active", now, "Jhon123"));
+				}
+			}
+			return null;
+		});
+		notes += NOTES;
+	}
+
+}
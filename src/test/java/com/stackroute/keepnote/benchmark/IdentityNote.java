@@ -0,0 +1,53 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/*
+ * The columns of Note, with the id generated by an IDENTITY column as it was
+ * before the table generator, for IdGeneratorBenchmark only.
+ */
+@Entity
+@Table(name = "IDENTITY_NOTE")
+public class IdentityNote {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "note_id")
+	private int noteId;
+	@Column(name = "note_title")
+	private String noteTitle;
+	@Column(name = "note_content")
+	private String noteContent;
+	@Column(name = "note_status")
+	private String noteStatus;
+	@Column(name = "note_creation_date")
+	private Date noteCreatedAt;
+	@Column(name = "note_creator")
+	private String createdBy;
+	@Column(name = "note_change_version")
+	private long changeVersion;
+
+	public IdentityNote() {
+	}
+
+	public IdentityNote(String noteTitle, String noteContent, String noteStatus, Date noteCreatedAt,
+			String createdBy) {
+		this.noteTitle = noteTitle;
+		this.noteContent = noteContent;
+		this.noteStatus = noteStatus;
+		this.noteCreatedAt = noteCreatedAt;
+		this.createdBy = createdBy;
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+}
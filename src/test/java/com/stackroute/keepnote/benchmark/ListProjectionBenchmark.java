@@ -0,0 +1,76 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Latency percentiles of listing all notes of a user with the given number of
+ * notes. "projection" is NoteDAO.getAllNotesByUserId, which selects the columns
+ * into detached notes; "managed" is the listing as it was, the notes and their
+ * references loaded as entities into the session, snapshotted and dirty checked
+ * when the transaction flushes. Run with -prof gc for the allocation per listing,
+ * gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ListProjectionBenchmark {
+
+	private static final String USER = "Jhon123";
+
+	@Param({ "100", "1000" })
+	public int notes;
+
+	private BenchmarkDatabase database;
+
+	private NoteDAO noteDAO;
+
+	@Setup
+	public void setUp() {
+		database = new BenchmarkDatabase("listings", false);
+		noteDAO = new NoteDAOImpl(database.sessionFactory(),
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex());
+		database.insertNotes(USER, 1, notes);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		database.close();
+	}
+
+	@Benchmark
+	public List<Note> projection() {
+		return database.transactions().execute(status -> noteDAO.getAllNotesByUserId(USER));
+	}
+
+	@Benchmark
+	public List<Note> managed() {
+		return database.transactions().execute(status -> database.sessionFactory().getCurrentSession()
+				.createQuery("select n from Note n left join fetch n.category left join fetch n.reminder "
+						+ "where n.createdBy = :userId", Note.class)
+				.setParameter("userId", USER).getResultList());
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.service.LoginRateLimiter;
+
+/*
+ * Login latency percentiles of legitimate users while a credential stuffing
+ * attack runs, with the LoginRateLimiter in front of the login and without it.
+ * Two threads log in as ever other users from ever other addresses, sixteen
+ * threads try ever other user ids with a wrong password from one address, each
+ * attempt taking ATTEMPT_MICROS of its request thread to arrive. A login that is
+ * admitted holds one of eight connections, the size of the DBCP pool, for
+ * VALIDATE_MICROS while its user is looked up and its password verified.
+ * Without the limiter the attack holds the connections and the legitimate
+ * logins queue for them. Both are waits rather than work, so that the result
+ * does not depend on the number of cores. The teardown prints the admitted and
+ * rejected logins of both kinds.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class LoginAttackBenchmark {
+
+	private static final long ATTEMPT_MICROS = 200;
+
+	private static final long VALIDATE_MICROS = 2000;
+
+	private static final int POOL_SIZE = 8;
+
+	private static final int LEGITIMATE_USERS = 1 << 16;
+
+	private static final String ATTACKER_ADDRESS = "203.0.113.7";
+
+	@Param({ "true", "false" })
+	public boolean limited;
+
+	private LoginRateLimiter limiter;
+
+	private Semaphore pool;
+
+	private final AtomicInteger nextLegitimate = new AtomicInteger();
+
+	private final AtomicInteger nextAttempt = new AtomicInteger();
+
+	private final LongAdder legitimateRejected = new LongAdder();
+
+	private final LongAdder legitimateAdmitted = new LongAdder();
+
+	private final LongAdder attacksRejected = new LongAdder();
+
+	private final LongAdder attacksAdmitted = new LongAdder();
+
+	@Setup
+	public void setUp() {
+		limiter = new LoginRateLimiter();
+		pool = new Semaphore(POOL_SIZE, true);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%nlimited %s: legitimate %d admitted, %d rejected; attack %d admitted, %d rejected%n",
+				limited, legitimateAdmitted.sum(), legitimateRejected.sum(), attacksAdmitted.sum(),
+				attacksRejected.sum());
+	}
+
+	@Benchmark
+	@Group("login")
+	@GroupThreads(2)
+	public boolean legitimate() throws InterruptedException {
+		int user = nextLegitimate.getAndIncrement() & (LEGITIMATE_USERS - 1);
+		boolean admitted = login("user" + user, "10." + (user >> 8) + "." + (user & 255) + ".1");
+		(admitted ? legitimateAdmitted : legitimateRejected).increment();
+		return admitted;
+	}
+
+	@Benchmark
+	@Group("login")
+	@GroupThreads(16)
+	public boolean attack() throws InterruptedException {
+		LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(ATTEMPT_MICROS));
+		boolean admitted = login("victim" + nextAttempt.getAndIncrement(), ATTACKER_ADDRESS);
+		(admitted ? attacksAdmitted : attacksRejected).increment();
+		return admitted;
+	}
+
+	/*
+	 * Whether the login was admitted, as UserAuthenticationController.login admits
+	 * it before the user is validated.
+	 */
+	private boolean login(String userId, String address) throws InterruptedException {
+		if (limited && limiter.admit(userId, address) > 0) {
+			return false;
+		}
+		pool.acquire();
+		try {
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(VALIDATE_MICROS));
+		} finally {
+			pool.release();
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.dao.UserDAO;
+import com.stackroute.keepnote.exception.UserNotFoundException;
+import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+import com.stackroute.keepnote.service.NoteListCache;
+import com.stackroute.keepnote.service.PasswordHasher;
+import com.stackroute.keepnote.service.ReferenceCache;
+import com.stackroute.keepnote.service.UserServiceImpl;
+
+/*
+ * Logins per second at the given PBKDF2 cost, on four threads. "verify" is the
+ * full password verification a login pays when its credential is not in the
+ * verified-credential cache of UserServiceImpl; "reconnect" is a login through
+ * UserServiceImpl.validateUser of users who logged in with the same password a
+ * moment ago, as in a reconnect storm, answered from that cache. The users are
+ * kept in a map rather than the database, so that only the hashing is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Threads(4)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class LoginBenchmark {
+
+	private static final int USERS = 64;
+
+	private static final String PASSWORD = "correct horse battery staple";
+
+	@Param({ "10000", "100000", "310000" })
+	public int iterations;
+
+	private PasswordHasher passwordHasher;
+
+	private UserServiceImpl userService;
+
+	private String[] userIds;
+
+	private String[] hashes;
+
+	private volatile int next;
+
+	@Setup
+	public void setUp() throws UserNotFoundException {
+		passwordHasher = new PasswordHasher(iterations);
+		UserDAO userDAO = new MapUserDAO();
+		userService = new UserServiceImpl(userDAO, passwordHasher, new NoteListCache(true, 1000),
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex(),
+				new ReferenceCache(), null, null);
+		userIds = new String[USERS];
+		hashes = new String[USERS];
+		for (int i = 0; i < USERS; i++) {
+			userIds[i] = "user" + i;
+			hashes[i] = passwordHasher.hash(PASSWORD);
+			userDAO.registerUser(new User(userIds[i], "User " + i, hashes[i], "9000000000", new Date()));
+			userService.validateUser(userIds[i], PASSWORD);
+		}
+	}
+
+	@Benchmark
+	public boolean verify() {
+		return passwordHasher.verify(PASSWORD, hashes[next++ & (USERS - 1)]);
+	}
+
+	@Benchmark
+	public boolean reconnect() throws UserNotFoundException {
+		return userService.validateUser(userIds[next++ & (USERS - 1)], PASSWORD);
+	}
+
+	/*
+	 * The users of the benchmark, looked up by id from memory.
+	 */
+	private static final class MapUserDAO implements UserDAO {
+
+		private final Map<String, User> users = new HashMap<String, User>();
+
+		public boolean registerUser(User user) {
+			users.put(user.getUserId(), user);
+			return true;
+		}
+
+		public boolean updateUser(User user) {
+			users.put(user.getUserId(), user);
+			return true;
+		}
+
+		public User getUserById(String userId) {
+			return users.get(userId);
+		}
+
+		public boolean validateUser(String userId, String password) {
+			throw new UnsupportedOperationException();
+		}
+
+		public boolean deleteUser(String userId) {
+			return users.remove(userId) != null;
+		}
+
+		public boolean deleteUserAndData(String userId) {
+			throw new UnsupportedOperationException();
+		}
+
+		public int deleteUserDataChunk(String userId, int chunkSize) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.service.RequestRateLimiter;
+
+/*
+ * Request latency percentiles of well-behaved users while one sync client of a
+ * noisy user sends requests as fast as it can, with the RequestRateLimiter in
+ * front of the handlers and without it. Two threads send the requests of ever
+ * other well-behaved users, sixteen threads those of the noisy one, each of its
+ * requests taking ARRIVAL_MICROS to arrive. Every request holds one of
+ * REQUEST_THREADS request threads, for HANDLE_MICROS when it is admitted and
+ * only for the limiter's decision when it is rejected, as the
+ * RequestRateInterceptor answers it with 429 before the handler runs. The
+ * handling and arrival are waits rather than work, so that the result does not
+ * depend on the number of cores. The teardown prints the admitted and rejected
+ * requests of both kinds.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class NoisyNeighbourBenchmark {
+
+	private static final int REQUEST_THREADS = 8;
+
+	private static final long ARRIVAL_MICROS = 200;
+
+	private static final long HANDLE_MICROS = 1000;
+
+	private static final int WELL_BEHAVED_USERS = 1 << 12;
+
+	@Param({ "true", "false" })
+	public boolean limited;
+
+	private RequestRateLimiter limiter;
+
+	private Semaphore requestThreads;
+
+	private final AtomicInteger nextUser = new AtomicInteger();
+
+	private final LongAdder wellBehavedAdmitted = new LongAdder();
+
+	private final LongAdder wellBehavedRejected = new LongAdder();
+
+	private final LongAdder noisyAdmitted = new LongAdder();
+
+	private final LongAdder noisyRejected = new LongAdder();
+
+	@Setup
+	public void setUp() {
+		limiter = new RequestRateLimiter();
+		requestThreads = new Semaphore(REQUEST_THREADS, true);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%nlimited %s: well-behaved %d admitted, %d rejected; noisy %d admitted, %d rejected%n",
+				limited, wellBehavedAdmitted.sum(), wellBehavedRejected.sum(), noisyAdmitted.sum(),
+				noisyRejected.sum());
+	}
+
+	@Benchmark
+	@Group("requests")
+	@GroupThreads(2)
+	public boolean wellBehaved() throws InterruptedException {
+		boolean admitted = request("user" + (nextUser.getAndIncrement() & (WELL_BEHAVED_USERS - 1)));
+		(admitted ? wellBehavedAdmitted : wellBehavedRejected).increment();
+		return admitted;
+	}
+
+	@Benchmark
+	@Group("requests")
+	@GroupThreads(16)
+	public boolean noisy() throws InterruptedException {
+		LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(ARRIVAL_MICROS));
+		boolean admitted = request("noisy");
+		(admitted ? noisyAdmitted : noisyRejected).increment();
+		return admitted;
+	}
+
+	/*
+	 * Whether the read request of the user was admitted and handled.
+	 */
+	private boolean request(String userId) throws InterruptedException {
+		requestThreads.acquire();
+		try {
+			if (limited && limiter.acquire(userId, 1) > 0) {
+				return false;
+			}
+			try {
+				LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(HANDLE_MICROS));
+			} finally {
+				if (limited) {
+					limiter.release(userId);
+				}
+			}
+			return true;
+		} finally {
+			requestThreads.release();
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.controller.NoteController;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Notes saved per second when a client uploads 10,000 notes: "single" saves them
+ * as POST /note does, one NoteDAO.createNote transaction each, "batch" as POST
+ * /note/batch does, NoteDAO.createNotes transactions of NoteController
+ * .MAX_BATCH_SIZE notes, sent as JDBC batches. The HTTP requests themselves, a
+ * round trip per note for "single", are not part of the measurement.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@OperationsPerInvocation(NoteBatchBenchmark.NOTES)
+public class NoteBatchBenchmark {
+
+	static final int NOTES = 10000;
+
+	private BenchmarkDatabase database;
+
+	private NoteDAO noteDAO;
+
+	@Setup
+	public void setUp() {
+		database = new BenchmarkDatabase("batch", false);
+		noteDAO = new NoteDAOImpl(database.sessionFactory(),
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex());
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		database.close();
+	}
+
+	@Benchmark
+	public void single() {
+		for (int i = 0; i < NOTES; i++) {
+			Note note = note(i);
+			database.transactions().execute(status -> noteDAO.createNote(note));
+		}
+	}
+
+	@Benchmark
+	public void batch() {
+		for (int first = 0; first < NOTES; first += NoteController.MAX_BATCH_SIZE) {
+			List<Note> notes = new ArrayList<Note>(NoteController.MAX_BATCH_SIZE);
+			for (int i = first; i < Math.min(first + NoteController.MAX_BATCH_SIZE, NOTES); i++) {
+				notes.add(note(i));
+			}
+			database.transactions().execute(status -> noteDAO.createNotes(notes));
+		}
+	}
+
+	private static Note note(int i) {
+		return new Note(0, "Offline note " + i, "Written while offline, number " + i, "Active", new Date(), null,
+				null, "Jhon123");
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/*
+ * Synthetic note texts for the benchmarks: words of a vocabulary of distinct
+ * random lower case words, drawn with a skewed frequency so that a few words are
+ * common and most are rare, as in real notes. The same seed gives the same
+ * vocabulary and texts.
+ */
+final class NoteCorpus {
+
+	private final String[] vocabulary;
+
+	private final Random random;
+
+	NoteCorpus(int vocabularySize, long seed) {
+		random = new Random(seed);
+		Set<String> words = new HashSet<String>();
+		while (words.size() < vocabularySize) {
+			char[] word = new char[4 + random.nextInt(7)];
+			for (int i = 0; i < word.length; i++) {
+				word[i] = (char) ('a' + random.nextInt(26));
+			}
+			words.add(new String(word));
+		}
+		vocabulary = words.toArray(new String[0]);
+	}
+
+	String[] vocabulary() {
+		return vocabulary;
+	}
+
+	/*
+	 * A word of the vocabulary, the ones at the front far more often than the rest.
+	 */
+	String word() {
+		double skewed = Math.pow(random.nextDouble(), 4);
+		return vocabulary[(int) (skewed * vocabulary.length)];
+	}
+
+	String text(int words) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			text.append(word());
+		}
+		return text.toString();
+	}
+
+	/*
+	 * The word with one character replaced, as a user mistyping it would.
+	 */
+	String misspell(String word) {
+		char[] chars = word.toCharArray();
+		int position = random.nextInt(chars.length);
+		chars[position] = (char) ('a' + (chars[position] - 'a' + 1 + random.nextInt(25)) % 26);
+		return new String(chars);
+	}
+
+	Random random() {
+		return random;
+	}
+
+}
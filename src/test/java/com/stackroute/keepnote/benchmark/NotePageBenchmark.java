@@ -0,0 +1,108 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Latency percentiles of reading one page of PAGE notes at a random position of
+ * the notes of a user, as the user's note count grows. "keyset" seeks to the
+ * page with NoteDAO.getNotesByUserId after the (creation date, id) of the note
+ * before it, as GET /note?after= does; "offset" skips the notes before the page
+ * with an OFFSET over the same order, then reads the page with getNotesByIds;
+ * "all" is GET /note as it was, NoteDAO.getAllNotesByUserId reading every note
+ * of the user.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class NotePageBenchmark {
+
+	private static final int PAGE = 20;
+
+	private static final int POSITIONS = 1024;
+
+	private static final String USER = "Jhon123";
+
+	/* the creation date of note 0, see BenchmarkDatabase.insertNotes */
+	private static final long FIRST_CREATED_AT = Timestamp.valueOf("2020-01-01 00:00:00").getTime();
+
+	@Param({ "1000", "10000", "100000" })
+	public int notes;
+
+	private BenchmarkDatabase database;
+
+	private NoteDAO noteDAO;
+
+	private int[] positions;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		database = new BenchmarkDatabase("pages", false);
+		noteDAO = new NoteDAOImpl(database.sessionFactory(),
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex());
+		database.insertNotes(USER, 1, notes);
+		Random random = new Random(1);
+		positions = new int[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++) {
+			positions[i] = 1 + random.nextInt(notes - PAGE);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		database.close();
+	}
+
+	@Benchmark
+	public List<Note> keyset() {
+		int after = positions[next++ & (POSITIONS - 1)];
+		Date afterCreatedAt = new Date(FIRST_CREATED_AT + after * 1000L);
+		return database.transactions()
+				.execute(status -> noteDAO.getNotesByUserId(USER, afterCreatedAt, after, PAGE));
+	}
+
+	@Benchmark
+	public List<Note> offset() {
+		int skipped = positions[next++ & (POSITIONS - 1)];
+		return database.transactions().execute(status -> {
+			List<Integer> ids = database.sessionFactory().getCurrentSession()
+					.createQuery("select n.noteId from Note n where n.createdBy = :userId "
+							+ "order by n.noteCreatedAt, n.noteId", Integer.class)
+					.setParameter("userId", USER).setFirstResult(skipped).setMaxResults(PAGE).getResultList();
+			return noteDAO.getNotesByIds(USER, ids);
+		});
+	}
+
+	@Benchmark
+	public List<Note> all() {
+		return database.transactions().execute(status -> noteDAO.getAllNotesByUserId(USER));
+	}
+
+}
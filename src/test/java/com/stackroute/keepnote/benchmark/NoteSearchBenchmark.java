@@ -0,0 +1,67 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.search.InvertedIndex;
+
+/*
+ * Query latency of the in-heap InvertedIndex of one user holding the given
+ * number of notes, reported with percentiles, and the heap the index holds, as
+ * estimated by InvertedIndex.memoryBytes, printed once it is built.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class NoteSearchBenchmark {
+
+	private static final int QUERIES = 1024;
+
+	@Param("10000000")
+	public int notes;
+
+	@Param("200000")
+	public int vocabulary;
+
+	private InvertedIndex index;
+
+	private String[] queries;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		NoteCorpus corpus = new NoteCorpus(vocabulary, 1);
+		index = new InvertedIndex();
+		for (int noteId = 1; noteId <= notes; noteId++) {
+			index.add(noteId, 1, corpus.text(4), corpus.text(12));
+		}
+		queries = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = i % 2 == 0 ? corpus.word() : corpus.text(2);
+		}
+		long bytes = index.memoryBytes();
+		System.out.printf("%nindex of %d notes, %d terms: %d MB, %d bytes per note%n", index.size(), index.terms(),
+				bytes >> 20, bytes / notes);
+	}
+
+	@Benchmark
+	public int[] search() {
+		return index.search(queries[next++ & (QUERIES - 1)], 10);
+	}
+
+}
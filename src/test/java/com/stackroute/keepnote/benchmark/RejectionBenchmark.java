@@ -0,0 +1,123 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpSession;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.controller.NoteController;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.model.Note;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/*
+ * Cost of turning away a note batch posted without a logged in user, for bodies
+ * of the given size. interceptor posts it to NoteController, where the
+ * AuthenticationInterceptor answers 401 before the body is read. handler posts it
+ * to a copy of the former handler, which had Jackson convert the whole body into
+ * notes before looking at the session. Run with -prof gc to see the allocation
+ * behind each rejection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx1g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RejectionBenchmark {
+
+	private static final int CONTENT_BYTES = 1000;
+
+	@Param({ "10000", "1000000", "10000000" })
+	public int bodyBytes;
+
+	private MockMvc interceptorMvc;
+
+	private MockMvc handlerMvc;
+
+	private byte[] body;
+
+	@Setup
+	public void setUp() throws Exception {
+		/* the interceptor turns the request away before the service is needed */
+		interceptorMvc = MockMvcBuilders.standaloneSetup(new NoteController(null))
+				.addInterceptors(new AuthenticationInterceptor()).build();
+		handlerMvc = MockMvcBuilders.standaloneSetup(new SessionCheckingController()).build();
+		StringBuilder content = new StringBuilder(CONTENT_BYTES);
+		while (content.length() < CONTENT_BYTES) {
+			content.append("Content of note ");
+		}
+		List<Note> notes = new ArrayList<Note>();
+		for (int i = 1; i <= Math.max(1, bodyBytes / (CONTENT_BYTES + 100)); i++) {
+			Note note = new Note();
+			note.setNoteId(i);
+			note.setNoteTitle("Note " + i);
+			note.setNoteContent(content.toString());
+			note.setNoteStatus("Active");
+			notes.add(note);
+		}
+		body = new ObjectMapper().writeValueAsBytes(notes);
+		System.out.printf("%n%d notes, %d bytes%n", notes.size(), body.length);
+	}
+
+	@Benchmark
+	public int interceptor() throws Exception {
+		return reject(interceptorMvc);
+	}
+
+	@Benchmark
+	public int handler() throws Exception {
+		return reject(handlerMvc);
+	}
+
+	private int reject(MockMvc mockMvc) throws Exception {
+		int status = mockMvc.perform(post("/note/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andReturn().getResponse().getStatus();
+		if (status != HttpStatus.UNAUTHORIZED.value()) {
+			throw new IllegalStateException("Expected 401, got " + status);
+		}
+		return status;
+	}
+
+	/*
+	 * The batch handler as it was before the interceptor: the session is checked
+	 * only after the body has been converted.
+	 */
+	@RestController
+	public static class SessionCheckingController {
+
+		@RequestMapping(value = "/note/batch", method = RequestMethod.POST)
+		public ResponseEntity<?> createNotes(@RequestBody List<Note> notes, HttpSession session) {
+			if (null == session || null == session.getAttribute("loggedInUserId")) {
+				return new ResponseEntity<String>("UnAuthorized User", HttpStatus.UNAUTHORIZED);
+			}
+			return new ResponseEntity<String>("Not part of the benchmark", HttpStatus.CONFLICT);
+		}
+
+	}
+
+}
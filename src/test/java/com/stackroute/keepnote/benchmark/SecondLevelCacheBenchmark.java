@@ -0,0 +1,146 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.CategoryDAOImpl;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.dao.ReminderDAOImpl;
+import com.stackroute.keepnote.dao.UserDAO;
+import com.stackroute.keepnote.dao.UserDaoImpl;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Latency percentiles of CategoryDAO.getCategoryById, ReminderDAO.getReminderById
+ * and UserDAO.getUserById with the second-level cache on and off, every lookup
+ * in a transaction of its own as a request would make it, so that the session
+ * cache never answers. The lookups are spread at random over the given number of
+ * rows, all of which fit the cache regions of ehcache.xml. The teardown prints
+ * the second-level cache hit ratio.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SecondLevelCacheBenchmark {
+
+	private static final int LOOKUPS = 1 << 16;
+
+	@Param({ "true", "false" })
+	public boolean cache;
+
+	@Param("1000")
+	public int rows;
+
+	private BenchmarkDatabase database;
+
+	private CategoryDAO categoryDAO;
+
+	private ReminderDAO reminderDAO;
+
+	private UserDAO userDAO;
+
+	private int[] categoryIds;
+
+	private int[] reminderIds;
+
+	private String[] userIds;
+
+	private int[] lookups;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		database = new BenchmarkDatabase("lookups", cache);
+		categoryDAO = new CategoryDAOImpl(database.sessionFactory(), new SuggestionIndex());
+		reminderDAO = new ReminderDAOImpl(database.sessionFactory());
+		userDAO = new UserDaoImpl(database.sessionFactory());
+		categoryIds = new int[rows];
+		reminderIds = new int[rows];
+		userIds = new String[rows];
+		database.transactions().execute(status -> {
+			Session session = database.sessionFactory().getCurrentSession();
+			Date now = new Date();
+			for (int i = 0; i < rows; i++) {
+				userIds[i] = "user" + i;
+				session.persist(new User(userIds[i], "User " + i, "password", "9000000000", now));
+				Category category = new Category(0, "Category " + i, "Description " + i, now, userIds[i], null);
+				session.persist(category);
+				categoryIds[i] = category.getCategoryId();
+				Reminder reminder = new Reminder(0, "Reminder " + i, "Description " + i, "Email", userIds[i], null, now);
+				session.persist(reminder);
+				reminderIds[i] = reminder.getReminderId();
+			}
+			return null;
+		});
+		Random random = new Random(1);
+		lookups = new int[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			lookups[i] = random.nextInt(rows);
+		}
+		database.sessionFactory().getStatistics().clear();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Statistics statistics = database.sessionFactory().getStatistics();
+		long hits = statistics.getSecondLevelCacheHitCount();
+		long lookups = hits + statistics.getSecondLevelCacheMissCount();
+		System.out.printf("%ncache %s: %d second-level cache hits of %d lookups%n", cache, hits, lookups);
+		database.close();
+	}
+
+	@Benchmark
+	public Category getCategoryById() {
+		int id = categoryIds[lookups[next++ & (LOOKUPS - 1)]];
+		return database.transactions().execute(status -> {
+			try {
+				return categoryDAO.getCategoryById(id);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	@Benchmark
+	public Reminder getReminderById() {
+		int id = reminderIds[lookups[next++ & (LOOKUPS - 1)]];
+		return database.transactions().execute(status -> {
+			try {
+				return reminderDAO.getReminderById(id);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	@Benchmark
+	public User getUserById() {
+		String id = userIds[lookups[next++ & (LOOKUPS - 1)]];
+		return database.transactions().execute(status -> userDAO.getUserById(id));
+	}
+
+}
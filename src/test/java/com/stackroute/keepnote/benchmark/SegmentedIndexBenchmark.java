@@ -0,0 +1,179 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.search.NoteChanges;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.NoteSource;
+
+/*
+ * Startup of the search index of one user: opening the segments written to
+ * disk against building the index again from all notes, each measured up to the
+ * first search. The notes come from memory, so the rebuild does not even pay
+ * for reading them from MySQL. The query latency of an index opened from disk
+ * is compared with that of an index on the heap as well.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SegmentedIndexBenchmark {
+
+	private static final String USER = "benchmark";
+
+	private static final int QUERIES = 1024;
+
+	@Param("1000000")
+	public int notes;
+
+	@Param("200000")
+	public int vocabulary;
+
+	private List<Note> stored;
+
+	private String[] queries;
+
+	private Path directory;
+
+	private NoteSearchIndex diskIndex;
+
+	private NoteSearchIndex heapIndex;
+
+	private int next;
+
+	/* the notes of the user as the database holds them, at one change version */
+	private final NoteSource source = new NoteSource() {
+
+		@Override
+		public long changeVersion() {
+			return 1;
+		}
+
+		@Override
+		public void notes(Consumer<Note> consumer) {
+			stored.forEach(consumer);
+		}
+
+		@Override
+		public void changes(long afterVersion, long upToVersion, NoteChanges changes) {
+		}
+
+	};
+
+	@Setup
+	public void setUp() throws IOException {
+		NoteCorpus corpus = new NoteCorpus(vocabulary, 1);
+		stored = new ArrayList<Note>(notes);
+		for (int noteId = 1; noteId <= notes; noteId++) {
+			Note note = new Note(noteId, corpus.text(4), corpus.text(12), "Active", new Date(), null, null, USER);
+			note.setChangeVersion(1);
+			stored.add(note);
+		}
+		queries = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = i % 2 == 0 ? corpus.word() : corpus.text(2);
+		}
+		directory = Files.createTempDirectory("keepnote-search");
+		NoteSearchIndex writer = new NoteSearchIndex(directory, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run);
+		writer.search(USER, queries[0], 10, source);
+		writer.destroy();
+		try (Stream<Path> files = Files.walk(directory)) {
+			long bytes = files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+			System.out.printf("%nindex of %d notes on disk: %d MB%n", notes, bytes >> 20);
+		}
+		diskIndex = open(directory);
+		heapIndex = open(null);
+		diskIndex.search(USER, queries[0], 10, source);
+		heapIndex.search(USER, queries[0], 10, source);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		diskIndex.destroy();
+		heapIndex.destroy();
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	private static NoteSearchIndex open(Path directory) {
+		return new NoteSearchIndex(directory, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run);
+	}
+
+	/*
+	 * A fresh instance opening the index of the user from disk.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 10)
+	public int[] openFromDisk() {
+		NoteSearchIndex index = open(directory);
+		try {
+			return index.search(USER, queries[0], 10, source);
+		} finally {
+			index.destroy();
+		}
+	}
+
+	/*
+	 * A fresh instance building the index of the user from all notes.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 10)
+	public int[] rebuild() {
+		NoteSearchIndex index = open(null);
+		try {
+			return index.search(USER, queries[0], 10, source);
+		} finally {
+			index.destroy();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 5)
+	@Measurement(iterations = 5, time = 5)
+	public int[] searchOnDisk() {
+		return diskIndex.search(USER, queries[next++ & (QUERIES - 1)], 10, source);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 5)
+	@Measurement(iterations = 5, time = 5)
+	public int[] searchOnHeap() {
+		return heapIndex.search(USER, queries[next++ & (QUERIES - 1)], 10, source);
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Latency percentiles of reading and serializing the first page of PAGE notes
+ * of a user, with note contents of the given size. "full" is GET /note?limit=,
+ * every field of every note; "sparse" is GET /note?limit=&fields= with the
+ * fields of the list UI, for which NoteDAO.getNoteFieldsByUserId selects only
+ * those columns. The setup prints the bytes of the JSON of either response.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SparseFieldsBenchmark {
+
+	private static final int PAGE = 50;
+
+	private static final String USER = "Jhon123";
+
+	private static final List<String> LIST_FIELDS = Arrays.asList("noteId", "noteTitle", "noteCreatedAt");
+
+	@Param({ "1000", "20000" })
+	public int contentBytes;
+
+	private BenchmarkDatabase database;
+
+	private NoteDAO noteDAO;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Setup
+	public void setUp() throws JsonProcessingException {
+		database = new BenchmarkDatabase("fields", false);
+		noteDAO = new NoteDAOImpl(database.sessionFactory(),
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex());
+		database.insertNotes(USER, 1, PAGE * 4);
+		/* the column Hibernate generates for noteContent holds 255 characters only */
+		database.jdbc().execute("alter table NOTE alter column note_content varchar(1000000)");
+		database.jdbc().update("update NOTE set note_content = repeat('x', ?)", contentBytes);
+		System.out.printf("%nnote contents of %d bytes: full page %d bytes, sparse page %d bytes%n", contentBytes,
+				full().length, sparse().length);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		database.close();
+	}
+
+	@Benchmark
+	public byte[] full() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(database.transactions()
+				.execute(status -> noteDAO.getNotesByUserId(USER, null, null, PAGE)));
+	}
+
+	@Benchmark
+	public byte[] sparse() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(database.transactions()
+				.execute(status -> noteDAO.getNoteFieldsByUserId(USER, LIST_FIELDS, null, null, PAGE)));
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Suggestion;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Latency percentiles of completing a prefix of one to four characters against
+ * the titles of one user, with the top MAX_SUGGESTIONS asked for as the endpoint
+ * does. The setup prints the heap the trie of the user takes per 100k titles,
+ * measured as the difference in used heap after a full collection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SuggestionBenchmark {
+
+	private static final String USER = "benchmark";
+
+	private static final int PREFIXES = 1024;
+
+	@Param({ "100000", "1000000" })
+	public int titles;
+
+	@Param("200000")
+	public int vocabulary;
+
+	private final SuggestionIndex index = new SuggestionIndex();
+
+	private final Consumer<Consumer<Category>> noCategories = consumer -> {
+	};
+
+	private final Consumer<Consumer<Note>> noNotes = consumer -> {
+		throw new IllegalStateException("the trie was built in the setup");
+	};
+
+	private String[] prefixes;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		NoteCorpus corpus = new NoteCorpus(vocabulary, 1);
+		List<Note> notes = new ArrayList<Note>(titles);
+		for (int noteId = 1; noteId <= titles; noteId++) {
+			Note note = new Note(noteId, corpus.text(4), null, "Active", new Date(), null, null, USER);
+			note.setChangeVersion(noteId);
+			notes.add(note);
+		}
+		prefixes = new String[PREFIXES];
+		for (int i = 0; i < PREFIXES; i++) {
+			String word = corpus.word();
+			prefixes[i] = word.substring(0, 1 + i % 4);
+		}
+		long before = usedHeap();
+		index.suggest(USER, prefixes[0], SuggestionIndex.MAX_SUGGESTIONS, notes::forEach, noCategories);
+		notes = null;
+		long after = usedHeap();
+		System.out.printf("%ntrie of %d titles: %d MB per 100k titles%n", titles,
+				(after - before) * 100000 / titles >> 20);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	@Benchmark
+	public List<Suggestion> suggest() {
+		return index.suggest(USER, prefixes[next++ & (PREFIXES - 1)], SuggestionIndex.MAX_SUGGESTIONS, noNotes,
+				noCategories);
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.schedule.ReminderScheduler;
+import com.stackroute.keepnote.schedule.TimingWheel;
+
+/*
+ * The TimingWheel holding the given number of pending reminders, due at random
+ * within the next thirty days. The setup prints the heap the wheel takes, as
+ * estimated by TimingWheel.memoryBytes. Moving a reminder to another due date
+ * and cancelling and scheduling it again are measured as throughput, with the
+ * number of pending reminders staying the same.
+ *
+ * firing measures how late the ReminderScheduler fires reminders at its default
+ * tick while it holds as many pending reminders: every invocation schedules a
+ * batch of reminders due within the next two seconds, waits until all of them
+ * have fired and prints the percentiles of their lateness.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TimingWheelBenchmark {
+
+	private static final long HORIZON_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+	private static final int OPERATIONS = 1 << 16;
+
+	@Param("10000000")
+	public int reminders;
+
+	private TimingWheel wheel;
+
+	private int[] ids;
+
+	private long[] dueMillis;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		long now = System.currentTimeMillis();
+		Random random = new Random(1);
+		wheel = new TimingWheel(ReminderScheduler.DEFAULT_TICK_MILLIS, now);
+		for (int id = 0; id < reminders; id++) {
+			wheel.schedule(id, now + (long) (random.nextDouble() * HORIZON_MILLIS));
+		}
+		ids = new int[OPERATIONS];
+		dueMillis = new long[OPERATIONS];
+		for (int i = 0; i < OPERATIONS; i++) {
+			ids[i] = random.nextInt(reminders);
+			dueMillis[i] = now + (long) (random.nextDouble() * HORIZON_MILLIS);
+		}
+		long bytes = wheel.memoryBytes();
+		System.out.printf("%nwheel of %d reminders: %d MB, %d bytes per reminder%n", wheel.size(), bytes >> 20,
+				bytes / reminders);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Warmup(iterations = 3, time = 5)
+	@Measurement(iterations = 5, time = 5)
+	public int reschedule() {
+		int i = next++ & (OPERATIONS - 1);
+		wheel.schedule(ids[i], dueMillis[i]);
+		return wheel.size();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Warmup(iterations = 3, time = 5)
+	@Measurement(iterations = 5, time = 5)
+	public int cancelAndSchedule() {
+		int i = next++ & (OPERATIONS - 1);
+		wheel.cancel(ids[i]);
+		wheel.schedule(ids[i], dueMillis[i]);
+		return wheel.size();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 5)
+	public long firing(Firing firing) throws InterruptedException {
+		return firing.fire();
+	}
+
+	/*
+	 * A running ReminderScheduler holding the pending reminders, and the lateness
+	 * of the reminders of the batch fired by the current invocation.
+	 */
+	@State(Scope.Benchmark)
+	public static class Firing {
+
+		private static final int BATCH = 10000;
+
+		private static final long WINDOW_MILLIS = 2000;
+
+		private final long[] lateness = new long[BATCH];
+
+		private ReminderScheduler scheduler;
+
+		private int base;
+
+		private volatile CountDownLatch fired;
+
+		@Setup
+		public void setUp(TimingWheelBenchmark benchmark) {
+			scheduler = new ReminderScheduler((reminderId, dueMillis) -> {
+				lateness[reminderId - base] = System.currentTimeMillis() - dueMillis;
+				fired.countDown();
+			}, ReminderScheduler.DEFAULT_TICK_MILLIS);
+			long now = System.currentTimeMillis();
+			Random random = new Random(2);
+			for (int id = 0; id < benchmark.reminders; id++) {
+				scheduler.schedule(id, new Date(now + HORIZON_MILLIS / 2 + (long) (random.nextDouble() * HORIZON_MILLIS)));
+			}
+			base = benchmark.reminders;
+		}
+
+		@TearDown
+		public void tearDown() {
+			scheduler.destroy();
+		}
+
+		@Setup(Level.Invocation)
+		public void nextBatch() {
+			base += BATCH;
+		}
+
+		private long fire() throws InterruptedException {
+			fired = new CountDownLatch(BATCH);
+			long now = System.currentTimeMillis();
+			Random random = new Random(base);
+			for (int i = 0; i < BATCH; i++) {
+				scheduler.schedule(base + i, new Date(now + (long) (random.nextDouble() * WINDOW_MILLIS)));
+			}
+			fired.await();
+			long[] sorted = lateness.clone();
+			Arrays.sort(sorted);
+			System.out.printf("%nlateness of %d reminders: p50 %d ms, p99 %d ms, max %d ms%n", BATCH,
+					sorted[BATCH / 2], sorted[BATCH * 99 / 100], sorted[BATCH - 1]);
+			return sorted[BATCH - 1];
+		}
+
+	}
+
+}
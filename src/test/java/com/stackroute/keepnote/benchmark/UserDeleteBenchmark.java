@@ -0,0 +1,101 @@
+package com.stackroute.keepnote.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.dao.UserDAO;
+import com.stackroute.keepnote.dao.UserDaoImpl;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Time to delete a user with the given number of notes. "setBased" is
+ * UserDAO.deleteUserAndData in one transaction; "chunked" removes CHUNK_SIZE rows
+ * per transaction with deleteUserDataChunk first, as UserServiceImpl does with a
+ * chunk size configured; "perEntity" is the account deletion job as it was,
+ * listing the notes and deleting them one NoteDAO.deleteNote transaction at a
+ * time, each loading the note first, before UserDAO.deleteUser.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", BenchmarkDatabase.QUIET_LOGGING })
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class UserDeleteBenchmark {
+
+	private static final String USER = "Leaving123";
+
+	private static final int CHUNK_SIZE = 1000;
+
+	@Param("100000")
+	public int notes;
+
+	@Param({ "setBased", "chunked", "perEntity" })
+	public String path;
+
+	private BenchmarkDatabase database;
+
+	private UserDAO userDAO;
+
+	private NoteDAO noteDAO;
+
+	@Setup
+	public void setUp() {
+		database = new BenchmarkDatabase("accounts", false);
+		userDAO = new UserDaoImpl(database.sessionFactory());
+		noteDAO = new NoteDAOImpl(database.sessionFactory(),
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex());
+	}
+
+	@Setup(Level.Invocation)
+	public void createUser() {
+		database.jdbc().update("delete from TOMBSTONE");
+		database.transactions().execute(status -> userDAO
+				.registerUser(new User(USER, "Leaving User", "password", "9000000000", new Date())));
+		database.insertNotes(USER, 1, notes);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		database.close();
+	}
+
+	@Benchmark
+	public boolean deleteUser() {
+		switch (path) {
+		case "setBased":
+			return database.transactions().execute(status -> userDAO.deleteUserAndData(USER));
+		case "chunked":
+			while (database.transactions().execute(status -> userDAO.deleteUserDataChunk(USER, CHUNK_SIZE)) > 0) {
+			}
+			return database.transactions().execute(status -> userDAO.deleteUserAndData(USER));
+		default:
+			List<Note> owned = database.transactions().execute(status -> noteDAO.getAllNotesByUserId(USER));
+			for (Note note : owned) {
+				database.transactions().execute(status -> noteDAO.deleteNote(note.getNoteId()));
+			}
+			return database.transactions().execute(status -> userDAO.deleteUser(USER));
+		}
+	}
+
+}
@@ -9,6 +9,15 @@ import java.util.Date;
 import java.util.List;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.Mockito.when;
+import java.util.function.Consumer;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.junit.Assert.assertEquals;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,6 +36,8 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.controller.CategoryController;
+import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
 import com.stackroute.keepnote.model.User;
@@ -64,7 +75,8 @@ public class CategoryControllerTest {
 	@Before
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
-		mockMvc = MockMvcBuilders.standaloneSetup(categoryController).build();
+		mockMvc = MockMvcBuilders.standaloneSetup(categoryController).addInterceptors(new AuthenticationInterceptor())
+				.build();
 
 		// Creating User object
 		user = new User("Jhon123", "Jhon Simon", "974324567", "123456", new Date());
@@ -110,7 +122,7 @@ public class CategoryControllerTest {
 	@Test
 	public void testDeleteCategorySuccess() throws Exception {
 
-		when(categoryService.deleteCategory(category.getCategoryId())).thenReturn(true);
+		when(categoryService.deleteCategory(category.getCategoryId(), "Jhon123")).thenReturn(true);
 		mockMvc.perform(delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isOk()).andDo(print());
 
@@ -119,7 +131,7 @@ public class CategoryControllerTest {
 	@Test
 	public void testDeleteCategoryFailure() throws Exception {
 
-		when(categoryService.deleteCategory(category.getCategoryId())).thenReturn(false);
+		when(categoryService.deleteCategory(category.getCategoryId(), "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isNotFound()).andDo(print());
 
@@ -128,7 +140,7 @@ public class CategoryControllerTest {
 	@Test
 	public void testDeleteCategoryWithoutSessionFailure() throws Exception {
 
-		when(categoryService.deleteCategory(category.getCategoryId())).thenReturn(false);
+		when(categoryService.deleteCategory(category.getCategoryId(), "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON))
 				.andExpect(status().isUnauthorized()).andDo(print());
 
@@ -145,8 +157,23 @@ public class CategoryControllerTest {
 	@Test
 	public void testUpdateCategoryFailure() throws Exception {
 		when(categoryService.updateCategory(any(), eq(category.getCategoryId()))).thenReturn(null);
-		mockMvc.perform(put("/category/{id}", 2).contentType(MediaType.APPLICATION_JSON).content(asJsonString(category))
-				.session(session)).andExpect(status().isNotFound());
+		mockMvc.perform(put("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(category)).session(session)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testUpdateCategoryOfOtherIdIsRejected() throws Exception {
+		mockMvc.perform(put("/category/{id}", category.getCategoryId() + 1).contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(category)).session(session)).andExpect(status().isBadRequest());
+		verify(categoryService, never()).updateCategory(any(), anyInt());
+	}
+
+	@Test
+	public void testUpdateCategoryOfOtherUserNotFound() throws Exception {
+		when(categoryService.updateCategory(any(), eq(category.getCategoryId())))
+				.thenThrow(new CategoryNotFoundException("Given category id is not found --> 1"));
+		mockMvc.perform(put("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(category)).session(session)).andExpect(status().isNotFound());
 	}
 
 	@Test
@@ -184,6 +211,23 @@ public class CategoryControllerTest {
 				.andDo(print());
 	}
 
+	@Test
+	public void testStreamCategoriesAsNdjsonSuccess() throws Exception {
+
+		categories.add(category);
+		doAnswer(invocation -> {
+			Consumer<Category> consumer = invocation.getArgument(1);
+			categories.forEach(consumer);
+			return null;
+		}).when(categoryService).streamCategoriesByUserId(eq("Jhon123"), any());
+		MvcResult mvcResult = mockMvc.perform(get("/category").accept("application/x-ndjson").session(session))
+				.andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-ndjson")).andDo(print());
+		assertEquals(categories.size(), mvcResult.getResponse().getContentAsString().split("\n").length);
+
+	}
+
 	public static String asJsonString(final Object obj) {
 		try {
 
@@ -193,4 +237,12 @@ public class CategoryControllerTest {
 		}
 	}
 
+	@Test
+	public void testGetAllCategoryByUserIdNotModified() throws Exception {
+		when(categoryService.getCollectionVersion("Jhon123")).thenReturn("v1");
+		mockMvc.perform(get("/category").header("If-None-Match", "\"v1\"").session(session))
+				.andExpect(status().isNotModified()).andDo(print());
+		verify(categoryService, never()).getAllCategoryByUserId("Jhon123");
+	}
+
 }
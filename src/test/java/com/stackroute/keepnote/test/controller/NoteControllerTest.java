@@ -3,14 +3,26 @@ package com.stackroute.keepnote.test.controller;
 import static org.mockito.Mockito.*;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.hamcrest.Matchers.hasSize;
 import org.junit.After;
+import java.util.function.Consumer;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.junit.Assert.assertEquals;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -25,9 +37,14 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.controller.NoteController;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteFieldsPage;
+import com.stackroute.keepnote.model.NotePage;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.NoteService;
@@ -67,7 +84,8 @@ public class NoteControllerTest {
 	public void setUp() throws Exception {
 
 		MockitoAnnotations.initMocks(this);
-		mockMvc = MockMvcBuilders.standaloneSetup(noteController).build();
+		mockMvc = MockMvcBuilders.standaloneSetup(noteController).addInterceptors(new AuthenticationInterceptor())
+				.build();
 		// session = new MockHttpSession();
 		// Creating User Object
 		user = new User("Jhon123", "Jhon Simon", "974324567", "123456", new Date());
@@ -149,10 +167,30 @@ public class NoteControllerTest {
 				.andExpect(status().isUnauthorized()).andDo(print());
 	}
 
+	@Test
+	public void testCreateNoteWithoutSessionRejectedBeforeBodyIsRead() throws Exception {
+
+		mockMvc.perform(post("/note").contentType(MediaType.APPLICATION_JSON).content("{ not json"))
+				.andExpect(status().isUnauthorized()).andExpect(content().string("UnAuthorized User"));
+		verify(noteService, never()).createNote(any());
+	}
+
+	@Test
+	public void testCreateNoteTakesCreatedByFromLoggedInUser() throws Exception {
+		Note posted = new Note(1, "Testing", "Testing controller", "Active", new Date(), null, null, "Chris");
+		ArgumentCaptor<Note> created = ArgumentCaptor.forClass(Note.class);
+		when(noteService.createNote(created.capture())).thenReturn(true);
+
+		mockMvc.perform(
+				post("/note").contentType(MediaType.APPLICATION_JSON).content(asJsonString(posted)).session(session))
+				.andExpect(status().isCreated());
+		assertEquals("Jhon123", created.getValue().getCreatedBy());
+	}
+
 	@Test
 	public void testDeleteNoteSuccess() throws Exception {
 
-		when(noteService.deleteNote(note.getNoteId())).thenReturn(true);
+		when(noteService.deleteNote(note.getNoteId(), "Jhon123")).thenReturn(true);
 		mockMvc.perform(delete("/note/{id}", note.getNoteId()).session(session)).andExpect(status().isOk())
 				.andDo(print());
 
@@ -161,14 +199,14 @@ public class NoteControllerTest {
 	@Test
 	public void testDeleteNoteFailure() throws Exception {
 
-		when(noteService.deleteNote(1)).thenReturn(false);
+		when(noteService.deleteNote(1, "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/note/{id}", 1).session(session)).andExpect(status().isNotFound()).andDo(print());
 	}
 
 	@Test
 	public void testDeleteNoteFailureWithoutSession() throws Exception {
 
-		when(noteService.deleteNote(1)).thenReturn(false);
+		when(noteService.deleteNote(1, "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/note/{id}", 1)).andExpect(status().isUnauthorized()).andDo(print());
 	}
 
@@ -188,7 +226,22 @@ public class NoteControllerTest {
 	public void testUpdateNoteFailure() throws ReminderNotFoundException, Exception {
 		note.setNoteContent("updating note card");
 		when(noteService.updateNote(note, note.getNoteId())).thenReturn(null);
-		mockMvc.perform(put("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note))
+		mockMvc.perform(put("/note/{id}", note.getNoteId()).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note))
+				.session(session)).andExpect(status().isNotFound()).andDo(print());
+	}
+
+	@Test
+	public void testUpdateNoteOfOtherIdIsRejected() throws Exception {
+		mockMvc.perform(put("/note/{id}", note.getNoteId() + 1).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note))
+				.session(session)).andExpect(status().isBadRequest()).andDo(print());
+		verify(noteService, never()).updateNote(any(), anyInt());
+	}
+
+	@Test
+	public void testUpdateNoteOfOtherUserNotFound() throws Exception {
+		when(noteService.updateNote(any(), eq(note.getNoteId())))
+				.thenThrow(new NoteNotFoundException("Note id and note is not matched"));
+		mockMvc.perform(put("/note/{id}", note.getNoteId()).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note))
 				.session(session)).andExpect(status().isNotFound()).andDo(print());
 	}
 
@@ -210,6 +263,26 @@ public class NoteControllerTest {
 
 	}
 
+	@Test
+	public void testGetAllNotesByUserIdSendsETag() throws Exception {
+
+		when(noteService.getCollectionVersion("Jhon123")).thenReturn("v1");
+		when(noteService.getAllNotesByUserId("Jhon123")).thenReturn(allNotesByUserId);
+		mockMvc.perform(get("/note").contentType(MediaType.APPLICATION_JSON).session(session))
+				.andExpect(status().isOk()).andExpect(header().string("ETag", "\"v1\"")).andDo(print());
+
+	}
+
+	@Test
+	public void testGetAllNotesByUserIdNotModified() throws Exception {
+
+		when(noteService.getCollectionVersion("Jhon123")).thenReturn("v1");
+		mockMvc.perform(get("/note").header("If-None-Match", "\"v1\"").session(session))
+				.andExpect(status().isNotModified()).andDo(print());
+		verify(noteService, never()).getAllNotesByUserId("Jhon123");
+
+	}
+
 	@Test
 	public void testGetAllNotesByUserIdFailureWithoutSession() throws Exception {
 
@@ -219,6 +292,170 @@ public class NoteControllerTest {
 
 	}
 
+	@Test
+	public void testGetNotesByUserIdPageSuccess() throws Exception {
+
+		when(noteService.getNotesByUserId("Jhon123", null, 3)).thenReturn(new NotePage(allNotesByUserId, "next"));
+		mockMvc.perform(get("/note").param("limit", "3").contentType(MediaType.APPLICATION_JSON).session(session))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.notes", hasSize(3)))
+				.andExpect(jsonPath("$.nextCursor").value("next")).andDo(print());
+
+	}
+
+	@Test
+	public void testSearchNoteSuccess() throws Exception {
+
+		when(noteService.searchNotes("Jhon123", "spring testing", 20, 2)).thenReturn(allNotesByUserId.subList(0, 2));
+		mockMvc.perform(get("/note/search").param("q", "spring testing").session(session))
+				.andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(2))).andDo(print());
+
+	}
+
+	@Test
+	public void testSearchNoteMaxEditsOutOfRangeFailure() throws Exception {
+
+		mockMvc.perform(get("/note/search").param("q", "spring").param("maxEdits", "3").session(session))
+				.andExpect(status().isBadRequest()).andDo(print());
+		verify(noteService, never()).searchNotes(anyString(), anyString(), anyInt(), anyInt());
+
+	}
+
+	@Test
+	public void testSearchNoteLimitOutOfRangeFailure() throws Exception {
+
+		when(noteService.searchNotes("Jhon123", "spring", 0, 2)).thenThrow(IllegalArgumentException.class);
+		mockMvc.perform(get("/note/search").param("q", "spring").param("limit", "0").session(session))
+				.andExpect(status().isBadRequest()).andDo(print());
+
+	}
+
+	@Test
+	public void testSearchNoteWithoutWordsFailure() throws Exception {
+
+		mockMvc.perform(get("/note/search").param("q", " ?! ").session(session))
+				.andExpect(status().isBadRequest()).andDo(print());
+		verify(noteService, never()).searchNotes(anyString(), anyString(), anyInt(), anyInt());
+
+	}
+
+	@Test
+	public void testGetNotesByUserIdPageInvalidCursor() throws Exception {
+
+		when(noteService.getNotesByUserId("Jhon123", "bad", 3)).thenThrow(IllegalArgumentException.class);
+		mockMvc.perform(get("/note").param("limit", "3").param("after", "bad").contentType(MediaType.APPLICATION_JSON)
+				.session(session)).andExpect(status().isBadRequest()).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNotesByUserIdWithFieldsSuccess() throws Exception {
+
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		Map<String, Object> row = new LinkedHashMap<String, Object>();
+		row.put("noteId", 1);
+		row.put("noteTitle", "Testing-1");
+		rows.add(row);
+		when(noteService.getAllNotesByUserId("Jhon123", "noteId,noteTitle")).thenReturn(rows);
+		mockMvc.perform(get("/note").param("fields", "noteId,noteTitle").contentType(MediaType.APPLICATION_JSON)
+				.session(session)).andExpect(status().isOk()).andExpect(jsonPath("$[0].noteTitle").value("Testing-1"))
+				.andExpect(jsonPath("$[0].noteContent").doesNotExist()).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNotesByUserIdPageWithFieldsSuccess() throws Exception {
+
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		rows.add(new LinkedHashMap<String, Object>());
+		when(noteService.getNotesByUserId("Jhon123", null, 1, "noteTitle"))
+				.thenReturn(new NoteFieldsPage(rows, "next"));
+		mockMvc.perform(get("/note").param("limit", "1").param("fields", "noteTitle")
+				.contentType(MediaType.APPLICATION_JSON).session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.notes", hasSize(1))).andExpect(jsonPath("$.nextCursor").value("next"))
+				.andDo(print());
+
+	}
+
+	@Test
+	public void testGetNotesByUserIdUnknownField() throws Exception {
+
+		when(noteService.getAllNotesByUserId("Jhon123", "secret"))
+				.thenThrow(new IllegalArgumentException("Unknown field --> secret"));
+		mockMvc.perform(get("/note").param("fields", "secret").contentType(MediaType.APPLICATION_JSON)
+				.session(session)).andExpect(status().isBadRequest()).andDo(print());
+
+	}
+
+	@Test
+	public void testStreamNotesAsNdjsonSuccess() throws Exception {
+
+		doAnswer(invocation -> {
+			Consumer<Note> consumer = invocation.getArgument(1);
+			allNotesByUserId.forEach(consumer);
+			return null;
+		}).when(noteService).streamNotesByUserId(eq("Jhon123"), any());
+		MvcResult mvcResult = mockMvc.perform(get("/note").accept("application/x-ndjson").session(session))
+				.andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-ndjson")).andDo(print());
+		assertEquals(allNotesByUserId.size(), mvcResult.getResponse().getContentAsString().split("\n").length);
+
+	}
+
+	@Test
+	public void testStreamNotesAsNdjsonFailureWithoutSession() throws Exception {
+
+		mockMvc.perform(get("/note").accept("application/x-ndjson")).andExpect(status().isUnauthorized())
+				.andDo(print());
+		verify(noteService, never()).streamNotesByUserId(any(), any());
+
+	}
+
+	@Test
+	public void testCreateNotesBatchSuccess() throws Exception {
+
+		List<NoteBatchResult> results = new ArrayList<NoteBatchResult>();
+		for (Note created : allNotesByUserId) {
+			results.add(new NoteBatchResult(results.size(), created.getNoteId(), NoteBatchResult.CREATED, null));
+		}
+		when(noteService.createNotes(anyList())).thenReturn(results);
+		mockMvc.perform(post("/note/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(allNotesByUserId)).session(session)).andExpect(status().isCreated())
+				.andExpect(jsonPath("$", hasSize(3))).andDo(print());
+
+	}
+
+	@Test
+	public void testCreateNotesBatchPartialFailure() throws Exception {
+
+		List<NoteBatchResult> results = new ArrayList<NoteBatchResult>();
+		results.add(new NoteBatchResult(0, 1, NoteBatchResult.CREATED, null));
+		results.add(new NoteBatchResult(1, 2, NoteBatchResult.REFERENCE_NOT_FOUND, "Reminder not found"));
+		results.add(new NoteBatchResult(2, 3, NoteBatchResult.CREATED, null));
+		when(noteService.createNotes(anyList())).thenReturn(results);
+		mockMvc.perform(post("/note/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(allNotesByUserId)).session(session)).andExpect(status().isMultiStatus())
+				.andExpect(jsonPath("$[1].status").value(NoteBatchResult.REFERENCE_NOT_FOUND)).andDo(print());
+
+	}
+
+	@Test
+	public void testCreateNotesBatchEmptyFailure() throws Exception {
+
+		mockMvc.perform(post("/note/batch").contentType(MediaType.APPLICATION_JSON).content("[]").session(session))
+				.andExpect(status().isBadRequest()).andDo(print());
+		verify(noteService, never()).createNotes(anyList());
+
+	}
+
+	@Test
+	public void testCreateNotesBatchFailureWithoutSession() throws Exception {
+
+		mockMvc.perform(post("/note/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(allNotesByUserId))).andExpect(status().isUnauthorized()).andDo(print());
+
+	}
+
 	public static String asJsonString(final Object obj) {
 		try {
 
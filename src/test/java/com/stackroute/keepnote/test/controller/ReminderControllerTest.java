@@ -13,6 +13,15 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import java.util.function.Consumer;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.junit.Assert.assertEquals;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -31,6 +40,8 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.controller.ReminderController;
+import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.ReminderService;
@@ -54,7 +65,8 @@ public class ReminderControllerTest {
 	@Before
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
-		mockMvc = MockMvcBuilders.standaloneSetup(reminderController).build();
+		mockMvc = MockMvcBuilders.standaloneSetup(reminderController).addInterceptors(new AuthenticationInterceptor())
+				.build();
 		// Creating User object
 		user = new User("Jhon123", "Jhon Simon", "974324567", "123456", new Date());
 		// creating Session object and setting session
@@ -86,21 +98,21 @@ public class ReminderControllerTest {
 
 	@Test
 	public void testDeleteReminderSuccess() throws Exception {
-		when(reminderService.deleteReminder(reminder.getReminderId())).thenReturn(true);
+		when(reminderService.deleteReminder(reminder.getReminderId(), "Jhon123")).thenReturn(true);
 		mockMvc.perform(delete("/reminder/{id}", reminder.getReminderId()).session(session)).andExpect(status().isOk())
 				.andDo(print());
 	}
 
 	@Test
 	public void testDeleteReminderFailure() throws Exception {
-		when(reminderService.deleteReminder(reminder.getReminderId())).thenReturn(false);
+		when(reminderService.deleteReminder(reminder.getReminderId(), "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/reminder/{id}", reminder.getReminderId()).session(session))
 				.andExpect(status().isNotFound()).andDo(print());
 	}
 
 	@Test
 	public void testDeleteReminderWithoutSessionFailure() throws Exception {
-		when(reminderService.deleteReminder(reminder.getReminderId())).thenReturn(false);
+		when(reminderService.deleteReminder(reminder.getReminderId(), "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/reminder/{id}", reminder.getReminderId())).andExpect(status().isUnauthorized())
 				.andDo(print());
 	}
@@ -123,6 +135,21 @@ public class ReminderControllerTest {
 				.content(asJsonString(reminder)).session(session)).andExpect(status().isNotFound());
 	}
 
+	@Test
+	public void testUpdateReminderOfOtherIdIsRejected() throws Exception {
+		mockMvc.perform(put("/reminder/{id}", reminder.getReminderId() + 1).contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(reminder)).session(session)).andExpect(status().isBadRequest());
+		verify(reminderService, never()).updateReminder(any(), anyInt());
+	}
+
+	@Test
+	public void testUpdateReminderOfOtherUserNotFound() throws Exception {
+		when(reminderService.updateReminder(any(), eq(reminder.getReminderId())))
+				.thenThrow(new ReminderNotFoundException("Given reminder id data not found  --> 1"));
+		mockMvc.perform(put("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(reminder)).session(session)).andExpect(status().isNotFound());
+	}
+
 	@Test
 	public void testUpdateReminderWithoutSessionFailure() throws Exception {
 		when(reminderService.updateReminder(any(),eq( reminder.getReminderId()))).thenReturn(null);
@@ -159,15 +186,25 @@ public class ReminderControllerTest {
 
 	@Test
 	public void testGetReminderByIdSuccess() throws Exception {
-		when(reminderService.getReminderById(reminder.getReminderId())).thenReturn(reminder);
+		when(reminderService.getReminderById(reminder.getReminderId(), "Jhon123")).thenReturn(reminder);
 		mockMvc.perform(get("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isOk());
 
 	}
 
+	@Test
+	public void testGetReminderByIdOfOtherUserNotFound() throws Exception {
+		when(reminderService.getReminderById(reminder.getReminderId(), "Jhon123"))
+				.thenThrow(new ReminderNotFoundException("Given reminder id data not found  --> 1"));
+		mockMvc.perform(get("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
+				.session(session)).andExpect(status().isNotFound());
+		verify(reminderService, never()).getReminderById(reminder.getReminderId());
+
+	}
+
 	@Test
 	public void testGetReminderByIdFailure() throws Exception {
-		when(reminderService.getReminderById(reminder.getReminderId())).thenReturn(null);
+		when(reminderService.getReminderById(reminder.getReminderId(), "Jhon123")).thenReturn(null);
 		mockMvc.perform(get("/reminder/{id}", reminder.getReminderId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isNotFound());
 
@@ -181,6 +218,23 @@ public class ReminderControllerTest {
 
 	}
 
+	@Test
+	public void testStreamRemindersAsNdjsonSuccess() throws Exception {
+
+		allReminders.add(reminder);
+		doAnswer(invocation -> {
+			Consumer<Reminder> consumer = invocation.getArgument(1);
+			allReminders.forEach(consumer);
+			return null;
+		}).when(reminderService).streamRemindersByUserId(eq("Jhon123"), any());
+		MvcResult mvcResult = mockMvc.perform(get("/reminder").accept("application/x-ndjson").session(session))
+				.andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-ndjson")).andDo(print());
+		assertEquals(allReminders.size(), mvcResult.getResponse().getContentAsString().split("\n").length);
+
+	}
+
 	public static String asJsonString(final Object obj) {
 		try {
 
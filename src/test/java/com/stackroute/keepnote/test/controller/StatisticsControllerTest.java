@@ -0,0 +1,79 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.controller.StatisticsController;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.service.StatisticsService;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = { ApplicationContextConfig.class })
+@WebAppConfiguration
+public class StatisticsControllerTest {
+
+	private MockMvc mockMvc;
+	@Mock
+	private StatisticsService statisticsService;
+	@Autowired
+	private MockHttpSession session;
+	private StatisticsController statisticsController;
+
+	private Map<String, Map<String, Long>> statistics = new HashMap<String, Map<String, Long>>();
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		statisticsController = new StatisticsController(statisticsService, Collections.singleton("Jhon123"));
+		mockMvc = MockMvcBuilders.standaloneSetup(statisticsController).addInterceptors(new AuthenticationInterceptor())
+				.build();
+		session.setAttribute("loggedInUserId", "Jhon123");
+		Map<String, Long> counters = new HashMap<String, Long>();
+		counters.put("hits", 40L);
+		statistics.put("keepnote.category", counters);
+	}
+
+	@Test
+	public void testGetCacheStatisticsSuccess() throws Exception {
+		when(statisticsService.getCacheStatistics()).thenReturn(statistics);
+		mockMvc.perform(get("/stats/cache").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$['keepnote.category'].hits").value(40)).andDo(print());
+	}
+
+	@Test
+	public void testGetStatisticsOfOtherUserForbidden() throws Exception {
+		session.setAttribute("loggedInUserId", "Mary123");
+		mockMvc.perform(get("/stats/cache").session(session)).andExpect(status().isForbidden()).andDo(print());
+		mockMvc.perform(get("/stats/login").session(session)).andExpect(status().isForbidden()).andDo(print());
+		mockMvc.perform(get("/stats/requests").session(session)).andExpect(status().isForbidden()).andDo(print());
+		verifyZeroInteractions(statisticsService);
+	}
+
+	@Test
+	public void testGetCacheStatisticsWithoutSessionFailure() throws Exception {
+		mockMvc.perform(get("/stats/cache")).andExpect(status().isUnauthorized()).andDo(print());
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.controller.SuggestionController;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.model.Suggestion;
+import com.stackroute.keepnote.service.SuggestionService;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = { ApplicationContextConfig.class })
+@WebAppConfiguration
+public class SuggestionControllerTest {
+
+	private MockMvc mockMvc;
+	@Mock
+	private SuggestionService suggestionService;
+	@Autowired
+	private MockHttpSession session;
+	@InjectMocks
+	private SuggestionController suggestionController;
+
+	private List<Suggestion> suggestions;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		mockMvc = MockMvcBuilders.standaloneSetup(suggestionController)
+				.addInterceptors(new AuthenticationInterceptor()).build();
+		session.setAttribute("loggedInUserId", "Jhon123");
+		suggestions = new ArrayList<Suggestion>();
+		suggestions.add(new Suggestion(Suggestion.CATEGORY, 3, "Testing"));
+		suggestions.add(new Suggestion(Suggestion.NOTE, 1, "Testing-1"));
+	}
+
+	@Test
+	public void testGetSuggestionsSuccess() throws Exception {
+		when(suggestionService.getSuggestions("Jhon123", "tes", 10)).thenReturn(suggestions);
+		mockMvc.perform(get("/suggestion").param("q", "tes").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2))).andExpect(jsonPath("$[0].type").value("category"))
+				.andExpect(jsonPath("$[1].id").value(1)).andExpect(jsonPath("$[1].text").value("Testing-1"))
+				.andDo(print());
+	}
+
+	@Test
+	public void testGetSuggestionsWithoutPrefixFailure() throws Exception {
+		mockMvc.perform(get("/suggestion").param("q", " ").session(session)).andExpect(status().isBadRequest())
+				.andDo(print());
+	}
+
+	@Test
+	public void testGetSuggestionsWithoutSessionFailure() throws Exception {
+		mockMvc.perform(get("/suggestion").param("q", "tes")).andExpect(status().isUnauthorized()).andDo(print());
+	}
+
+}
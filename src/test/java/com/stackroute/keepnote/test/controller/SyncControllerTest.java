@@ -0,0 +1,88 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.controller.SyncController;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.SyncChanges;
+import com.stackroute.keepnote.model.Tombstone;
+import com.stackroute.keepnote.service.SyncService;
+
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = { ApplicationContextConfig.class })
+@WebAppConfiguration
+public class SyncControllerTest {
+
+	private MockMvc mockMvc;
+	@Mock
+	private SyncService syncService;
+	@Autowired
+	private MockHttpSession session;
+	@InjectMocks
+	private SyncController syncController;
+
+	private SyncChanges changes;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		mockMvc = MockMvcBuilders.standaloneSetup(syncController).addInterceptors(new AuthenticationInterceptor())
+				.build();
+		session.setAttribute("loggedInUserId", "Jhon123");
+		List<Note> notes = new ArrayList<Note>();
+		notes.add(new Note(1, "Testing-1", "Testing Controller layer", "Active", new Date(), null, null, "Jhon123"));
+		List<Tombstone> deleted = new ArrayList<Tombstone>();
+		deleted.add(new Tombstone(Tombstone.NOTE, 2, "Jhon123", 5));
+		changes = new SyncChanges(notes, new ArrayList<Category>(), new ArrayList<Reminder>(), deleted, "NQ");
+	}
+
+	@Test
+	public void testGetChangesSuccess() throws Exception {
+		when(syncService.getChangesSince("Jhon123", "Mw")).thenReturn(changes);
+		mockMvc.perform(get("/sync").param("since", "Mw").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.notes", hasSize(1))).andExpect(jsonPath("$.deleted[0].entityType").value("note"))
+				.andExpect(jsonPath("$.deleted[0].entityId").value(2)).andExpect(jsonPath("$.token").value("NQ"))
+				.andDo(print());
+	}
+
+	@Test
+	public void testGetChangesMalformedToken() throws Exception {
+		when(syncService.getChangesSince("Jhon123", "bad"))
+				.thenThrow(new IllegalArgumentException("Malformed sync token --> bad"));
+		mockMvc.perform(get("/sync").param("since", "bad").session(session)).andExpect(status().isBadRequest())
+				.andDo(print());
+	}
+
+	@Test
+	public void testGetChangesWithoutSessionFailure() throws Exception {
+		mockMvc.perform(get("/sync")).andExpect(status().isUnauthorized()).andDo(print());
+	}
+
+}
@@ -1,15 +1,18 @@
 package com.stackroute.keepnote.test.controller;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.Date;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +24,8 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.controller.UserAuthenticationController;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.service.LoginRateLimiter;
+import com.stackroute.keepnote.service.TokenService;
 import com.stackroute.keepnote.service.UserService;
 
 public class UserAuthenticationControllerTest {
@@ -31,12 +36,14 @@ public class UserAuthenticationControllerTest {
 	UserService userService;
 	@Autowired
 	private MockHttpSession session;
-	@InjectMocks
 	UserAuthenticationController authController;
 
 	@Before
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
+		authController = new UserAuthenticationController(userService, new TokenService(false, null, 3600),
+				new LoginRateLimiter(LoginRateLimiter.DEFAULT_USER_RATE, LoginRateLimiter.DEFAULT_USER_BURST,
+						LoginRateLimiter.DEFAULT_ADDRESS_RATE, LoginRateLimiter.DEFAULT_ADDRESS_BURST, System::nanoTime));
 		mockMvc = MockMvcBuilders.standaloneSetup(authController).build();
 		user = new User("Jhon123", "Jhon Simon", "974324567", "123456", new Date());
 		// creatin Session object and setting session
@@ -84,6 +91,23 @@ public class UserAuthenticationControllerTest {
 
 	}
 
+	@Test
+	public void testLoginRateLimited() throws Exception {
+
+		when(userService.validateUser(user.getUserId(), "wrong")).thenReturn(false);
+		User attempt = new User("Jhon123", "Jhon Simon", "wrong", "974324567", new Date());
+		for (int i = 0; i < LoginRateLimiter.DEFAULT_USER_BURST; i++) {
+			mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(asJsonString(attempt)))
+					.andExpect(status().isUnauthorized());
+		}
+		mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(asJsonString(attempt)))
+				.andExpect(status().isTooManyRequests()).andExpect(header().exists("Retry-After"))
+				.andDo(print());
+		verify(userService, times((int) LoginRateLimiter.DEFAULT_USER_BURST)).validateUser(user.getUserId(), "wrong");
+		verify(userService, never()).validateUser(user.getUserId(), user.getUserPassword());
+
+	}
+
 	public static String asJsonString(final Object obj) {
 		try {
 
@@ -7,7 +7,9 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.nullValue;
 import java.util.Date;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,6 +29,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.controller.UserController;
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.UserService;
 
@@ -49,7 +52,8 @@ public class UserControllerTest {
 
 		MockitoAnnotations.initMocks(this);
 
-		mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
+		mockMvc = MockMvcBuilders.standaloneSetup(userController).addInterceptors(new AuthenticationInterceptor())
+				.build();
 
 		user = new User("Jhon123", "Jhon Simon", "123456", "9872367384", new Date());
 		// Setting session attribute
@@ -64,6 +68,17 @@ public class UserControllerTest {
 				.andExpect(status().isCreated()).andDo(print());
 	}
 
+	@Test
+	public void testRegisterUserDoesNotReturnPasswordHash() throws Exception {
+		when(userService.registerUser(any())).thenAnswer(invocation -> {
+			invocation.<User>getArgument(0).setUserPassword("pbkdf2-sha256$1$c2FsdA$aGFzaA");
+			return true;
+		});
+		mockMvc.perform(post("/user/register").contentType(MediaType.APPLICATION_JSON).content(asJsonString(user)))
+				.andExpect(status().isCreated()).andExpect(jsonPath("$.userPassword").value(nullValue()))
+				.andExpect(jsonPath("$.userId").value(user.getUserId())).andDo(print());
+	}
+
 	@Test
 	public void testRegisterUserFailure() throws UserAlreadyExistException, Exception {
 
@@ -107,6 +122,22 @@ public class UserControllerTest {
 				.andDo(print());
 	}
 
+	@Test
+	public void testDeleteUserWithDataSuccess() throws Exception {
+		when(userService.deleteUserAndData(user.getUserId())).thenReturn(true);
+		mockMvc.perform(delete("/user/{id}", user.getUserId()).param("cascade", "true").session(session))
+				.andExpect(status().isOk()).andDo(print());
+		verify(userService, never()).deleteUser(user.getUserId());
+	}
+
+	@Test
+	public void testDeleteOtherUserWithDataUnauthorized() throws Exception {
+		mockMvc.perform(delete("/user/{id}", "Alice456").param("cascade", "true").session(session))
+				.andExpect(status().isUnauthorized()).andDo(print());
+		verify(userService, never()).deleteUserAndData("Alice456");
+		verify(userService, never()).deleteUser("Alice456");
+	}
+
 	@Test
 	public void testDeleteUserFailure() throws Exception {
 		when(userService.deleteUser(user.getUserId())).thenReturn(false);
@@ -2,11 +2,14 @@ package com.stackroute.keepnote.test.dao;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import javax.persistence.Query;
 import javax.transaction.Transactional;
 
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.junit.After;
 import org.junit.Before;
@@ -26,6 +29,8 @@ import com.stackroute.keepnote.dao.CategoryDAO;
 import com.stackroute.keepnote.dao.CategoryDAOImpl;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.search.SuggestionIndex;
 
 @RunWith(SpringRunner.class)
 @Transactional
@@ -41,7 +46,7 @@ public class CategoryDAOImplTest {
 
 	@Before
 	public void setUp() throws Exception {
-		categoryDAO = new CategoryDAOImpl(sessionFactory);
+		categoryDAO = new CategoryDAOImpl(sessionFactory, new SuggestionIndex());
 		category = new Category(1, "Testing", "All about testing spring application", null, "Jhon123", null);
 	}
 
@@ -96,6 +101,19 @@ public class CategoryDAOImplTest {
 		assertEquals("Testing DAO layer in spring MVC", savedCategory.getCategoryDescription());
 	}
 
+	@Test
+	@Rollback(true)
+	public void testUpdateCategoryOfOtherUserFailure() throws CategoryNotFoundException {
+		categoryDAO.createCategory(category);
+		Category intruding = new Category(category.getCategoryId(), "Taken", "Overwritten by another user", null,
+				"Intruder", null);
+		assertFalse(categoryDAO.updateCategory(intruding));
+		sessionFactory.getCurrentSession().clear();
+		Category savedCategory = categoryDAO.getCategoryById(category.getCategoryId());
+		assertEquals("Testing", savedCategory.getCategoryName());
+		assertEquals("Jhon123", savedCategory.getCategoryCreatedBy());
+	}
+
 	@Test
 	public void testGetCategoryById() throws CategoryNotFoundException {
 		categoryDAO.createCategory(category);
@@ -115,4 +133,26 @@ public class CategoryDAOImplTest {
 		assertEquals(3, allCategories.size());
 	}
 
+	@Test
+	@Rollback(true)
+	public void testDeleteCategoryByOwnerSuccess() throws CategoryNotFoundException {
+		Session session = sessionFactory.getCurrentSession();
+		Note note = new Note(0, "Testing", "Linked from the category", "Active", new Date(), null, null, "Jhon123");
+		session.save(note);
+		List<Note> notes = new ArrayList<Note>();
+		notes.add(note);
+		Category linked = new Category(0, "Linked", "Has a note", new Date(), "Jhon123", notes);
+		categoryDAO.createCategory(linked);
+		session.flush();
+		session.clear();
+
+		assertFalse(categoryDAO.deleteCategory(linked.getCategoryId(), "Chris"));
+		assertNotNull(session.get(Category.class, linked.getCategoryId()));
+		session.clear();
+		assertTrue(categoryDAO.deleteCategory(linked.getCategoryId(), "Jhon123"));
+		session.flush();
+		assertNull(session.get(Category.class, linked.getCategoryId()));
+		assertNotNull(session.get(Note.class, note.getNoteId()));
+	}
+
 }
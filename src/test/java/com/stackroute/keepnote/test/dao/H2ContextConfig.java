@@ -0,0 +1,59 @@
+package com.stackroute.keepnote.test.dao;
+
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.hibernate.SessionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.hibernate5.HibernateTransactionManager;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+
+/*
+ * A SessionFactory over an embedded H2 database in MySQL mode, for the tests
+ * which have to run without a MySQL server. The database is kept in a file under
+ * target rather than in memory, so that the rows do not take up the heap of the
+ * test itself. The schema is created afresh with each context, and the tests
+ * drop the database, files included, when they are done with it.
+ */
+@Configuration
+public class H2ContextConfig {
+
+	@Bean
+	public DataSource getDataSource() {
+		BasicDataSource dataSource = new BasicDataSource();
+		dataSource.setDriverClassName("org.h2.Driver");
+		dataSource.setUrl("jdbc:h2:file:./target/h2/keepnote;MODE=MySQL;LAZY_QUERY_EXECUTION=1;CACHE_SIZE=4096");
+		dataSource.setUsername("sa");
+		dataSource.setPassword("");
+		/* whatever an earlier, interrupted run left behind */
+		new JdbcTemplate(dataSource).execute("drop all objects");
+		return dataSource;
+	}
+
+	@Bean
+	public LocalSessionFactoryBean getSessionFactory(DataSource dataSource) {
+		LocalSessionFactoryBean factoryBean = new LocalSessionFactoryBean();
+		factoryBean.setDataSource(dataSource);
+		Properties properties = new Properties();
+		properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+		properties.put("hibernate.hbm2ddl.auto", "create");
+		properties.put("hibernate.jdbc.batch_size", String.valueOf(ApplicationContextConfig.JDBC_BATCH_SIZE));
+		properties.put("hibernate.cache.use_second_level_cache", "false");
+		properties.put("hibernate.generate_statistics", "true");
+		factoryBean.setPackagesToScan("com.stackroute.keepnote.model");
+		factoryBean.setHibernateProperties(properties);
+		return factoryBean;
+	}
+
+	@Bean
+	public HibernateTransactionManager getTransactionManager(SessionFactory sessionFactory) {
+		return new HibernateTransactionManager(sessionFactory);
+	}
+
+}
@@ -1,12 +1,24 @@
 package com.stackroute.keepnote.test.dao;
 
 import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.Query;
 import javax.transaction.Transactional;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -19,12 +31,18 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
 import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.dao.NoteDAO;
 import com.stackroute.keepnote.dao.NoteDAOImpl;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
 
 @RunWith(SpringRunner.class)
 @Transactional
@@ -35,12 +53,15 @@ public class NoteDAOImplTest {
 
 	@Autowired
 	private SessionFactory sessionFactory;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
 	private NoteDAO noteDAO;
 	private Note note;
 
 	@Before
 	public void setUp() {
-		noteDAO = new NoteDAOImpl(sessionFactory);
+		noteDAO = new NoteDAOImpl(sessionFactory,
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex());
 		note = new Note(1, "Testing-1", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
 
 	}
@@ -83,6 +104,69 @@ public class NoteDAOImplTest {
 
 	}
 
+	/*
+	 * Many threads create notes at once, each note in a transaction of its own,
+	 * as concurrent requests do. Every create succeeds, none is answered with a
+	 * conflict, and every note gets an id of its own.
+	 */
+	@Test
+	public void testConcurrentCreatesGetUniqueIds() throws Exception {
+		/*
+		 * The generator reserves ids through a connection of its own, so the pool of
+		 * eight keeps one free next to the test's transaction and the writers.
+		 */
+		int threads = 6;
+		int notesPerThread = 25;
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<List<Integer>>> results = new ArrayList<Future<List<Integer>>>();
+		try {
+			for (int t = 0; t < threads; t++) {
+				String userId = "Concurrent" + t;
+				results.add(executor.submit(() -> {
+					start.await();
+					List<Integer> ids = new ArrayList<Integer>();
+					for (int i = 0; i < notesPerThread; i++) {
+						Note created = new Note(0, "Note " + i, "Created concurrently", "Active", new Date(), null,
+								null, userId);
+						assertTrue(transactionTemplate.execute(status -> noteDAO.createNote(created)));
+						ids.add(created.getNoteId());
+					}
+					return ids;
+				}));
+			}
+			start.countDown();
+			Set<Integer> ids = new HashSet<Integer>();
+			for (Future<List<Integer>> result : results) {
+				ids.addAll(result.get(60, TimeUnit.SECONDS));
+			}
+			assertEquals(threads * notesPerThread, ids.size());
+			assertFalse(ids.contains(0));
+		} finally {
+			executor.shutdownNow();
+			transactionTemplate.execute(status -> {
+				Session session = sessionFactory.getCurrentSession();
+				session.createQuery("delete from Note n where n.createdBy like 'Concurrent%'").executeUpdate();
+				return session.createQuery("delete from SyncState s where s.userId like 'Concurrent%'").executeUpdate();
+			});
+		}
+	}
+
+	@Test
+	public void testGetNotesByIdsOfUserOnly() {
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		Note note3 = new Note(3, "Testing-3", "Testing Service layer", "Active", new Date(), null, null, "Mary123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		noteDAO.createNote(note3);
+		List<Note> notes = noteDAO.getNotesByIds("Jhon123",
+				Arrays.asList(note2.getNoteId(), note3.getNoteId(), note2.getNoteId() + 1000));
+		assertEquals(1, notes.size());
+		assertEquals("Testing-2", notes.get(0).getNoteTitle());
+		assertTrue(noteDAO.getNotesByIds("Jhon123", new ArrayList<Integer>()).isEmpty());
+	}
+
 	@Test
 	public void testGetAllNotesByUserId() throws NoteNotFoundException {
 		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
@@ -135,4 +219,142 @@ public class NoteDAOImplTest {
 
 	}
 
+	@Test
+	@Rollback(true)
+	public void testUpdateNoteOfOtherUserNotFound() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		Note takeover = new Note(note.getNoteId(), "Taken", "Taken over", "Active", new Date(), null, null, "Alice456");
+		assertFalse(noteDAO.UpdateNote(takeover));
+		sessionFactory.getCurrentSession().clear();
+		Note stored = noteDAO.getNoteById(note.getNoteId());
+		assertEquals("Jhon123", stored.getCreatedBy());
+		assertEquals(note.getNoteTitle(), stored.getNoteTitle());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetAllNotesByUserIdUsesSingleSelect() {
+		Session session = sessionFactory.getCurrentSession();
+		Category[] categories = new Category[50];
+		Reminder[] reminders = new Reminder[50];
+		for (int i = 0; i < 50; i++) {
+			categories[i] = new Category(0, "Category-" + i, "Testing DAO layer", new Date(), "Jhon123", null);
+			reminders[i] = new Reminder(0, "Reminder-" + i, "Testing DAO layer", "Active", "Jhon123", null, new Date());
+			session.save(categories[i]);
+			session.save(reminders[i]);
+		}
+		for (int i = 0; i < 1000; i++) {
+			Note bulkNote = new Note(0, "Testing-" + i, "Testing DAO layer", "Active", new Date(), categories[i % 50],
+					reminders[(i * 7) % 50], "Jhon123");
+			noteDAO.createNote(bulkNote);
+		}
+		session.flush();
+		session.clear();
+		sessionFactory.getCache().evictAllRegions();
+		Statistics statistics = sessionFactory.getStatistics();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+		List<Note> notes = noteDAO.getAllNotesByUserId("Jhon123");
+		for (Note loaded : notes) {
+			assertNotNull(loaded.getCategory().getCategoryName());
+			assertNotNull(loaded.getReminder().getReminderName());
+		}
+		assertEquals(1000, notes.size());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetAllNotesByUserIdReturnsUnmanagedNotes() {
+		noteDAO.createNote(note);
+		List<Note> notes = noteDAO.getAllNotesByUserId("Jhon123");
+		assertEquals(1, notes.size());
+		assertEquals("Testing-1", notes.get(0).getNoteTitle());
+		assertFalse(sessionFactory.getCurrentSession().contains(notes.get(0)));
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetNoteFieldsByUserId() {
+		Date createdAt = new Date(1500000000000L);
+		for (int i = 1; i <= 3; i++) {
+			noteDAO.createNote(new Note(0, "Testing-" + i, "Testing DAO layer", "Active", new Date(createdAt.getTime() + i),
+					null, null, "Jhon123"));
+		}
+		List<Map<String, Object>> notes = noteDAO.getNoteFieldsByUserId("Jhon123", Arrays.asList("noteTitle", "noteId"));
+		assertEquals(3, notes.size());
+		assertEquals(Arrays.asList("noteTitle", "noteId"), Arrays.asList(notes.get(0).keySet().toArray()));
+		List<Map<String, Object>> page = noteDAO.getNoteFieldsByUserId("Jhon123",
+				Arrays.asList("noteTitle", "noteCreatedAt", "noteId"), new Date(createdAt.getTime() + 1),
+				(Integer) notes.get(0).get("noteId"), 5);
+		assertEquals(2, page.size());
+		assertEquals("Testing-2", page.get(0).get("noteTitle"));
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetNotesByUserIdPagesPastNotesWithoutCreationDate() {
+		Date createdAt = new Date(1500000000000L);
+		for (int i = 1; i <= 4; i++) {
+			noteDAO.createNote(new Note(0, "Testing-" + i, "Testing DAO layer", "Active", i > 2 ? createdAt : null, null,
+					null, "Jhon123"));
+		}
+		List<Note> first = noteDAO.getNotesByUserId("Jhon123", null, null, 1);
+		assertEquals("Testing-1", first.get(0).getNoteTitle());
+		List<Note> second = noteDAO.getNotesByUserId("Jhon123", null, first.get(0).getNoteId(), 2);
+		assertEquals(2, second.size());
+		assertEquals("Testing-2", second.get(0).getNoteTitle());
+		assertEquals("Testing-3", second.get(1).getNoteTitle());
+		List<Note> last = noteDAO.getNotesByUserId("Jhon123", createdAt, second.get(1).getNoteId(), 2);
+		assertEquals(1, last.size());
+		assertEquals("Testing-4", last.get(0).getNoteTitle());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetNoteFieldsByUserIdUnknownField() {
+		noteDAO.getNoteFieldsByUserId("Jhon123", Arrays.asList("noteTitle", "category"));
+	}
+
+	@Test
+	@Rollback(true)
+	public void testDeleteNoteByOwnerUsesOneStatementLessAndLoadsNothing() {
+		Session session = sessionFactory.getCurrentSession();
+		Note[] created = new Note[3];
+		for (int i = 0; i < created.length; i++) {
+			created[i] = new Note(0, "Testing-" + i, "Testing DAO layer", "Active", new Date(), null, null, "Jhon123");
+			noteDAO.createNote(created[i]);
+		}
+		assertTrue(noteDAO.deleteNote(created[0].getNoteId()));
+		session.flush();
+		session.clear();
+		Statistics statistics = sessionFactory.getStatistics();
+		statistics.setStatisticsEnabled(true);
+
+		statistics.clear();
+		assertTrue(noteDAO.deleteNote(created[1].getNoteId()));
+		session.flush();
+		long loadThenDelete = statistics.getPrepareStatementCount();
+
+		statistics.clear();
+		assertTrue(noteDAO.deleteNote(created[2].getNoteId(), "Jhon123"));
+		session.flush();
+		assertEquals(loadThenDelete - 1, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getEntityLoadCount());
+		assertNull(session.get(Note.class, created[2].getNoteId()));
+	}
+
+	@Test
+	@Rollback(true)
+	public void testDeleteNoteOfOtherUserNotFound() {
+		noteDAO.createNote(note);
+		sessionFactory.getCurrentSession().flush();
+		Statistics statistics = sessionFactory.getStatistics();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+		assertFalse(noteDAO.deleteNote(note.getNoteId(), "Chris"));
+		assertFalse(noteDAO.deleteNote(999999, "Jhon123"));
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertNotNull(sessionFactory.getCurrentSession().get(Note.class, note.getNoteId()));
+	}
+
 }
@@ -0,0 +1,82 @@
+package com.stackroute.keepnote.test.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+/*
+ * Streams a million notes of one user through NoteDAO.streamNotesByUserId in a
+ * JVM whose heap is far too small to hold them, see the streaming-memory
+ * execution of the surefire plugin, which runs this test alone with -Xmx64m.
+ * Materializing the notes, or keeping them in the session, fails it with an
+ * OutOfMemoryError.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration(classes = { H2ContextConfig.class })
+public class NoteStreamingMemoryTest {
+
+	private static final int NOTES = 1000000;
+
+	private static final String USER = "Streamer";
+
+	@Autowired
+	private SessionFactory sessionFactory;
+	@Autowired
+	private DataSource dataSource;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	private NoteDAO noteDAO;
+
+	@Before
+	public void setUp() {
+		noteDAO = new NoteDAOImpl(sessionFactory,
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex());
+		new JdbcTemplate(dataSource).update("insert into NOTE (note_id, note_title, note_content, note_status, "
+				+ "note_creation_date, note_creator, note_change_version) select x, concat('Note ', x), "
+				+ "'Streamed without being held in memory', 'Active', current_timestamp, ?, x "
+				+ "from system_range(1, " + NOTES + ")", USER);
+	}
+
+	@After
+	public void tearDown() {
+		new JdbcTemplate(dataSource).execute("drop all objects delete files");
+	}
+
+	@Test
+	public void testStreamNotesByUserIdInConstantMemory() {
+		AtomicLong notes = new AtomicLong();
+		AtomicLong characters = new AtomicLong();
+		long entitiesLeft = new TransactionTemplate(transactionManager).execute(status -> {
+			Session session = sessionFactory.getCurrentSession();
+			noteDAO.streamNotesByUserId(USER, note -> {
+				notes.incrementAndGet();
+				characters.addAndGet(note.getNoteTitle().length() + note.getNoteContent().length());
+			});
+			return (long) session.getStatistics().getEntityCount();
+		});
+		assertEquals(NOTES, notes.get());
+		assertTrue(characters.get() > 0);
+		assertEquals(0, entitiesLeft);
+	}
+
+}
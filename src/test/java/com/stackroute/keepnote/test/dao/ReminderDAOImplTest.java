@@ -2,6 +2,8 @@ package com.stackroute.keepnote.test.dao;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -60,6 +62,27 @@ public class ReminderDAOImplTest {
 		assertEquals(reminder, savedReminder);
 	}
 
+	@Test
+	@Rollback(true)
+	public void testReminderIsClaimedOncePerDueDate() {
+		Date due = new Date(System.currentTimeMillis() + 60000);
+		reminder.setReminderDueDate(due);
+		reminderDAO.createReminder(reminder);
+		assertFalse(reminderDAO.claimReminder(reminder.getReminderId(), new Date(due.getTime() + 5000)));
+		assertTrue(reminderDAO.claimReminder(reminder.getReminderId(), due));
+		assertFalse(reminderDAO.claimReminder(reminder.getReminderId(), due));
+		assertFalse(reminderDAO.claimReminder(reminder.getReminderId() + 1000, due));
+	}
+
+	@Test
+	@Rollback(true)
+	public void testGetReminderIdsByUserId() {
+		Reminder other = new Reminder(2, "Sms", "Sms reminder", "notification", "Mary123", null, new Date());
+		reminderDAO.createReminder(reminder);
+		reminderDAO.createReminder(other);
+		assertEquals(Arrays.asList(reminder.getReminderId()), reminderDAO.getReminderIdsByUserId("Jhon123"));
+	}
+
 	@Test(expected = ReminderNotFoundException.class)
 	@Rollback(true)
 	public void testCreateReminderFailure() throws ReminderNotFoundException {
@@ -81,6 +104,19 @@ public class ReminderDAOImplTest {
 		assertEquals("email notification", savedReminder.getReminderDescription());
 	}
 
+	@Test
+	@Rollback(true)
+	public void testUpdateReminderOfOtherUserFailure() throws ReminderNotFoundException {
+		reminderDAO.createReminder(reminder);
+		Reminder intruding = new Reminder(reminder.getReminderId(), "Taken", "Overwritten by another user",
+				"notification", "Intruder", null, new Date());
+		assertFalse(reminderDAO.updateReminder(intruding));
+		sessionFactory.getCurrentSession().clear();
+		Reminder savedReminder = reminderDAO.getReminderById(reminder.getReminderId());
+		assertEquals("Email", savedReminder.getReminderName());
+		assertEquals("Jhon123", savedReminder.getReminderCreatedBy());
+	}
+
 	@Test
 	public void testDeleteReminderSuccess() throws ReminderNotFoundException {
 		reminderDAO.createReminder(reminder);
@@ -127,4 +163,22 @@ public class ReminderDAOImplTest {
 		assertEquals(3, allReminder.size());
 	}
 
+	@Test
+	public void testStreamRemindersDueAfter() {
+		Date now = new Date();
+		reminder.setReminderDueDate(new Date(now.getTime() - 60000));
+		reminderDAO.createReminder(reminder);
+		reminder = new Reminder(2, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
+		reminder.setReminderDueDate(new Date(now.getTime() + 60000));
+		reminderDAO.createReminder(reminder);
+		int dueId = reminder.getReminderId();
+		reminder = new Reminder(3, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
+		reminderDAO.createReminder(reminder);
+		List<Reminder> due = new ArrayList<Reminder>();
+		reminderDAO.streamRemindersDueAfter(now, due::add);
+		assertEquals(1, due.size());
+		assertEquals(dueId, due.get(0).getReminderId());
+		assertEquals(now.getTime() + 60000, due.get(0).getReminderDueDate().getTime());
+	}
+
 }
@@ -0,0 +1,89 @@
+package com.stackroute.keepnote.test.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.transaction.Transactional;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.CategoryDAOImpl;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.dao.SyncDAO;
+import com.stackroute.keepnote.dao.SyncDAOImpl;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Tombstone;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+@RunWith(SpringRunner.class)
+@Transactional
+@WebAppConfiguration
+@ContextConfiguration(classes = { ApplicationContextConfig.class })
+@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class, TransactionalTestExecutionListener.class })
+public class SyncDAOImplTest {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+	private SyncDAO syncDAO;
+	private NoteDAO noteDAO;
+	private CategoryDAO categoryDAO;
+
+	@Before
+	public void setUp() {
+		syncDAO = new SyncDAOImpl(sessionFactory);
+		noteDAO = new NoteDAOImpl(sessionFactory,
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex());
+		categoryDAO = new CategoryDAOImpl(sessionFactory, new SuggestionIndex());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testWritesAreVersionedPerUser() {
+		long before = syncDAO.getChangeVersion("Jhon123");
+		Note note = new Note(0, "Testing-1", "Testing DAO layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNote(note);
+		categoryDAO.createCategory(new Category(0, "Testing", "Testing DAO layer", new Date(), "Jhon123", null));
+		noteDAO.createNote(new Note(0, "Testing-2", "Testing DAO layer", "Active", new Date(), null, null, "Chris"));
+		assertEquals(before + 2, syncDAO.getChangeVersion("Jhon123"));
+		assertEquals(before + 1, note.getChangeVersion());
+		List<Note> notes = syncDAO.getNotesChangedBetween("Jhon123", before, before + 2);
+		assertEquals(1, notes.size());
+		assertEquals("Testing-1", notes.get(0).getNoteTitle());
+		assertEquals(1, syncDAO.getCategoriesChangedBetween("Jhon123", before + 1, before + 2).size());
+		assertEquals(0, syncDAO.getCategoriesChangedBetween("Jhon123", before + 2, before + 2).size());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testDeleteLeavesTombstone() {
+		Note note = new Note(0, "Testing-1", "Testing DAO layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNote(note);
+		long afterCreate = syncDAO.getChangeVersion("Jhon123");
+		noteDAO.deleteNote(note.getNoteId());
+		long afterDelete = syncDAO.getChangeVersion("Jhon123");
+		assertEquals(0, syncDAO.getNotesChangedBetween("Jhon123", afterCreate, afterDelete).size());
+		List<Tombstone> tombstones = syncDAO.getTombstonesBetween("Jhon123", afterCreate, afterDelete);
+		assertEquals(1, tombstones.size());
+		assertEquals(Tombstone.NOTE, tombstones.get(0).getEntityType());
+		assertEquals(note.getNoteId(), tombstones.get(0).getEntityId());
+	}
+
+}
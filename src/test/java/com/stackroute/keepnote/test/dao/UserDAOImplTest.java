@@ -2,11 +2,14 @@ package com.stackroute.keepnote.test.dao;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import javax.persistence.Query;
 import javax.transaction.Transactional;
 
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.junit.After;
 import org.junit.Before;
@@ -25,6 +28,11 @@ import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.dao.UserDAO;
 import com.stackroute.keepnote.dao.UserDaoImpl;
 import com.stackroute.keepnote.exception.UserNotFoundException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.SyncState;
+import com.stackroute.keepnote.model.Tombstone;
 import com.stackroute.keepnote.model.User;
 
 @RunWith(SpringRunner.class)
@@ -55,6 +63,44 @@ public class UserDAOImplTest {
 		query.executeUpdate();
 	}
 
+	/*
+	 * A category, a reminder and the given number of notes of the user, the first
+	 * of which is linked from the category and the reminder.
+	 */
+	private Category createData(String userId, int notes) {
+		Session session = sessionFactory.getCurrentSession();
+		List<Note> created = new ArrayList<Note>();
+		for (int i = 0; i < notes; i++) {
+			Note note = new Note(0, "Testing-" + i, "Testing bulk delete", "Active", new Date(), null, null, userId);
+			session.save(note);
+			created.add(note);
+		}
+		Category category = new Category(0, "Testing", "Bulk delete", new Date(), userId,
+				new ArrayList<Note>(created.subList(0, 1)));
+		session.save(category);
+		Reminder reminder = new Reminder(0, "Testing", "Bulk delete", "email", userId,
+				new ArrayList<Note>(created.subList(0, 1)), new Date());
+		session.save(reminder);
+		created.get(0).setCategory(category);
+		created.get(0).setReminder(reminder);
+		session.save(new Tombstone(Tombstone.NOTE, 999, userId, 1));
+		session.flush();
+		return category;
+	}
+
+	private long count(String query, String userId) {
+		return sessionFactory.getCurrentSession().createQuery(query, Long.class).setParameter("userId", userId)
+				.getSingleResult();
+	}
+
+	private void assertNoDataLeft(String userId) {
+		assertEquals(0, count("select count(n) from Note n where n.createdBy = :userId", userId));
+		assertEquals(0, count("select count(c) from Category c where c.categoryCreatedBy = :userId", userId));
+		assertEquals(0, count("select count(r) from Reminder r where r.reminderCreatedBy = :userId", userId));
+		assertEquals(0, count("select count(t) from Tombstone t where t.userId = :userId", userId));
+		assertNull(userDAO.getUserById(userId));
+	}
+
 	@Test
 	@Rollback(true)
 	public void testRegisterUserSuccess() {
@@ -64,6 +110,23 @@ public class UserDAOImplTest {
 		userDAO.deleteUser(user.getUserId());
 	}
 
+	@Test
+	@Rollback(true)
+	public void testRegisterUserCreatesSyncState() {
+		userDAO.registerUser(user);
+		sessionFactory.getCurrentSession().flush();
+		SyncState syncState = sessionFactory.getCurrentSession().get(SyncState.class, user.getUserId());
+		assertNotNull(syncState);
+		assertEquals(0, syncState.getChangeVersion());
+		syncState.setChangeVersion(5);
+		userDAO.deleteUser(user.getUserId());
+		sessionFactory.getCurrentSession().flush();
+		userDAO.registerUser(new User("Jhon123", "Jhon Simon", "123456", "9872367384", new Date()));
+		sessionFactory.getCurrentSession().flush();
+		sessionFactory.getCurrentSession().refresh(syncState);
+		assertEquals(5, syncState.getChangeVersion());
+	}
+
 	@Test
 	@Rollback(true)
 	public void testRegisterUserFailure() {
@@ -137,4 +200,49 @@ public class UserDAOImplTest {
 		userDAO.deleteUser(user.getUserId());
 	}
 
+	@Test
+	public void testDeleteUserAndDataSuccess() {
+		User other = new User("Chris", "Chris Martin", "654321", "9872367385", new Date());
+		userDAO.registerUser(user);
+		userDAO.registerUser(other);
+		Category category = createData("Jhon123", 5);
+		createData("Chris", 2);
+		Note foreign = new Note(0, "Foreign", "Refers to a category of Jhon123", "Active", new Date(), category, null,
+				"Chris");
+		sessionFactory.getCurrentSession().save(foreign);
+		sessionFactory.getCurrentSession().flush();
+		sessionFactory.getCurrentSession().clear();
+
+		assertTrue(userDAO.deleteUserAndData("Jhon123"));
+		sessionFactory.getCurrentSession().clear();
+		assertNoDataLeft("Jhon123");
+		assertEquals(3, count("select count(n) from Note n where n.createdBy = :userId", "Chris"));
+		assertEquals(1, count("select count(c) from Category c where c.categoryCreatedBy = :userId", "Chris"));
+		assertNotNull(userDAO.getUserById("Chris"));
+		assertNull(sessionFactory.getCurrentSession().get(Note.class, foreign.getNoteId()).getCategory());
+		assertFalse(userDAO.deleteUserAndData("Jhon123"));
+	}
+
+	@Test
+	public void testDeleteUserDataChunkSuccess() {
+		userDAO.registerUser(user);
+		createData("Jhon123", 5);
+		createData("Chris", 2);
+		sessionFactory.getCurrentSession().clear();
+
+		assertEquals(2, userDAO.deleteUserDataChunk("Jhon123", 2));
+		assertEquals(3, count("select count(n) from Note n where n.createdBy = :userId", "Jhon123"));
+		int chunks = 1;
+		while (userDAO.deleteUserDataChunk("Jhon123", 2) > 0) {
+			chunks++;
+		}
+		// 3 of notes, one each of categories, reminders and tombstones
+		assertEquals(6, chunks);
+		assertNotNull(userDAO.getUserById("Jhon123"));
+		assertTrue(userDAO.deleteUserAndData("Jhon123"));
+		sessionFactory.getCurrentSession().clear();
+		assertNoDataLeft("Jhon123");
+		assertEquals(2, count("select count(n) from Note n where n.createdBy = :userId", "Chris"));
+	}
+
 }
@@ -0,0 +1,78 @@
+package com.stackroute.keepnote.test.filter;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.DispatcherType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.stackroute.keepnote.filter.AuthenticationInterceptor;
+import com.stackroute.keepnote.filter.RequestRateInterceptor;
+import com.stackroute.keepnote.service.RequestRateLimiter;
+
+public class RequestRateInterceptorTest {
+
+	private RequestRateLimiter requestRateLimiter;
+	private RequestRateInterceptor requestRateInterceptor;
+
+	@Before
+	public void setUp() throws Exception {
+		requestRateLimiter = new RequestRateLimiter(60, 4, 1, new AtomicLong()::get);
+		requestRateInterceptor = new RequestRateInterceptor(requestRateLimiter);
+	}
+
+	private MockHttpServletRequest request(String method, String userId) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, "/note");
+		request.setAttribute(AuthenticationInterceptor.PRINCIPAL, userId);
+		return request;
+	}
+
+	private boolean complete(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+		boolean admitted = requestRateInterceptor.preHandle(request, response, null);
+		if (admitted) {
+			requestRateInterceptor.afterCompletion(request, response, null, null);
+		}
+		return admitted;
+	}
+
+	@Test
+	public void testWritesCostMoreThanReads() throws Exception {
+		assertTrue(complete(request("POST", "Jhon123"), new MockHttpServletResponse()));
+		assertTrue(complete(request("GET", "Jhon123"), new MockHttpServletResponse()));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertFalse(complete(request("PUT", "Jhon123"), response));
+		assertEquals(429, response.getStatus());
+		assertEquals("1", response.getHeader("Retry-After"));
+		assertTrue(complete(request("GET", "Jhon123"), new MockHttpServletResponse()));
+		assertTrue(complete(request("POST", "Chris"), new MockHttpServletResponse()));
+	}
+
+	@Test
+	public void testRequestWithoutPrincipalPassesThrough() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			assertTrue(complete(new MockHttpServletRequest("POST", "/login"), new MockHttpServletResponse()));
+		}
+		assertEquals(Long.valueOf(0), requestRateLimiter.getStatistics().get("admitted"));
+	}
+
+	@Test
+	public void testAsyncRequestHoldsItsSlotUntilCompleted() throws Exception {
+		MockHttpServletRequest request = request("GET", "Jhon123");
+		assertTrue(requestRateInterceptor.preHandle(request, new MockHttpServletResponse(), null));
+		requestRateInterceptor.afterConcurrentHandlingStarted(request, new MockHttpServletResponse(), null);
+		MockHttpServletResponse rejected = new MockHttpServletResponse();
+		assertFalse(complete(request("GET", "Jhon123"), rejected));
+		assertEquals(429, rejected.getStatus());
+
+		request.setDispatcherType(DispatcherType.ASYNC);
+		assertTrue(complete(request, new MockHttpServletResponse()));
+		assertEquals(Long.valueOf(1), requestRateLimiter.getStatistics().get("admitted"));
+		assertTrue(complete(request("GET", "Jhon123"), new MockHttpServletResponse()));
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.stackroute.keepnote.test.filter;
+
+import static org.junit.Assert.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.stackroute.keepnote.filter.TokenAuthenticationFilter;
+import com.stackroute.keepnote.service.TokenService;
+
+public class TokenAuthenticationFilterTest {
+
+	private TokenService tokenService;
+	private TokenAuthenticationFilter tokenAuthenticationFilter;
+	private MockHttpServletRequest request;
+
+	@Before
+	public void setUp() throws Exception {
+		tokenService = new TokenService(true, "test-secret", 60);
+		tokenAuthenticationFilter = new TokenAuthenticationFilter(tokenService);
+		request = new MockHttpServletRequest("GET", "/note");
+	}
+
+	private HttpServletRequest filter(MockHttpServletRequest request) throws Exception {
+		MockFilterChain chain = new MockFilterChain();
+		tokenAuthenticationFilter.doFilter(request, new MockHttpServletResponse(), chain);
+		return (HttpServletRequest) chain.getRequest();
+	}
+
+	@Test
+	public void testValidTokenExposesUserInSession() throws Exception {
+		request.addHeader("Authorization", "Bearer " + tokenService.issueToken("Jhon123"));
+		HttpServletRequest filtered = filter(request);
+		assertEquals("Jhon123", filtered.getSession().getAttribute("loggedInUserId"));
+		assertNull(request.getSession(false));
+	}
+
+	@Test
+	public void testMissingOrInvalidTokenLeavesSessionEmpty() throws Exception {
+		assertNull(filter(request).getSession().getAttribute("loggedInUserId"));
+		MockHttpServletRequest forged = new MockHttpServletRequest("GET", "/note");
+		forged.addHeader("Authorization", "Bearer " + new TokenService(true, "other", 60).issueToken("Jhon123"));
+		assertNull(filter(forged).getSession().getAttribute("loggedInUserId"));
+		assertNull(request.getSession(false));
+		assertNull(forged.getSession(false));
+	}
+
+	@Test
+	public void testInvalidatingSessionRevokesToken() throws Exception {
+		String token = tokenService.issueToken("Jhon123");
+		request.addHeader("Authorization", "Bearer " + token);
+		HttpSession session = filter(request).getSession();
+		session.invalidate();
+		assertNull(tokenService.getUserId(token));
+		MockHttpServletRequest next = new MockHttpServletRequest("GET", "/note");
+		next.addHeader("Authorization", "Bearer " + token);
+		assertNull(filter(next).getSession().getAttribute("loggedInUserId"));
+	}
+
+	@Test
+	public void testSessionModePassesRequestThrough() throws Exception {
+		tokenAuthenticationFilter = new TokenAuthenticationFilter(new TokenService(false, "test-secret", 60));
+		request.addHeader("Authorization", "Bearer " + tokenService.issueToken("Jhon123"));
+		assertSame(request, filter(request));
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.stackroute.keepnote.test.schedule;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.schedule.ReminderScheduler;
+
+public class ReminderSchedulerTest {
+
+	private ReminderScheduler reminderScheduler;
+	private List<Integer> fired;
+	private List<Long> firedAt;
+	private CountDownLatch latch;
+
+	@Before
+	public void setUp() throws Exception {
+		fired = Collections.synchronizedList(new ArrayList<Integer>());
+		firedAt = Collections.synchronizedList(new ArrayList<Long>());
+		latch = new CountDownLatch(2);
+		reminderScheduler = new ReminderScheduler((reminderId, dueMillis) -> {
+			fired.add(reminderId);
+			firedAt.add(System.currentTimeMillis() - dueMillis);
+			latch.countDown();
+		}, 10);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		reminderScheduler.destroy();
+	}
+
+	@Test
+	public void testRemindersFireAtTheirDueDate() throws Exception {
+		long now = System.currentTimeMillis();
+		reminderScheduler.schedule(1, new Date(now + 200));
+		reminderScheduler.schedule(2, new Date(now + 100));
+		reminderScheduler.schedule(3, new Date(now + 150));
+		reminderScheduler.schedule(4, new Date(now + 50));
+		assertTrue(reminderScheduler.cancel(3));
+		reminderScheduler.schedule(4, null);
+		assertEquals(2, reminderScheduler.pending());
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(2, fired.get(0).intValue());
+		assertEquals(1, fired.get(1).intValue());
+		for (long late : firedAt) {
+			assertTrue("fired early", late >= 0);
+		}
+		Thread.sleep(100);
+		assertEquals(2, fired.size());
+		assertEquals(0, reminderScheduler.pending());
+	}
+
+	@Test
+	public void testOnlyClaimedRemindersAreDispatched() throws Exception {
+		reminderScheduler.destroy();
+		List<Integer> claimed = Collections.synchronizedList(new ArrayList<Integer>());
+		reminderScheduler = new ReminderScheduler((reminderId, dueMillis) -> {
+			fired.add(reminderId);
+			latch.countDown();
+		}, 10, (reminderId, dueMillis) -> {
+			claimed.add(reminderId);
+			return reminderId != 2;
+		});
+		long now = System.currentTimeMillis();
+		reminderScheduler.schedule(1, new Date(now + 50));
+		reminderScheduler.schedule(2, new Date(now + 100));
+		reminderScheduler.schedule(3, new Date(now + 150));
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(3, claimed.size());
+		assertEquals(2, fired.size());
+		assertFalse(fired.contains(2));
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.stackroute.keepnote.test.schedule;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.schedule.TimingWheel;
+
+public class TimingWheelTest {
+
+	private TimingWheel timingWheel;
+	private List<Integer> expiredIds;
+	private List<Long> expiredAt;
+	private long now;
+
+	@Before
+	public void setUp() throws Exception {
+		now = 1000000;
+		timingWheel = new TimingWheel(10, now);
+		expiredIds = new ArrayList<Integer>();
+		expiredAt = new ArrayList<Long>();
+	}
+
+	private void advanceTo(long time) {
+		now = time;
+		timingWheel.advance(time, (id, dueMillis) -> {
+			assertTrue("expired early", dueMillis <= now);
+			expiredIds.add(id);
+			expiredAt.add(now);
+		});
+	}
+
+	@Test
+	public void testTimersExpireInOrderNeverEarly() {
+		timingWheel.schedule(1, now + 25);
+		timingWheel.schedule(2, now + 5000);
+		timingWheel.schedule(3, now + 10);
+		timingWheel.schedule(4, now - 50);
+		assertEquals(4, timingWheel.size());
+
+		advanceTo(now + 9);
+		assertTrue(expiredIds.isEmpty());
+		advanceTo(now + 1);
+		assertEquals(list(4, 3), expiredIds);
+		advanceTo(now + 19);
+		assertEquals(list(4, 3), expiredIds);
+		advanceTo(now + 1);
+		assertEquals(list(4, 3, 1), expiredIds);
+		advanceTo(now + 10000);
+		assertEquals(list(4, 3, 1, 2), expiredIds);
+		assertEquals(0, timingWheel.size());
+	}
+
+	@Test
+	public void testCancelAndReschedule() {
+		timingWheel.schedule(1, now + 100);
+		timingWheel.schedule(2, now + 100);
+		timingWheel.schedule(1, now + 300);
+		assertEquals(now + 300, timingWheel.dueMillis(1));
+		assertTrue(timingWheel.cancel(2));
+		assertFalse(timingWheel.cancel(2));
+		assertEquals(-1, timingWheel.dueMillis(2));
+
+		advanceTo(now + 200);
+		assertTrue(expiredIds.isEmpty());
+		advanceTo(now + 100);
+		assertEquals(list(1), expiredIds);
+	}
+
+	@Test
+	public void testFarFutureTimers() {
+		long year = 365L * 24 * 3600 * 1000;
+		long start = now;
+		timingWheel = new TimingWheel(1000, now);
+		timingWheel.schedule(1, start + 50 * year);
+		timingWheel.schedule(2, start + 2 * year);
+		advanceTo(start + 2 * year - 1000);
+		assertTrue(expiredIds.isEmpty());
+		advanceTo(start + 2 * year);
+		assertEquals(list(2), expiredIds);
+		advanceTo(start + 50 * year - 1000);
+		assertEquals(list(2), expiredIds);
+		advanceTo(start + 50 * year + 999);
+		assertEquals(list(2, 1), expiredIds);
+	}
+
+	@Test
+	public void testRandomOperationsMatchModel() {
+		Random random = new Random(11);
+		Map<Integer, Long> pending = new HashMap<Integer, Long>();
+		for (int round = 0; round < 2000; round++) {
+			for (int i = 0; i < 50; i++) {
+				int id = random.nextInt(5000);
+				if (random.nextInt(5) == 0) {
+					assertEquals(pending.remove(id) != null, timingWheel.cancel(id));
+				} else {
+					long due = now - 100 + (long) (random.nextDouble() * random.nextDouble() * 50000000L);
+					timingWheel.schedule(id, due);
+					pending.put(id, due);
+				}
+			}
+			expiredIds.clear();
+			long previous = now;
+			advanceTo(now + random.nextInt(random.nextInt(10) == 0 ? 500000 : 100));
+			List<Integer> expected = new ArrayList<Integer>();
+			for (Map.Entry<Integer, Long> timer : pending.entrySet()) {
+				/* due before the tick of the previous advance: expired at the first tick after it */
+				long dueTick = Math.max(Math.floorDiv(timer.getValue() - 1, 10) + 1, previous / 10 + 1);
+				if (dueTick <= now / 10) {
+					expected.add(timer.getKey());
+				}
+			}
+			assertEquals(new java.util.TreeSet<Integer>(expected), new java.util.TreeSet<Integer>(expiredIds));
+			for (int id : expiredIds) {
+				pending.remove(id);
+			}
+			assertEquals(pending.size(), timingWheel.size());
+		}
+	}
+
+	private static List<Integer> list(Integer... ids) {
+		List<Integer> list = new ArrayList<Integer>();
+		for (Integer id : ids) {
+			list.add(id);
+		}
+		return list;
+	}
+
+}
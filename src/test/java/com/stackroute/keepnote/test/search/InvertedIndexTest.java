@@ -0,0 +1,181 @@
+package com.stackroute.keepnote.test.search;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.search.InvertedIndex;
+
+public class InvertedIndexTest {
+
+	private InvertedIndex invertedIndex;
+
+	@Before
+	public void setUp() throws Exception {
+		invertedIndex = new InvertedIndex();
+		invertedIndex.add(1, 1, "Testing Spring", "All about testing spring applications");
+		invertedIndex.add(2, 1, "Groceries", "Milk, eggs and bread");
+		invertedIndex.add(3, 1, "Spring boot", "Spring boot starters for spring");
+	}
+
+	@Test
+	public void testTokenize() {
+		assertEquals(Arrays.asList("don", "t", "forget", "r2d2", "caf\u00e9"),
+				InvertedIndex.tokenize("Don't  forget: R2D2 @ CAF\u00c9!"));
+		assertTrue(InvertedIndex.tokenize(" ?! ").isEmpty());
+		assertTrue(InvertedIndex.tokenize(null).isEmpty());
+	}
+
+	@Test
+	public void testSearchRanksByRelevance() {
+		assertArrayEquals(new int[] { 3, 1 }, invertedIndex.search("spring", 10));
+		assertArrayEquals(new int[] { 1, 3 }, invertedIndex.search("testing spring", 10));
+		assertArrayEquals(new int[] { 2 }, invertedIndex.search("MILK", 10));
+		assertArrayEquals(new int[] { 3 }, invertedIndex.search("spring", 1));
+		assertEquals(0, invertedIndex.search("coffee", 10).length);
+	}
+
+	@Test
+	public void testRareTermsWeighMore() {
+		invertedIndex.add(4, 1, "Bread", "Bread spring");
+		assertEquals(2, invertedIndex.search("groceries bread", 10)[0]);
+	}
+
+	@Test
+	public void testUpdateReplacesText() {
+		assertTrue(invertedIndex.add(2, 2, "Groceries", "Coffee"));
+		assertEquals(0, invertedIndex.search("milk", 10).length);
+		assertArrayEquals(new int[] { 2 }, invertedIndex.search("coffee", 10));
+		assertEquals(3, invertedIndex.size());
+	}
+
+	@Test
+	public void testStaleChangesAreIgnored() {
+		assertTrue(invertedIndex.add(2, 3, "Groceries", "Coffee"));
+		assertFalse(invertedIndex.add(2, 2, "Groceries", "Tea"));
+		assertFalse(invertedIndex.remove(2, 3));
+		assertArrayEquals(new int[] { 2 }, invertedIndex.search("coffee", 10));
+
+		assertTrue(invertedIndex.remove(2, 4));
+		assertFalse(invertedIndex.add(2, 3, "Groceries", "Coffee"));
+		assertEquals(0, invertedIndex.search("groceries", 10).length);
+		assertEquals(2, invertedIndex.size());
+	}
+
+	@Test
+	public void testRemovedDocumentsAreCompactedAway() {
+		for (int i = 10; i < 1010; i++) {
+			invertedIndex.add(i, 1, "Note " + i, "word" + i);
+		}
+		for (int i = 10; i < 1010; i++) {
+			invertedIndex.remove(i, 2);
+		}
+		assertEquals(3, invertedIndex.size());
+		assertTrue(invertedIndex.terms() < 1000);
+		assertEquals(0, invertedIndex.search("note", 10).length);
+		assertArrayEquals(new int[] { 3, 1 }, invertedIndex.search("spring", 10));
+	}
+
+	@Test
+	public void testManyDocuments() {
+		for (int i = 10; i < 100010; i++) {
+			invertedIndex.add(i, 1, "Note " + i, i % 100 == 0 ? "hundred" : "other");
+		}
+		int[] found = invertedIndex.search("hundred", 2000);
+		assertEquals(1000, found.length);
+		assertEquals(100000, found[0]);
+		assertArrayEquals(new int[] { 12345 }, invertedIndex.search("12345", 10));
+		assertTrue(invertedIndex.memoryBytes() > 0);
+	}
+
+	@Test
+	public void testFuzzySearchMatchesTypos() {
+		assertArrayEquals(new int[] { 3, 1 }, invertedIndex.search("sprng", 10, 2));
+		assertArrayEquals(new int[] { 2 }, invertedIndex.search("grocreies", 10, 2));
+		assertArrayEquals(new int[] { 2 }, invertedIndex.search("brea", 10, 1));
+		assertEquals(0, invertedIndex.search("sprng", 10, 0).length);
+		assertEquals(0, invertedIndex.search("grocreies", 10, 1).length);
+		/* too short to be matched fuzzily */
+		assertEquals(0, invertedIndex.search("eg", 10, 2).length);
+	}
+
+	@Test
+	public void testExactMatchesRankAboveFuzzyMatches() {
+		invertedIndex.add(4, 1, "Sprint", "Sprint planning");
+		invertedIndex.add(5, 1, "Spring", "Notes");
+		int[] found = invertedIndex.search("spring", 10, 2);
+		assertEquals(4, found.length);
+		assertEquals(4, found[3]);
+		found = invertedIndex.search("sprint", 10, 2);
+		assertEquals(4, found.length);
+		assertEquals(4, found[0]);
+	}
+
+	@Test
+	public void testFuzzySearchFindsAllCloseTerms() {
+		Random random = new Random(7);
+		String[] queries = { "abcdef", "fedcb", "notebook", "bcdefab" };
+		String[] words = new String[20000];
+		for (int i = 0; i < words.length; i++) {
+			StringBuilder word = new StringBuilder();
+			if (i % 200 == 0) {
+				/* a typo of a query: up to three random insertions, deletions or substitutions */
+				word.append(queries[random.nextInt(queries.length)]);
+				for (int edits = 1 + random.nextInt(3); edits > 0; edits--) {
+					int position = random.nextInt(word.length());
+					char letter = (char) ('a' + random.nextInt(26));
+					int edit = random.nextInt(3);
+					if (edit == 0) {
+						word.insert(position, letter);
+					} else if (edit == 1 && word.length() > 1) {
+						word.deleteCharAt(position);
+					} else {
+						word.setCharAt(position, letter);
+					}
+				}
+			} else {
+				for (int length = 3 + random.nextInt(6); length > 0; length--) {
+					word.append((char) ('a' + random.nextInt(26)));
+				}
+			}
+			words[i] = word.toString();
+			invertedIndex.add(10 + i, 1, words[i]);
+		}
+		for (String query : queries) {
+			int allowed = query.length() <= 5 ? 1 : 2;
+			TreeSet<Integer> expected = new TreeSet<Integer>();
+			for (int i = 0; i < words.length; i++) {
+				if (distance(query, words[i]) <= allowed) {
+					expected.add(10 + i);
+				}
+			}
+			TreeSet<Integer> found = new TreeSet<Integer>();
+			for (int documentId : invertedIndex.search(query, 1000, 2)) {
+				found.add(documentId);
+			}
+			assertFalse(query, expected.isEmpty());
+			assertEquals(query, expected, found);
+		}
+	}
+
+	private static int distance(String a, String b) {
+		int[][] distances = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			for (int j = 0; j <= b.length(); j++) {
+				if (i == 0 || j == 0) {
+					distances[i][j] = i + j;
+				} else {
+					distances[i][j] = Math.min(distances[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+							Math.min(distances[i - 1][j], distances[i][j - 1]) + 1);
+				}
+			}
+		}
+		return distances[a.length()][b.length()];
+	}
+
+}
@@ -0,0 +1,302 @@
+package com.stackroute.keepnote.test.search;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.search.NoteChanges;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.NoteSource;
+
+public class NoteSearchIndexTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path directory;
+	private NoteSearchIndex noteSearchIndex;
+	private List<Note> notes;
+	private Database database;
+	private int loads;
+	private int replays;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = temporaryFolder.getRoot().toPath();
+		notes = new ArrayList<Note>();
+		notes.add(new Note(1, "Testing Spring", "All about testing spring applications", "Active", new Date(), null,
+				null, "Jhon123"));
+		notes.add(new Note(2, "Groceries", "Milk, eggs and bread", "Active", new Date(), null, null, "Jhon123"));
+		notes.add(new Note(3, "Spring boot", "Spring boot starters for spring", "Active", new Date(), null, null,
+				"Jhon123"));
+		database = new Database();
+		noteSearchIndex = open(2);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		noteSearchIndex.destroy();
+	}
+
+	/* flushes and merges run on the calling thread */
+	private NoteSearchIndex open(int flushChanges) {
+		return new NoteSearchIndex(directory, flushChanges, Runnable::run);
+	}
+
+	private int[] search(String query) {
+		return noteSearchIndex.search("Jhon123", query, 100, database);
+	}
+
+	/* the notes of Jhon123 in the database */
+	private final class Database implements NoteSource {
+
+		private long version;
+		private final Map<Integer, Long> deleted = new HashMap<Integer, Long>();
+
+		void save(int noteId, String title, String content) {
+			delete(noteId);
+			Note note = new Note(noteId, title, content, "Active", new Date(), null, null, "Jhon123");
+			note.setChangeVersion(++version);
+			notes.add(note);
+		}
+
+		void delete(int noteId) {
+			notes.removeIf(note -> note.getNoteId() == noteId);
+			deleted.put(noteId, ++version);
+		}
+
+		@Override
+		public long changeVersion() {
+			return version;
+		}
+
+		@Override
+		public void notes(Consumer<Note> consumer) {
+			loads++;
+			notes.forEach(consumer);
+		}
+
+		@Override
+		public void changes(long afterVersion, long upToVersion, NoteChanges changes) {
+			replays++;
+			for (Note note : notes) {
+				if (note.getChangeVersion() > afterVersion && note.getChangeVersion() <= upToVersion) {
+					changes.saved(note.getNoteId(), note.getChangeVersion(), note.getNoteTitle(), note.getNoteContent());
+				}
+			}
+			for (Map.Entry<Integer, Long> entry : deleted.entrySet()) {
+				if (entry.getValue() > afterVersion && entry.getValue() <= upToVersion) {
+					changes.deleted(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+
+	}
+
+	private long files(String suffix) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(file -> file.toString().endsWith(suffix)).count();
+		}
+	}
+
+	@Test
+	public void testIndexIsOpenedFromDiskAfterRestart() throws Exception {
+		assertArrayEquals(new int[] { 3, 1 }, search("spring"));
+		noteSearchIndex.noteSaved("Jhon123", 4, 1, "Coffee", "Beans from the market");
+		noteSearchIndex.destroy();
+
+		noteSearchIndex = open(100);
+		assertArrayEquals(new int[] { 3, 1 }, search("spring"));
+		assertArrayEquals(new int[] { 4 }, search("coffee"));
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testWritesOfUserWithIndexOnDiskAreKept() throws Exception {
+		search("spring");
+		noteSearchIndex.destroy();
+
+		noteSearchIndex = open(100);
+		noteSearchIndex.noteSaved("Jhon123", 2, 1, "Groceries", "Tea and honey");
+		noteSearchIndex.noteDeleted("Jhon123", 3, 1);
+		noteSearchIndex.noteSaved("Chris", 9, 1, "Tea", "Not indexed, Chris never searched");
+		noteSearchIndex.destroy();
+
+		noteSearchIndex = open(100);
+		assertArrayEquals(new int[] { 2 }, search("tea"));
+		assertArrayEquals(new int[] { 1 }, search("spring"));
+		assertEquals(0, search("milk").length);
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testSegmentsAreMergedAndReplacedNotesDropped() throws Exception {
+		search("spring");
+		for (int i = 10; i < 110; i++) {
+			noteSearchIndex.noteSaved("Jhon123", i, 1, "Note " + i, "draft");
+		}
+		for (int i = 10; i < 110; i += 2) {
+			noteSearchIndex.noteSaved("Jhon123", i, 2, "Note " + i, "final");
+		}
+		assertTrue(files(".idx") < 10);
+		assertEquals(50, noteSearchIndex.search("Jhon123", "draft", 100, null).length);
+		assertEquals(50, noteSearchIndex.search("Jhon123", "final", 100, null).length);
+		noteSearchIndex.destroy();
+
+		noteSearchIndex = open(2);
+		assertEquals(50, search("draft").length);
+		assertArrayEquals(new int[] { 108 }, noteSearchIndex.search("Jhon123", "final", 1, null));
+		assertArrayEquals(new int[] { 3, 1 }, search("spring"));
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testFuzzySearchCoversSegmentsAndMemory() throws Exception {
+		search("spring");
+		noteSearchIndex.noteSaved("Jhon123", 4, 1, "Coffee", "Beans from the market");
+		noteSearchIndex.noteSaved("Jhon123", 5, 1, "Marketing", "Plan");
+		noteSearchIndex.noteSaved("Jhon123", 6, 1, "Tea", "Leaves from the markte");
+		assertTrue(files(".idx") > 1);
+		assertArrayEquals(new int[] { 3, 1 }, noteSearchIndex.search("Jhon123", "sprng", 100, 2, null));
+		assertArrayEquals(new int[] { 4, 6 }, noteSearchIndex.search("Jhon123", "market", 100, 2, null));
+		assertArrayEquals(new int[] { 4 }, noteSearchIndex.search("Jhon123", "market", 100, 0, null));
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testTornLogRecordIsIgnored() throws Exception {
+		noteSearchIndex.destroy();
+		noteSearchIndex = open(100);
+		search("spring");
+		noteSearchIndex.noteSaved("Jhon123", 4, 1, "Coffee", "Beans from the market");
+		noteSearchIndex.destroy();
+		try (Stream<Path> files = Files.walk(directory)) {
+			Path log = files.filter(file -> file.toString().endsWith(".wal")).findFirst().get();
+			Files.write(log, new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+		}
+
+		noteSearchIndex = open(100);
+		assertArrayEquals(new int[] { 4 }, search("coffee"));
+		noteSearchIndex.noteSaved("Jhon123", 5, 1, "Coffee", "Second bag");
+		noteSearchIndex.destroy();
+
+		noteSearchIndex = open(100);
+		assertArrayEquals(new int[] { 5, 4 }, search("coffee"));
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testUnreadableIndexIsRebuilt() throws Exception {
+		search("spring");
+		noteSearchIndex.destroy();
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path segment : (Iterable<Path>) files.filter(file -> file.toString().endsWith(".idx"))::iterator) {
+				Files.write(segment, new byte[] { 1, 2, 3 });
+			}
+		}
+
+		noteSearchIndex = open(100);
+		assertArrayEquals(new int[] { 3, 1 }, search("spring"));
+		assertEquals(2, loads);
+	}
+
+	@Test
+	public void testInvalidateRemovesIndexFromDisk() throws Exception {
+		search("spring");
+		noteSearchIndex.invalidate("Jhon123");
+		assertEquals(0, files(".idx"));
+		File[] userDirectories = temporaryFolder.getRoot().listFiles();
+		assertEquals(0, userDirectories.length);
+
+		notes.clear();
+		assertEquals(0, search("spring").length);
+		assertEquals(2, loads);
+	}
+
+	@Test
+	public void testIndexBehindDatabaseCatchesUpOnOpen() throws Exception {
+		search("spring");
+		noteSearchIndex.destroy();
+
+		/* written by another instance while the index was closed */
+		database.save(4, "Coffee", "Beans from the market");
+		database.delete(3);
+		database.version++;
+
+		noteSearchIndex = open(100);
+		assertArrayEquals(new int[] { 4 }, search("coffee"));
+		assertArrayEquals(new int[] { 1 }, search("spring"));
+		assertEquals(1, loads);
+		assertEquals(1, replays);
+	}
+
+	@Test
+	public void testWritesOfOtherInstanceAreFoundWithoutReopening() {
+		search("spring");
+		database.save(4, "Coffee", "Beans from the market");
+		assertArrayEquals(new int[] { 4 }, search("coffee"));
+		assertArrayEquals(new int[] { 4 }, search("coffee"));
+		assertEquals(1, loads);
+		assertEquals(1, replays);
+	}
+
+	@Test
+	public void testSyncedVersionSurvivesFlushAndRestart() throws Exception {
+		search("spring");
+		database.save(4, "Coffee", "Beans from the market");
+		search("coffee");
+		/* two changes, written out as a segment with a new log */
+		database.save(5, "Tea", "Green leaves");
+		noteSearchIndex.noteSaved("Jhon123", 5, database.version, "Tea", "Green leaves");
+		database.save(6, "Tea", "Black leaves");
+		noteSearchIndex.noteSaved("Jhon123", 6, database.version, "Tea", "Black leaves");
+		noteSearchIndex.destroy();
+
+		noteSearchIndex = open(100);
+		assertEquals(2, search("tea").length);
+		assertArrayEquals(new int[] { 4 }, search("coffee"));
+		assertEquals(1, loads);
+		assertEquals(2, replays);
+		noteSearchIndex.destroy();
+
+		noteSearchIndex = open(100);
+		assertEquals(2, search("tea").length);
+		assertEquals(1, loads);
+		assertEquals(2, replays);
+	}
+
+	@Test
+	public void testIndexAheadOfDatabaseIsRebuilt() throws Exception {
+		database.version = 3;
+		search("spring");
+		noteSearchIndex.destroy();
+
+		/* the database was restored from an older backup */
+		notes.remove(2);
+		database.version = 1;
+
+		noteSearchIndex = open(100);
+		assertArrayEquals(new int[] { 1 }, search("spring"));
+		assertEquals(2, loads);
+		assertEquals(0, replays);
+	}
+
+}
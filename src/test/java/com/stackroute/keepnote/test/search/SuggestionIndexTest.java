@@ -0,0 +1,149 @@
+package com.stackroute.keepnote.test.search;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.search.SuggestionIndex;
+
+public class SuggestionIndexTest {
+
+	private SuggestionIndex suggestionIndex;
+	private List<Note> notes;
+	private List<Category> categories;
+	private int loads;
+
+	@Before
+	public void setUp() throws Exception {
+		suggestionIndex = new SuggestionIndex();
+		notes = new ArrayList<Note>();
+		notes.add(note(1, "Spring  Boot starters", 3));
+		notes.add(note(2, "Springfield trip", 4));
+		notes.add(note(3, "Groceries", 1));
+		categories = new ArrayList<Category>();
+		Category category = new Category(7, "Spring", "All about spring", new Date(), "Jhon123", null);
+		category.setChangeVersion(2);
+		categories.add(category);
+	}
+
+	private static Note note(int noteId, String title, long version) {
+		Note note = new Note(noteId, title, "content", "Active", new Date(), null, null, "Jhon123");
+		note.setChangeVersion(version);
+		return note;
+	}
+
+	private List<String> suggest(String prefix, int limit) {
+		return suggestionIndex.suggest("Jhon123", prefix, limit, consumer -> {
+			loads++;
+			notes.forEach(consumer);
+		}, consumer -> categories.forEach(consumer)).stream()
+				.map(suggestion -> suggestion.getType() + ":" + suggestion.getId()).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testCompletesWordStartsMostRecentFirst() {
+		assertEquals(list("note:2", "note:1", "category:7"), suggest("SPR", 10));
+		assertEquals(list("note:2", "note:1"), suggest("spr", 2));
+		assertEquals(list("note:1"), suggest("spring ", 10));
+		assertEquals(list("note:1"), suggest("spring b", 10));
+		assertEquals(list("note:1"), suggest("boot", 10));
+		assertEquals(list("note:2"), suggest("tr", 10));
+		assertEquals(list(), suggest("oot", 10));
+		assertEquals(list(), suggest("   ", 10));
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testChangesAreAppliedByVersion() {
+		suggest("g", 10);
+		suggestionIndex.noteSaved("Jhon123", 3, 5, "Spring cleaning");
+		suggestionIndex.noteSaved("Jhon123", 1, 2, "Outdated title");
+		suggestionIndex.categoryDeleted("Jhon123", 7, 6);
+		suggestionIndex.categorySaved("Jhon123", 7, 2, "Spring");
+		suggestionIndex.noteSaved("Chris", 9, 1, "Spring for Chris");
+
+		assertEquals(list("note:3", "note:2", "note:1"), suggest("spr", 10));
+		assertEquals(list(), suggest("groc", 10));
+		assertEquals(list(), suggest("outdated", 10));
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testInvalidateRebuildsFromSource() {
+		suggest("spr", 10);
+		suggestionIndex.invalidate("Jhon123");
+		notes.clear();
+		assertEquals(list("category:7"), suggest("spr", 10));
+		assertEquals(2, loads);
+	}
+
+	@Test
+	public void testLongPrefixIsMatchedAgainstTitles() {
+		StringBuilder title = new StringBuilder("Long");
+		for (int i = 0; i < 30; i++) {
+			title.append(" word").append(i);
+		}
+		notes.add(note(4, title.toString(), 8));
+		notes.add(note(5, title.toString().replace("word29", "other"), 9));
+		assertEquals(list("note:5", "note:4"), suggest("long word0 word1", 10));
+		assertEquals(list("note:4"), suggest(title.toString(), 10));
+	}
+
+	@Test
+	public void testRandomChangesMatchFullScan() {
+		suggest("a", 10);
+		Random random = new Random(42);
+		String[] words = { "alpha", "alps", "beta", "bet", "al", "b", "gamma" };
+		Map<Integer, String> titles = new HashMap<Integer, String>();
+		Map<Integer, Long> versions = new HashMap<Integer, Long>();
+		titles.put(1, "Spring  Boot starters");
+		titles.put(2, "Springfield trip");
+		titles.put(3, "Groceries");
+		versions.put(1, 3L);
+		versions.put(2, 4L);
+		versions.put(3, 1L);
+		for (long version = 10; version < 2000; version++) {
+			int noteId = 10 + random.nextInt(200);
+			if (random.nextInt(4) == 0) {
+				suggestionIndex.noteDeleted("Jhon123", noteId, version);
+				titles.remove(noteId);
+				versions.remove(noteId);
+			} else {
+				String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+				suggestionIndex.noteSaved("Jhon123", noteId, version, title);
+				titles.put(noteId, title);
+				versions.put(noteId, version);
+			}
+		}
+		for (String prefix : new String[] { "a", "al", "alp", "alpha ", "b", "be", "bet", "beta b", "g", "s" }) {
+			List<String> expected = titles.keySet().stream()
+					.filter(noteId -> (" " + titles.get(noteId).toLowerCase().replaceAll("\\s+", " ")).contains(" " + prefix))
+					.sorted((a, b) -> Long.compare(versions.get(b), versions.get(a))).limit(SuggestionIndex.MAX_SUGGESTIONS)
+					.map(noteId -> "note:" + noteId).collect(Collectors.toList());
+			if (prefix.equals("s")) {
+				expected.add("category:7");
+			}
+			assertEquals(prefix, expected, suggest(prefix, SuggestionIndex.MAX_SUGGESTIONS));
+		}
+	}
+
+	private static List<String> list(String... values) {
+		List<String> list = new ArrayList<String>();
+		for (String value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+
+}
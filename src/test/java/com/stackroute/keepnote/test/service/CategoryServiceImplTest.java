@@ -1,6 +1,7 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -8,29 +9,44 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.SyncDAO;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.service.CategoryServiceImpl;
+import com.stackroute.keepnote.service.CollectionVersions;
+import com.stackroute.keepnote.service.NoteListCache;
+import com.stackroute.keepnote.service.ReferenceCache;
+import com.stackroute.keepnote.service.SingleFlight;
 
 public class CategoryServiceImplTest {
 
 	@Mock
 	CategoryDAO categoryDAO;
-	@InjectMocks
+	@Mock
+	SyncDAO syncDAO;
 	CategoryServiceImpl categoryServiceImpl;
+	private ReferenceCache referenceCache;
 	private Category category = null;
 	private List<Category> allCategory = null;
 
 	@Before
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
+		referenceCache = new ReferenceCache();
+		categoryServiceImpl = new CategoryServiceImpl(categoryDAO, new CollectionVersions(syncDAO),
+				new NoteListCache(true, 1000), new SingleFlight(), referenceCache);
 		category = new Category(1, "Testing", "All about testing spring application", new Date(), "Jhon123", null);
 		allCategory = new ArrayList<Category>();
 	}
@@ -60,6 +76,14 @@ public class CategoryServiceImplTest {
 		verify(categoryDAO, times(1)).deleteCategory(1);
 	}
 
+	@Test
+	public void testDeleteCategoryDropsVerifiedReference() {
+		referenceCache.putCategory(category);
+		when(categoryDAO.deleteCategory(category.getCategoryId(), "Jhon123")).thenReturn(true);
+		assertTrue(categoryServiceImpl.deleteCategory(category.getCategoryId(), "Jhon123"));
+		assertNull(referenceCache.getCategory(category.getCategoryId()));
+	}
+
 	@Test
 	public void testDeleteCategoryFailure() {
 		when(categoryDAO.deleteCategory(1)).thenReturn(false);
@@ -88,6 +112,17 @@ public class CategoryServiceImplTest {
 
 	}
 
+	@Test
+	public void testUpdateCategoryOfOtherUserNotFound() throws CategoryNotFoundException {
+		when(categoryDAO.updateCategory(category)).thenReturn(false);
+		try {
+			categoryServiceImpl.updateCategory(category, 1);
+			fail("CategoryNotFoundException expected");
+		} catch (CategoryNotFoundException e) {
+			verify(categoryDAO, never()).getCategoryById(1);
+		}
+	}
+
 	@Test
 	public void testGetCategoryByIdSuccess() throws CategoryNotFoundException {
 
@@ -121,4 +156,58 @@ public class CategoryServiceImplTest {
 		verify(categoryDAO, times(1)).getAllCategoryByUserId("Jhon123");
 	}
 
+	@Test
+	public void testGetAllCategoryByUserIdCoalescesConcurrentReads() throws Exception {
+		int readers = 200;
+		allCategory.add(category);
+		CountDownLatch ready = new CountDownLatch(readers);
+		CountDownLatch release = new CountDownLatch(1);
+		when(categoryDAO.getAllCategoryByUserId("Jhon123")).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return allCategory;
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(readers);
+		List<Future<List<Category>>> results = new ArrayList<Future<List<Category>>>();
+		for (int i = 0; i < readers; i++) {
+			results.add(executor.submit(() -> {
+				ready.countDown();
+				return categoryServiceImpl.getAllCategoryByUserId("Jhon123");
+			}));
+		}
+		assertTrue(ready.await(10, TimeUnit.SECONDS));
+		Thread.sleep(200);
+		release.countDown();
+		for (Future<List<Category>> result : results) {
+			assertEquals(allCategory, result.get(10, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+		verify(categoryDAO, times(1)).getAllCategoryByUserId("Jhon123");
+	}
+
+	@Test
+	public void testGetAllCategoryByUserIdAfterWriteDoesNotJoinOlderRead() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Category> updated = new ArrayList<Category>();
+		updated.add(category);
+		when(categoryDAO.getAllCategoryByUserId("Jhon123")).thenAnswer(invocation -> {
+			loading.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return allCategory;
+		}).thenReturn(updated);
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(1L, 2L);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<List<Category>> olderRead = executor
+				.submit(() -> categoryServiceImpl.getAllCategoryByUserId("Jhon123"));
+		assertTrue(loading.await(10, TimeUnit.SECONDS));
+		when(categoryDAO.updateCategory(category)).thenReturn(true);
+		categoryServiceImpl.updateCategory(category, 1);
+		assertEquals(updated, categoryServiceImpl.getAllCategoryByUserId("Jhon123"));
+		release.countDown();
+		assertEquals(allCategory, olderRead.get(10, TimeUnit.SECONDS));
+		executor.shutdown();
+		verify(categoryDAO, times(2)).getAllCategoryByUserId("Jhon123");
+	}
+
 }
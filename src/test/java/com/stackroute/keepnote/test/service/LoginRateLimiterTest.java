@@ -0,0 +1,129 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.service.LoginRateLimiter;
+
+public class LoginRateLimiterTest {
+
+	private AtomicLong clock;
+	private LoginRateLimiter loginRateLimiter;
+
+	@Before
+	public void setUp() throws Exception {
+		clock = new AtomicLong();
+		// 6 per minute (one every 10 seconds) with a burst of 3 per user, 60 per minute
+		// with a burst of 10 per address
+		loginRateLimiter = new LoginRateLimiter(6, 3, 60, 10, clock::get);
+	}
+
+	@Test
+	public void testBurstIsAdmittedThenRejected() {
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, loginRateLimiter.admit("Jhon123", "10.0.0.1"));
+		}
+		assertEquals(10, loginRateLimiter.admit("Jhon123", "10.0.0.2"));
+		assertEquals(Long.valueOf(3), loginRateLimiter.getStatistics().get("admitted"));
+		assertEquals(Long.valueOf(1), loginRateLimiter.getStatistics().get("rejectedByUser"));
+	}
+
+	@Test
+	public void testTokensRefillOverTime() {
+		for (int i = 0; i < 3; i++) {
+			loginRateLimiter.admit("Jhon123", "10.0.0.1");
+		}
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(9));
+		assertEquals(1, loginRateLimiter.admit("Jhon123", "10.0.0.1"));
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertEquals(0, loginRateLimiter.admit("Jhon123", "10.0.0.1"));
+		assertTrue(loginRateLimiter.admit("Jhon123", "10.0.0.1") > 0);
+		clock.addAndGet(TimeUnit.MINUTES.toNanos(10));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, loginRateLimiter.admit("Jhon123", "10.0.0.1"));
+		}
+	}
+
+	@Test
+	public void testAddressIsLimitedAcrossUsers() {
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, loginRateLimiter.admit("user" + i, "10.0.0.1"));
+		}
+		assertTrue(loginRateLimiter.admit("other", "10.0.0.1") > 0);
+		assertEquals(0, loginRateLimiter.admit("other", "10.0.0.2"));
+		assertEquals(Long.valueOf(1), loginRateLimiter.getStatistics().get("rejectedByAddress"));
+	}
+
+	@Test
+	public void testRejectedAddressDoesNotConsumeUserTokens() {
+		for (int i = 0; i < 10; i++) {
+			loginRateLimiter.admit("user" + i, "10.0.0.1");
+		}
+		for (int i = 0; i < 100; i++) {
+			loginRateLimiter.admit("Jhon123", "10.0.0.1");
+		}
+		assertEquals(0, loginRateLimiter.admit("Jhon123", "10.0.0.2"));
+	}
+
+	@Test
+	public void testConcurrentAttemptsAdmitExactlyTheBurst() throws Exception {
+		loginRateLimiter = new LoginRateLimiter(1, 50, 1, 1000, clock::get);
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		try {
+			List<Callable<Long>> attempts = new ArrayList<Callable<Long>>();
+			for (int i = 0; i < 400; i++) {
+				attempts.add(() -> loginRateLimiter.admit("Jhon123", "10.0.0.1"));
+			}
+			int admitted = 0;
+			for (Future<Long> result : executor.invokeAll(attempts)) {
+				if (result.get() == 0) {
+					admitted++;
+				}
+			}
+			assertEquals(50, admitted);
+			assertEquals(Long.valueOf(350), loginRateLimiter.getStatistics().get("rejectedByUser"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testAttackOnOneUserLeavesOthersAdmitted() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Long>> attempts = new ArrayList<Callable<Long>>();
+			for (int i = 0; i < 2000; i++) {
+				String address = "10.1." + (i % 200) + ".1";
+				attempts.add(() -> loginRateLimiter.admit("Jhon123", address));
+			}
+			List<Future<Long>> results = executor.invokeAll(attempts);
+			for (Future<Long> result : results) {
+				result.get();
+			}
+			assertTrue(loginRateLimiter.admit("Jhon123", "10.0.0.1") > 0);
+			assertEquals(0, loginRateLimiter.admit("Chris", "10.0.0.1"));
+			assertEquals(Long.valueOf(2000 - 3 + 1), loginRateLimiter.getStatistics().get("rejectedByUser"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testMissingKeysAreNotLimited() {
+		for (int i = 0; i < 20; i++) {
+			assertEquals(0, loginRateLimiter.admit(null, null));
+		}
+	}
+
+}
@@ -1,28 +1,53 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import com.stackroute.keepnote.dao.CategoryDAO;
 import com.stackroute.keepnote.dao.NoteDAO;
 import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.dao.SyncDAO;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteFieldsPage;
+import com.stackroute.keepnote.model.NotePage;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.service.CollectionVersions;
+import com.stackroute.keepnote.service.NoteListCache;
 import com.stackroute.keepnote.service.NoteServiceImpl;
+import com.stackroute.keepnote.service.ReferenceCache;
+import com.stackroute.keepnote.service.SingleFlight;
 
 public class NoteServiceImplTest {
 
@@ -32,8 +57,10 @@ public class NoteServiceImplTest {
 	private CategoryDAO categoryDAO;
 	@Mock
 	private ReminderDAO reminderDAO;
-	@InjectMocks
+	@Mock
+	private SyncDAO syncDAO;
 	NoteServiceImpl noteServiceImpl;
+	private ReferenceCache referenceCache;
 
 	private Note note;
 	private Category category;
@@ -43,6 +70,10 @@ public class NoteServiceImplTest {
 	@Before
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
+		referenceCache = new ReferenceCache();
+		noteServiceImpl = new NoteServiceImpl(noteDAO, categoryDAO, reminderDAO, syncDAO,
+				new CollectionVersions(syncDAO), new NoteListCache(true, 1000), new SingleFlight(),
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), referenceCache);
 		category = new Category(1, "Java", "Testing in java", new Date(), "Jhon123", null);
 		reminder = new Reminder(1, "Email reminder", "daily reminder", "Active", "Jhon123", null, new Date());
 		note = new Note(1, "Testing", "Testing Service layer", "Active", new Date(), category, reminder, "Jhon123");
@@ -120,6 +151,98 @@ public class NoteServiceImplTest {
 
 	}
 
+	@Test
+	public void testCreateNoteReusesVerifiedReferences() throws ReminderNotFoundException, CategoryNotFoundException {
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		when(noteDAO.createNote(any())).thenReturn(true);
+		Note second = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), new Category(),
+				new Reminder(), "Jhon123");
+		second.getCategory().setCategoryId(1);
+		second.getReminder().setReminderId(1);
+		assertTrue(noteServiceImpl.createNote(note));
+		assertTrue(noteServiceImpl.createNote(second));
+		assertSame(category, second.getCategory());
+		assertSame(reminder, second.getReminder());
+		verify(noteDAO, times(2)).createNote(any());
+		verify(categoryDAO, times(1)).getCategoryById(1);
+		verify(reminderDAO, times(1)).getReminderById(1);
+	}
+
+	@Test
+	public void testCreateNoteRejectsCategoryOfOtherUser() throws ReminderNotFoundException, CategoryNotFoundException {
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		when(noteDAO.createNote(any())).thenReturn(true);
+		Note other = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), category, null, "Alice456");
+		try {
+			noteServiceImpl.createNote(other);
+			fail("CategoryNotFoundException expected");
+		} catch (CategoryNotFoundException e) {
+		}
+		noteServiceImpl.createNote(note);
+		try {
+			noteServiceImpl.createNote(other);
+			fail("CategoryNotFoundException expected");
+		} catch (CategoryNotFoundException e) {
+		}
+		verify(noteDAO, times(1)).createNote(any());
+	}
+
+	@Test(expected = ReminderNotFoundException.class)
+	public void testCreateNoteRejectsReminderOfOtherUser() throws ReminderNotFoundException, CategoryNotFoundException {
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		noteServiceImpl.createNote(new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null,
+				reminder, "Alice456"));
+	}
+
+	@Test
+	public void testCreateNoteLooksUpInvalidatedReference()
+			throws ReminderNotFoundException, CategoryNotFoundException {
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		when(noteDAO.createNote(any())).thenReturn(true);
+		noteServiceImpl.createNote(note);
+		referenceCache.invalidateCategory(1);
+		referenceCache.invalidateUser("Jhon123");
+		noteServiceImpl.createNote(note);
+		verify(categoryDAO, times(2)).getCategoryById(1);
+		verify(reminderDAO, times(2)).getReminderById(1);
+	}
+
+	@Test
+	public void testCreateNoteUnknownCategoryIsCheckedEveryTime()
+			throws ReminderNotFoundException, CategoryNotFoundException {
+		note.setReminder(null);
+		when(categoryDAO.getCategoryById(1)).thenThrow(CategoryNotFoundException.class);
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try {
+				noteServiceImpl.createNote(note);
+				fail("CategoryNotFoundException expected");
+			} catch (CategoryNotFoundException e) {
+				note.setCategory(category);
+			}
+		}
+		verify(categoryDAO, times(2)).getCategoryById(1);
+		verify(noteDAO, never()).createNote(any());
+	}
+
+	@Test
+	public void testUpdateNoteAfterCreateSkipsLookups()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		when(noteDAO.createNote(note)).thenReturn(true);
+		when(noteDAO.UpdateNote(note)).thenReturn(true);
+		noteServiceImpl.createNote(note);
+		note.setNoteContent("Testing updateNote()");
+		noteServiceImpl.updateNote(note, 1);
+		verify(categoryDAO, times(1)).getCategoryById(1);
+		verify(reminderDAO, times(1)).getReminderById(1);
+		verify(noteDAO, never()).getNoteById(1);
+		verify(noteDAO, times(1)).UpdateNote(note);
+	}
+
 	@Test
 	public void testDeleteNoteSuccess() throws NoteNotFoundException {
 		when(noteDAO.deleteNote(1)).thenReturn(true);
@@ -128,6 +251,21 @@ public class NoteServiceImplTest {
 		verify(noteDAO, times(1)).deleteNote(1);
 	}
 
+	@Test
+	public void testCollectionVersionFollowsStoredChangeVersion() {
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(41L, 41L, 42L);
+		String initial = noteServiceImpl.getCollectionVersion("Jhon123");
+		assertEquals(initial, noteServiceImpl.getCollectionVersion("Jhon123"));
+		assertNotEquals(initial, noteServiceImpl.getCollectionVersion("Jhon123"));
+	}
+
+	@Test
+	public void testCollectionVersionIsSameOnEveryInstance() {
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(42L);
+		assertEquals(new CollectionVersions(syncDAO).getVersion("Jhon123"),
+				noteServiceImpl.getCollectionVersion("Jhon123"));
+	}
+
 	@Test
 	public void testDeleteNoteFailure() throws NoteNotFoundException {
 		when(noteDAO.deleteNote(1)).thenReturn(false);
@@ -147,12 +285,93 @@ public class NoteServiceImplTest {
 		when(noteDAO.getAllNotesByUserId("Jhon123")).thenReturn(notes);
 		List<Note> allNotes = noteServiceImpl.getAllNotesByUserId("Jhon123");
 		assertEquals(3, allNotes.size());
-		assertEquals(notes, allNotes);
+		assertEquals(noteIds(notes), noteIds(allNotes));
 		assertEquals("Testing-3", allNotes.get(2).getNoteTitle());
 		verify(noteDAO, times(1)).getAllNotesByUserId("Jhon123");
 
 	}
 
+	@Test
+	public void testGetAllNotesByUserIdServedFromCacheUntilWrite()
+			throws ReminderNotFoundException, CategoryNotFoundException {
+		notes.add(note);
+		when(noteDAO.getAllNotesByUserId("Jhon123")).thenReturn(notes);
+		assertEquals(noteIds(notes), noteIds(noteServiceImpl.getAllNotesByUserId("Jhon123")));
+		assertEquals(noteIds(notes), noteIds(noteServiceImpl.getAllNotesByUserId("Jhon123")));
+		verify(noteDAO, times(1)).getAllNotesByUserId("Jhon123");
+		when(noteDAO.deleteNote(2, "Chris")).thenReturn(true);
+		noteServiceImpl.deleteNote(2, "Chris");
+		noteServiceImpl.getAllNotesByUserId("Jhon123");
+		verify(noteDAO, times(1)).getAllNotesByUserId("Jhon123");
+		when(noteDAO.createNote(note)).thenReturn(true);
+		noteServiceImpl.createNote(note);
+		noteServiceImpl.getAllNotesByUserId("Jhon123");
+		verify(noteDAO, times(2)).getAllNotesByUserId("Jhon123");
+	}
+
+	@Test
+	public void testGetAllNotesByUserIdReloadsAfterWriteOnOtherInstance() {
+		notes.add(note);
+		when(noteDAO.getAllNotesByUserId("Jhon123")).thenReturn(notes);
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(7L, 7L, 8L);
+		noteServiceImpl.getAllNotesByUserId("Jhon123");
+		noteServiceImpl.getAllNotesByUserId("Jhon123");
+		verify(noteDAO, times(1)).getAllNotesByUserId("Jhon123");
+		noteServiceImpl.getAllNotesByUserId("Jhon123");
+		verify(noteDAO, times(2)).getAllNotesByUserId("Jhon123");
+	}
+
+	@Test
+	public void testGetAllNotesByUserIdHandsOutCopies() {
+		notes.add(note);
+		when(noteDAO.getAllNotesByUserId("Jhon123")).thenReturn(notes);
+		Note handedOut = noteServiceImpl.getAllNotesByUserId("Jhon123").get(0);
+		handedOut.setNoteTitle("Changed");
+		handedOut.getCategory().setCategoryName("Changed");
+		Note cached = noteServiceImpl.getAllNotesByUserId("Jhon123").get(0);
+		assertEquals("Testing", cached.getNoteTitle());
+		assertEquals("Java", cached.getCategory().getCategoryName());
+		verify(noteDAO, times(1)).getAllNotesByUserId("Jhon123");
+	}
+
+	/*
+	 * A reader loads the list before a note is created and only hands it to the
+	 * cache once the write has completed. The write stores a new change version,
+	 * so the writer must still see its note.
+	 */
+	@Test
+	public void testGetAllNotesByUserIdNeverOlderThanOwnWrite() throws Exception {
+		List<Note> table = new CopyOnWriteArrayList<Note>();
+		CountDownLatch readerLoading = new CountDownLatch(1);
+		CountDownLatch writeDone = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		AtomicInteger version = new AtomicInteger();
+		when(syncDAO.getChangeVersion("Jhon123")).thenAnswer(invocation -> (long) version.get());
+		when(noteDAO.createNote(note)).thenAnswer(invocation -> {
+			table.add(note);
+			version.incrementAndGet();
+			return true;
+		});
+		when(noteDAO.getAllNotesByUserId("Jhon123")).thenAnswer(invocation -> {
+			List<Note> snapshot = new ArrayList<Note>(table);
+			if (loads.incrementAndGet() == 1) {
+				readerLoading.countDown();
+				writeDone.await(500, TimeUnit.MILLISECONDS);
+			}
+			return snapshot;
+		});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<List<Note>> reader = executor.submit(() -> noteServiceImpl.getAllNotesByUserId("Jhon123"));
+		assertTrue(readerLoading.await(10, TimeUnit.SECONDS));
+		noteServiceImpl.createNote(note);
+		writeDone.countDown();
+		assertTrue(reader.get(10, TimeUnit.SECONDS).isEmpty());
+		executor.shutdown();
+		List<Note> afterWrite = noteServiceImpl.getAllNotesByUserId("Jhon123");
+		assertEquals(1, afterWrite.size());
+		assertEquals(note.getNoteId(), afterWrite.get(0).getNoteId());
+	}
+
 	@Test
 	public void testGetNoteByIdSuccess() throws NoteNotFoundException {
 		when(noteDAO.getNoteById(note.getNoteId())).thenReturn(note);
@@ -182,7 +401,7 @@ public class NoteServiceImplTest {
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
 		verify(categoryDAO, times(1)).getCategoryById(category.getCategoryId());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 		verify(reminderDAO, times(1)).getReminderById(1);
 	}
@@ -200,7 +419,7 @@ public class NoteServiceImplTest {
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
 		verify(categoryDAO, times(1)).getCategoryById(category.getCategoryId());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 
 	}
@@ -217,7 +436,7 @@ public class NoteServiceImplTest {
 		when(noteDAO.UpdateNote(note)).thenReturn(true);
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 		verify(reminderDAO, times(1)).getReminderById(1);
 	}
@@ -235,7 +454,7 @@ public class NoteServiceImplTest {
 		when(noteDAO.UpdateNote(note)).thenReturn(true);
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 
 	}
@@ -247,11 +466,212 @@ public class NoteServiceImplTest {
 		note.setNoteContent("Testing updateNote()");
 		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
 		when(categoryDAO.getCategoryById(1)).thenReturn(category);
-		when(noteDAO.getNoteById(1)).thenThrow(NoteNotFoundException.class);
-		when(noteDAO.UpdateNote(note)).thenReturn(true);
+		when(noteDAO.UpdateNote(note)).thenReturn(false);
 		@SuppressWarnings("unused")
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 
 	}
 
+	@Test
+	public void testGetNotesByUserIdFirstPage() {
+		Date createdAt = new Date(1500000000000L);
+		notes.add(new Note(1, "Testing-1", "Testing Service layer", "Active", createdAt, null, null, "Jhon123"));
+		notes.add(new Note(2, "Testing-2", "Testing Service layer", "Active", createdAt, null, null, "Jhon123"));
+		when(noteDAO.getNotesByUserId("Jhon123", null, null, 2)).thenReturn(notes);
+		NotePage page = noteServiceImpl.getNotesByUserId("Jhon123", null, 2);
+		assertEquals(notes, page.getNotes());
+		assertNotNull(page.getNextCursor());
+		verify(noteDAO, times(1)).getNotesByUserId("Jhon123", null, null, 2);
+	}
+
+	@Test
+	public void testGetNotesByUserIdNextPage() {
+		Date createdAt = new Date(1500000000000L);
+		notes.add(new Note(1, "Testing-1", "Testing Service layer", "Active", createdAt, null, null, "Jhon123"));
+		notes.add(new Note(2, "Testing-2", "Testing Service layer", "Active", createdAt, null, null, "Jhon123"));
+		when(noteDAO.getNotesByUserId("Jhon123", null, null, 2)).thenReturn(notes);
+		String cursor = noteServiceImpl.getNotesByUserId("Jhon123", null, 2).getNextCursor();
+		List<Note> lastPage = new ArrayList<Note>();
+		lastPage.add(new Note(3, "Testing-3", "Testing Service layer", "Active", createdAt, null, null, "Jhon123"));
+		when(noteDAO.getNotesByUserId("Jhon123", createdAt, 2, 2)).thenReturn(lastPage);
+		NotePage page = noteServiceImpl.getNotesByUserId("Jhon123", cursor, 2);
+		assertEquals(lastPage, page.getNotes());
+		assertNull(page.getNextCursor());
+		verify(noteDAO, times(1)).getNotesByUserId("Jhon123", createdAt, 2, 2);
+	}
+
+	@Test
+	public void testGetNotesByUserIdNextPageAfterNoteWithoutCreationDate() {
+		notes.add(new Note(1, "Testing-1", "Testing Service layer", "Active", null, null, null, "Jhon123"));
+		notes.add(new Note(2, "Testing-2", "Testing Service layer", "Active", null, null, null, "Jhon123"));
+		when(noteDAO.getNotesByUserId("Jhon123", null, null, 2)).thenReturn(notes);
+		String cursor = noteServiceImpl.getNotesByUserId("Jhon123", null, 2).getNextCursor();
+		noteServiceImpl.getNotesByUserId("Jhon123", cursor, 2);
+		verify(noteDAO, times(1)).getNotesByUserId("Jhon123", null, 2, 2);
+	}
+
+	@Test
+	public void testGetNotesByUserIdLimitIsCapped() {
+		when(noteDAO.getNotesByUserId(eq("Jhon123"), any(), eq(null), eq(NoteServiceImpl.MAX_PAGE_SIZE)))
+				.thenReturn(notes);
+		NotePage page = noteServiceImpl.getNotesByUserId("Jhon123", null, 100000);
+		assertEquals(0, page.getNotes().size());
+		assertNull(page.getNextCursor());
+		verify(noteDAO, times(1)).getNotesByUserId("Jhon123", null, null, NoteServiceImpl.MAX_PAGE_SIZE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetNotesByUserIdMalformedCursor() {
+		noteServiceImpl.getNotesByUserId("Jhon123", "not-a-cursor", 2);
+	}
+
+	@Test
+	public void testGetAllNotesByUserIdWithFields() {
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		when(noteDAO.getNoteFieldsByUserId("Jhon123", Arrays.asList("noteId", "noteTitle"))).thenReturn(rows);
+		assertEquals(rows, noteServiceImpl.getAllNotesByUserId("Jhon123", "noteId, noteTitle,,noteId"));
+		verify(noteDAO, times(1)).getNoteFieldsByUserId("Jhon123", Arrays.asList("noteId", "noteTitle"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetAllNotesByUserIdWithoutFields() {
+		noteServiceImpl.getAllNotesByUserId("Jhon123", " , ");
+	}
+
+	@Test
+	public void testGetNotesByUserIdWithFieldsKeepsCursorPosition() {
+		Date createdAt = new Date(1500000000000L);
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		for (int noteId = 1; noteId <= 2; noteId++) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put("noteTitle", "Testing-" + noteId);
+			row.put("noteCreatedAt", createdAt);
+			row.put("noteId", noteId);
+			rows.add(row);
+		}
+		List<String> selected = Arrays.asList("noteTitle", "noteCreatedAt", "noteId");
+		when(noteDAO.getNoteFieldsByUserId("Jhon123", selected, null, null, 2)).thenReturn(rows);
+		NoteFieldsPage page = noteServiceImpl.getNotesByUserId("Jhon123", null, 2, "noteTitle");
+		assertEquals(1, page.getNotes().get(1).size());
+		assertEquals("Testing-2", page.getNotes().get(1).get("noteTitle"));
+		assertNotNull(page.getNextCursor());
+		noteServiceImpl.getNotesByUserId("Jhon123", page.getNextCursor(), 2, "noteTitle");
+		verify(noteDAO, times(1)).getNoteFieldsByUserId("Jhon123", selected, createdAt, 2, 2);
+	}
+
+	@Test
+	public void testCreateNotesSuccess() throws ReminderNotFoundException, CategoryNotFoundException {
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		notes.add(note);
+		notes.add(new Note(2, "Testing-2", "Testing Service layer", "Active", null, category, reminder, "Jhon123"));
+		List<NoteBatchResult> results = noteServiceImpl.createNotes(notes);
+		assertEquals(2, results.size());
+		assertEquals(NoteBatchResult.CREATED, results.get(0).getStatus());
+		assertEquals(NoteBatchResult.CREATED, results.get(1).getStatus());
+		assertNotNull(notes.get(1).getNoteCreatedAt());
+		verify(noteDAO, times(1)).createNotes(notes);
+		verify(categoryDAO, times(1)).getCategoryById(1);
+		verify(reminderDAO, times(1)).getReminderById(1);
+	}
+
+	@Test
+	public void testCreateNotesReportsEachItem() throws ReminderNotFoundException, CategoryNotFoundException {
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		Reminder missing = new Reminder(9, "Missing", "unknown reminder", "Active", "Jhon123", null, new Date());
+		when(reminderDAO.getReminderById(9)).thenThrow(new ReminderNotFoundException("not found"));
+		notes.add(note);
+		notes.add(new Note(0, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123"));
+		notes.add(new Note(0, "Testing-3", "Testing Service layer", "Active", new Date(), null, missing, "Jhon123"));
+		List<NoteBatchResult> results = noteServiceImpl.createNotes(notes);
+		assertEquals(NoteBatchResult.CREATED, results.get(0).getStatus());
+		assertEquals(NoteBatchResult.CREATED, results.get(1).getStatus());
+		assertEquals(NoteBatchResult.REFERENCE_NOT_FOUND, results.get(2).getStatus());
+		assertEquals(2, results.get(2).getIndex());
+		List<Note> saved = new ArrayList<Note>();
+		saved.add(note);
+		saved.add(notes.get(1));
+		verify(noteDAO, times(1)).createNotes(saved);
+	}
+
+	@Test
+	public void testCreateNotesTransactionFailure() {
+		notes.add(new Note(1, "Testing-1", "Testing Service layer", "Active", new Date(), null, null, "Jhon123"));
+		notes.add(new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123"));
+		when(noteDAO.createNotes(anyList())).thenThrow(new IllegalStateException("constraint violation"));
+		List<NoteBatchResult> results = noteServiceImpl.createNotes(notes);
+		assertEquals(NoteBatchResult.FAILED, results.get(0).getStatus());
+		assertEquals(NoteBatchResult.FAILED, results.get(1).getStatus());
+	}
+
+	@Test
+	public void testSearchNotesBuildsIndexOnce() {
+		notes.add(note);
+		notes.add(new Note(2, "Spring testing", "Testing the service layer with mocks", "Active", new Date(), null, null,
+				"Jhon123"));
+		notes.add(new Note(3, "Groceries", "Milk and bread", "Active", new Date(), null, null, "Jhon123"));
+		doAnswer(invocation -> {
+			Consumer<Note> consumer = invocation.getArgument(1);
+			notes.forEach(consumer);
+			return null;
+		}).when(noteDAO).streamNotesByUserId(eq("Jhon123"), any());
+		/* Hand the hits back in reverse id order, the ranking must still be kept. */
+		when(noteDAO.getNotesByIds(eq("Jhon123"), any())).thenAnswer(invocation -> {
+			Collection<Integer> ids = invocation.getArgument(1);
+			List<Note> hits = new ArrayList<Note>();
+			for (int i = notes.size() - 1; i >= 0; i--) {
+				if (ids.contains(notes.get(i).getNoteId())) {
+					hits.add(notes.get(i));
+				}
+			}
+			return hits;
+		});
+
+		List<Note> found = noteServiceImpl.searchNotes("Jhon123", "testing layer", 10, 0);
+		assertEquals(Arrays.asList(1, 2), noteIds(found));
+		assertEquals(Arrays.asList(3), noteIds(noteServiceImpl.searchNotes("Jhon123", "bread", 10, 0)));
+		assertEquals(Arrays.asList(3), noteIds(noteServiceImpl.searchNotes("Jhon123", "groseries", 10, 2)));
+		assertTrue(noteServiceImpl.searchNotes("Jhon123", "coffee", 10, 2).isEmpty());
+		verify(noteDAO, times(1)).streamNotesByUserId(eq("Jhon123"), any());
+		verify(noteDAO, never()).getAllNotesByUserId("Jhon123");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSearchNotesRejectsLimitBelowOne() {
+		noteServiceImpl.searchNotes("Jhon123", "coffee", 0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSearchNotesRejectsLimitAboveMaxPageSize() {
+		noteServiceImpl.searchNotes("Jhon123", "coffee", NoteServiceImpl.MAX_PAGE_SIZE + 1, 0);
+	}
+
+	@Test
+	public void testSearchNotesReplaysChangesOfOtherInstance() {
+		notes.add(note);
+		doAnswer(invocation -> {
+			Consumer<Note> consumer = invocation.getArgument(1);
+			notes.forEach(consumer);
+			return null;
+		}).when(noteDAO).streamNotesByUserId(eq("Jhon123"), any());
+		Note coffee = new Note(2, "Coffee", "Beans from the market", "Active", new Date(), null, null, "Jhon123");
+		coffee.setChangeVersion(2);
+		when(noteDAO.getNotesByIds(eq("Jhon123"), any())).thenReturn(Arrays.asList(coffee));
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(1L, 1L, 2L);
+		when(syncDAO.getNotesChangedBetween("Jhon123", 1L, 2L)).thenReturn(Arrays.asList(coffee));
+
+		assertTrue(noteServiceImpl.searchNotes("Jhon123", "coffee", 10, 0).isEmpty());
+		assertEquals(Arrays.asList(2), noteIds(noteServiceImpl.searchNotes("Jhon123", "coffee", 10, 0)));
+		verify(noteDAO, times(1)).streamNotesByUserId(eq("Jhon123"), any());
+	}
+
+	private static List<Integer> noteIds(List<Note> notes) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (Note note : notes) {
+			ids.add(note.getNoteId());
+		}
+		return ids;
+	}
+
 }
@@ -1,6 +1,10 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -8,22 +12,32 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.dao.SyncDAO;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.schedule.ReminderScheduler;
+import com.stackroute.keepnote.service.CollectionVersions;
+import com.stackroute.keepnote.service.NoteListCache;
+import com.stackroute.keepnote.service.ReferenceCache;
 import com.stackroute.keepnote.service.ReminderServiceImpl;
+import com.stackroute.keepnote.service.SingleFlight;
 
 public class ReminderServiceImplTest {
 
 	@Mock
 	ReminderDAO reminderDAO;
-	@InjectMocks
+	@Mock
+	ReminderScheduler reminderScheduler;
+	@Mock
+	SyncDAO syncDAO;
 	ReminderServiceImpl reminderServiceImpl;
 	private Reminder reminder = null;
 	private List<Reminder> allReminder = null;
@@ -31,6 +45,8 @@ public class ReminderServiceImplTest {
 	@Before
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
+		reminderServiceImpl = new ReminderServiceImpl(reminderDAO, new CollectionVersions(syncDAO), new NoteListCache(true, 1000),
+				new SingleFlight(), reminderScheduler, new ReferenceCache());
 		reminder = new Reminder(1, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
 		allReminder = new ArrayList<Reminder>();
 	}
@@ -76,6 +92,29 @@ public class ReminderServiceImplTest {
 
 	}
 
+	@Test
+	public void testUpdateReminderOfOtherUserNotFound() {
+		when(reminderDAO.updateReminder(reminder)).thenReturn(false);
+		try {
+			reminderServiceImpl.updateReminder(reminder, 1);
+			fail("ReminderNotFoundException expected");
+		} catch (ReminderNotFoundException e) {
+			verify(reminderScheduler, never()).schedule(anyInt(), any());
+		}
+	}
+
+	@Test
+	public void testGetReminderByIdOfOwner() throws ReminderNotFoundException {
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		assertEquals(reminder, reminderServiceImpl.getReminderById(1, "Jhon123"));
+	}
+
+	@Test(expected = ReminderNotFoundException.class)
+	public void testGetReminderByIdOfOtherUserNotFound() throws ReminderNotFoundException {
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		reminderServiceImpl.getReminderById(1, "Intruder");
+	}
+
 	@Test
 	public void testDeleteReminder() {
 
@@ -114,4 +153,31 @@ public class ReminderServiceImplTest {
 		assertEquals(allReminder, reminders);
 	}
 
+	@Test
+	public void testRemindersAreKeptInSyncWithScheduler() throws ReminderNotFoundException {
+		Date due = new Date(System.currentTimeMillis() + 60000);
+		reminder.setReminderDueDate(due);
+		doAnswer(invocation -> {
+			Consumer<Reminder> consumer = invocation.getArgument(1);
+			consumer.accept(reminder);
+			return null;
+		}).when(reminderDAO).streamRemindersDueAfter(any(Date.class), any());
+		reminderServiceImpl.afterPropertiesSet();
+		verify(reminderScheduler, times(1)).schedule(1, due);
+
+		when(reminderDAO.createReminder(reminder)).thenReturn(true);
+		reminderServiceImpl.createReminder(reminder);
+		verify(reminderScheduler, times(2)).schedule(1, due);
+
+		Reminder stored = new Reminder(1, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
+		when(reminderDAO.getReminderById(1)).thenReturn(stored);
+		when(reminderDAO.updateReminder(reminder)).thenReturn(true);
+		reminderServiceImpl.updateReminder(reminder, 1);
+		verify(reminderScheduler, times(1)).schedule(1, null);
+
+		when(reminderDAO.deleteReminder(1, "Jhon123")).thenReturn(true);
+		reminderServiceImpl.deleteReminder(1, "Jhon123");
+		verify(reminderScheduler, times(1)).cancel(1);
+	}
+
 }
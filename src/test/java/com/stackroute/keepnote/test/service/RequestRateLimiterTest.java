@@ -0,0 +1,69 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.service.RequestRateLimiter;
+
+public class RequestRateLimiterTest {
+
+	private AtomicLong clock;
+	private RequestRateLimiter requestRateLimiter;
+
+	@Before
+	public void setUp() throws Exception {
+		clock = new AtomicLong();
+		// 60 tokens per minute (one per second), a burst of 10 and 2 requests in progress
+		requestRateLimiter = new RequestRateLimiter(60, 10, 2, clock::get);
+	}
+
+	@Test
+	public void testCostIsChargedFromTheBudget() {
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, requestRateLimiter.acquire("Jhon123", 2));
+			requestRateLimiter.release("Jhon123");
+		}
+		assertEquals(2, requestRateLimiter.acquire("Jhon123", 2));
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertEquals(1, requestRateLimiter.acquire("Jhon123", 2));
+		assertEquals(0, requestRateLimiter.acquire("Jhon123", 1));
+		assertEquals(Long.valueOf(2), requestRateLimiter.getStatistics().get("rejectedByRate"));
+	}
+
+	@Test
+	public void testRequestsInProgressAreBounded() {
+		assertEquals(0, requestRateLimiter.acquire("Jhon123", 1));
+		assertEquals(0, requestRateLimiter.acquire("Jhon123", 1));
+		assertEquals(1, requestRateLimiter.acquire("Jhon123", 1));
+		assertEquals(0, requestRateLimiter.acquire("Chris", 1));
+		requestRateLimiter.release("Jhon123");
+		assertEquals(0, requestRateLimiter.acquire("Jhon123", 1));
+		assertEquals(Long.valueOf(1), requestRateLimiter.getStatistics().get("rejectedByConcurrency"));
+	}
+
+	@Test
+	public void testRejectedRequestDoesNotHoldASlot() {
+		requestRateLimiter = new RequestRateLimiter(60, 1, 1, clock::get);
+		assertEquals(0, requestRateLimiter.acquire("Jhon123", 1));
+		requestRateLimiter.release("Jhon123");
+		assertTrue(requestRateLimiter.acquire("Jhon123", 1) > 0);
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertEquals(0, requestRateLimiter.acquire("Jhon123", 1));
+	}
+
+	@Test
+	public void testIdleUsersAreNotTracked() {
+		for (int i = 0; i < 1000; i++) {
+			requestRateLimiter.acquire("user" + i, 1);
+			requestRateLimiter.release("user" + i);
+		}
+		assertEquals(Long.valueOf(0), requestRateLimiter.getStatistics().get("activeUsers"));
+		assertEquals(Long.valueOf(1000), requestRateLimiter.getStatistics().get("admitted"));
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.stackroute.keepnote.service.LoginRateLimiter;
+import com.stackroute.keepnote.service.NoteListCache;
+import com.stackroute.keepnote.service.RequestRateLimiter;
+import com.stackroute.keepnote.service.StatisticsServiceImpl;
+
+public class StatisticsServiceImplTest {
+
+	@Mock
+	private SessionFactory sessionFactory;
+	@Mock
+	private Statistics statistics;
+	@Mock
+	private SecondLevelCacheStatistics categoryStatistics;
+	@Mock
+	private LoginRateLimiter loginRateLimiter;
+	@Mock
+	private RequestRateLimiter requestRateLimiter;
+	private StatisticsServiceImpl statisticsServiceImpl;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		statisticsServiceImpl = new StatisticsServiceImpl(sessionFactory, new NoteListCache(true, 1000), loginRateLimiter,
+				requestRateLimiter);
+		when(sessionFactory.getStatistics()).thenReturn(statistics);
+		when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[] { "keepnote.category" });
+		when(statistics.getSecondLevelCacheStatistics("keepnote.category")).thenReturn(categoryStatistics);
+		when(categoryStatistics.getHitCount()).thenReturn(40L);
+		when(categoryStatistics.getMissCount()).thenReturn(2L);
+		when(categoryStatistics.getPutCount()).thenReturn(2L);
+		when(categoryStatistics.getElementCountInMemory()).thenReturn(2L);
+	}
+
+	@Test
+	public void testGetCacheStatistics() {
+		Map<String, Map<String, Long>> regions = statisticsServiceImpl.getCacheStatistics();
+		assertEquals(2, regions.size());
+		Map<String, Long> counters = regions.get("keepnote.category");
+		assertEquals(Long.valueOf(40), counters.get("hits"));
+		assertEquals(Long.valueOf(2), counters.get("misses"));
+		assertEquals(Long.valueOf(2), counters.get("puts"));
+		assertEquals(Long.valueOf(0), counters.get("evictions"));
+		assertEquals(Long.valueOf(2), counters.get("size"));
+		Map<String, Long> noteLists = regions.get(NoteListCache.NAME);
+		assertEquals(Long.valueOf(0), noteLists.get("hits"));
+		assertEquals(Long.valueOf(0), noteLists.get("size"));
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.stackroute.keepnote.dao.SyncDAO;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.SyncChanges;
+import com.stackroute.keepnote.model.Tombstone;
+import com.stackroute.keepnote.service.SyncServiceImpl;
+
+public class SyncServiceImplTest {
+
+	@Mock
+	private SyncDAO syncDAO;
+	@InjectMocks
+	private SyncServiceImpl syncServiceImpl;
+
+	private List<Note> notes;
+	private List<Tombstone> tombstones;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		notes = new ArrayList<Note>();
+		notes.add(new Note(1, "Testing-1", "Testing Service layer", "Active", new Date(), null, null, "Jhon123"));
+		tombstones = new ArrayList<Tombstone>();
+		tombstones.add(new Tombstone(Tombstone.CATEGORY, 4, "Jhon123", 7));
+	}
+
+	@Test
+	public void testGetChangesSinceFullSync() {
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(7L);
+		when(syncDAO.getNotesChangedBetween("Jhon123", 0, 7)).thenReturn(notes);
+		when(syncDAO.getTombstonesBetween("Jhon123", 0, 7)).thenReturn(tombstones);
+		SyncChanges changes = syncServiceImpl.getChangesSince("Jhon123", null);
+		assertEquals(notes, changes.getNotes());
+		assertEquals(tombstones, changes.getDeleted());
+		assertNotNull(changes.getToken());
+	}
+
+	@Test
+	public void testGetChangesSinceToken() {
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(7L);
+		String token = syncServiceImpl.getChangesSince("Jhon123", null).getToken();
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(9L);
+		when(syncDAO.getNotesChangedBetween("Jhon123", 7, 9)).thenReturn(notes);
+		SyncChanges changes = syncServiceImpl.getChangesSince("Jhon123", token);
+		assertEquals(notes, changes.getNotes());
+		assertNotEquals(token, changes.getToken());
+		verify(syncDAO, times(1)).getNotesChangedBetween("Jhon123", 7, 9);
+	}
+
+	@Test
+	public void testGetChangesSinceWithoutChangesSkipsQueries() {
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(7L);
+		String token = syncServiceImpl.getChangesSince("Jhon123", null).getToken();
+		SyncChanges changes = syncServiceImpl.getChangesSince("Jhon123", token);
+		assertEquals(token, changes.getToken());
+		assertTrue(changes.getNotes().isEmpty());
+		assertTrue(changes.getDeleted().isEmpty());
+		verify(syncDAO, times(1)).getNotesChangedBetween(anyString(), anyLong(), anyLong());
+		verify(syncDAO, times(1)).getTombstonesBetween(anyString(), anyLong(), anyLong());
+	}
+
+	@Test
+	public void testGetChangesSinceUnknownTokenFallsBackToFullSync() {
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(70L);
+		String token = syncServiceImpl.getChangesSince("Jhon123", null).getToken();
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(7L);
+		when(syncDAO.getNotesChangedBetween("Jhon123", 0, 7)).thenReturn(notes);
+		assertEquals(notes, syncServiceImpl.getChangesSince("Jhon123", token).getNotes());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetChangesSinceMalformedToken() {
+		syncServiceImpl.getChangesSince("Jhon123", "not-a-token");
+	}
+
+	@Test
+	public void testGetChangesOfUserWithoutWrites() {
+		when(syncDAO.getChangeVersion("Jhon123")).thenReturn(0L);
+		SyncChanges changes = syncServiceImpl.getChangesSince("Jhon123", null);
+		assertTrue(changes.getNotes().isEmpty());
+		verify(syncDAO, never()).getNotesChangedBetween(anyString(), anyLong(), anyLong());
+	}
+
+}
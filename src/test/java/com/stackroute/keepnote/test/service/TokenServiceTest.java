@@ -0,0 +1,66 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.service.TokenService;
+
+public class TokenServiceTest {
+
+	private TokenService tokenService;
+
+	@Before
+	public void setUp() throws Exception {
+		tokenService = new TokenService(true, "test-secret", 60);
+	}
+
+	@Test
+	public void testIssuedTokenIsValid() {
+		String token = tokenService.issueToken("Jhon123");
+		assertEquals("Jhon123", tokenService.getUserId(token));
+		assertEquals("Jhon123", new TokenService(true, "test-secret", 60).getUserId(token));
+	}
+
+	@Test
+	public void testTokenOfOtherSecretIsRejected() {
+		String token = new TokenService(true, "other-secret", 60).issueToken("Jhon123");
+		assertNull(tokenService.getUserId(token));
+	}
+
+	@Test
+	public void testTamperedTokenIsRejected() {
+		String token = tokenService.issueToken("Jhon123");
+		String otherUser = tokenService.issueToken("Chris");
+		String forged = otherUser.substring(0, otherUser.indexOf('.')) + token.substring(token.indexOf('.'));
+		assertNull(tokenService.getUserId(forged));
+		String extended = token.replaceFirst("\\.\\d+\\.", "." + Long.MAX_VALUE + ".");
+		assertNull(tokenService.getUserId(extended));
+	}
+
+	@Test
+	public void testMalformedTokenIsRejected() {
+		assertNull(tokenService.getUserId(null));
+		assertNull(tokenService.getUserId(""));
+		assertNull(tokenService.getUserId("Jhon123"));
+		assertNull(tokenService.getUserId("a.b.c.d"));
+		assertNull(tokenService.getUserId("a.b.%%%"));
+	}
+
+	@Test
+	public void testExpiredTokenIsRejected() {
+		String token = new TokenService(true, "test-secret", 0).issueToken("Jhon123");
+		assertNull(tokenService.getUserId(token));
+	}
+
+	@Test
+	public void testRevokedTokenIsRejected() {
+		String token = tokenService.issueToken("Jhon123");
+		String other = tokenService.issueToken("Chris");
+		tokenService.revokeToken(token);
+		assertNull(tokenService.getUserId(token));
+		assertEquals("Chris", tokenService.getUserId(other));
+	}
+
+}
@@ -1,35 +1,55 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
 import java.util.Date;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
+import com.stackroute.keepnote.dao.ReminderDAO;
 import com.stackroute.keepnote.dao.UserDAO;
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.schedule.ReminderScheduler;
+import com.stackroute.keepnote.search.NoteSearchIndex;
+import com.stackroute.keepnote.search.SuggestionIndex;
+import com.stackroute.keepnote.service.NoteListCache;
+import com.stackroute.keepnote.service.PasswordHasher;
+import com.stackroute.keepnote.service.ReferenceCache;
 import com.stackroute.keepnote.service.UserServiceImpl;
 
 public class UserServiceImplTest {
 
 	@Mock private UserDAO userDAO;
-	@InjectMocks UserServiceImpl userServiceImpl;
+	@Mock private ReminderDAO reminderDAO;
+	@Mock private ReminderScheduler reminderScheduler;
+	@Spy private PasswordHasher passwordHasher = new PasswordHasher(1000);
+	UserServiceImpl userServiceImpl;
      
 	private User user;
 
 	@Before
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
+		userServiceImpl = new UserServiceImpl(userDAO, passwordHasher, new NoteListCache(true, 1000),
+				new NoteSearchIndex(null, NoteSearchIndex.DEFAULT_FLUSH_CHANGES, Runnable::run), new SuggestionIndex(),
+				new ReferenceCache(), reminderDAO, reminderScheduler);
 		user = new User("Jhon123", "Jhon Simon", "123456", "9872367384", new Date());
 	}
 
@@ -102,20 +122,81 @@ public class UserServiceImplTest {
 	@Test
 	public void testValidateUserSuccess() throws UserNotFoundException {
 
-		when(userDAO.validateUser("Jhon123", "123456")).thenReturn(true);
+		user.setUserPassword(passwordHasher.hash("123456"));
+		when(userDAO.getUserById("Jhon123")).thenReturn(user);
 		boolean status = userServiceImpl.validateUser("Jhon123", "123456");
 		assertEquals(true, status);
-		verify(userDAO, times(1)).validateUser("Jhon123", "123456");
+		verify(userDAO, times(1)).getUserById("Jhon123");
+		verify(userDAO, never()).updateUser(user);
 	}
 
 	@Test(expected = UserNotFoundException.class)
 	public void testValidateUserFailure() throws UserNotFoundException {
-		when(userDAO.validateUser("Jhon123", "123456")).thenReturn(false);
+		user.setUserPassword(passwordHasher.hash("123456"));
+		when(userDAO.getUserById("Jhon123")).thenReturn(user);
+		@SuppressWarnings("unused")
+		boolean status = userServiceImpl.validateUser("Jhon123", "654321");
+
+	}
+
+	@Test(expected = UserNotFoundException.class)
+	public void testValidateUnknownUserFailure() throws UserNotFoundException {
+		when(userDAO.getUserById("Jhon123")).thenReturn(null);
 		@SuppressWarnings("unused")
 		boolean status = userServiceImpl.validateUser("Jhon123", "123456");
 
 	}
 
+	@Test
+	public void testValidateUserUpgradesPlainTextAndOutdatedPasswords() throws UserNotFoundException {
+		when(userDAO.getUserById("Jhon123")).thenReturn(user);
+		assertTrue(userServiceImpl.validateUser("Jhon123", "123456"));
+		assertTrue(user.getUserPassword().startsWith("pbkdf2-sha256$1000$"));
+		assertTrue(passwordHasher.verify("123456", user.getUserPassword()));
+
+		User other = new User("Chris", "Chris", new PasswordHasher(500).hash("abcdef"), "9872367384", new Date());
+		when(userDAO.getUserById("Chris")).thenReturn(other);
+		assertTrue(userServiceImpl.validateUser("Chris", "abcdef"));
+		assertTrue(other.getUserPassword().startsWith("pbkdf2-sha256$1000$"));
+		verify(userDAO, times(1)).updateUser(user);
+		verify(userDAO, times(1)).updateUser(other);
+	}
+
+	@Test
+	public void testValidateUserRepeatedLoginSkipsHashing() throws UserNotFoundException {
+		user.setUserPassword(passwordHasher.hash("123456"));
+		when(userDAO.getUserById("Jhon123")).thenReturn(user);
+		assertTrue(userServiceImpl.validateUser("Jhon123", "123456"));
+		assertTrue(userServiceImpl.validateUser("Jhon123", "123456"));
+		verify(passwordHasher, times(1)).verify(eq("123456"), anyString());
+		try {
+			userServiceImpl.validateUser("Jhon123", "654321");
+			fail("Wrong password accepted");
+		} catch (UserNotFoundException e) {
+			verify(passwordHasher, times(1)).verify(eq("654321"), anyString());
+		}
+		user.setUserPassword(passwordHasher.hash("changed"));
+		try {
+			userServiceImpl.validateUser("Jhon123", "123456");
+			fail("Old password accepted after change");
+		} catch (UserNotFoundException e) {
+			verify(passwordHasher, times(2)).verify(eq("123456"), anyString());
+		}
+	}
+
+	@Test
+	public void testRegisterAndUpdateUserHashPassword() throws Exception {
+		when(userDAO.getUserById(user.getUserId())).thenReturn(null);
+		userServiceImpl.registerUser(user);
+		assertNotEquals("123456", user.getUserPassword());
+		assertTrue(passwordHasher.verify("123456", user.getUserPassword()));
+
+		when(userDAO.getUserById("Jhon123")).thenReturn(user);
+		user.setUserPassword("654321");
+		userServiceImpl.updateUser(user, "Jhon123");
+		assertTrue(passwordHasher.verify("654321", user.getUserPassword()));
+	}
+
 	@Test
 	public void testDeleteUserSuccess() {
 
@@ -133,4 +214,39 @@ public class UserServiceImplTest {
 		verify(userDAO, times(1)).deleteUser("Jhon123");
 	}
 
+	@Test
+	public void testDeleteUserAndDataInOneTransaction() {
+		when(userDAO.deleteUserAndData("Jhon123")).thenReturn(true);
+		assertTrue(userServiceImpl.deleteUserAndData("Jhon123", 0));
+		verify(userDAO, never()).deleteUserDataChunk(anyString(), anyInt());
+		verify(userDAO, times(1)).deleteUserAndData("Jhon123");
+	}
+
+	@Test
+	public void testDeleteUserAndDataInChunks() {
+		when(userDAO.deleteUserDataChunk("Jhon123", 100)).thenReturn(100, 100, 37, 0);
+		when(userDAO.deleteUserAndData("Jhon123")).thenReturn(true);
+		assertTrue(userServiceImpl.deleteUserAndData("Jhon123", 100));
+		InOrder order = inOrder(userDAO);
+		order.verify(userDAO, times(4)).deleteUserDataChunk("Jhon123", 100);
+		order.verify(userDAO).deleteUserAndData("Jhon123");
+	}
+
+	@Test
+	public void testDeleteUserAndDataCancelsReminders() {
+		when(reminderDAO.getReminderIdsByUserId("Jhon123")).thenReturn(Arrays.asList(4, 7));
+		when(userDAO.deleteUserAndData("Jhon123")).thenReturn(true);
+		assertTrue(userServiceImpl.deleteUserAndData("Jhon123", 0));
+		verify(reminderScheduler).cancel(4);
+		verify(reminderScheduler).cancel(7);
+	}
+
+	@Test
+	public void testDeleteUserAndDataFailureKeepsReminders() {
+		when(reminderDAO.getReminderIdsByUserId("Jhon123")).thenReturn(Arrays.asList(4));
+		when(userDAO.deleteUserAndData("Jhon123")).thenReturn(false);
+		assertFalse(userServiceImpl.deleteUserAndData("Jhon123", 0));
+		verify(reminderScheduler, never()).cancel(anyInt());
+	}
+
 }